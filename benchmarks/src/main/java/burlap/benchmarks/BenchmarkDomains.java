@@ -0,0 +1,94 @@
+package burlap.benchmarks;
+
+import burlap.behavior.functionapproximation.dense.NormalizedVariableFeatures;
+import burlap.domain.singleagent.blockdude.BlockDude;
+import burlap.domain.singleagent.blockdude.BlockDudeLevelConstructor;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.GridWorldTerminalFunction;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.domain.singleagent.mountaincar.MountainCar;
+import burlap.mdp.core.Domain;
+import burlap.mdp.core.state.State;
+import burlap.mdp.core.state.vardomain.VariableDomain;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.oo.OOSADomain;
+
+/**
+ * Domain and state constructors shared by the benchmarks.
+ * @author James MacGlashan
+ *
+ */
+public class BenchmarkDomains {
+
+	private BenchmarkDomains(){
+		// do nothing
+	}
+
+
+	/**
+	 * Returns a size x size grid world with the four rooms layout scaled to its size, a uniform step cost,
+	 * and a terminal state in the top right corner.
+	 * @param size the width and height of the grid
+	 * @return the grid world domain generator
+	 */
+	public static GridWorldDomain gridWorld(int size){
+		GridWorldDomain gw = new GridWorldDomain(size, size);
+		if(size == 11){
+			gw.setMapToFourRooms();
+		}
+		gw.setRf(new UniformCostRF());
+		gw.setTf(new GridWorldTerminalFunction(size-1, size-1));
+		return gw;
+	}
+
+
+	/**
+	 * Returns the initial state of a grid world generated by {@link #gridWorld(int)}: the agent in the bottom left corner and
+	 * a location in the top right corner.
+	 * @param size the width and height of the grid
+	 * @return the initial state
+	 */
+	public static GridWorldState gridWorldState(int size){
+		return new GridWorldState(new GridAgent(0, 0), new GridLocation(size-1, size-1, 0, "loc0"));
+	}
+
+
+	/**
+	 * Returns the block dude domain.
+	 * @return the block dude domain
+	 */
+	public static OOSADomain blockDude(){
+		return new BlockDude().generateDomain();
+	}
+
+
+	/**
+	 * Returns the initial state of a block dude level.
+	 * @param domain the block dude domain
+	 * @param level the level number, 1 through 3
+	 * @return the initial state of the level
+	 */
+	public static State blockDudeLevel(Domain domain, int level){
+		switch(level){
+			case 1: return BlockDudeLevelConstructor.getLevel1(domain);
+			case 2: return BlockDudeLevelConstructor.getLevel2(domain);
+			case 3: return BlockDudeLevelConstructor.getLevel3(domain);
+			default: throw new RuntimeException("Unknown block dude level " + level);
+		}
+	}
+
+
+	/**
+	 * Returns features of a mountain car state that normalize its position and velocity to [0, 1].
+	 * @param mc the mountain car domain generator
+	 * @return the normalized state features
+	 */
+	public static NormalizedVariableFeatures mountainCarFeatures(MountainCar mc){
+		return new NormalizedVariableFeatures()
+				.variableDomain(MountainCar.ATT_X, new VariableDomain(mc.physParams.xmin, mc.physParams.xmax))
+				.variableDomain(MountainCar.ATT_V, new VariableDomain(mc.physParams.vmin, mc.physParams.vmax));
+	}
+
+}
@@ -0,0 +1,24 @@
+package burlap.benchmarks;
+
+import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.cached.CachedHashableStateFactory;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Runs the {@link HashingBenchmark} operations with a {@link CachedHashableStateFactory} wrapped around each of the simple factories,
+ * with and without interning.
+ * @author James MacGlashan
+ *
+ */
+public class CachedHashingBenchmark extends HashingBenchmark {
+
+	@Param({"false", "true"})
+	public boolean intern;
+
+
+	@Override
+	protected HashableStateFactory createHashingFactory(){
+		return new CachedHashableStateFactory(super.createHashingFactory(), this.intern);
+	}
+
+}
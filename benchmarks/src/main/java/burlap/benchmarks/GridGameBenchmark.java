@@ -0,0 +1,75 @@
+package burlap.benchmarks;
+
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CoCoQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.MAValueIteration;
+import burlap.domain.stochasticgames.gridgame.GridGame;
+import burlap.mdp.stochasticgames.agent.SGAgentType;
+import burlap.mdp.stochasticgames.oo.OOSGDomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmarks solving two player grid games with {@link MAValueIteration} using the {@link CoCoQ} backup operator.
+ * Each operation creates a new planner and plans from scratch, including state reachability.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridGameBenchmark {
+
+	@Param({"simple", "coordination", "prisonersDilemma", "friendFoe"})
+	public String game;
+
+	protected OOSGDomain domain;
+
+	protected List<SGAgentType> agentTypes;
+
+	protected burlap.mdp.core.state.State initialState;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.domain = new GridGame().generateDomain();
+		SGAgentType type = GridGame.getStandardGridGameAgentType(this.domain);
+		this.agentTypes = Arrays.asList(type, type);
+		if(this.game.equals("simple")){
+			this.initialState = GridGame.getSimpleGameInitialState();
+		}
+		else if(this.game.equals("coordination")){
+			this.initialState = GridGame.getCorrdinationGameInitialState();
+		}
+		else if(this.game.equals("prisonersDilemma")){
+			this.initialState = GridGame.getPrisonersDilemmaInitialState();
+		}
+		else{
+			this.initialState = GridGame.getFriendFoeInitialState();
+		}
+	}
+
+
+	@Benchmark
+	public Object maValueIteration(){
+		MAValueIteration vi = new MAValueIteration(this.domain, this.agentTypes, new GridGame.GGJointRewardFunction(this.domain),
+				new GridGame.GGTerminalFunction(this.domain), 0.99, new SimpleHashableStateFactory(), 0., new CoCoQ(), 0.01, 50);
+		vi.planFromState(this.initialState);
+		return vi.getQSources();
+	}
+
+}
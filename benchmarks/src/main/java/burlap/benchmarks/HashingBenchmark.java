@@ -0,0 +1,124 @@
+package burlap.benchmarks;
+
+import burlap.behavior.policy.PolicyUtils;
+import burlap.behavior.policy.RandomPolicy;
+import burlap.behavior.singleagent.Episode;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.singleagent.SADomain;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmarks hashing states with the simple {@link HashableStateFactory}s and looking them up in a hash map of previously hashed states,
+ * which is what tabular planning and learning algorithms do for every state they touch. Subclasses can measure other factories by
+ * overriding {@link #createHashingFactory()}, as {@link CachedHashingBenchmark} does.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashingBenchmark {
+
+	public static final int NUM_STATES = 1024;
+
+	@Param({"gridworld", "blockdude"})
+	public String domain;
+
+	@Param({"simple", "simpleIdentifierIndependent"})
+	public String factory;
+
+	protected HashableStateFactory hashingFactory;
+
+	protected burlap.mdp.core.state.State [] states;
+
+	protected Map<HashableState, Integer> table;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		RandomFactory.getMapped(0).setSeed(0);
+
+		SADomain d;
+		burlap.mdp.core.state.State s0;
+		if(this.domain.equals("gridworld")){
+			d = BenchmarkDomains.gridWorld(11).generateDomain();
+			s0 = BenchmarkDomains.gridWorldState(11);
+		}
+		else{
+			d = BenchmarkDomains.blockDude();
+			s0 = BenchmarkDomains.blockDudeLevel(d, 1);
+		}
+
+		List<burlap.mdp.core.state.State> visited = new ArrayList<burlap.mdp.core.state.State>(NUM_STATES);
+		while(visited.size() < NUM_STATES){
+			Episode e = PolicyUtils.rollout(new RandomPolicy(d), s0, d.getModel(), 100);
+			for(int i = 0; i < e.numTimeSteps() && visited.size() < NUM_STATES; i++){
+				visited.add(e.state(i));
+			}
+		}
+		this.states = visited.toArray(new burlap.mdp.core.state.State[NUM_STATES]);
+
+		this.hashingFactory = this.createHashingFactory();
+
+		this.table = new HashMap<HashableState, Integer>();
+		for(int i = 0; i < this.states.length; i++){
+			this.table.put(this.hashingFactory.hashState(this.states[i]), i);
+		}
+	}
+
+
+	/**
+	 * Returns the {@link HashableStateFactory} named by the {@link #factory} parameter.
+	 * @return the {@link HashableStateFactory} to benchmark
+	 */
+	protected HashableStateFactory createHashingFactory(){
+		if(this.factory.equals("simple")){
+			return new SimpleHashableStateFactory();
+		}
+		else if(this.factory.equals("simpleIdentifierIndependent")){
+			return new SimpleHashableStateFactory(true);
+		}
+		throw new RuntimeException("Unknown hashing factory " + this.factory);
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_STATES)
+	public void hashState(Blackhole bh){
+		for(burlap.mdp.core.state.State s : this.states){
+			bh.consume(this.hashingFactory.hashState(s).hashCode());
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_STATES)
+	public void hashAndLookup(Blackhole bh){
+		for(burlap.mdp.core.state.State s : this.states){
+			bh.consume(this.table.get(this.hashingFactory.hashState(s)));
+		}
+	}
+
+}
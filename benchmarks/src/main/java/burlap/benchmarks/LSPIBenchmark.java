@@ -0,0 +1,72 @@
+package burlap.benchmarks;
+
+import burlap.behavior.functionapproximation.dense.DenseCrossProductFeatures;
+import burlap.behavior.functionapproximation.dense.fourier.FourierBasis;
+import burlap.behavior.singleagent.learning.lspi.LSPI;
+import burlap.behavior.singleagent.learning.lspi.SARSCollector;
+import burlap.behavior.singleagent.learning.lspi.SARSData;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.mountaincar.MountainCar;
+import burlap.mdp.auxiliary.common.ConstantStateGenerator;
+import burlap.mdp.singleagent.SADomain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link LSPI#LSTDQ()} on mountain car data with Fourier basis features of different orders, using the incremental
+ * Sherman-Morrison solve. {@link BatchLSTDQBenchmark} measures the batch solve on the same data.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LSPIBenchmark {
+
+	@Param({"2", "4"})
+	public int fourierOrder;
+
+	@Param({"5000", "20000"})
+	public int numSamples;
+
+	protected LSPI incremental;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		RandomFactory.getMapped(0).setSeed(0);
+
+		MountainCar mc = new MountainCar();
+		SADomain domain = mc.generateDomain();
+		SARSData data = new SARSCollector.UniformRandomSARSCollector(domain)
+				.collectNInstances(new ConstantStateGenerator(mc.valleyState()), domain.getModel(), this.numSamples, 500, null);
+
+		FourierBasis fb = new FourierBasis(BenchmarkDomains.mountainCarFeatures(mc), this.fourierOrder);
+
+		this.incremental = new LSPI(domain, 0.99, new DenseCrossProductFeatures(fb, 3), data);
+	}
+
+
+	@Setup(Level.Invocation)
+	public void seed(){
+		RandomFactory.getMapped(0).setSeed(0);
+	}
+
+
+	@Benchmark
+	public Object incrementalLSTDQ(){
+		return this.incremental.LSTDQ();
+	}
+
+}
@@ -0,0 +1,77 @@
+package burlap.benchmarks;
+
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.ParallelUCT;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.singleagent.SADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks planning a fixed number of rollouts from the initial state of a grid world with {@link ParallelUCT} in both of its
+ * parallel modes at different thread counts. Each planning call builds a new tree; the planner is reused across operations so that
+ * its thread pool is not recreated. {@link UCTBenchmark} measures the serial planner with the same rollouts.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelUCTBenchmark {
+
+	@Param({"11", "21"})
+	public int size;
+
+	@Param({"1000"})
+	public int rollouts;
+
+	@Param({"30"})
+	public int horizon;
+
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	@Param({"ROOT", "TREE"})
+	public ParallelUCT.ParallelMode parallelMode;
+
+	protected SADomain domain;
+
+	protected GridWorldState initialState;
+
+	protected ParallelUCT parallelUCT;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.domain = BenchmarkDomains.gridWorld(this.size).generateDomain();
+		this.initialState = BenchmarkDomains.gridWorldState(this.size);
+		this.parallelUCT = new ParallelUCT(this.domain, 0.99, new SimpleHashableStateFactory(), this.horizon, this.rollouts, 2, this.parallelism);
+		this.parallelUCT.setParallelMode(this.parallelMode);
+	}
+
+
+	@Setup(Level.Iteration)
+	public void seed(){
+		RandomFactory.getMapped(0).setSeed(0);
+	}
+
+
+	@Benchmark
+	public double parallelUCT(){
+		this.parallelUCT.planFromState(this.initialState);
+		return this.parallelUCT.getRoot().n;
+	}
+
+}
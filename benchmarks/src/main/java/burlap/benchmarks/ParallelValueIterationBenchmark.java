@@ -0,0 +1,61 @@
+package burlap.benchmarks;
+
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ParallelValueIteration;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.singleagent.SADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks solving grid worlds of different sizes with {@link ParallelValueIteration} at different thread counts. Each operation
+ * resets the planner and plans from scratch, including state reachability. The planner is reused across operations so that its thread
+ * pool is not recreated. {@link ValueIterationBenchmark} measures the serial planner on the same grid worlds.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelValueIterationBenchmark {
+
+	@Param({"11", "21", "41"})
+	public int size;
+
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	protected SADomain domain;
+
+	protected GridWorldState initialState;
+
+	protected ParallelValueIteration pvi;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.domain = BenchmarkDomains.gridWorld(this.size).generateDomain();
+		this.initialState = BenchmarkDomains.gridWorldState(this.size);
+		this.pvi = new ParallelValueIteration(this.domain, 0.99, new SimpleHashableStateFactory(), 0.001, 100, this.parallelism);
+	}
+
+
+	@Benchmark
+	public double parallelValueIteration(){
+		this.pvi.resetSolver();
+		this.pvi.planFromState(this.initialState);
+		return this.pvi.value(this.initialState);
+	}
+
+}
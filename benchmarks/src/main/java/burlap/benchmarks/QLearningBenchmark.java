@@ -0,0 +1,81 @@
+package burlap.benchmarks;
+
+import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.environment.SimulatedEnvironment;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link QLearning#runLearningEpisode(burlap.mdp.singleagent.environment.Environment, int)}. Each operation is one
+ * episode of at most {@link #maxSteps} steps. The agent and its Q-table are reset at the start of each iteration, so
+ * every iteration measures the same stretch of learning.
+ * <p>
+ * Each JMH thread has its own agent and environment, so running with JMH's -t option measures how learning scales
+ * with independent agents.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QLearningBenchmark {
+
+	@Param({"gridworld11", "gridworld41", "blockdude1"})
+	public String domain;
+
+	@Param({"1000"})
+	public int maxSteps;
+
+	protected SADomain saDomain;
+
+	protected burlap.mdp.core.state.State initialState;
+
+	protected SimulatedEnvironment env;
+
+	protected QLearning agent;
+
+
+	@Setup(Level.Trial)
+	public void setupDomain(){
+		if(this.domain.startsWith("gridworld")){
+			int size = Integer.parseInt(this.domain.substring("gridworld".length()));
+			this.saDomain = BenchmarkDomains.gridWorld(size).generateDomain();
+			this.initialState = BenchmarkDomains.gridWorldState(size);
+		}
+		else{
+			this.saDomain = BenchmarkDomains.blockDude();
+			this.initialState = BenchmarkDomains.blockDudeLevel(this.saDomain, Integer.parseInt(this.domain.substring("blockdude".length())));
+		}
+	}
+
+
+	@Setup(Level.Iteration)
+	public void setupAgent(){
+		RandomFactory.getMapped(0).setSeed(0);
+		this.env = new SimulatedEnvironment(this.saDomain, this.initialState);
+		this.agent = new QLearning(this.saDomain, 0.99, new SimpleHashableStateFactory(), 0., 0.1);
+	}
+
+
+	@Benchmark
+	public int runLearningEpisode(){
+		int steps = this.agent.runLearningEpisode(this.env, this.maxSteps).maxTimeStep();
+		this.env.resetEnvironment();
+		return steps;
+	}
+
+}
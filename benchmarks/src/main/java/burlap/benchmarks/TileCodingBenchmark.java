@@ -0,0 +1,78 @@
+package burlap.benchmarks;
+
+import burlap.behavior.functionapproximation.sparse.tilecoding.TileCodingFeatures;
+import burlap.behavior.functionapproximation.sparse.tilecoding.TilingArrangement;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.mountaincar.MCState;
+import burlap.domain.singleagent.mountaincar.MountainCar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Benchmarks {@link TileCodingFeatures#features(burlap.mdp.core.state.State)} on mountain car states with different numbers of tilings.
+ * The tilings are created and the states visited once before measuring, so the benchmark measures feature lookups of known tiles.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileCodingBenchmark {
+
+	public static final int NUM_STATES = 1024;
+
+	@Param({"5", "10", "20"})
+	public int nTilings;
+
+	@Param({"10"})
+	public int tilesPerDimension;
+
+	protected TileCodingFeatures tiles;
+
+	protected MCState [] states;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		RandomFactory.getMapped(0).setSeed(0);
+
+		MountainCar mc = new MountainCar();
+		this.tiles = new TileCodingFeatures(BenchmarkDomains.mountainCarFeatures(mc));
+		this.tiles.addTilingsForAllDimensionsWithWidths(
+				new double[]{1. / this.tilesPerDimension, 1. / this.tilesPerDimension}, this.nTilings, TilingArrangement.RANDOM_JITTER);
+
+		Random rand = new Random(0);
+		this.states = new MCState[NUM_STATES];
+		for(int i = 0; i < NUM_STATES; i++){
+			double x = mc.physParams.xmin + rand.nextDouble() * (mc.physParams.xmax - mc.physParams.xmin);
+			double v = mc.physParams.vmin + rand.nextDouble() * (mc.physParams.vmax - mc.physParams.vmin);
+			this.states[i] = new MCState(x, v);
+			this.tiles.features(this.states[i]);
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_STATES)
+	public void features(Blackhole bh){
+		for(MCState s : this.states){
+			bh.consume(this.tiles.features(s));
+		}
+	}
+
+}
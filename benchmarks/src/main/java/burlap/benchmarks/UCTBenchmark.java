@@ -0,0 +1,69 @@
+package burlap.benchmarks;
+
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCT;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.singleagent.SADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks planning a fixed number of rollouts from the initial state of a grid world with {@link UCT}. Each planning call builds
+ * a new tree. {@link ParallelUCTBenchmark} measures the parallel planner in both of its parallel modes at different thread counts.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UCTBenchmark {
+
+	@Param({"11", "21"})
+	public int size;
+
+	@Param({"1000"})
+	public int rollouts;
+
+	@Param({"30"})
+	public int horizon;
+
+	protected SADomain domain;
+
+	protected GridWorldState initialState;
+
+	protected UCT uct;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.domain = BenchmarkDomains.gridWorld(this.size).generateDomain();
+		this.initialState = BenchmarkDomains.gridWorldState(this.size);
+		this.uct = new UCT(this.domain, 0.99, new SimpleHashableStateFactory(), this.horizon, this.rollouts, 2);
+	}
+
+
+	@Setup(Level.Iteration)
+	public void seed(){
+		RandomFactory.getMapped(0).setSeed(0);
+	}
+
+
+	@Benchmark
+	public double uct(){
+		this.uct.planFromState(this.initialState);
+		return this.uct.getRoot().n;
+	}
+
+}
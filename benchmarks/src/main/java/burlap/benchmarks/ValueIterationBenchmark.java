@@ -0,0 +1,57 @@
+package burlap.benchmarks;
+
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.singleagent.SADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks solving grid worlds of different sizes with {@link ValueIteration}. Each operation resets the planner and plans from
+ * scratch, including state reachability. {@link ParallelValueIterationBenchmark} measures the parallel planner at different thread counts.
+ * @author James MacGlashan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueIterationBenchmark {
+
+	@Param({"11", "21", "41"})
+	public int size;
+
+	protected SADomain domain;
+
+	protected GridWorldState initialState;
+
+	protected ValueIteration vi;
+
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.domain = BenchmarkDomains.gridWorld(this.size).generateDomain();
+		this.initialState = BenchmarkDomains.gridWorldState(this.size);
+		this.vi = new ValueIteration(this.domain, 0.99, new SimpleHashableStateFactory(), 0.001, 100);
+	}
+
+
+	@Benchmark
+	public double valueIteration(){
+		this.vi.resetSolver();
+		this.vi.planFromState(this.initialState);
+		return this.vi.value(this.initialState);
+	}
+
+}
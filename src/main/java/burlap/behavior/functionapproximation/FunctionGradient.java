@@ -1,5 +1,6 @@
 package burlap.behavior.functionapproximation;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -149,4 +150,189 @@ public interface FunctionGradient {
 
 	}
 
+
+
+	/**
+	 * A sparse {@link FunctionGradient} that stores its non-zero partial derivatives in parallel primitive arrays of parameter ids and
+	 * values, so that building and reading it does not box values or create map entries, and that can be cleared and refilled to reuse
+	 * its arrays. Partial derivatives are read by position with {@link #parameterId(int)} and {@link #value(int)} for positions in
+	 * [0, {@link #numNonZeroPDs()}). Looking up the partial derivative of a parameter scans the stored parameters, so this class is
+	 * intended for gradients with few non-zero partial derivatives, such as those of linear functions of sparse features.
+	 */
+	public static class SparseArrayGradient implements FunctionGradient{
+
+		/**
+		 * The parameter ids of the non-zero partial derivatives
+		 */
+		protected int [] ids;
+
+		/**
+		 * The values of the non-zero partial derivatives
+		 */
+		protected double [] values;
+
+		/**
+		 * The number of non-zero partial derivatives
+		 */
+		protected int size;
+
+
+		/**
+		 * Initializes with a default capacity.
+		 */
+		public SparseArrayGradient() {
+			this(8);
+		}
+
+
+		/**
+		 * Initializes with the given capacity, which grows as needed.
+		 * @param capacity the initial number of non-zero partial derivatives that can be stored without growing
+		 */
+		public SparseArrayGradient(int capacity) {
+			capacity = Math.max(capacity, 1);
+			this.ids = new int[capacity];
+			this.values = new double[capacity];
+		}
+
+
+		@Override
+		public void put(int parameterId, double partialDerivative) {
+			int pos = this.position(parameterId);
+			if(partialDerivative == 0.){
+				if(pos != -1){
+					this.size--;
+					this.ids[pos] = this.ids[this.size];
+					this.values[pos] = this.values[this.size];
+				}
+			}
+			else if(pos != -1){
+				this.values[pos] = partialDerivative;
+			}
+			else{
+				this.append(parameterId, partialDerivative);
+			}
+		}
+
+
+		/**
+		 * Adds a value to the partial derivative of a parameter, storing it if the parameter is not already stored and removing it if
+		 * the sum is zero.
+		 * @param parameterId the parameter identifier
+		 * @param partialDerivative the value to add to the partial derivative
+		 */
+		public void add(int parameterId, double partialDerivative) {
+			int pos = this.position(parameterId);
+			if(pos != -1){
+				this.put(parameterId, this.values[pos] + partialDerivative);
+			}
+			else if(partialDerivative != 0.){
+				this.append(parameterId, partialDerivative);
+			}
+		}
+
+
+		/**
+		 * Adds a non-zero partial derivative for a parameter that is not already stored, without checking whether it is stored.
+		 * @param parameterId the parameter identifier, which must not already be stored
+		 * @param partialDerivative the non-zero partial derivative
+		 */
+		public void append(int parameterId, double partialDerivative) {
+			if(this.size == this.ids.length){
+				this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+				this.values = Arrays.copyOf(this.values, 2 * this.size);
+			}
+			this.ids[this.size] = parameterId;
+			this.values[this.size] = partialDerivative;
+			this.size++;
+		}
+
+
+		@Override
+		public double getPartialDerivative(int parameterId) {
+			int pos = this.position(parameterId);
+			return pos != -1 ? this.values[pos] : 0.;
+		}
+
+
+		@Override
+		public Set<PartialDerivative> getNonZeroPartialDerivatives() {
+			Set<PartialDerivative> nzPds = new HashSet<PartialDerivative>(this.size);
+			for(int i = 0; i < this.size; i++){
+				nzPds.add(new PartialDerivative(this.ids[i], this.values[i]));
+			}
+			return nzPds;
+		}
+
+
+		@Override
+		public int numNonZeroPDs() {
+			return this.size;
+		}
+
+
+		/**
+		 * Returns the parameter id of the non-zero partial derivative at a position
+		 * @param i the position, in [0, {@link #numNonZeroPDs()})
+		 * @return the parameter id
+		 */
+		public int parameterId(int i){
+			return this.ids[i];
+		}
+
+
+		/**
+		 * Returns the value of the non-zero partial derivative at a position
+		 * @param i the position, in [0, {@link #numNonZeroPDs()})
+		 * @return the value of the partial derivative
+		 */
+		public double value(int i){
+			return this.values[i];
+		}
+
+
+		/**
+		 * Removes all partial derivatives, keeping the arrays for reuse.
+		 */
+		public void clear(){
+			this.size = 0;
+		}
+
+
+		/**
+		 * Replaces the contents of this gradient with the non-zero partial derivatives of another gradient.
+		 * @param gradient the gradient to copy
+		 */
+		public void set(FunctionGradient gradient){
+			this.clear();
+			if(gradient instanceof SparseArrayGradient){
+				SparseArrayGradient o = (SparseArrayGradient)gradient;
+				for(int i = 0; i < o.size; i++){
+					this.append(o.ids[i], o.values[i]);
+				}
+			}
+			else{
+				for(PartialDerivative pd : gradient.getNonZeroPartialDerivatives()){
+					this.append(pd.parameterId, pd.value);
+				}
+			}
+		}
+
+
+		/**
+		 * Returns the position of a parameter's partial derivative, or -1 if it is not stored
+		 * @param parameterId the parameter identifier
+		 * @return the position of the partial derivative or -1
+		 */
+		protected int position(int parameterId){
+			for(int i = 0; i < this.size; i++){
+				if(this.ids[i] == parameterId){
+					return i;
+				}
+			}
+			return -1;
+		}
+
+	}
+
 }
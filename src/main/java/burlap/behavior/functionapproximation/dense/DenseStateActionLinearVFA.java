@@ -114,6 +114,6 @@ public class DenseStateActionLinearVFA implements DifferentiableStateActionValue
 
 	@Override
 	public DenseStateActionLinearVFA copy() {
-		return new DenseStateActionLinearVFA(features, this.stateActionWeights.clone(), this.defaultWeight);
+		return new DenseStateActionLinearVFA(features, this.stateActionWeights != null ? this.stateActionWeights.clone() : null, this.defaultWeight);
 	}
 }
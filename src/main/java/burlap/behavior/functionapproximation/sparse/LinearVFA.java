@@ -3,12 +3,12 @@ package burlap.behavior.functionapproximation.sparse;
 import burlap.behavior.functionapproximation.DifferentiableStateActionValue;
 import burlap.behavior.functionapproximation.DifferentiableStateValue;
 import burlap.behavior.functionapproximation.FunctionGradient;
+import burlap.datastructures.IntIdIndex;
 import burlap.mdp.core.action.Action;
 import burlap.mdp.core.state.State;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 
 /**
@@ -19,6 +19,13 @@ import java.util.Map;
  * This class can also be used for state-action value function approximation, which it will perform by creating
  * state-action features as a cross product of the state features and action set. You should only ever using this class
  * for state-values or state-action values, not both.
+ * <p>
+ * Weights are stored in a growable primitive array in the order in which their features are first seen, and an {@link IntIdIndex} maps
+ * feature ids to positions in it, so feature ids may be any int values, including negative or hashed ids, and {@link #numParameters()} is
+ * the number of features seen. Gradients are {@link FunctionGradient.SparseArrayGradient}s.
+ * By default each call to a gradient method returns a new gradient; with {@link #toggleGradientBufferReuse(boolean)}, this object instead
+ * refills and returns the same gradient object, which avoids allocation but means that a returned gradient is only valid until the next
+ * call to a gradient method.
  *  
  * @author James MacGlashan
  *
@@ -36,9 +43,14 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 	protected SparseCrossProductFeatures stateActionFeatures;
 	
 	/**
-	 * A map from feature identifiers to function weights
+	 * The function weights, indexed by the position of their feature identifier in the weight index
 	 */
-	protected Map<Integer, Double>					weights;
+	protected double []								weights;
+
+	/**
+	 * The position of each feature identifier's weight in the weights array
+	 */
+	protected IntIdIndex							weightIndex = new IntIdIndex();
 	
 	/**
 	 * A default weight for the functions
@@ -55,6 +67,16 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 	protected State									lastState = null;
 	protected Action lastAction = null;
 
+	/**
+	 * Whether the gradient methods refill and return the same gradient object
+	 */
+	protected boolean								reuseGradientBuffer = false;
+
+	/**
+	 * The gradient object that is refilled when the gradient buffer is reused
+	 */
+	protected FunctionGradient.SparseArrayGradient	gradientBuffer;
+
 
 	/**
 	 * Initializes with a feature database; the default weight value will be zero
@@ -64,7 +86,7 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 
 		this.sparseStateFeatures = sparseStateFeatures;
 		this.stateActionFeatures = new SparseCrossProductFeatures(sparseStateFeatures);
-		this.weights = new HashMap<Integer, Double>();
+		this.weights = new double[16];
 
 
 	}
@@ -80,7 +102,7 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 		this.sparseStateFeatures = sparseStateFeatures;
 		this.stateActionFeatures = new SparseCrossProductFeatures(sparseStateFeatures);
 		this.defaultWeight = defaultWeight;
-		this.weights = new HashMap<Integer, Double>();
+		this.weights = new double[16];
 
 
 	}
@@ -137,10 +159,7 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 			features = this.sparseStateFeatures.features(s);
 		}
 
-		FunctionGradient gd = new FunctionGradient.SparseGradient(features.size());
-		for(StateFeature sf : features){
-			gd.put(sf.id, sf.value);
-		}
+		FunctionGradient gd = this.fillGradient(features);
 		this.currentGradient = gd;
 		this.lastState = s;
 		this.lastAction = null;
@@ -164,10 +183,7 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 			features = this.stateActionFeatures.features(s, a);
 		}
 
-		FunctionGradient gd = new FunctionGradient.SparseGradient(features.size());
-		for(StateFeature sf : features){
-			gd.put(sf.id, sf.value);
-		}
+		FunctionGradient gd = this.fillGradient(features);
 		this.currentGradient = gd;
 		this.lastState = s;
 		this.lastAction = a;
@@ -177,9 +193,48 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 	}
 
 
+	/**
+	 * Returns a gradient holding the given features, which is the reused gradient buffer if gradient buffer reuse is enabled.
+	 * A feature list may contain the same feature id more than once, as hashed {@link burlap.behavior.functionapproximation.sparse.tilecoding.TileCodingFeatures}
+	 * do when tiles collide; the values of duplicate ids are summed, matching their contribution to the value of the function.
+	 * @param features the features that make up the gradient
+	 * @return the gradient
+	 */
+	protected FunctionGradient.SparseArrayGradient fillGradient(List<StateFeature> features){
+		FunctionGradient.SparseArrayGradient gd;
+		if(this.reuseGradientBuffer){
+			if(this.gradientBuffer == null){
+				this.gradientBuffer = new FunctionGradient.SparseArrayGradient(features.size());
+			}
+			gd = this.gradientBuffer;
+			gd.clear();
+		}
+		else{
+			gd = new FunctionGradient.SparseArrayGradient(features.size());
+		}
+		for(StateFeature sf : features){
+			gd.add(sf.id, sf.value);
+		}
+		return gd;
+	}
+
+
+	/**
+	 * Sets whether the gradient methods refill and return the same gradient object rather than allocating a new one for each call.
+	 * When enabled, a returned gradient is only valid until the next call to {@link #gradient(State)} or {@link #gradient(State, Action)},
+	 * so callers that hold on to a gradient, like {@link burlap.behavior.singleagent.learning.tdmethods.vfa.GradientDescentSarsaLam},
+	 * must copy it. Disabled by default.
+	 * @param reuseGradientBuffer whether to reuse one gradient object
+	 */
+	public void toggleGradientBufferReuse(boolean reuseGradientBuffer){
+		this.reuseGradientBuffer = reuseGradientBuffer;
+		this.currentGradient = null;
+	}
+
+
 	@Override
 	public int numParameters() {
-		return this.weights.size();
+		return this.weightIndex.size();
 	}
 
 	@Override
@@ -189,33 +244,47 @@ public class LinearVFA implements DifferentiableStateValue, DifferentiableStateA
 
 	@Override
 	public void setParameter(int i, double p) {
-		this.weights.put(i, p);
+		int pos = this.weightPosition(i);
+		this.weights[pos] = p;
 	}
 
 	protected double getWeight(int weightId){
-		Double stored = this.weights.get(weightId);
-		if(stored == null){
-			this.weights.put(weightId, this.defaultWeight);
-			return this.defaultWeight;
+		int pos = this.weightPosition(weightId);
+		return this.weights[pos];
+	}
+
+
+	/**
+	 * Returns the position of a feature id's weight in the weights array, adding a weight with the default value if the feature has no weight yet.
+	 * @param weightId the feature id
+	 * @return the position of its weight
+	 */
+	protected int weightPosition(int weightId){
+		int n = this.weightIndex.size();
+		int pos = this.weightIndex.add(weightId);
+		if(pos == n){
+			if(pos == this.weights.length){
+				this.weights = Arrays.copyOf(this.weights, 2 * this.weights.length);
+			}
+			this.weights[pos] = this.defaultWeight;
 		}
-		return stored;
+		return pos;
 	}
 
 
 	@Override
 	public void resetParameters() {
-		this.weights.clear();
+		this.weightIndex.clear();
 	}
 
 	@Override
 	public LinearVFA copy() {
 
 		LinearVFA vfa = new LinearVFA(this.sparseStateFeatures.copy(), this.defaultWeight);
-		vfa.weights = new HashMap<Integer, Double>(this.weights.size());
+		vfa.weights = Arrays.copyOf(this.weights, this.weights.length);
+		vfa.weightIndex = this.weightIndex.copy();
 		vfa.stateActionFeatures = stateActionFeatures.copy();
-		for(Map.Entry<Integer, Double> e : this.weights.entrySet()){
-			vfa.weights.put(e.getKey(), e.getValue());
-		}
+		vfa.reuseGradientBuffer = this.reuseGradientBuffer;
 
 		return vfa;
 	}
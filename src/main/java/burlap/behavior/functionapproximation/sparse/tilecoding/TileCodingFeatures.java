@@ -21,6 +21,14 @@ import java.util.*;
  * <p>
  * To specify the tiling used, use the {@link #addTilingsForAllDimensionsWithWidths(double[], int, TilingArrangement)} or
  * {@link #addTilingsForDimensionsAndWidths(boolean[], double[], int, TilingArrangement)} method.
+ * <p>
+ * By default, each tile that is visited is given a new feature id, which is stored in a map, so memory grows with the number of visited tiles.
+ * Alternatively, hashed tile coding, like the index hash tables of Sutton's tile coding software, can be enabled with the
+ * {@link #TileCodingFeatures(DenseStateFeatures, int)} constructor or {@link #useHashing(int)}. In that mode, the integer coordinates of each
+ * tile, along with the index of its tiling, are hashed into a fixed number of feature ids, so memory is bounded, no maps are used, and
+ * {@link #activeTiles(double[], int[])} writes the active feature ids into a caller-provided array without allocating any objects. Distinct
+ * tiles may then share a feature id; {@link #toggleCollisionCounting(boolean)} enables a table that counts such collisions so that the memory
+ * size can be tuned.
  * 
  * 
  * <p>
@@ -62,6 +70,28 @@ public class TileCodingFeatures implements SparseStateFeatures {
 	protected int														nextStateFeatureId = 0;
 
 
+	/**
+	 * The number of feature ids into which tiles are hashed, or 0 if tiles are not hashed and are instead given ids as they are visited.
+	 */
+	protected int														hashedMemorySize = 0;
+
+	/**
+	 * When collision counting is enabled, the hash of the first tile that was mapped to each feature id, with its lowest bit set so that
+	 * 0 marks an unused feature id; null otherwise.
+	 */
+	protected long []													hashOccupants;
+
+	/**
+	 * The number of times a tile was mapped to a feature id first used by a different tile since collision counting was enabled
+	 */
+	protected long														numCollisions = 0;
+
+	/**
+	 * The number of feature ids that have been used since collision counting was enabled
+	 */
+	protected int														numOccupied = 0;
+
+
 	@Override
 	public TileCodingFeatures copy() {
 		TileCodingFeatures tilecoding = new TileCodingFeatures(this.featureVectorGenerator);
@@ -75,6 +105,12 @@ public class TileCodingFeatures implements SparseStateFeatures {
 		}
 
 		tilecoding.nextStateFeatureId = this.nextStateFeatureId;
+		tilecoding.hashedMemorySize = this.hashedMemorySize;
+		if(this.hashOccupants != null){
+			tilecoding.hashOccupants = this.hashOccupants.clone();
+		}
+		tilecoding.numCollisions = this.numCollisions;
+		tilecoding.numOccupied = this.numOccupied;
 
 		return tilecoding;
 	}
@@ -92,6 +128,85 @@ public class TileCodingFeatures implements SparseStateFeatures {
 		
 		
 	}
+
+
+	/**
+	 * Initializes with hashed tile coding, in which tiles are hashed into a fixed number of feature ids. The resulting feature vectors
+	 * of the state feature vector generator are what is tiled by this class.
+	 * @param featureVectorGenerator the OO-MDP state to feature vector generator to use
+	 * @param memorySize the number of feature ids into which tiles are hashed
+	 */
+	public TileCodingFeatures(DenseStateFeatures featureVectorGenerator, int memorySize){
+		this(featureVectorGenerator);
+		this.useHashing(memorySize);
+	}
+
+
+	/**
+	 * Enables hashed tile coding, in which the coordinates of each tile and the index of its tiling are hashed into a fixed number of feature ids,
+	 * rather than giving each visited tile a new feature id. Must be called before any features are requested.
+	 * @param memorySize the number of feature ids into which tiles are hashed
+	 */
+	public void useHashing(int memorySize){
+		if(memorySize < 1){
+			throw new RuntimeException("The memory size of hashed tile coding must be at least 1; was " + memorySize);
+		}
+		if(this.nextStateFeatureId > 0){
+			throw new RuntimeException("Hashed tile coding must be enabled before any features are requested.");
+		}
+		this.hashedMemorySize = memorySize;
+		if(this.hashOccupants != null){
+			this.toggleCollisionCounting(true);
+		}
+	}
+
+
+	/**
+	 * Returns whether tiles are hashed into a fixed number of feature ids
+	 * @return true if tiles are hashed; false if each visited tile is given a new feature id
+	 */
+	public boolean isHashing(){
+		return this.hashedMemorySize > 0;
+	}
+
+
+	/**
+	 * Enables or disables counting the collisions of hashed tile coding. When enabled, a table records which tile first used each feature id,
+	 * and each time a different tile is mapped to that id, the collision count is incremented. Enabling it resets the counts and, unlike
+	 * hashed feature extraction without it, makes feature extraction modify this object. Requires hashed tile coding.
+	 * @param countCollisions whether to count collisions
+	 */
+	public void toggleCollisionCounting(boolean countCollisions){
+		if(countCollisions){
+			if(!this.isHashing()){
+				throw new RuntimeException("Collision counting requires hashed tile coding; use the useHashing method first.");
+			}
+			this.hashOccupants = new long[this.hashedMemorySize];
+		}
+		else{
+			this.hashOccupants = null;
+		}
+		this.numCollisions = 0;
+		this.numOccupied = 0;
+	}
+
+
+	/**
+	 * Returns the number of times a tile was mapped to a feature id first used by a different tile since collision counting was enabled.
+	 * @return the number of collisions
+	 */
+	public long numCollisions(){
+		return this.numCollisions;
+	}
+
+
+	/**
+	 * Returns the number of feature ids that have been used since collision counting was enabled.
+	 * @return the number of used feature ids
+	 */
+	public int numOccupiedFeatures(){
+		return this.numOccupied;
+	}
 	
 	
 	/**
@@ -145,7 +260,13 @@ public class TileCodingFeatures implements SparseStateFeatures {
 	public List<StateFeature> features(State s) {
 		
 		double [] input = this.featureVectorGenerator.features(s);
-		List<StateFeature> features = new ArrayList<StateFeature>();
+		List<StateFeature> features = new ArrayList<StateFeature>(this.tilings.size());
+		if(this.isHashing()){
+			for(int i = 0; i < this.tilings.size(); i++){
+				features.add(new StateFeature(this.hashedFeature(input, i), 1.));
+			}
+			return features;
+		}
 		for(int i = 0; i < this.tilings.size(); i++){
 			Tiling tiling = this.tilings.get(i);
 			Map<Tiling.FVTile, Integer> tileFeatureMap = this.stateFeatures.get(i);
@@ -160,11 +281,71 @@ public class TileCodingFeatures implements SparseStateFeatures {
 		return features;
 	}
 
+	/**
+	 * Writes the feature id of the active tile of each tiling for the given state feature vector into the given array, in the order the tilings
+	 * were added. With hashed tile coding, this method does not allocate any objects.
+	 * @param input the state feature vector to tile
+	 * @param indices the array into which the active feature ids are written, which must have a length of at least {@link #numTilings()}
+	 * @return the number of feature ids written, which is {@link #numTilings()}
+	 */
+	public int activeTiles(double [] input, int [] indices){
+		int n = this.tilings.size();
+		if(indices.length < n){
+			throw new RuntimeException("Cannot write the active tiles of " + n + " tilings into an array of length " + indices.length);
+		}
+		for(int i = 0; i < n; i++){
+			if(this.isHashing()){
+				indices[i] = this.hashedFeature(input, i);
+			}
+			else{
+				indices[i] = this.getOrGenerateFeature(this.stateFeatures.get(i), this.tilings.get(i).getFVTile(input));
+			}
+		}
+		return n;
+	}
+
+
+	/**
+	 * Returns the number of tilings, which is the number of active features of every state
+	 * @return the number of tilings
+	 */
+	public int numTilings(){
+		return this.tilings.size();
+	}
+
 	@Override
 	public int numFeatures() {
+		if(this.isHashing()){
+			return this.hashedMemorySize;
+		}
 		return nextStateFeatureId;
 	}
 
+
+	/**
+	 * Returns the hashed feature id of the tile of the given tiling that contains the state feature vector, and records collisions if
+	 * collision counting is enabled.
+	 * @param input the state feature vector
+	 * @param tilingIndex the index of the tiling
+	 * @return the hashed feature id
+	 */
+	protected int hashedFeature(double [] input, int tilingIndex){
+		long h = this.tilings.get(tilingIndex).tileHash(input, tilingIndex);
+		int f = (int)((h >>> 1) % this.hashedMemorySize);
+		if(this.hashOccupants != null){
+			long occupant = h | 1L;
+			long stored = this.hashOccupants[f];
+			if(stored == 0L){
+				this.hashOccupants[f] = occupant;
+				this.numOccupied++;
+			}
+			else if(stored != occupant){
+				this.numCollisions++;
+			}
+		}
+		return f;
+	}
+
 	/**
 	 * Returns the stored feature id or creates, stores and returns one. If a feature id is created, then the {@link #nextStateFeatureId} data member of this
 	 * object is incremented.
@@ -81,6 +81,49 @@ public class Tiling {
 	}
 	
 	
+	/**
+	 * Returns a 64-bit hash of the tile containing the given input vector, computed from the integer tile coordinates of the dimensions
+	 * on which this tiling depends without allocating any objects. The same tile of the same tiling always produces the same hash, and
+	 * different seeds produce unrelated hashes, so tilings that share their specification can be given different seeds to keep their tiles apart.
+	 * @param input the input vector to tile
+	 * @param seed the seed of the hash
+	 * @return the hash of the tile of the input vector
+	 */
+	public long tileHash(double [] input, long seed){
+
+		if(input.length != this.widths.length){
+			throw new RuntimeException("Error: the input feature vector to be tiled is a different dimensionality " +
+					"than the dimensionality on which this tiling was defined; " +
+					"e.g., the specified widths vector for this tiling is a different dimension than the input vector.");
+		}
+
+		long h = mix(seed + 0x9E3779B97F4A7C15L);
+		for(int i = 0; i < input.length; i++){
+			if(this.dimensionMask[i]){
+				int coordinate = (int)Math.floor((input[i] - this.offset[i]) / this.widths[i]);
+				h = mix(h ^ ((coordinate & 0xFFFFFFFFL) | ((long)i << 32)));
+			}
+		}
+
+		return h;
+	}
+
+
+	/**
+	 * The finalization step of the 64-bit MurmurHash3, which spreads every input bit over every output bit.
+	 * @param h the value to mix
+	 * @return the mixed value
+	 */
+	protected static long mix(long h){
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	
 	/**
 	 * Stores a tiled version of a feature vector with a hashcode and equality comparions methods implemented.
 	 * @author James MacGlashan
@@ -0,0 +1,34 @@
+package burlap.behavior.functionapproximation.supervised;
+
+import burlap.behavior.valuefunction.ValueFunction;
+
+import java.util.List;
+
+/**
+ * A {@link SupervisedVFA} that can also be trained on its training data one chunk at a time, so that data sets that do not fit in
+ * memory can be streamed to it. Training starts with {@link #startTraining()}, receives every chunk with {@link #trainChunk(List)}, and
+ * ends with {@link #finishTraining()}, which returns the learned function. Training on all chunks should learn the same function as
+ * {@link #train(List)} on their concatenation, or an approximation of it, such as one produced by accumulating sufficient statistics
+ * or by an online learning algorithm.
+ * @author James MacGlashan
+ */
+public interface ChunkedSupervisedVFA extends SupervisedVFA {
+
+	/**
+	 * Starts training on a new data set, discarding any chunks received since the last {@link #finishTraining()}.
+	 */
+	void startTraining();
+
+	/**
+	 * Trains on a chunk of the data set. The list and its instances may be reused by the caller after this method returns.
+	 * @param chunk the chunk of training data
+	 */
+	void trainChunk(List<SupervisedVFAInstance> chunk);
+
+	/**
+	 * Finishes training on the chunks received since {@link #startTraining()} and returns the learned function.
+	 * @return a {@link ValueFunction} that fits the training data.
+	 */
+	ValueFunction finishTraining();
+
+}
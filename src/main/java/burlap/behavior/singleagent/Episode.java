@@ -341,6 +341,25 @@ public class Episode {
 	 */
 	public static List<Episode> readEpisodes(String directoryPath){
 
+		List<String> files = episodeFilePaths(directoryPath);
+		List<Episode> eas = new ArrayList<Episode>(files.size());
+
+		for(String episodeFile : files){
+			Episode ea = read(episodeFile);
+			eas.add(ea);
+		}
+
+		return eas;
+	}
+
+
+	/**
+	 * Returns the paths of the .episode files in a directory, in the order in which {@link #readEpisodes(String)} reads them.
+	 * @param directoryPath the path to the directory containing the episode files
+	 * @return the paths of the episode files
+	 */
+	public static List<String> episodeFilePaths(String directoryPath){
+
 		if(!directoryPath.endsWith("/")){
 			directoryPath = directoryPath + "/";
 		}
@@ -359,15 +378,12 @@ public class Episode {
 		String[] children = dir.list(filter);
 		Arrays.sort(children, new AlphanumericSorting());
 
-		List<Episode> eas = new ArrayList<Episode>(children.length);
-
-		for(int i = 0; i < children.length; i++){
-			String episodeFile = directoryPath + children[i];
-			Episode ea = read(episodeFile);
-			eas.add(ea);
+		List<String> files = new ArrayList<String>(children.length);
+		for(String child : children){
+			files.add(directoryPath + child);
 		}
 
-		return eas;
+		return files;
 	}
 
 
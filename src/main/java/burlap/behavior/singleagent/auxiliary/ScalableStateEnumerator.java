@@ -0,0 +1,893 @@
+package burlap.behavior.singleagent.auxiliary;
+
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.ActionUtils;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * A {@link StateEnumerator} for large state spaces. Instead of two object-keyed {@link java.util.HashMap}s, states are indexed by
+ * an open-addressing hash table of primitive int ids and hash codes, and the id to state table is an array list of the hashed states.
+ * {@link #findReachableStatesAndEnumerate(State)} performs a breadth-first search in which each level's frontier is expanded in chunks, and the
+ * transitions of a chunk's states are generated and hashed in parallel on a {@link ForkJoinPool}. Successor states are then enumerated on the calling
+ * thread in the same order as a serial search, so the ids assigned to states do not depend on the number of threads.
+ * <p>
+ * When states have a fixed set of numeric (or boolean) variables, such as the states of most grid-based domains,
+ * {@link #togglePackedEncoding(boolean)} stores each state as a row of doubles holding its variable values in the order of the first enumerated
+ * state's {@link State#variableKeys()}, rather than as a state object. States are then identified by their rows, rather than by the
+ * {@link HashableStateFactory}, which is equivalent to the identity hashing of {@link burlap.statehashing.simple.SimpleHashableStateFactory}
+ * over variables with a fixed order, and {@link #getStateForEnumerationId(int)} returns a new copy of the first state with its variables set from the row,
+ * so the first state must be a {@link MutableState}. With packed encoding, {@link #spillToDisk(File)} additionally stores the rows in a temporary file
+ * rather than in memory, leaving only the hash index in memory, at the cost of reading rows from the file when states are looked up.
+ * <p>
+ * Enumeration methods of this class are not safe to call from multiple threads at once, but {@link #getStateForEnumerationId(int)} may be called
+ * concurrently as long as no states are being enumerated.
+ * @author James MacGlashan
+ *
+ */
+public class ScalableStateEnumerator extends StateEnumerator {
+
+	/**
+	 * The number of frontier states whose transitions are generated at once
+	 */
+	protected int								chunkSize = 4096;
+
+	/**
+	 * The fork-join pool used to generate transitions. Lazily created.
+	 */
+	protected LazyForkJoinPool					pool = new LazyForkJoinPool("ScalableStateEnumerator", 1);
+
+	/**
+	 * The number of states enumerated
+	 */
+	protected int								size = 0;
+
+	/**
+	 * The open-addressing hash table, holding each occupied slot's state id plus one, or zero for empty slots
+	 */
+	protected int []							slots = new int[1024];
+
+	/**
+	 * The hash code of the state in each occupied slot
+	 */
+	protected int []							slotHashes = new int[1024];
+
+	/**
+	 * The hashed state of each id when packed encoding is not used
+	 */
+	protected List<HashableState>				hashedStates = new ArrayList<HashableState>();
+
+	/**
+	 * Whether states are stored as packed rows of variable values
+	 */
+	protected boolean							packed = false;
+
+	/**
+	 * The directory in which packed rows are stored, or null to store them in memory
+	 */
+	protected File								spillDirectory;
+
+	/**
+	 * The encoding of packed states, created from the first enumerated state
+	 */
+	protected PackedStateEncoding				encoding;
+
+	/**
+	 * The packed rows of the states, created with the encoding
+	 */
+	protected RowTable							rows;
+
+
+	/**
+	 * Constructs with a parallelism level equal to the number of available processors.
+	 * @param domain the domain of the states to be enumerated
+	 * @param hashingFactory the hashing factory to use
+	 */
+	public ScalableStateEnumerator(SADomain domain, HashableStateFactory hashingFactory) {
+		this(domain, hashingFactory, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Constructs.
+	 * @param domain the domain of the states to be enumerated
+	 * @param hashingFactory the hashing factory to use
+	 * @param parallelism the number of worker threads used to generate transitions
+	 */
+	public ScalableStateEnumerator(SADomain domain, HashableStateFactory hashingFactory, int parallelism) {
+		super(domain, hashingFactory);
+		this.setParallelism(parallelism);
+	}
+
+
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+	/**
+	 * Sets the number of worker threads used to generate transitions.
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Sets the number of frontier states whose transitions are generated at once, which bounds the number of generated
+	 * successor states held in memory.
+	 * @param chunkSize the number of frontier states whose transitions are generated at once; must be at least 1.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if(chunkSize < 1){
+			throw new RuntimeException("Chunk size of ScalableStateEnumerator must be at least 1; was " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+
+	/**
+	 * Sets whether states are stored as packed rows of their numeric variable values. Must be set before any state is enumerated.
+	 * @param packed true to store states as packed rows; false to store the hashed states.
+	 */
+	public void togglePackedEncoding(boolean packed){
+		this.checkEmpty();
+		if(!packed && this.spillDirectory != null){
+			throw new RuntimeException("ScalableStateEnumerator can only spill states to disk with packed encoding.");
+		}
+		this.packed = packed;
+	}
+
+
+	/**
+	 * Enables packed encoding and stores the packed rows in a temporary file in the given directory, which is deleted by {@link #close()} or
+	 * when the JVM exits. Must be set before any state is enumerated.
+	 * @param directory the directory in which to create the temporary file
+	 */
+	public void spillToDisk(File directory){
+		this.checkEmpty();
+		this.packed = true;
+		this.spillDirectory = directory;
+	}
+
+
+	/**
+	 * Releases the temporary file used to store packed rows, if any, and shuts down the worker threads used to generate transitions.
+	 * States can no longer be returned after this method is called.
+	 */
+	public void close(){
+		this.pool.shutdown();
+		if(this.rows != null){
+			this.rows.close();
+		}
+	}
+
+
+	@Override
+	public void findReachableStatesAndEnumerate(State from) {
+
+		if(!(((SADomain)this.domain).getModel() instanceof FullModel)){
+			throw new RuntimeException("State reachablity requires a domain with a FullModel, but one is not provided");
+		}
+
+		ForkJoinPool pool = this.getPool();
+		BitSet visited = new BitSet();
+		int [] frontier = new int[]{this.getEnumeratedID(from)};
+		int frontierSize = 1;
+		visited.set(frontier[0]);
+		long nGenerated = 0;
+
+		while(frontierSize > 0){
+
+			int [] nextFrontier = new int[Math.max(16, frontierSize)];
+			int nextSize = 0;
+
+			for(int start = 0; start < frontierSize; start += this.chunkSize){
+
+				int end = Math.min(frontierSize, start + this.chunkSize);
+				Successors [] successors = new Successors[end - start];
+				pool.invoke(new ExpandTask(frontier, start, end, successors, start));
+
+				//enumerate the successors in order on this thread so that ids do not depend on thread scheduling
+				for(Successors succ : successors){
+					nGenerated += succ.hashes.length;
+					for(int k = 0; k < succ.hashes.length; k++){
+						int id = this.getOrAdd(succ.keys[k], succ.hashes[k]);
+						if(!visited.get(id)){
+							visited.set(id);
+							if(!succ.terminated[k]){
+								if(nextSize == nextFrontier.length){
+									nextFrontier = Arrays.copyOf(nextFrontier, nextSize * 2);
+								}
+								nextFrontier[nextSize] = id;
+								nextSize++;
+							}
+						}
+					}
+				}
+
+			}
+
+			DPrint.cl(StateReachability.debugID, "Num generated: " + nGenerated + "; num unique: " + this.size + "; next frontier: " + nextSize);
+
+			frontier = nextFrontier;
+			frontierSize = nextSize;
+
+		}
+
+	}
+
+
+	@Override
+	public int getEnumeratedID(State s) {
+		if(this.packed){
+			double [] row = this.encoding(s).encode(s);
+			return this.getOrAdd(row, PackedStateEncoding.hash(row));
+		}
+		HashableState sh = this.hashingFactory.hashState(s);
+		return this.getOrAdd(sh, sh.hashCode());
+	}
+
+
+	@Override
+	protected int getEnumeratedID(HashableState sh) {
+		if(this.packed){
+			return this.getEnumeratedID(sh.s());
+		}
+		return this.getOrAdd(sh, sh.hashCode());
+	}
+
+
+	@Override
+	public int findEnumeratedID(State s) {
+		if(this.size == 0){
+			return -1;
+		}
+		if(this.packed){
+			double [] row = this.encoding.encode(s);
+			return this.find(row, PackedStateEncoding.hash(row));
+		}
+		HashableState sh = this.hashingFactory.hashState(s);
+		return this.find(sh, sh.hashCode());
+	}
+
+
+	@Override
+	public State getStateForEnumerationId(int id) {
+		if(id < 0 || id >= this.size){
+			throw new RuntimeException("There is no state stored with the enumeration id: " + id);
+		}
+		if(this.packed){
+			return this.encoding.decode(this.rows.get(id));
+		}
+		return this.hashedStates.get(id).s();
+	}
+
+
+	@Override
+	public int numStatesEnumerated() {
+		return this.size;
+	}
+
+
+	/**
+	 * Returns the id of a state key, adding it with the next id if it has not been enumerated.
+	 * @param key the key of the state: a {@link HashableState}, or a packed row with packed encoding
+	 * @param hash the hash code of the key
+	 * @return the id of the state
+	 */
+	protected int getOrAdd(Object key, int hash){
+
+		int mask = this.slots.length - 1;
+		int i = mix(hash) & mask;
+		while(this.slots[i] != 0){
+			int id = this.slots[i] - 1;
+			if(this.slotHashes[i] == hash && this.keyEquals(id, key)){
+				return id;
+			}
+			i = (i + 1) & mask;
+		}
+
+		int id = this.size;
+		if(this.packed){
+			this.rows.add((double[])key);
+		}
+		else{
+			this.hashedStates.add((HashableState)key);
+		}
+		this.slots[i] = id + 1;
+		this.slotHashes[i] = hash;
+		this.size++;
+
+		if(this.size * 2 > this.slots.length){
+			this.rehash(this.slots.length * 2);
+		}
+
+		return id;
+	}
+
+
+	/**
+	 * Returns the id of a state key without adding it, or -1 if it has not been enumerated.
+	 * @param key the key of the state: a {@link HashableState}, or a packed row with packed encoding
+	 * @param hash the hash code of the key
+	 * @return the id of the state, or -1 if it has not been enumerated
+	 */
+	protected int find(Object key, int hash){
+		int mask = this.slots.length - 1;
+		int i = mix(hash) & mask;
+		while(this.slots[i] != 0){
+			int id = this.slots[i] - 1;
+			if(this.slotHashes[i] == hash && this.keyEquals(id, key)){
+				return id;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Returns whether the state with an id has the given key.
+	 * @param id the state id
+	 * @param key the key
+	 * @return true if the state has the key; false otherwise
+	 */
+	protected boolean keyEquals(int id, Object key){
+		if(this.packed){
+			return this.rows.rowEquals(id, (double[])key);
+		}
+		return this.hashedStates.get(id).equals(key);
+	}
+
+
+	/**
+	 * Rebuilds the hash table with a new capacity from the stored hash codes.
+	 * @param capacity the new capacity; must be a power of two
+	 */
+	protected void rehash(int capacity){
+		int [] oldSlots = this.slots;
+		int [] oldHashes = this.slotHashes;
+		this.slots = new int[capacity];
+		this.slotHashes = new int[capacity];
+		int mask = capacity - 1;
+		for(int j = 0; j < oldSlots.length; j++){
+			if(oldSlots[j] != 0){
+				int i = mix(oldHashes[j]) & mask;
+				while(this.slots[i] != 0){
+					i = (i + 1) & mask;
+				}
+				this.slots[i] = oldSlots[j];
+				this.slotHashes[i] = oldHashes[j];
+			}
+		}
+	}
+
+
+	/**
+	 * Spreads the bits of a hash code so that hash codes that differ only in high bits use different slots.
+	 * @param h the hash code
+	 * @return the mixed hash code
+	 */
+	protected static int mix(int h){
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+
+	/**
+	 * Returns the packed encoding, creating it and the row table from a state if they do not exist yet.
+	 * @param s the state from which to create the encoding
+	 * @return the packed encoding
+	 */
+	protected PackedStateEncoding encoding(State s){
+		if(this.encoding == null){
+			PackedStateEncoding enc = new PackedStateEncoding(s);
+			this.rows = this.spillDirectory != null ? new DiskRowTable(enc.numVariables(), this.spillDirectory) : new MemoryRowTable(enc.numVariables());
+			this.encoding = enc;
+		}
+		return this.encoding;
+	}
+
+
+	/**
+	 * Throws an exception if any state has been enumerated.
+	 */
+	protected void checkEmpty(){
+		if(this.size > 0){
+			throw new RuntimeException("The storage of ScalableStateEnumerator cannot be changed after states have been enumerated.");
+		}
+	}
+
+
+	/**
+	 * Returns the fork-join pool to use, creating it if it does not exist yet.
+	 * @return the fork-join pool to use
+	 */
+	protected ForkJoinPool getPool(){
+		return this.pool.get();
+	}
+
+
+	/**
+	 * The generated successor state keys of a frontier state, with their hash codes and whether their transitions terminated.
+	 */
+	protected static class Successors {
+
+		public Object [] keys;
+		public int [] hashes;
+		public boolean [] terminated;
+
+	}
+
+
+	/**
+	 * A fork-join task that generates the successors of a range of frontier states.
+	 */
+	protected class ExpandTask extends RecursiveAction {
+
+		protected int [] frontier;
+		protected int start;
+		protected int end;
+		protected Successors [] successors;
+		protected int offset;
+
+		/**
+		 * Initializes.
+		 * @param frontier the ids of the frontier states
+		 * @param start the first index (inclusive) of the range of the frontier for this task
+		 * @param end the last index (exclusive) of the range of the frontier for this task
+		 * @param successors the array into which the successors of each frontier state are written
+		 * @param offset the frontier index of the first entry of the successors array
+		 */
+		public ExpandTask(int [] frontier, int start, int end, Successors [] successors, int offset) {
+			this.frontier = frontier;
+			this.start = start;
+			this.end = end;
+			this.successors = successors;
+			this.offset = offset;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(end - start > 64){
+				int mid = (start + end) >>> 1;
+				invokeAll(new ExpandTask(frontier, start, mid, successors, offset), new ExpandTask(frontier, mid, end, successors, offset));
+				return;
+			}
+
+			SADomain saDomain = (SADomain)domain;
+			FullModel model = (FullModel)saDomain.getModel();
+			for(int i = start; i < end; i++){
+
+				State s = getStateForEnumerationId(frontier[i]);
+				List<TransitionProb> tps = new ArrayList<TransitionProb>();
+				for(Action a : ActionUtils.allApplicableActionsForTypes(saDomain.getActionTypes(), s)){
+					tps.addAll(model.transitions(s, a));
+				}
+
+				Successors succ = new Successors();
+				succ.keys = new Object[tps.size()];
+				succ.hashes = new int[tps.size()];
+				succ.terminated = new boolean[tps.size()];
+				for(int k = 0; k < tps.size(); k++){
+					TransitionProb tp = tps.get(k);
+					if(packed){
+						double [] row = encoding.encode(tp.eo.op);
+						succ.keys[k] = row;
+						succ.hashes[k] = PackedStateEncoding.hash(row);
+					}
+					else{
+						HashableState sh = hashingFactory.hashState(tp.eo.op);
+						succ.keys[k] = sh;
+						succ.hashes[k] = sh.hashCode();
+					}
+					succ.terminated[k] = tp.eo.terminated;
+				}
+				successors[i - offset] = succ;
+
+			}
+		}
+	}
+
+
+	/**
+	 * Encodes states with a fixed list of numeric or boolean variables as rows of doubles, and decodes them into copies of a template state.
+	 */
+	public static class PackedStateEncoding {
+
+		/**
+		 * The template state that decoded states copy
+		 */
+		protected MutableState template;
+
+		/**
+		 * The variable keys, in row order
+		 */
+		protected Object [] keys;
+
+		/**
+		 * The class of each variable's values
+		 */
+		protected Class<?> [] types;
+
+
+		/**
+		 * Creates the encoding of a template state's variables.
+		 * @param template the template state, which must be a {@link MutableState}
+		 */
+		public PackedStateEncoding(State template){
+			if(!(template instanceof MutableState)){
+				throw new RuntimeException("Packed state encoding requires MutableState states, but was given a " + template.getClass().getName());
+			}
+			this.template = (MutableState)template.copy();
+			List<Object> keyList = template.variableKeys();
+			this.keys = keyList.toArray();
+			this.types = new Class<?>[this.keys.length];
+			for(int i = 0; i < this.keys.length; i++){
+				Object v = template.get(this.keys[i]);
+				if(!(v instanceof Number) && !(v instanceof Boolean)){
+					throw new RuntimeException("Packed state encoding requires numeric or boolean variables, but variable " + this.keys[i] + " is " + v);
+				}
+				this.types[i] = v.getClass();
+			}
+		}
+
+		/**
+		 * Returns the number of variables in a row
+		 * @return the number of variables in a row
+		 */
+		public int numVariables(){
+			return this.keys.length;
+		}
+
+		/**
+		 * Encodes a state as a row of its variable values.
+		 * @param s the state to encode, which must have the same variables as the template state
+		 * @return the row of variable values
+		 */
+		public double [] encode(State s){
+			if(s.variableKeys().size() != this.keys.length){
+				throw new RuntimeException("Packed state encoding requires every state to have the same variables as the first state; " + s + " has " + s.variableKeys().size() + " variables rather than " + this.keys.length);
+			}
+			double [] row = new double[this.keys.length];
+			for(int i = 0; i < row.length; i++){
+				Object v = s.get(this.keys[i]);
+				if(v instanceof Boolean){
+					row[i] = (Boolean)v ? 1. : 0.;
+				}
+				else if(v instanceof Number){
+					row[i] = ((Number)v).doubleValue();
+				}
+				else{
+					throw new RuntimeException("Packed state encoding requires numeric or boolean variables, but variable " + this.keys[i] + " is " + v);
+				}
+			}
+			return row;
+		}
+
+		/**
+		 * Decodes a row into a copy of the template state.
+		 * @param row the row of variable values
+		 * @return the decoded state
+		 */
+		public State decode(double [] row){
+			MutableState s = (MutableState)this.template.copy();
+			for(int i = 0; i < row.length; i++){
+				s.set(this.keys[i], this.box(i, row[i]));
+			}
+			return s;
+		}
+
+		/**
+		 * Converts a row value into a value of the variable's type
+		 * @param i the variable index
+		 * @param v the row value
+		 * @return the value of the variable's type
+		 */
+		protected Object box(int i, double v){
+			Class<?> t = this.types[i];
+			if(t == Integer.class){
+				return (int)v;
+			}
+			else if(t == Boolean.class){
+				return v != 0.;
+			}
+			else if(t == Long.class){
+				return (long)v;
+			}
+			else if(t == Float.class){
+				return (float)v;
+			}
+			else if(t == Short.class){
+				return (short)v;
+			}
+			else if(t == Byte.class){
+				return (byte)v;
+			}
+			return v;
+		}
+
+		/**
+		 * Returns the hash code of a row
+		 * @param row the row
+		 * @return the hash code of the row
+		 */
+		public static int hash(double [] row){
+			return Arrays.hashCode(row);
+		}
+
+	}
+
+
+	/**
+	 * A growable table of fixed-width rows of doubles.
+	 */
+	protected interface RowTable {
+
+		/**
+		 * Appends a row
+		 * @param row the row
+		 */
+		void add(double [] row);
+
+		/**
+		 * Returns a copy of a row
+		 * @param id the index of the row
+		 * @return a copy of the row
+		 */
+		double [] get(int id);
+
+		/**
+		 * Returns whether a row is equal to the given values
+		 * @param id the index of the row
+		 * @param row the values
+		 * @return true if the row is equal to the values; false otherwise
+		 */
+		boolean rowEquals(int id, double [] row);
+
+		/**
+		 * Releases any resources held by the table
+		 */
+		void close();
+
+	}
+
+
+	/**
+	 * A {@link RowTable} stored in a single growable double array.
+	 */
+	protected static class MemoryRowTable implements RowTable {
+
+		protected int width;
+		protected double [] data = new double[1024];
+		protected int numRows = 0;
+
+		public MemoryRowTable(int width) {
+			this.width = width;
+		}
+
+		@Override
+		public void add(double[] row) {
+			long needed = (long)(this.numRows + 1) * this.width;
+			if(needed > this.data.length){
+				long capacity = Math.max(needed, (long)this.data.length * 2);
+				if(capacity > Integer.MAX_VALUE - 8){
+					capacity = Integer.MAX_VALUE - 8;
+					if(needed > capacity){
+						throw new RuntimeException("ScalableStateEnumerator cannot store more packed states in memory; consider spilling them to disk.");
+					}
+				}
+				this.data = Arrays.copyOf(this.data, (int)capacity);
+			}
+			System.arraycopy(row, 0, this.data, this.numRows * this.width, this.width);
+			this.numRows++;
+		}
+
+		@Override
+		public double[] get(int id) {
+			return Arrays.copyOfRange(this.data, id * this.width, (id + 1) * this.width);
+		}
+
+		@Override
+		public boolean rowEquals(int id, double[] row) {
+			int offset = id * this.width;
+			for(int i = 0; i < this.width; i++){
+				if(Double.doubleToLongBits(this.data[offset + i]) != Double.doubleToLongBits(row[i])){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void close() {
+			//nothing to release
+		}
+	}
+
+
+	/**
+	 * A {@link RowTable} stored in a temporary file, with the most recently added rows buffered in memory. Rows may be read concurrently
+	 * while no rows are being added. A 64-bit hash of every row is kept in memory, so {@link #rowEquals(int, double[])} only reads a row
+	 * from the file when its hash matches, which is almost only when the rows are equal. Like adding rows, {@link #rowEquals(int, double[])}
+	 * must not be called concurrently, because it reuses a read buffer.
+	 */
+	protected static class DiskRowTable implements RowTable {
+
+		protected int width;
+		protected File file;
+		protected RandomAccessFile raf;
+		protected FileChannel channel;
+
+		/**
+		 * The rows that have not yet been written to the file
+		 */
+		protected double [] buffer;
+		protected int bufferedRows = 0;
+		protected int writtenRows = 0;
+
+		/**
+		 * The 64-bit hash of each row
+		 */
+		protected long [] rowHashes = new long[1024];
+
+		/**
+		 * The buffer into which {@link #rowEquals(int, double[])} reads rows from the file
+		 */
+		protected ByteBuffer readBuffer;
+
+		public DiskRowTable(int width, File directory) {
+			this.width = width;
+			this.buffer = new double[Math.max(1, 8192 / Math.max(1, width)) * width];
+			this.readBuffer = ByteBuffer.allocate(width * 8);
+			try {
+				this.file = File.createTempFile("burlap-states", ".bin", directory);
+				this.file.deleteOnExit();
+				this.raf = new RandomAccessFile(this.file, "rw");
+				this.channel = this.raf.getChannel();
+			} catch(IOException e) {
+				throw new RuntimeException("ScalableStateEnumerator could not create a file to spill states to in " + directory, e);
+			}
+		}
+
+		@Override
+		public void add(double[] row) {
+			if((this.bufferedRows + 1) * this.width > this.buffer.length){
+				this.flush();
+			}
+			int id = this.writtenRows + this.bufferedRows;
+			if(id == this.rowHashes.length){
+				this.rowHashes = Arrays.copyOf(this.rowHashes, 2 * id);
+			}
+			this.rowHashes[id] = rowHash(row);
+			System.arraycopy(row, 0, this.buffer, this.bufferedRows * this.width, this.width);
+			this.bufferedRows++;
+		}
+
+		@Override
+		public double[] get(int id) {
+			double [] row = new double[this.width];
+			if(id >= this.writtenRows){
+				System.arraycopy(this.buffer, (id - this.writtenRows) * this.width, row, 0, this.width);
+				return row;
+			}
+			ByteBuffer bb = ByteBuffer.allocate(this.width * 8);
+			this.read(id, bb);
+			bb.asDoubleBuffer().get(row);
+			return row;
+		}
+
+		@Override
+		public boolean rowEquals(int id, double[] row) {
+			if(this.rowHashes[id] != rowHash(row)){
+				return false;
+			}
+			if(id >= this.writtenRows){
+				int offset = (id - this.writtenRows) * this.width;
+				for(int i = 0; i < this.width; i++){
+					if(Double.doubleToLongBits(this.buffer[offset + i]) != Double.doubleToLongBits(row[i])){
+						return false;
+					}
+				}
+				return true;
+			}
+			ByteBuffer bb = this.readBuffer;
+			bb.clear();
+			this.read(id, bb);
+			for(int i = 0; i < this.width; i++){
+				if(Double.doubleToLongBits(bb.getDouble(i * 8)) != Double.doubleToLongBits(row[i])){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Reads a row that has been written to the file into a buffer, which is flipped for reading afterwards
+		 * @param id the index of the row
+		 * @param bb the buffer, with room for exactly one row
+		 */
+		protected void read(int id, ByteBuffer bb){
+			long pos = (long)id * this.width * 8;
+			try {
+				while(bb.hasRemaining()){
+					int n = this.channel.read(bb, pos + bb.position());
+					if(n < 0){
+						throw new RuntimeException("ScalableStateEnumerator could not read state " + id + " from " + this.file);
+					}
+				}
+			} catch(IOException e) {
+				throw new RuntimeException("ScalableStateEnumerator could not read state " + id + " from " + this.file, e);
+			}
+			bb.flip();
+		}
+
+		/**
+		 * Returns a 64-bit hash of a row, which is independent of the 32-bit hash code used to find the row's slot
+		 * @param row the row
+		 * @return the 64-bit hash of the row
+		 */
+		protected static long rowHash(double [] row){
+			long h = 0x9E3779B97F4A7C15L;
+			for(double v : row){
+				h = RandomFactory.mixSeed(h ^ Double.doubleToLongBits(v));
+			}
+			return h;
+		}
+
+		/**
+		 * Writes the buffered rows to the file
+		 */
+		protected void flush(){
+			ByteBuffer bb = ByteBuffer.allocate(this.bufferedRows * this.width * 8);
+			bb.asDoubleBuffer().put(this.buffer, 0, this.bufferedRows * this.width);
+			long pos = (long)this.writtenRows * this.width * 8;
+			try {
+				while(bb.hasRemaining()){
+					this.channel.write(bb, pos + bb.position());
+				}
+			} catch(IOException e) {
+				throw new RuntimeException("ScalableStateEnumerator could not write states to " + this.file, e);
+			}
+			this.writtenRows += this.bufferedRows;
+			this.bufferedRows = 0;
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.raf.close();
+			} catch(IOException e) {
+				throw new RuntimeException("ScalableStateEnumerator could not close " + this.file, e);
+			}
+			this.file.delete();
+		}
+	}
+
+}
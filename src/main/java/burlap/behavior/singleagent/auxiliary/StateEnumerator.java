@@ -84,6 +84,20 @@ public class StateEnumerator {
 	}
 	
 	
+	/**
+	 * Returns the enumeration id of a state without enumerating it, or -1 if the state has not been enumerated.
+	 * @param s the state to look up
+	 * @return the enumeration id of the state, or -1 if it has not been enumerated
+	 */
+	public int findEnumeratedID(State s){
+		Integer storedID = this.enumeration.get(this.hashingFactory.hashState(s));
+		if(storedID == null){
+			return -1;
+		}
+		return storedID;
+	}
+	
+	
 	/**
 	 * Returns the state associated with the given enumeration id.
 	 * A state must have previously be associated with the input enumeration id, or a runtime exception is thrown.
@@ -4,8 +4,18 @@ import burlap.behavior.singleagent.Episode;
 import burlap.behavior.singleagent.learning.LearningAgent;
 import burlap.behavior.singleagent.learning.LearningAgentFactory;
 import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
 import burlap.mdp.singleagent.environment.Environment;
+import burlap.mdp.singleagent.environment.EnvironmentFactory;
 import burlap.mdp.singleagent.environment.extensions.EnvironmentServer;
+import burlap.parallel.ParallelUtilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -29,6 +39,16 @@ import burlap.mdp.singleagent.environment.extensions.EnvironmentServer;
  * By default the cumulative reward per step will be plotted and if more than one trial is specified, the both the most recent trail and the trial average plot will be shown.
  * If only one trial is specified, then only the most recent trial plot will be shown. To control the kinds of plots displayed use the 
  * {@link #setUpPlottingConfiguration(int, int, int, int, TrialMode, PerformanceMetric...)} method. 
+ * <p>
+ * If the experimenter is constructed with an {@link EnvironmentFactory} instead of a single {@link Environment}, each trial is
+ * isolated: it is run with its own {@link Environment} generated by the factory, and with its own {@link RandomFactory} set as the
+ * thread's factory (see {@link RandomFactory#setThreadFactory(RandomFactory)}) while the trial's agent and {@link Environment} are generated
+ * and run. Isolated trials can be run in parallel with the {@link #setNumTrialThreads(int)} method, and can be made reproducible
+ * with the {@link #setTrialSeed(long)} method. The results of each trial are recorded in a {@link TrialRecord} and
+ * collected by a {@link TrialMetricsAggregator}, which writes the csv files; if plots are displayed, completed trials are
+ * given to the {@link PerformancePlotter} in agent and trial order. As a result, for a given trial seed the csv files are
+ * identical whether the trials are run serially or in parallel, as long as the agent and environment factories do not
+ * share mutable objects (such as a domain model holding a random generator) between the objects they generate.
  * 
  * @author James MacGlashan
  *
@@ -42,6 +62,13 @@ public class LearningAlgorithmExperimenter {
 	protected Environment 		testEnvironment;
 
 
+	/**
+	 * The factory used to generate the {@link burlap.mdp.singleagent.environment.Environment} of each trial when trials are isolated;
+	 * null if all trials are run in the single test {@link burlap.mdp.singleagent.environment.Environment}.
+	 */
+	protected EnvironmentFactory	environmentFactory;
+
+
 	/**
 	 * The {@link EnvironmentServer} that wraps the test {@link burlap.mdp.singleagent.environment.Environment}
 	 * and tells a {@link burlap.behavior.singleagent.auxiliary.performance.PerformancePlotter} about the individual interactions.
@@ -101,6 +128,24 @@ public class LearningAlgorithmExperimenter {
 	 * Whether the experimenter has completed.
 	 */
 	protected boolean					completedExperiment = false;
+
+
+	/**
+	 * The number of threads used to run isolated trials. With a single thread (the default), trials are run on the calling thread.
+	 */
+	protected int						numTrialThreads = 1;
+
+
+	/**
+	 * The seed from which the {@link RandomFactory} of each isolated trial is seeded; null if isolated trials are unseeded.
+	 */
+	protected Long						trialSeed = null;
+
+
+	/**
+	 * The aggregator of the results of isolated trials.
+	 */
+	protected TrialMetricsAggregator	aggregator;
 	
 	
 	/**
@@ -132,6 +177,29 @@ public class LearningAlgorithmExperimenter {
 		this.trialLength = trialLength;
 		this.agentFactories = agentFactories;
 	}
+
+
+	/**
+	 * Initializes the experimenter to isolate trials: each trial is run in its own {@link burlap.mdp.singleagent.environment.Environment}
+	 * generated by the given factory and with its own {@link RandomFactory}.
+	 * The trialLength will be interpreted as the number of episodes, but it can be reinterpreted as a total number of steps per trial using the
+	 * {@link #toggleTrialLengthInterpretation(boolean)}.
+	 * @param environmentFactory the factory generating the {@link burlap.mdp.singleagent.environment.Environment} of each trial
+	 * @param nTrials the number of trials
+	 * @param trialLength the length of the trials (by default in episodes, but can be intereted as maximum step length)
+	 * @param agentFactories factories to generate the agents to be tested.
+	 */
+	public LearningAlgorithmExperimenter(EnvironmentFactory environmentFactory, int nTrials, int trialLength, LearningAgentFactory...agentFactories){
+
+		if(agentFactories.length == 0){
+			throw new RuntimeException("Zero agent factories provided. At least one must be given for an experiment");
+		}
+
+		this.environmentFactory = environmentFactory;
+		this.nTrials = nTrials;
+		this.trialLength = trialLength;
+		this.agentFactories = agentFactories;
+	}
 	
 	
 	
@@ -200,6 +268,40 @@ public class LearningAlgorithmExperimenter {
 	}
 	
 	
+	/**
+	 * Sets the number of threads used to run trials. Trials of all agents are run concurrently, each with its own agent and
+	 * {@link burlap.mdp.singleagent.environment.Environment}, so the agent and environment factories must be safe to call from multiple threads.
+	 * Running trials on more than one thread requires that the experimenter was constructed with an {@link EnvironmentFactory}.
+	 * @param numTrialThreads the number of threads; 1 runs trials on the thread that calls {@link #startExperiment()}.
+	 */
+	public void setNumTrialThreads(int numTrialThreads){
+		if(numTrialThreads < 1){
+			throw new RuntimeException("The number of trial threads must be at least 1.");
+		}
+		this.numTrialThreads = numTrialThreads;
+	}
+
+
+	/**
+	 * Returns the number of threads used to run trials.
+	 * @return the number of threads used to run trials.
+	 */
+	public int getNumTrialThreads(){
+		return this.numTrialThreads;
+	}
+
+
+	/**
+	 * Sets the seed from which each isolated trial's {@link RandomFactory} is seeded. The seed of a trial's {@link RandomFactory} depends only
+	 * on this seed and the trial index, so the i'th trial of every agent sees the same random sequences from the objects generated
+	 * by the environment factory. Has no effect if the experimenter was constructed with a single test {@link burlap.mdp.singleagent.environment.Environment}.
+	 * @param trialSeed the seed from which the trials are seeded
+	 */
+	public void setTrialSeed(long trialSeed){
+		this.trialSeed = trialSeed;
+	}
+
+
 	/**
 	 * Starts the experiment and runs all trails for all agents.
 	 */
@@ -209,6 +311,16 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Experiment was already run and has completed. If you want to run a new experiment create a new Experiment object.");
 			return;
 		}
+
+		if(this.environmentFactory != null){
+			this.runIsolatedTrials();
+			this.completedExperiment = true;
+			return;
+		}
+
+		if(this.numTrialThreads > 1){
+			throw new RuntimeException("Running trials on multiple threads requires an EnvironmentFactory to generate the environment of each trial.");
+		}
 		
 		if(this.plotter == null){
 			
@@ -271,6 +383,10 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Cannot write data until the experiment has been started with the startExperiment() method.");
 			return;
 		}
+		if(this.aggregator != null){
+			this.aggregator.writeStepAndEpisodeDataToCSV(pathAndBaseNameToUse);
+			return;
+		}
 		this.plotter.writeStepAndEpisodeDataToCSV(pathAndBaseNameToUse);
 	}
 	
@@ -286,6 +402,10 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Cannot write data until the experiment has been started with the startExperiment() method.");
 			return;
 		}
+		if(this.aggregator != null){
+			this.aggregator.writeStepDataToCSV(filePath);
+			return;
+		}
 		this.plotter.writeStepDataToCSV(filePath);
 	}
 	
@@ -301,6 +421,10 @@ public class LearningAlgorithmExperimenter {
 			System.out.println("Cannot write data until the experiment has been started with the startExperiment() method.");
 			return;
 		}
+		if(this.aggregator != null){
+			this.aggregator.writeEpisodeDataToCSV(filePath);
+			return;
+		}
 		this.plotter.writeEpisodeDataToCSV(filePath);
 	}
 	
@@ -360,6 +484,178 @@ public class LearningAlgorithmExperimenter {
 		this.plotter.endTrial();
 		
 	}
+
+
+	/**
+	 * Runs all trials of all agents in isolation, on the calling thread or on a thread pool, and collects their results in
+	 * the {@link TrialMetricsAggregator}. If plots are displayed, completed trials are given to the plotter in agent and trial order.
+	 */
+	protected void runIsolatedTrials(){
+
+		String [] agentNames = new String[this.agentFactories.length];
+		for(int i = 0; i < agentNames.length; i++){
+			agentNames[i] = this.agentFactories[i].getAgentName();
+		}
+		this.aggregator = new TrialMetricsAggregator(agentNames, this.nTrials);
+
+		if(this.displayPlots){
+			if(this.plotter == null){
+				TrialMode trialMode = TrialMode.MOST_RECENT_AND_AVERAGE;
+				if(this.nTrials == 1){
+					trialMode = TrialMode.MOST_RECENT_TRIAL_ONLY;
+				}
+				this.plotter = new PerformancePlotter(agentNames[0], 500, 250, 2, 500, trialMode);
+			}
+			this.plotter.startGUI();
+			this.plotter.toggleDataCollection(true);
+		}
+
+		ExecutorService executor = null;
+		List<Future<TrialRecord>> futures = null;
+		if(this.numTrialThreads > 1){
+			executor = Executors.newFixedThreadPool(this.numTrialThreads);
+			futures = new ArrayList<Future<TrialRecord>>(agentNames.length * this.nTrials);
+			for(int i = 0; i < agentNames.length; i++){
+				for(int j = 0; j < this.nTrials; j++){
+					final int agentIndex = i;
+					final int trial = j;
+					futures.add(executor.submit(new Callable<TrialRecord>() {
+						@Override
+						public TrialRecord call() throws Exception {
+							return runIsolatedTrial(agentIndex, trial);
+						}
+					}));
+				}
+			}
+		}
+
+		try{
+			for(int i = 0; i < agentNames.length; i++){
+
+				if(i > 0 && this.plotter != null){
+					this.plotter.startNewAgent(agentNames[i]);
+				}
+
+				for(int j = 0; j < this.nTrials; j++){
+
+					TrialRecord record;
+					if(executor == null){
+						DPrint.cl(this.debugCode, "Beginning " + agentNames[i] + " trial " + (j+1) + "/" + this.nTrials);
+						record = this.runIsolatedTrial(i, j);
+					}
+					else{
+						record = this.waitForTrial(futures.get(i*this.nTrials + j));
+						DPrint.cl(this.debugCode, "Completed " + agentNames[i] + " trial " + (j+1) + "/" + this.nTrials);
+					}
+
+					if(this.plotter != null){
+						this.plotTrial(record);
+					}
+
+				}
+			}
+		} finally {
+			if(executor != null){
+				executor.shutdownNow();
+			}
+		}
+
+		if(this.plotter != null){
+			this.plotter.endAllAgents();
+		}
+
+	}
+
+
+	/**
+	 * Runs one isolated trial of an agent with its own {@link burlap.mdp.singleagent.environment.Environment} and {@link RandomFactory},
+	 * records it in the {@link TrialMetricsAggregator}, and returns it.
+	 * @param agentIndex the index of the agent factory
+	 * @param trial the index of the trial
+	 * @return the {@link TrialRecord} of the trial
+	 */
+	protected TrialRecord runIsolatedTrial(int agentIndex, int trial){
+
+		RandomFactory previous = RandomFactory.getThreadFactory();
+		if(this.trialSeed != null){
+			RandomFactory.setThreadFactory(new RandomFactory(RandomFactory.mixSeed(this.trialSeed + trial)));
+		}
+		else{
+			RandomFactory.setThreadFactory(new RandomFactory());
+		}
+
+		try{
+
+			Environment env = this.environmentFactory.generateEnvironment();
+			if(env instanceof ExperimentalEnvironment){
+				((ExperimentalEnvironment)env).startNewExperiment();
+			}
+
+			LearningAgent agent = this.agentFactories[agentIndex].generateAgent();
+
+			TrialRecord record = new TrialRecord();
+			EnvironmentServer server = EnvironmentServer.constructor(env, record);
+
+			if(this.trialLengthIsInEpisodes){
+				for(int i = 0; i < this.trialLength; i++){
+					agent.runLearningEpisode(server);
+					record.endEpisode();
+					server.resetEnvironment();
+				}
+			}
+			else{
+				int stepsRemaining = this.trialLength;
+				while(stepsRemaining > 0){
+					Episode ea = agent.runLearningEpisode(server, stepsRemaining);
+					stepsRemaining -= ea.numTimeSteps()-1; //-1  because we want to subtract the number of actions, not the number of states seen
+					record.endEpisode();
+					server.resetEnvironment();
+				}
+			}
+
+			this.aggregator.recordTrial(agentIndex, trial, record);
+
+			return record;
+
+		} finally {
+			if(previous != null){
+				RandomFactory.setThreadFactory(previous);
+			}
+			else{
+				RandomFactory.clearThreadFactory();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Gives a completed trial to the plotter as the current agent's next trial.
+	 * @param record the {@link TrialRecord} of the completed trial
+	 */
+	protected void plotTrial(TrialRecord record){
+		this.plotter.startNewTrial();
+		int step = 0;
+		for(int e = 0; e < record.numEpisodes(); e++){
+			int len = record.episodeLength(e);
+			for(int k = 0; k < len; k++){
+				this.plotter.recordStepReward(record.reward(step));
+				step++;
+			}
+			this.plotter.endEpisode();
+		}
+		this.plotter.endTrial();
+	}
+
+
+	/**
+	 * Waits for a trial running on the thread pool to complete and returns its record. If the trial failed, its exception is rethrown.
+	 * @param future the {@link Future} of the trial
+	 * @return the {@link TrialRecord} of the trial
+	 */
+	protected TrialRecord waitForTrial(Future<TrialRecord> future){
+		return ParallelUtilities.await(future, "an experiment trial to complete");
+	}
 	
 	
 	
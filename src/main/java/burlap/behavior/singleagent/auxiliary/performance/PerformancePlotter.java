@@ -21,6 +21,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
 
@@ -76,7 +77,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	
 	
 	/**
-	 * contains all trial data for each agent
+	 * contains all trial data for each agent, in the order in which the agents were started
 	 */
 	protected Map<String, List<Trial>> agentTrials;
 	
@@ -225,7 +226,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 
 		this.curAgentName = firstAgentName;
 		
-		this.agentTrials = new HashMap<String, List<Trial>>();
+		this.agentTrials = new LinkedHashMap<String, List<Trial>>();
 		this.agentTrials.put(this.curAgentName, new ArrayList<PerformancePlotter.Trial>());
 		
 		colCSR = new XYSeriesCollection();
@@ -347,11 +348,22 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 
 	@Override
 	synchronized public void observeEnvironmentInteraction(EnvironmentOutcome eo) {
+		this.recordStepReward(eo.r);
+	}
+
+
+	/**
+	 * Records the reward of a step of the current trial, as if it was observed from an environment interaction. This is used
+	 * to feed the plotter trials that were recorded elsewhere, such as in a {@link TrialRecord}.
+	 * Does nothing if data collection is disabled.
+	 * @param r the reward received
+	 */
+	synchronized public void recordStepReward(double r){
 		if(!this.collectData){
 			return;
 		}
 
-		this.curTrial.stepIncrement(eo.r);
+		this.curTrial.stepIncrement(r);
 		this.curTimeStep++;
 
 	}
@@ -495,6 +507,38 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * @param pathAndBaseNameToUse the base path and file name for the epsidoe-wise and step-wise csv files.
 	 */
 	public void writeStepAndEpisodeDataToCSV(String pathAndBaseNameToUse){
+		writeStepAndEpisodeDataToCSV(this.agentTrials, pathAndBaseNameToUse);
+	}
+	
+	
+	/**
+	 * Writes the step-wise data to a csv file.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	public void writeStepDataToCSV(String filePath){
+		writeStepDataToCSV(this.agentTrials, filePath);
+	}
+	
+	
+	/**
+	 * Writes the episode-wise data to a csv file.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	public void writeEpisodeDataToCSV(String filePath){
+		writeEpisodeDataToCSV(this.agentTrials, filePath);
+	}
+	
+	
+	/**
+	 * Writes the step-wise and episode-wise data of the given trials to CSV files.
+	 * The episode-wise data will be saved to the file &lt;pathAndBaseNameToUse&gt;Episodes.csv. The step-wise data will
+	 * be saved to the file &lt;pathAndBaseNameToUse&gt;Steps.csv
+	 * @param agentTrials the trials of each agent, in the order in which they are written
+	 * @param pathAndBaseNameToUse the base path and file name for the epsidoe-wise and step-wise csv files.
+	 */
+	protected static void writeStepAndEpisodeDataToCSV(Map<String, List<Trial>> agentTrials, String pathAndBaseNameToUse){
 		
 		if(pathAndBaseNameToUse.endsWith(".csv")){
 			pathAndBaseNameToUse = pathAndBaseNameToUse.substring(0, pathAndBaseNameToUse.length()-4);
@@ -502,32 +546,11 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 		
 		try {
 			BufferedWriter outStep = new BufferedWriter(new FileWriter(pathAndBaseNameToUse + "Steps.csv"));
-			BufferedWriter outEpisode = new BufferedWriter(new FileWriter(pathAndBaseNameToUse + "Episodes.csv"));
-			
-			//create header
-			outStep.write("agent,trial,step,cumulativeReward\n");
-			outEpisode.write("agent,trial,episode,cumulativeReward,averageReward,cumulativeSteps,numSteps\n");
-			
-			for(Map.Entry<String, List<Trial>> e : this.agentTrials.entrySet()){
-				String aname = e.getKey();
-				List<Trial> trials = e.getValue();
-				for(int i = 0; i < trials.size(); i++){
-					Trial trial = trials.get(i);
-					for(int j = 0; j < trial.totalSteps; j++){
-						outStep.write(aname+","+i+","+j+","+trial.cumulativeStepReward.get(j)+"\n");
-					}
-					for(int j = 0; j < trial.totalEpisodes; j++){
-						outEpisode.write(aname+","+i+","+j);
-						outEpisode.write(","+trial.cumulativeEpisodeReward.get(j));
-						outEpisode.write(","+trial.averageEpisodeReward.get(j));
-						outEpisode.write(","+trial.cumulativeStepEpisode.get(j));
-						outEpisode.write(","+trial.stepEpisode.get(j));
-						outEpisode.write("\n");
-					}
-				}
-			}
-			
+			writeStepData(agentTrials, outStep);
 			outStep.close();
+			
+			BufferedWriter outEpisode = new BufferedWriter(new FileWriter(pathAndBaseNameToUse + "Episodes.csv"));
+			writeEpisodeData(agentTrials, outEpisode);
 			outEpisode.close();
 			
 		} catch (Exception e) {
@@ -539,11 +562,12 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	
 	
 	/**
-	 * Writes the step-wise data to a csv file.
+	 * Writes the step-wise data of the given trials to a csv file.
 	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param agentTrials the trials of each agent, in the order in which they are written
 	 * @param filePath the path to the csv file to write to.
 	 */
-	public void writeStepDataToCSV(String filePath){
+	protected static void writeStepDataToCSV(Map<String, List<Trial>> agentTrials, String filePath){
 		
 		if(!filePath.endsWith(".csv")){
 			filePath = filePath + ".csv";
@@ -551,21 +575,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 		
 		try {
 			BufferedWriter outStep = new BufferedWriter(new FileWriter(filePath));
-			
-			//create header
-			outStep.write("agent,trial,step,cumulativeReward\n");
-			
-			for(Map.Entry<String, List<Trial>> e : this.agentTrials.entrySet()){
-				String aname = e.getKey();
-				List<Trial> trials = e.getValue();
-				for(int i = 0; i < trials.size(); i++){
-					Trial trial = trials.get(i);
-					for(int j = 0; j < trial.totalSteps; j++){
-						outStep.write(aname+","+i+","+j+","+trial.cumulativeStepReward.get(j)+"\n");
-					}
-				}
-			}
-			
+			writeStepData(agentTrials, outStep);
 			outStep.close();
 			
 		} catch (Exception e) {
@@ -577,11 +587,12 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	
 	
 	/**
-	 * Writes the episode-wise data to a csv file.
+	 * Writes the episode-wise data of the given trials to a csv file.
 	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param agentTrials the trials of each agent, in the order in which they are written
 	 * @param filePath the path to the csv file to write to.
 	 */
-	public void writeEpisodeDataToCSV(String filePath){
+	protected static void writeEpisodeDataToCSV(Map<String, List<Trial>> agentTrials, String filePath){
 		
 		if(!filePath.endsWith(".csv")){
 			filePath = filePath + ".csv";
@@ -589,26 +600,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 		
 		try {
 			BufferedWriter outEpisode = new BufferedWriter(new FileWriter(filePath));
-			
-			//create header
-			outEpisode.write("agent,trial,episode,cumulativeReward,averageReward,cumulativeSteps,numSteps\n");
-			
-			for(Map.Entry<String, List<Trial>> e : this.agentTrials.entrySet()){
-				String aname = e.getKey();
-				List<Trial> trials = e.getValue();
-				for(int i = 0; i < trials.size(); i++){
-					Trial trial = trials.get(i);
-					for(int j = 0; j < trial.totalEpisodes; j++){
-						outEpisode.write(aname+","+i+","+j);
-						outEpisode.write(","+trial.cumulativeEpisodeReward.get(j));
-						outEpisode.write(","+trial.averageEpisodeReward.get(j));
-						outEpisode.write(","+trial.cumulativeStepEpisode.get(j));
-						outEpisode.write(","+trial.stepEpisode.get(j));
-						outEpisode.write("\n");
-					}
-				}
-			}
-			
+			writeEpisodeData(agentTrials, outEpisode);
 			outEpisode.close();
 			
 		} catch (Exception e) {
@@ -619,6 +611,59 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	}
 	
 	
+	/**
+	 * Writes the header and rows of the step-wise data of the given trials.
+	 * @param agentTrials the trials of each agent, in the order in which they are written
+	 * @param outStep the writer to write to
+	 * @throws IOException if the writer throws one
+	 */
+	protected static void writeStepData(Map<String, List<Trial>> agentTrials, BufferedWriter outStep) throws IOException {
+		
+		outStep.write("agent,trial,step,cumulativeReward\n");
+		
+		for(Map.Entry<String, List<Trial>> e : agentTrials.entrySet()){
+			String aname = e.getKey();
+			List<Trial> trials = e.getValue();
+			for(int i = 0; i < trials.size(); i++){
+				Trial trial = trials.get(i);
+				for(int j = 0; j < trial.totalSteps; j++){
+					outStep.write(aname+","+i+","+j+","+trial.cumulativeStepReward.get(j)+"\n");
+				}
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * Writes the header and rows of the episode-wise data of the given trials.
+	 * @param agentTrials the trials of each agent, in the order in which they are written
+	 * @param outEpisode the writer to write to
+	 * @throws IOException if the writer throws one
+	 */
+	protected static void writeEpisodeData(Map<String, List<Trial>> agentTrials, BufferedWriter outEpisode) throws IOException {
+		
+		outEpisode.write("agent,trial,episode,cumulativeReward,averageReward,cumulativeSteps,numSteps\n");
+		
+		for(Map.Entry<String, List<Trial>> e : agentTrials.entrySet()){
+			String aname = e.getKey();
+			List<Trial> trials = e.getValue();
+			for(int i = 0; i < trials.size(); i++){
+				Trial trial = trials.get(i);
+				for(int j = 0; j < trial.totalEpisodes; j++){
+					outEpisode.write(aname+","+i+","+j);
+					outEpisode.write(","+trial.cumulativeEpisodeReward.get(j));
+					outEpisode.write(","+trial.averageEpisodeReward.get(j));
+					outEpisode.write(","+trial.cumulativeStepEpisode.get(j));
+					outEpisode.write(","+trial.stepEpisode.get(j));
+					outEpisode.write("\n");
+				}
+			}
+		}
+		
+	}
+	
+	
 	
 	/**
 	 * Adds the most recent trial (if enabled) chart and trial average (if enabled) chart into the provided container.
@@ -1035,7 +1080,7 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 	 * @author James MacGlashan
 	 *
 	 */
-	protected class Trial{
+	protected static class Trial{
 		
 		/**
 		 * Stores the cumulative reward by step
@@ -1097,6 +1142,27 @@ public class PerformancePlotter extends JFrame implements EnvironmentObserver {
 		
 		
 		
+		/**
+		 * Returns the trial data of a completed {@link TrialRecord}, computed by replaying its rewards in the same way they are
+		 * collected during a trial.
+		 * @param record the completed trial
+		 * @return the {@link Trial} data of the record
+		 */
+		public static Trial fromRecord(TrialRecord record){
+			Trial trial = new Trial();
+			int step = 0;
+			for(int e = 0; e < record.numEpisodes(); e++){
+				int len = record.episodeLength(e);
+				for(int k = 0; k < len; k++){
+					trial.stepIncrement(record.reward(step));
+					step++;
+				}
+				trial.setupForNewEpisode();
+			}
+			return trial;
+		}
+		
+		
 		/**
 		 * Updates all datastructures with the reward received from the last step
 		 * @param r the last reward received
@@ -0,0 +1,153 @@
+package burlap.behavior.singleagent.auxiliary.performance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe collection of the completed {@link TrialRecord}s of an experiment, indexed by agent and trial, that writes them to
+ * csv files with the same writer as {@link PerformancePlotter}. Trials may be recorded concurrently and in any order by the threads that run them;
+ * each (agent, trial) slot is written once, so slots are published with an {@link AtomicReferenceArray} rather than a lock.
+ * Because the csv files are written in agent and trial index order from the recorded rewards, their contents only depend
+ * on what happened in each trial and not on the order in which the trials were completed.
+ * @author James MacGlashan
+ *
+ */
+public class TrialMetricsAggregator {
+
+	/**
+	 * The name of each agent
+	 */
+	protected String []							agentNames;
+
+	/**
+	 * The number of trials of each agent
+	 */
+	protected int								nTrials;
+
+	/**
+	 * The completed trial of each (agent, trial) slot; slot agent*nTrials + trial
+	 */
+	protected AtomicReferenceArray<TrialRecord>	trials;
+
+
+	/**
+	 * Initializes.
+	 * @param agentNames the name of each agent
+	 * @param nTrials the number of trials of each agent
+	 */
+	public TrialMetricsAggregator(String [] agentNames, int nTrials){
+		this.agentNames = agentNames.clone();
+		this.nTrials = nTrials;
+		this.trials = new AtomicReferenceArray<TrialRecord>(agentNames.length * nTrials);
+	}
+
+
+	/**
+	 * Records the completed trial of an agent. Each trial of each agent may only be recorded once.
+	 * @param agentIndex the index of the agent
+	 * @param trial the index of the trial
+	 * @param record the data of the completed trial
+	 */
+	public void recordTrial(int agentIndex, int trial, TrialRecord record){
+		if(!this.trials.compareAndSet(this.slot(agentIndex, trial), null, record)){
+			throw new RuntimeException("Trial " + trial + " of agent " + this.agentNames[agentIndex] + " was already recorded.");
+		}
+	}
+
+
+	/**
+	 * Returns the recorded trial of an agent, or null if it has not been recorded yet.
+	 * @param agentIndex the index of the agent
+	 * @param trial the index of the trial
+	 * @return the {@link TrialRecord} of the trial or null if it has not been recorded
+	 */
+	public TrialRecord getTrial(int agentIndex, int trial){
+		return this.trials.get(this.slot(agentIndex, trial));
+	}
+
+
+	/**
+	 * Returns the number of agents
+	 * @return the number of agents
+	 */
+	public int numAgents(){
+		return this.agentNames.length;
+	}
+
+
+	/**
+	 * Returns the number of trials of each agent
+	 * @return the number of trials of each agent
+	 */
+	public int numTrials(){
+		return this.nTrials;
+	}
+
+
+	/**
+	 * Writes the step-wise and episode-wise data to CSV files.
+	 * The episode-wise data will be saved to the file &lt;pathAndBaseNameToUse&gt;Episodes.csv. The step-wise data will
+	 * be saved to the file &lt;pathAndBaseNameToUse&gt;Steps.csv
+	 * @param pathAndBaseNameToUse the base path and file name for the episode-wise and step-wise csv files.
+	 */
+	public void writeStepAndEpisodeDataToCSV(String pathAndBaseNameToUse){
+		PerformancePlotter.writeStepAndEpisodeDataToCSV(this.agentTrials(), pathAndBaseNameToUse);
+	}
+
+
+	/**
+	 * Writes the step-wise data to a csv file.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	public void writeStepDataToCSV(String filePath){
+		PerformancePlotter.writeStepDataToCSV(this.agentTrials(), filePath);
+	}
+
+
+	/**
+	 * Writes the episode-wise data to a csv file.
+	 * If the file path does not include the .csv extension, it will automatically be added.
+	 * @param filePath the path to the csv file to write to.
+	 */
+	public void writeEpisodeDataToCSV(String filePath){
+		PerformancePlotter.writeEpisodeDataToCSV(this.agentTrials(), filePath);
+	}
+
+
+	/**
+	 * Returns the {@link PerformancePlotter} trial data of the recorded trials of each agent, in agent and trial index order, so that
+	 * they are written by the same code and in the same order as the data of a {@link PerformancePlotter}.
+	 * Trials that have not been recorded are skipped.
+	 * @return the trial data of each agent
+	 */
+	protected Map<String, List<PerformancePlotter.Trial>> agentTrials(){
+		Map<String, List<PerformancePlotter.Trial>> agentTrials = new LinkedHashMap<String, List<PerformancePlotter.Trial>>();
+		for(int a = 0; a < this.agentNames.length; a++){
+			List<PerformancePlotter.Trial> agentTrialList = new ArrayList<PerformancePlotter.Trial>(this.nTrials);
+			for(int i = 0; i < this.nTrials; i++){
+				TrialRecord record = this.getTrial(a, i);
+				if(record != null){
+					agentTrialList.add(PerformancePlotter.Trial.fromRecord(record));
+				}
+			}
+			agentTrials.put(this.agentNames[a], agentTrialList);
+		}
+		return agentTrials;
+	}
+
+
+	/**
+	 * Returns the slot of an (agent, trial) pair
+	 * @param agentIndex the index of the agent
+	 * @param trial the index of the trial
+	 * @return the slot of the pair
+	 */
+	protected int slot(int agentIndex, int trial){
+		return agentIndex * this.nTrials + trial;
+	}
+
+}
@@ -0,0 +1,128 @@
+package burlap.behavior.singleagent.auxiliary.performance;
+
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.environment.Environment;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.environment.extensions.EnvironmentObserver;
+
+import java.util.Arrays;
+
+/**
+ * An {@link EnvironmentObserver} that records the reward of every step of a single learning trial, and the number of steps of each
+ * of its episodes, in primitive arrays. All of the performance metrics of a trial can be derived from this data, which is how
+ * {@link TrialMetricsAggregator} writes them to csv files and how {@link LearningAlgorithmExperimenter} feeds them to a
+ * {@link PerformancePlotter} after a trial completes.
+ * <p>
+ * A record is meant to be filled by a single thread: the one running the trial. Episodes are ended with {@link #endEpisode()}.
+ * @author James MacGlashan
+ *
+ */
+public class TrialRecord implements EnvironmentObserver {
+
+	/**
+	 * The reward of each step of the trial
+	 */
+	protected double []			rewards = new double[256];
+
+	/**
+	 * The number of recorded steps
+	 */
+	protected int				numSteps = 0;
+
+	/**
+	 * The number of steps of each completed episode
+	 */
+	protected int []			episodeLengths = new int[16];
+
+	/**
+	 * The number of completed episodes
+	 */
+	protected int				numEpisodes = 0;
+
+	/**
+	 * The number of steps in the current episode so far
+	 */
+	protected int				curEpisodeSteps = 0;
+
+
+	/**
+	 * Records the reward of a step.
+	 * @param r the reward received
+	 */
+	public void recordStepReward(double r){
+		if(this.numSteps == this.rewards.length){
+			this.rewards = Arrays.copyOf(this.rewards, this.rewards.length * 2);
+		}
+		this.rewards[this.numSteps] = r;
+		this.numSteps++;
+		this.curEpisodeSteps++;
+	}
+
+
+	/**
+	 * Completes the current episode.
+	 */
+	public void endEpisode(){
+		if(this.numEpisodes == this.episodeLengths.length){
+			this.episodeLengths = Arrays.copyOf(this.episodeLengths, this.episodeLengths.length * 2);
+		}
+		this.episodeLengths[this.numEpisodes] = this.curEpisodeSteps;
+		this.numEpisodes++;
+		this.curEpisodeSteps = 0;
+	}
+
+
+	/**
+	 * Returns the number of steps recorded in completed episodes
+	 * @return the number of steps recorded in completed episodes
+	 */
+	public int numSteps(){
+		return this.numSteps - this.curEpisodeSteps;
+	}
+
+
+	/**
+	 * Returns the number of completed episodes
+	 * @return the number of completed episodes
+	 */
+	public int numEpisodes(){
+		return this.numEpisodes;
+	}
+
+
+	/**
+	 * Returns the reward received at the given step of the trial
+	 * @param step the step index, counted from the start of the trial
+	 * @return the reward received
+	 */
+	public double reward(int step){
+		return this.rewards[step];
+	}
+
+
+	/**
+	 * Returns the number of steps of the given completed episode
+	 * @param episode the episode index
+	 * @return the number of steps of the episode
+	 */
+	public int episodeLength(int episode){
+		return this.episodeLengths[episode];
+	}
+
+
+	@Override
+	public void observeEnvironmentActionInitiation(State o, Action action) {
+		//do nothing
+	}
+
+	@Override
+	public void observeEnvironmentInteraction(EnvironmentOutcome eo) {
+		this.recordStepReward(eo.r);
+	}
+
+	@Override
+	public void observeEnvironmentReset(Environment resetEnvironment) {
+		//do nothing
+	}
+}
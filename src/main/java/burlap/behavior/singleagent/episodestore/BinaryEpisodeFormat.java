@@ -0,0 +1,160 @@
+package burlap.behavior.singleagent.episodestore;
+
+import burlap.behavior.singleagent.Episode;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Constants of the binary columnar episode file format written by {@link BinaryEpisodeWriter} and read by {@link BinaryEpisodeReader},
+ * and converters between it and the YAML episode files written by {@link Episode#write(String)}.
+ * <p>
+ * A file starts with a {@link #HEADER_SIZE} byte header (magic number, version, number of episodes, number of actions,
+ * and the offsets of the action table and the episode index), followed by one block per episode, the action table and the episode index.
+ * <p>
+ * Each episode block stores the YAML serialization of its first state, which serves as a template from which every state of the episode is rebuilt,
+ * the string form and type of each of the episode's variable keys (in {@link burlap.mdp.core.state.State#variableKeys()} order), a table of the
+ * string values it uses, one column per state variable with the value of that variable in every state, a column of action indices into the
+ * file's action table, and a column of rewards. All states of an episode must therefore have the same variable keys, the first state must be a
+ * {@link burlap.mdp.core.state.MutableState}, and variable values must be primitive wrappers or strings.
+ * <p>
+ * The action table holds the YAML serialization of each distinct action in the file, and the index holds the offset of each episode block.
+ * All values are big-endian.
+ * @author James MacGlashan
+ *
+ */
+public class BinaryEpisodeFormat {
+
+	/**
+	 * The file extension of binary episode files
+	 */
+	public static final String		EXTENSION = ".bepisodes";
+
+	/**
+	 * The magic number at the start of binary episode files
+	 */
+	public static final int			MAGIC = 0x42455053;
+
+	/**
+	 * The version of the format
+	 */
+	public static final int			VERSION = 1;
+
+	/**
+	 * The number of bytes in the file header
+	 */
+	public static final int			HEADER_SIZE = 32;
+
+
+	public static final byte		TYPE_INT = 0;
+	public static final byte		TYPE_LONG = 1;
+	public static final byte		TYPE_DOUBLE = 2;
+	public static final byte		TYPE_FLOAT = 3;
+	public static final byte		TYPE_SHORT = 4;
+	public static final byte		TYPE_BYTE = 5;
+	public static final byte		TYPE_BOOLEAN = 6;
+	public static final byte		TYPE_STRING = 7;
+
+
+	private BinaryEpisodeFormat(){
+		// do nothing
+	}
+
+
+	/**
+	 * Returns the column type with which a variable value is stored.
+	 * @param variableKey the variable key of the value, used for error reporting
+	 * @param value the variable value
+	 * @return the column type code
+	 */
+	public static byte typeOf(Object variableKey, Object value){
+		if(value instanceof Integer){
+			return TYPE_INT;
+		}
+		else if(value instanceof Double){
+			return TYPE_DOUBLE;
+		}
+		else if(value instanceof Boolean){
+			return TYPE_BOOLEAN;
+		}
+		else if(value instanceof String){
+			return TYPE_STRING;
+		}
+		else if(value instanceof Long){
+			return TYPE_LONG;
+		}
+		else if(value instanceof Float){
+			return TYPE_FLOAT;
+		}
+		else if(value instanceof Short){
+			return TYPE_SHORT;
+		}
+		else if(value instanceof Byte){
+			return TYPE_BYTE;
+		}
+		throw new RuntimeException("Cannot store the value of variable " + variableKey + " in a binary episode file because its type, "
+				+ (value == null ? "null" : value.getClass().getName()) + ", is not a primitive wrapper or String. Use the YAML episode format instead.");
+	}
+
+
+	/**
+	 * Returns the number of bytes each value of a column type occupies.
+	 * @param type the column type code
+	 * @return the number of bytes of each value
+	 */
+	public static int width(byte type){
+		switch(type){
+			case TYPE_INT: return 4;
+			case TYPE_LONG: return 8;
+			case TYPE_DOUBLE: return 8;
+			case TYPE_FLOAT: return 4;
+			case TYPE_SHORT: return 2;
+			case TYPE_BYTE: return 1;
+			case TYPE_BOOLEAN: return 1;
+			case TYPE_STRING: return 4;
+			default: throw new RuntimeException("Unknown binary episode column type " + type);
+		}
+	}
+
+
+	/**
+	 * Converts all of the YAML .episode files in a directory into a single binary episode file. Episodes are read and written one at a time,
+	 * in the order of {@link Episode#readEpisodes(String)}, so the directory does not need to fit in memory.
+	 * @param yamlDirectoryPath the directory containing the .episode files
+	 * @param binaryPath the path of the binary episode file to write
+	 * @return the number of converted episodes
+	 */
+	public static int convertYAMLToBinary(String yamlDirectoryPath, String binaryPath){
+		List<String> files = Episode.episodeFilePaths(yamlDirectoryPath);
+		BinaryEpisodeWriter writer = new BinaryEpisodeWriter(binaryPath);
+		try{
+			for(String file : files){
+				writer.append(Episode.read(file));
+			}
+		}finally{
+			writer.close();
+		}
+		return files.size();
+	}
+
+
+	/**
+	 * Converts a binary episode file into YAML .episode files in a directory, which are named as by {@link Episode#writeEpisodes(List, String, String)}.
+	 * @param binaryPath the path of the binary episode file
+	 * @param directoryPath the directory in which the .episode files will be written
+	 * @param baseFileName the base file name to use for the episode files
+	 * @return the number of converted episodes
+	 */
+	public static int convertBinaryToYAML(String binaryPath, String directoryPath, String baseFileName){
+		BinaryEpisodeReader reader = new BinaryEpisodeReader(binaryPath);
+		if(!directoryPath.endsWith("/")){
+			directoryPath += "/";
+		}
+		new File(directoryPath).mkdirs();
+		for(int i = 0; i < reader.numEpisodes(); i++){
+			reader.episode(i).copy().write(directoryPath + baseFileName + i);
+		}
+		return reader.numEpisodes();
+	}
+
+}
@@ -0,0 +1,380 @@
+package burlap.behavior.singleagent.episodestore;
+
+import burlap.behavior.singleagent.Episode;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Reads a binary columnar episode file written by {@link BinaryEpisodeWriter} by memory mapping it. Episodes are returned as
+ * read-only {@link Episode} views whose state, action, and reward sequences are decoded from the mapped file on access, so
+ * iterating over a large file does not materialize every state. Each state of a view is rebuilt on every access by copying the episode's template
+ * (initial) state and setting each of its variables from the variable columns; callers that access the same states repeatedly, or that
+ * need to modify an episode, should use {@link Episode#copy()} to materialize it.
+ * <p>
+ * The file is mapped once when the reader is constructed and only absolute reads are performed on the mapping,
+ * so a reader and its episode views may be used by multiple threads.
+ * @author James MacGlashan
+ *
+ */
+public class BinaryEpisodeReader {
+
+	protected static final Charset		UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The path of the file
+	 */
+	protected String					path;
+
+	/**
+	 * The mapped file
+	 */
+	protected ByteBuffer				buffer;
+
+	/**
+	 * The number of episodes in the file
+	 */
+	protected int						numEpisodes;
+
+	/**
+	 * The action table of the file
+	 */
+	protected Action []					actions;
+
+	/**
+	 * The offset of the episode index
+	 */
+	protected int						indexOffset;
+
+
+	/**
+	 * Maps the binary episode file at the given path and reads its header and action table.
+	 * @param path the path of the binary episode file
+	 */
+	public BinaryEpisodeReader(String path){
+		this.path = path;
+		try{
+			RandomAccessFile raf = new RandomAccessFile(path, "r");
+			try{
+				FileChannel channel = raf.getChannel();
+				if(channel.size() > Integer.MAX_VALUE){
+					throw new RuntimeException("Binary episode file " + path + " is larger than 2GB.");
+				}
+				this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}finally{
+				raf.close();
+			}
+		}catch(IOException e){
+			throw new RuntimeException("Could not map binary episode file " + path, e);
+		}
+
+		if(this.buffer.capacity() < BinaryEpisodeFormat.HEADER_SIZE || this.buffer.getInt(0) != BinaryEpisodeFormat.MAGIC){
+			throw new RuntimeException(path + " is not a binary episode file.");
+		}
+		if(this.buffer.getInt(4) != BinaryEpisodeFormat.VERSION){
+			throw new RuntimeException("Binary episode file " + path + " has unsupported version " + this.buffer.getInt(4));
+		}
+		this.numEpisodes = this.buffer.getInt(8);
+		int numActions = this.buffer.getInt(12);
+		int actionTableOffset = (int)this.buffer.getLong(16);
+		this.indexOffset = (int)this.buffer.getLong(24);
+
+		Yaml yaml = new Yaml();
+		this.actions = new Action[numActions];
+		int pos = actionTableOffset;
+		for(int i = 0; i < numActions; i++){
+			String str = this.readString(pos);
+			pos += 4 + this.buffer.getInt(pos);
+			this.actions[i] = (Action)yaml.load(str);
+		}
+	}
+
+
+	/**
+	 * Returns the number of episodes in the file
+	 * @return the number of episodes in the file
+	 */
+	public int numEpisodes(){
+		return this.numEpisodes;
+	}
+
+
+	/**
+	 * Returns a read-only view of an episode in the file.
+	 * @param i the index of the episode
+	 * @return a read-only view of the episode
+	 */
+	public Episode episode(int i){
+		if(i < 0 || i >= this.numEpisodes){
+			throw new IndexOutOfBoundsException("Episode " + i + " requested from a binary episode file with " + this.numEpisodes + " episodes.");
+		}
+		EpisodeBlock block = new EpisodeBlock((int)this.buffer.getLong(this.indexOffset + 8*i));
+		Episode e = new Episode();
+		e.stateSequence = block.new StateColumns();
+		e.actionSequence = block.new ActionColumn();
+		e.rewardSequence = block.new RewardColumn();
+		return e;
+	}
+
+
+	/**
+	 * Returns a list of all the episodes of the file, whose elements are views returned by {@link #episode(int)}, which
+	 * are created as they are accessed.
+	 * @return a read-only list of the episodes in the file
+	 */
+	public List<Episode> episodes(){
+		return new AbstractList<Episode>() {
+			@Override
+			public Episode get(int index) {
+				return episode(index);
+			}
+
+			@Override
+			public int size() {
+				return numEpisodes;
+			}
+		};
+	}
+
+
+	/**
+	 * Returns a list of views of all the episodes of the binary episode file at the given path.
+	 * @param path the path of the binary episode file
+	 * @return a read-only list of the episodes in the file
+	 */
+	public static List<Episode> readEpisodes(String path){
+		return new BinaryEpisodeReader(path).episodes();
+	}
+
+
+	/**
+	 * Reads a string written as its number of UTF-8 bytes followed by the bytes.
+	 * @param pos the offset of the string
+	 * @return the string
+	 */
+	protected String readString(int pos){
+		int len = this.buffer.getInt(pos);
+		ByteBuffer dup = this.buffer.duplicate();
+		dup.position(pos + 4);
+		byte [] bytes = new byte[len];
+		dup.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+
+	/**
+	 * The decoded layout of an episode block.
+	 */
+	protected class EpisodeBlock {
+
+		protected int nStates;
+		protected int nActions;
+		protected int nRewards;
+
+		/**
+		 * The offset of the template state's YAML string
+		 */
+		protected int templateOffset;
+
+		/**
+		 * The stored string form of each variable key
+		 */
+		protected String [] keyNames;
+
+		protected byte [] types;
+		protected String [] strings;
+
+		/**
+		 * The offset of each variable column
+		 */
+		protected int [] columnOffsets;
+
+		protected int actionsOffset;
+		protected int rewardsOffset;
+
+		/**
+		 * The template state, parsed on first use
+		 */
+		protected volatile MutableState template;
+
+		/**
+		 * The variable keys of the template state
+		 */
+		protected List<Object> keys;
+
+
+		public EpisodeBlock(int offset){
+			this.nStates = buffer.getInt(offset);
+			this.nActions = buffer.getInt(offset + 4);
+			this.nRewards = buffer.getInt(offset + 8);
+			int nVars = buffer.getInt(offset + 12);
+			int pos = offset + 16;
+
+			this.templateOffset = pos;
+			int templateLen = buffer.getInt(pos);
+			pos += 4 + Math.max(templateLen, 0);
+
+			this.keyNames = new String[nVars];
+			this.types = new byte[nVars];
+			for(int v = 0; v < nVars; v++){
+				this.keyNames[v] = readString(pos);
+				pos += 4 + buffer.getInt(pos);
+				this.types[v] = buffer.get(pos);
+				pos++;
+			}
+
+			this.strings = new String[buffer.getInt(pos)];
+			pos += 4;
+			for(int i = 0; i < this.strings.length; i++){
+				this.strings[i] = readString(pos);
+				pos += 4 + buffer.getInt(pos);
+			}
+
+			this.columnOffsets = new int[nVars];
+			for(int v = 0; v < nVars; v++){
+				this.columnOffsets[v] = pos;
+				pos += this.nStates * BinaryEpisodeFormat.width(this.types[v]);
+			}
+
+			this.actionsOffset = pos;
+			this.rewardsOffset = pos + 4*this.nActions;
+		}
+
+
+		/**
+		 * Returns the template state of the episode, parsing it on first use and checking that its variable keys match the stored ones.
+		 * @return the template state
+		 */
+		protected MutableState template(){
+			MutableState t = this.template;
+			if(t == null){
+				synchronized(this){
+					t = this.template;
+					if(t == null){
+						t = (MutableState)new Yaml().load(readString(this.templateOffset));
+						List<Object> tKeys = t.variableKeys();
+						if(tKeys.size() != this.keyNames.length){
+							throw new RuntimeException("The template state of an episode in " + path + " has " + tKeys.size() + " variables, but " + this.keyNames.length + " were stored.");
+						}
+						for(int v = 0; v < this.keyNames.length; v++){
+							if(!tKeys.get(v).toString().equals(this.keyNames[v])){
+								throw new RuntimeException("The variable keys of the template state of an episode in " + path + " do not match the stored variable columns.");
+							}
+						}
+						this.keys = tKeys;
+						this.template = t;
+					}
+				}
+			}
+			return t;
+		}
+
+
+		/**
+		 * Rebuilds the state at a time step.
+		 * @param t the time step
+		 * @return the state
+		 */
+		public State state(int t){
+			MutableState s = (MutableState)this.template().copy();
+			for(int v = 0; v < this.types.length; v++){
+				s.set(this.keys.get(v), this.value(v, t));
+			}
+			return s;
+		}
+
+
+		/**
+		 * Returns the value of a variable at a time step.
+		 * @param v the variable index
+		 * @param t the time step
+		 * @return the value of the variable
+		 */
+		public Object value(int v, int t){
+			byte type = this.types[v];
+			int pos = this.columnOffsets[v] + t*BinaryEpisodeFormat.width(type);
+			switch(type){
+				case BinaryEpisodeFormat.TYPE_INT: return buffer.getInt(pos);
+				case BinaryEpisodeFormat.TYPE_LONG: return buffer.getLong(pos);
+				case BinaryEpisodeFormat.TYPE_DOUBLE: return buffer.getDouble(pos);
+				case BinaryEpisodeFormat.TYPE_FLOAT: return buffer.getFloat(pos);
+				case BinaryEpisodeFormat.TYPE_SHORT: return buffer.getShort(pos);
+				case BinaryEpisodeFormat.TYPE_BYTE: return buffer.get(pos);
+				case BinaryEpisodeFormat.TYPE_BOOLEAN: return buffer.get(pos) != 0;
+				case BinaryEpisodeFormat.TYPE_STRING: return this.strings[buffer.getInt(pos)];
+				default: throw new RuntimeException("Unknown binary episode column type " + type);
+			}
+		}
+
+
+		/**
+		 * A read-only view of the state sequence of the episode.
+		 */
+		protected class StateColumns extends AbstractList<State> {
+
+			@Override
+			public State get(int index) {
+				if(index < 0 || index >= nStates){
+					throw new IndexOutOfBoundsException("State " + index + " of an episode with " + nStates + " states.");
+				}
+				return state(index);
+			}
+
+			@Override
+			public int size() {
+				return nStates;
+			}
+		}
+
+
+		/**
+		 * A read-only view of the action sequence of the episode.
+		 */
+		protected class ActionColumn extends AbstractList<Action> {
+
+			@Override
+			public Action get(int index) {
+				if(index < 0 || index >= nActions){
+					throw new IndexOutOfBoundsException("Action " + index + " of an episode with " + nActions + " actions.");
+				}
+				return actions[buffer.getInt(actionsOffset + 4*index)];
+			}
+
+			@Override
+			public int size() {
+				return nActions;
+			}
+		}
+
+
+		/**
+		 * A read-only view of the reward sequence of the episode.
+		 */
+		protected class RewardColumn extends AbstractList<Double> {
+
+			@Override
+			public Double get(int index) {
+				if(index < 0 || index >= nRewards){
+					throw new IndexOutOfBoundsException("Reward " + index + " of an episode with " + nRewards + " rewards.");
+				}
+				return buffer.getDouble(rewardsOffset + 8*index);
+			}
+
+			@Override
+			public int size() {
+				return nRewards;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,366 @@
+package burlap.behavior.singleagent.episodestore;
+
+import burlap.behavior.singleagent.Episode;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link Episode}s to a binary columnar episode file, whose layout is described in {@link BinaryEpisodeFormat}.
+ * Episodes are appended one at a time with {@link #append(Episode)}, so they need not all be held in memory,
+ * and the file is completed by {@link #close()}, which writes the action table and episode index.
+ * A file can be at most 2GB so that it can be mapped by a single buffer; larger collections of episodes should be split across multiple files.
+ * @author James MacGlashan
+ *
+ */
+public class BinaryEpisodeWriter {
+
+	protected static final Charset		UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The path of the file being written
+	 */
+	protected String					path;
+
+	/**
+	 * The output stream of the file
+	 */
+	protected DataOutputStream			out;
+
+	/**
+	 * The number of bytes written to the file so far
+	 */
+	protected long						position;
+
+	/**
+	 * The offset of each written episode block
+	 */
+	protected long []					episodeOffsets = new long[64];
+
+	/**
+	 * The number of written episodes
+	 */
+	protected int						numEpisodes = 0;
+
+	/**
+	 * The index of each distinct action in the action table
+	 */
+	protected Map<Action, Integer>		actionIndices = new HashMap<Action, Integer>();
+
+	/**
+	 * The action table
+	 */
+	protected List<Action>				actions = new ArrayList<Action>();
+
+	/**
+	 * The buffer into which an episode block is encoded before it is written
+	 */
+	protected ByteArrayOutputStream		blockBytes = new ByteArrayOutputStream(1 << 16);
+
+	/**
+	 * The YAML serializer for template states and actions
+	 */
+	protected Yaml						yaml = new Yaml();
+
+
+	/**
+	 * Creates the file at the given path, and any missing parent directories, and writes its placeholder header.
+	 * If the path does not end with {@link BinaryEpisodeFormat#EXTENSION} it is not added, so that any file name may be used.
+	 * @param path the path of the file to write
+	 */
+	public BinaryEpisodeWriter(String path){
+		this.path = path;
+		File parent = new File(path).getParentFile();
+		if(parent != null){
+			parent.mkdirs();
+		}
+		try{
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+			this.out.write(new byte[BinaryEpisodeFormat.HEADER_SIZE]);
+		}catch(IOException e){
+			throw new RuntimeException("Could not create binary episode file " + path, e);
+		}
+		this.position = BinaryEpisodeFormat.HEADER_SIZE;
+	}
+
+
+	/**
+	 * Returns the number of episodes appended so far
+	 * @return the number of episodes appended so far
+	 */
+	public int numEpisodes(){
+		return this.numEpisodes;
+	}
+
+
+	/**
+	 * Appends all of the given episodes to the file.
+	 * @param episodes the episodes to append
+	 */
+	public void appendAll(List<Episode> episodes){
+		for(Episode e : episodes){
+			this.append(e);
+		}
+	}
+
+
+	/**
+	 * Appends an episode to the file.
+	 * @param episode the episode to append
+	 */
+	public void append(Episode episode){
+
+		if(this.out == null){
+			throw new RuntimeException("Cannot append an episode to the closed binary episode file " + this.path);
+		}
+
+		this.blockBytes.reset();
+		try{
+			this.encodeEpisode(episode, new DataOutputStream(this.blockBytes));
+		}catch(IOException e){
+			throw new RuntimeException(e);
+		}
+
+		if(this.position + this.blockBytes.size() > Integer.MAX_VALUE){
+			throw new RuntimeException("Binary episode file " + this.path + " cannot exceed 2GB; write the remaining episodes to another file.");
+		}
+
+		if(this.numEpisodes == this.episodeOffsets.length){
+			this.episodeOffsets = Arrays.copyOf(this.episodeOffsets, this.episodeOffsets.length * 2);
+		}
+		this.episodeOffsets[this.numEpisodes] = this.position;
+		this.numEpisodes++;
+
+		try{
+			this.blockBytes.writeTo(this.out);
+		}catch(IOException e){
+			throw new RuntimeException("Could not write to binary episode file " + this.path, e);
+		}
+		this.position += this.blockBytes.size();
+
+	}
+
+
+	/**
+	 * Writes the action table and episode index, completes the header, and closes the file. Calling this method more than once has no effect.
+	 */
+	public void close(){
+
+		if(this.out == null){
+			return;
+		}
+
+		try{
+			long actionTableOffset = this.position;
+			for(Action a : this.actions){
+				this.position += writeString(this.out, this.yaml.dump(a));
+			}
+			long indexOffset = this.position;
+			for(int i = 0; i < this.numEpisodes; i++){
+				this.out.writeLong(this.episodeOffsets[i]);
+			}
+			this.out.close();
+			this.out = null;
+
+			RandomAccessFile raf = new RandomAccessFile(this.path, "rw");
+			try{
+				raf.writeInt(BinaryEpisodeFormat.MAGIC);
+				raf.writeInt(BinaryEpisodeFormat.VERSION);
+				raf.writeInt(this.numEpisodes);
+				raf.writeInt(this.actions.size());
+				raf.writeLong(actionTableOffset);
+				raf.writeLong(indexOffset);
+			}finally{
+				raf.close();
+			}
+		}catch(IOException e){
+			throw new RuntimeException("Could not complete binary episode file " + this.path, e);
+		}
+
+	}
+
+
+	/**
+	 * Writes a list of episodes to a new binary episode file.
+	 * @param episodes the episodes to write
+	 * @param path the path of the file
+	 */
+	public static void writeEpisodes(List<Episode> episodes, String path){
+		BinaryEpisodeWriter writer = new BinaryEpisodeWriter(path);
+		try{
+			writer.appendAll(episodes);
+		}finally{
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * Encodes the block of an episode.
+	 * @param episode the episode to encode
+	 * @param block the stream to which the block is written
+	 * @throws IOException if the stream throws one
+	 */
+	protected void encodeEpisode(Episode episode, DataOutputStream block) throws IOException {
+
+		int nStates = episode.stateSequence.size();
+		int nActions = episode.actionSequence.size();
+		int nRewards = episode.rewardSequence.size();
+
+		List<Object> keys = new ArrayList<Object>(0);
+		byte [] types = new byte[0];
+		if(nStates > 0){
+			State template = episode.stateSequence.get(0);
+			if(!(template instanceof MutableState)){
+				throw new RuntimeException("Cannot write an episode to a binary episode file because its states are not MutableStates; " +
+						"states are rebuilt from their first state by setting their variables.");
+			}
+			keys = template.variableKeys();
+			types = new byte[keys.size()];
+			for(int v = 0; v < keys.size(); v++){
+				types[v] = BinaryEpisodeFormat.typeOf(keys.get(v), template.get(keys.get(v)));
+			}
+		}
+
+		block.writeInt(nStates);
+		block.writeInt(nActions);
+		block.writeInt(nRewards);
+		block.writeInt(keys.size());
+
+		if(nStates > 0){
+			writeString(block, this.yaml.dump(episode.stateSequence.get(0)));
+		}
+		else{
+			block.writeInt(-1);
+		}
+
+		String [] keyNames = new String[keys.size()];
+		for(int v = 0; v < keys.size(); v++){
+			keyNames[v] = keys.get(v).toString();
+			writeString(block, keyNames[v]);
+			block.writeByte(types[v]);
+		}
+
+		//gather the values of each variable in every state, checking that every state has the same variables
+		Object [][] values = new Object[keys.size()][nStates];
+		Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+		List<String> strings = new ArrayList<String>();
+		for(int t = 0; t < nStates; t++){
+			State s = episode.stateSequence.get(t);
+			List<Object> sKeys = s.variableKeys();
+			if(!sameKeys(sKeys, keyNames)){
+				throw new RuntimeException("Cannot write an episode to a binary episode file because the variable keys of its state at time step " + t +
+						" (" + sKeys + ") differ from those of its initial state (" + keys + ").");
+			}
+			for(int v = 0; v < types.length; v++){
+				Object value = s.get(keys.get(v));
+				if(BinaryEpisodeFormat.typeOf(keys.get(v), value) != types[v]){
+					throw new RuntimeException("Cannot write an episode to a binary episode file because the type of variable " + keys.get(v) +
+							" changes at time step " + t + ".");
+				}
+				if(types[v] == BinaryEpisodeFormat.TYPE_STRING && !stringIndices.containsKey(value)){
+					stringIndices.put((String)value, strings.size());
+					strings.add((String)value);
+				}
+				values[v][t] = value;
+			}
+		}
+
+		block.writeInt(strings.size());
+		for(String str : strings){
+			writeString(block, str);
+		}
+
+		for(int v = 0; v < types.length; v++){
+			Object [] column = values[v];
+			for(int t = 0; t < nStates; t++){
+				switch(types[v]){
+					case BinaryEpisodeFormat.TYPE_INT: block.writeInt((Integer)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_LONG: block.writeLong((Long)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_DOUBLE: block.writeDouble((Double)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_FLOAT: block.writeFloat((Float)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_SHORT: block.writeShort((Short)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_BYTE: block.writeByte((Byte)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_BOOLEAN: block.writeBoolean((Boolean)column[t]); break;
+					case BinaryEpisodeFormat.TYPE_STRING: block.writeInt(stringIndices.get(column[t])); break;
+				}
+			}
+		}
+
+		for(int t = 0; t < nActions; t++){
+			block.writeInt(this.actionIndex(episode.actionSequence.get(t)));
+		}
+
+		for(int t = 0; t < nRewards; t++){
+			block.writeDouble(episode.rewardSequence.get(t));
+		}
+
+	}
+
+
+	/**
+	 * Returns the index of an action in the action table, adding it if it is not in the table yet.
+	 * @param a the action
+	 * @return the index of the action in the action table
+	 */
+	protected int actionIndex(Action a){
+		Integer ind = this.actionIndices.get(a);
+		if(ind == null){
+			ind = this.actions.size();
+			this.actions.add(a);
+			this.actionIndices.put(a, ind);
+		}
+		return ind;
+	}
+
+
+	/**
+	 * Returns whether a list of variable keys has the given string forms. Keys are compared by their string form, which is how they are stored,
+	 * because variable key classes need not implement value equality.
+	 * @param keys the variable keys
+	 * @param keyNames the expected string forms
+	 * @return true if the keys have the expected string forms in the same order; false otherwise
+	 */
+	protected static boolean sameKeys(List<Object> keys, String [] keyNames){
+		if(keys.size() != keyNames.length){
+			return false;
+		}
+		for(int v = 0; v < keyNames.length; v++){
+			if(!keys.get(v).toString().equals(keyNames[v])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Writes a string as its number of UTF-8 bytes followed by the bytes.
+	 * @param out the stream to write to
+	 * @param str the string to write
+	 * @return the number of written bytes
+	 * @throws IOException if the stream throws one
+	 */
+	protected static int writeString(DataOutputStream out, String str) throws IOException {
+		byte [] bytes = str.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		return 4 + bytes.length;
+	}
+
+}
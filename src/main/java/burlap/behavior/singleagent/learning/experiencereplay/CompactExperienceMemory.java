@@ -0,0 +1,441 @@
+package burlap.behavior.singleagent.learning.experiencereplay;
+
+import burlap.behavior.functionapproximation.dense.DenseStateFeatures;
+import burlap.behavior.singleagent.options.EnvironmentOptionOutcome;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.core.state.UnknownKeyException;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A fixed size memory that stores experiences compactly, for replay buffers of millions of transitions. Rather than keeping
+ * {@link EnvironmentOutcome} objects and the full {@link State} objects they reference, each experience is encoded into a fixed width row of
+ * primitive values: the {@link DenseStateFeatures} vectors of its observation and next observation as floats, its reward as a float, the index
+ * of its action in a given list of actions, and whether it terminated. Rows are stored in preallocated {@link ByteBuffer}s that are either on
+ * the Java heap or, in off-heap mode, allocated outside it with {@link ByteBuffer#allocateDirect(int)}, so that the garbage collector never
+ * has to trace the stored experiences. Each experience takes {@link #bytesPerExperience()} bytes, and {@link #capacityForBudget(long, int)}
+ * gives the number of experiences that fit in a memory budget.
+ * <p>
+ * Sampled experiences are reconstructed as new {@link EnvironmentOutcome}s whose states are lightweight {@link StateView}s of the stored
+ * feature vectors, and whose actions are the actions of the given list. Learners must therefore evaluate states through the features
+ * returned by {@link #viewFeatures()}, which returns the stored vector of a {@link StateView} and encodes any other state with the encoding
+ * features. For example, a {@link burlap.behavior.functionapproximation.dense.fourier.FourierBasis} whose input features are
+ * {@link #viewFeatures()} evaluates stored and live states alike. Because states are stored as floats, the features of sampled states
+ * are only equal to the features of the original states up to float precision.
+ * <p>
+ * When the memory is full, a new experience replaces the oldest one, and {@link #sampleExperiences(int)} returns a uniform random selection
+ * of experiences with replacement, or all stored experiences if fewer than the requested number are stored. Option outcomes are not
+ * supported, because their discount and duration are not stored. Adding and sampling are synchronized, so actor threads may add
+ * experiences while a learner samples.
+ * @author James MacGlashan
+ */
+public class CompactExperienceMemory implements ExperienceMemory {
+
+	/**
+	 * The largest number of bytes in one buffer
+	 */
+	protected static final int			MAX_BUFFER_BYTES = 1 << 30;
+
+
+	/**
+	 * The features that encode states
+	 */
+	protected DenseStateFeatures		encoder;
+
+	/**
+	 * The number of features of each state
+	 */
+	protected int						stateDim;
+
+	/**
+	 * The actions that may be stored, indexed by their stored value
+	 */
+	protected List<Action>				actions;
+
+	/**
+	 * The stored value of each action
+	 */
+	protected Map<Action, Integer>		actionIndices;
+
+	/**
+	 * The buffers of rows; each holds rowsPerBuffer rows except possibly the last
+	 */
+	protected ByteBuffer []				buffers;
+
+	/**
+	 * The number of rows in each buffer
+	 */
+	protected int						rowsPerBuffer;
+
+	/**
+	 * The number of bytes of each row
+	 */
+	protected int						rowBytes;
+
+	/**
+	 * The maximum number of stored experiences
+	 */
+	protected int						capacity;
+
+	/**
+	 * The index at which the next experience is stored
+	 */
+	protected int						next = 0;
+
+	/**
+	 * The number of stored experiences
+	 */
+	protected int						size = 0;
+
+	/**
+	 * Whether the buffers are allocated outside the Java heap
+	 */
+	protected boolean					offHeap;
+
+
+	/**
+	 * Initializes with buffers on the Java heap.
+	 * @param capacity the number of experiences to store
+	 * @param encoder the features that encode states
+	 * @param stateDim the number of features the encoder returns for every state
+	 * @param actions the actions that may be stored; every stored action must be equal to one of them
+	 */
+	public CompactExperienceMemory(int capacity, DenseStateFeatures encoder, int stateDim, List<Action> actions) {
+		this(capacity, encoder, stateDim, actions, false);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param capacity the number of experiences to store
+	 * @param encoder the features that encode states
+	 * @param stateDim the number of features the encoder returns for every state
+	 * @param actions the actions that may be stored; every stored action must be equal to one of them
+	 * @param offHeap if true, the buffers are allocated outside the Java heap; if false, on it
+	 */
+	public CompactExperienceMemory(int capacity, DenseStateFeatures encoder, int stateDim, List<Action> actions, boolean offHeap) {
+		if(capacity < 1){
+			throw new RuntimeException("CompactExperienceMemory requires memory size > 0; was request size of " + capacity);
+		}
+		if(stateDim < 0){
+			throw new RuntimeException("CompactExperienceMemory requires a non-negative state dimension; was " + stateDim);
+		}
+		this.encoder = encoder;
+		this.stateDim = stateDim;
+		this.capacity = capacity;
+		this.offHeap = offHeap;
+
+		this.actions = new ArrayList<Action>(actions);
+		this.actionIndices = new HashMap<Action, Integer>(actions.size());
+		for(int i = 0; i < actions.size(); i++){
+			this.actionIndices.put(actions.get(i), i);
+		}
+
+		this.rowBytes = bytesPerExperience(stateDim);
+		if(this.rowBytes > MAX_BUFFER_BYTES){
+			throw new RuntimeException("The state dimension " + stateDim + " is too large for CompactExperienceMemory");
+		}
+		this.rowsPerBuffer = MAX_BUFFER_BYTES / this.rowBytes;
+		int nBuffers = (int)((capacity + (long)this.rowsPerBuffer - 1) / this.rowsPerBuffer);
+		this.buffers = new ByteBuffer[nBuffers];
+		for(int i = 0; i < nBuffers; i++){
+			int rows = Math.min(this.rowsPerBuffer, capacity - i * this.rowsPerBuffer);
+			ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(rows * this.rowBytes) : ByteBuffer.allocate(rows * this.rowBytes);
+			this.buffers[i] = buffer.order(ByteOrder.nativeOrder());
+		}
+	}
+
+
+	/**
+	 * Returns the number of bytes used to store each experience with the given number of state features: two float feature vectors,
+	 * a float reward, an int action index, and a terminal flag padded to four bytes.
+	 * @param stateDim the number of features of each state
+	 * @return the number of bytes of each experience
+	 */
+	public static int bytesPerExperience(int stateDim){
+		return 8 * stateDim + 12;
+	}
+
+
+	/**
+	 * Returns the number of experiences with the given number of state features that can be stored in the given number of bytes.
+	 * @param budgetBytes the number of bytes available for experiences
+	 * @param stateDim the number of features of each state
+	 * @return the number of experiences that fit in the budget, at most {@link Integer#MAX_VALUE}
+	 */
+	public static int capacityForBudget(long budgetBytes, int stateDim){
+		return (int)Math.min(Integer.MAX_VALUE, budgetBytes / bytesPerExperience(stateDim));
+	}
+
+
+	/**
+	 * Returns the number of bytes used to store each experience
+	 * @return the number of bytes of each experience
+	 */
+	public int bytesPerExperience(){
+		return this.rowBytes;
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated for experiences
+	 * @return the number of bytes allocated for experiences
+	 */
+	public long allocatedBytes(){
+		return (long)this.capacity * this.rowBytes;
+	}
+
+
+	/**
+	 * Returns whether the experiences are stored outside the Java heap
+	 * @return true if the experiences are stored outside the Java heap; false otherwise
+	 */
+	public boolean isOffHeap(){
+		return this.offHeap;
+	}
+
+
+	/**
+	 * Returns the maximum number of stored experiences
+	 * @return the maximum number of stored experiences
+	 */
+	public int capacity(){
+		return this.capacity;
+	}
+
+
+	/**
+	 * Returns the number of stored experiences
+	 * @return the number of stored experiences
+	 */
+	public synchronized int size(){
+		return this.size;
+	}
+
+
+	/**
+	 * Returns features that return the stored vector of a {@link StateView} and encode any other state with this memory's encoder.
+	 * Learners that replay experiences from this memory should evaluate states through these features.
+	 * @return features for both sampled and live states
+	 */
+	public DenseStateFeatures viewFeatures(){
+		return new ViewFeatures(this.encoder);
+	}
+
+
+	@Override
+	public void addExperience(EnvironmentOutcome eo) {
+
+		if(eo instanceof EnvironmentOptionOutcome){
+			throw new RuntimeException("CompactExperienceMemory does not support option outcomes.");
+		}
+		Integer a = this.actionIndices.get(eo.a);
+		if(a == null){
+			throw new RuntimeException("CompactExperienceMemory cannot store the action " + eo.a + " because it is not one of its actions.");
+		}
+		double [] o = this.encode(eo.o);
+		double [] op = this.encode(eo.op);
+
+		synchronized(this) {
+			ByteBuffer buffer = this.buffers[this.next / this.rowsPerBuffer];
+			int offset = (this.next % this.rowsPerBuffer) * this.rowBytes;
+			for(int i = 0; i < this.stateDim; i++){
+				buffer.putFloat(offset, (float)o[i]);
+				offset += 4;
+			}
+			for(int i = 0; i < this.stateDim; i++){
+				buffer.putFloat(offset, (float)op[i]);
+				offset += 4;
+			}
+			buffer.putFloat(offset, (float)eo.r);
+			buffer.putInt(offset + 4, a);
+			buffer.put(offset + 8, eo.terminated ? (byte)1 : (byte)0);
+
+			this.next = (this.next + 1) % this.capacity;
+			this.size = Math.min(this.size + 1, this.capacity);
+		}
+
+	}
+
+	@Override
+	public synchronized List<EnvironmentOutcome> sampleExperiences(int n) {
+
+		if(this.size < n){
+			List<EnvironmentOutcome> samples = new ArrayList<EnvironmentOutcome>(this.size);
+			for(int i = 0; i < this.size; i++){
+				samples.add(this.decode(i));
+			}
+			return samples;
+		}
+
+		List<EnvironmentOutcome> samples = new ArrayList<EnvironmentOutcome>(n);
+		Random r = RandomFactory.getMapped(0);
+		for(int i = 0; i < n; i++){
+			samples.add(this.decode(r.nextInt(this.size)));
+		}
+		return samples;
+	}
+
+	@Override
+	public synchronized void resetMemory() {
+		this.next = 0;
+		this.size = 0;
+	}
+
+
+	/**
+	 * Encodes a state, checking that it has the expected number of features
+	 * @param s the state
+	 * @return the features of the state
+	 */
+	protected double [] encode(State s){
+		double [] f = this.encoder.features(s);
+		if(f.length != this.stateDim){
+			throw new RuntimeException("CompactExperienceMemory expected " + this.stateDim + " state features but the encoder returned " + f.length);
+		}
+		return f;
+	}
+
+
+	/**
+	 * Reconstructs the stored experience at an index
+	 * @param index the index of the experience
+	 * @return the experience with {@link StateView} states
+	 */
+	protected EnvironmentOutcome decode(int index){
+		ByteBuffer buffer = this.buffers[index / this.rowsPerBuffer];
+		int offset = (index % this.rowsPerBuffer) * this.rowBytes;
+		double [] o = new double[this.stateDim];
+		for(int i = 0; i < this.stateDim; i++){
+			o[i] = buffer.getFloat(offset);
+			offset += 4;
+		}
+		double [] op = new double[this.stateDim];
+		for(int i = 0; i < this.stateDim; i++){
+			op[i] = buffer.getFloat(offset);
+			offset += 4;
+		}
+		double r = buffer.getFloat(offset);
+		Action a = this.actions.get(buffer.getInt(offset + 4));
+		boolean terminated = buffer.get(offset + 8) != 0;
+		return new EnvironmentOutcome(new StateView(o), a, new StateView(op), r, terminated);
+	}
+
+
+	/**
+	 * A lightweight read-only {@link State} that wraps a stored feature vector. Its variable keys are the Integer indices of its features.
+	 */
+	public static class StateView implements State {
+
+		/**
+		 * The feature vector
+		 */
+		protected final double [] features;
+
+		/**
+		 * Initializes.
+		 * @param features the feature vector, which is not copied
+		 */
+		public StateView(double [] features) {
+			this.features = features;
+		}
+
+		/**
+		 * Returns the feature vector, which must not be modified
+		 * @return the feature vector
+		 */
+		public double [] features(){
+			return this.features;
+		}
+
+		@Override
+		public List<Object> variableKeys() {
+			return new AbstractList<Object>() {
+				@Override
+				public Object get(int index) {
+					if(index < 0 || index >= features.length){
+						throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for StateView with " + features.length + " features");
+					}
+					return index;
+				}
+
+				@Override
+				public int size() {
+					return features.length;
+				}
+			};
+		}
+
+		@Override
+		public Object get(Object variableKey) {
+			if(variableKey instanceof Integer){
+				int i = (Integer)variableKey;
+				if(i >= 0 && i < this.features.length){
+					return this.features[i];
+				}
+			}
+			throw new UnknownKeyException(variableKey);
+		}
+
+		@Override
+		public State copy() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder buf = new StringBuilder("[");
+			for(int i = 0; i < this.features.length; i++){
+				if(i > 0){
+					buf.append(", ");
+				}
+				buf.append(this.features[i]);
+			}
+			return buf.append("]").toString();
+		}
+	}
+
+
+	/**
+	 * Features that return the stored vector of a {@link StateView} and encode any other state with an encoder.
+	 */
+	public static class ViewFeatures implements DenseStateFeatures {
+
+		/**
+		 * The features that encode states that are not {@link StateView}s
+		 */
+		protected DenseStateFeatures encoder;
+
+		/**
+		 * Initializes.
+		 * @param encoder the features that encode states that are not {@link StateView}s
+		 */
+		public ViewFeatures(DenseStateFeatures encoder) {
+			this.encoder = encoder;
+		}
+
+		@Override
+		public double[] features(State s) {
+			if(s instanceof StateView){
+				return ((StateView)s).features.clone();
+			}
+			return this.encoder.features(s);
+		}
+
+		@Override
+		public DenseStateFeatures copy() {
+			return new ViewFeatures(this.encoder.copy());
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package burlap.behavior.singleagent.learning.experiencereplay;
+
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed size memory that many threads may add experiences to and sample experiences from concurrently, such as the actor
+ * threads and learner thread of {@link burlap.behavior.singleagent.learning.tdmethods.vfa.ApproximateQLearning#runActorLearner(burlap.mdp.singleagent.environment.EnvironmentFactory, int, int, int)}.
+ * Like {@link FixedSizeMemory}, when the memory is full a new experience replaces the oldest one, and {@link #sampleExperiences(int)}
+ * returns a uniform random selection of memories with replacement, or all stored memories if fewer than the requested number are stored.
+ * <p>
+ * Adding an experience claims the next slot of a ring buffer with an atomic counter and writes it without locking, so adding never blocks
+ * sampling or other additions. A sample may therefore include experiences added while it was being drawn, and skips slots that have been
+ * claimed but not yet written. {@link #resetMemory()} must not be called while other threads are using the memory.
+ * @author James MacGlashan
+ */
+public class ConcurrentFixedSizeMemory implements ExperienceMemory {
+
+	/**
+	 * The ring buffer of experiences
+	 */
+	protected AtomicReferenceArray<EnvironmentOutcome>	memory;
+
+	/**
+	 * The number of experiences added since the memory was last reset
+	 */
+	protected AtomicLong								added = new AtomicLong();
+
+
+	/**
+	 * Initializes with the size of the memory.
+	 * @param size the number of experiences to store
+	 */
+	public ConcurrentFixedSizeMemory(int size) {
+		if(size < 1){
+			throw new RuntimeException("ConcurrentFixedSizeMemory requires memory size > 0; was request size of " + size);
+		}
+		this.memory = new AtomicReferenceArray<EnvironmentOutcome>(size);
+	}
+
+
+	/**
+	 * Returns the number of stored experiences
+	 * @return the number of stored experiences
+	 */
+	public int size(){
+		return (int)Math.min(this.added.get(), this.memory.length());
+	}
+
+
+	/**
+	 * Returns the number of experiences added since the memory was last reset, including those that have since been replaced
+	 * @return the number of experiences added
+	 */
+	public long numAdded(){
+		return this.added.get();
+	}
+
+
+	@Override
+	public void addExperience(EnvironmentOutcome eo) {
+		long i = this.added.getAndIncrement();
+		this.memory.set((int)(i % this.memory.length()), eo);
+	}
+
+	@Override
+	public List<EnvironmentOutcome> sampleExperiences(int n) {
+
+		int size = this.size();
+		if(size == 0){
+			return new ArrayList<EnvironmentOutcome>();
+		}
+
+		List<EnvironmentOutcome> samples;
+		if(size < n){
+			samples = new ArrayList<EnvironmentOutcome>(size);
+			for(int i = 0; i < size; i++){
+				EnvironmentOutcome eo = this.memory.get(i);
+				if(eo != null){
+					samples.add(eo);
+				}
+			}
+		}
+		else{
+			samples = new ArrayList<EnvironmentOutcome>(n);
+			Random r = RandomFactory.getMapped(0);
+			for(int i = 0; i < n; i++) {
+				EnvironmentOutcome eo = this.memory.get(r.nextInt(size));
+				if(eo != null){
+					samples.add(eo);
+				}
+			}
+		}
+
+		return samples;
+	}
+
+	@Override
+	public void resetMemory() {
+		for(int i = 0; i < this.memory.length(); i++){
+			this.memory.set(i, null);
+		}
+		this.added.set(0);
+	}
+
+}
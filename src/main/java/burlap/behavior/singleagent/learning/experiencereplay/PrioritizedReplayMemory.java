@@ -0,0 +1,338 @@
+package burlap.behavior.singleagent.learning.experiencereplay;
+
+import burlap.datastructures.SumTree;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A fixed size memory that samples experiences with probability proportional to their priority, as in prioritized experience replay [1].
+ * The priority of an experience is (|d| + epsilon)^alpha, where d is the temporal difference error it last produced, and new experiences are
+ * given the largest priority seen so far so that each is likely to be replayed at least once. Priorities are kept in a {@link SumTree},
+ * so adding, sampling, and updating the priority of an experience take O(lg(n)) time. When the memory is full, a new experience replaces
+ * the oldest one.
+ * <p>
+ * Because prioritized sampling is biased, each sampled experience has an importance sampling weight, (N * P(i))^-beta normalized by the
+ * largest possible weight, that learners should multiply into their updates; beta is typically annealed toward 1 over learning with
+ * {@link #setBeta(double)}. Samples are drawn into a caller-provided {@link Minibatch} with {@link #sample(Minibatch, int)}, which does
+ * not allocate, and after a learner computes the temporal difference errors of the batch, it stores them in the batch and passes it to
+ * {@link #updatePriorities(Minibatch)}. Minibatches are also {@link List}s of their outcomes, and {@link #sampleExperiences(int)} returns
+ * a new {@link Minibatch}, so this memory can be used anywhere an {@link ExperienceMemory} is expected; {@link burlap.behavior.singleagent.learning.tdmethods.vfa.GradientDescentQLearning}
+ * uses the weights and updates the priorities of the batches it receives.
+ * <p>
+ * Sampling is stratified: the total priority is divided into n equal segments and one experience is drawn from each. All methods are
+ * synchronized, so actor threads may add experiences while a learner samples.
+ * <p>
+ * 1. Schaul, Tom, et al. "Prioritized experience replay." arXiv preprint arXiv:1511.05952 (2015).
+ * @author James MacGlashan
+ */
+public class PrioritizedReplayMemory implements ExperienceMemory {
+
+	/**
+	 * The ring buffer of experiences
+	 */
+	protected EnvironmentOutcome []		memory;
+
+	/**
+	 * The priorities of the experiences
+	 */
+	protected SumTree					priorities;
+
+	/**
+	 * The index at which the next experience is stored
+	 */
+	protected int						next = 0;
+
+	/**
+	 * The number of stored experiences
+	 */
+	protected int						size = 0;
+
+	/**
+	 * The exponent of the temporal difference errors in the priorities; 0 is uniform sampling
+	 */
+	protected double					alpha = 0.6;
+
+	/**
+	 * The exponent of the importance sampling weights; 1 fully corrects the sampling bias
+	 */
+	protected double					beta = 0.4;
+
+	/**
+	 * The constant added to the absolute temporal difference errors so that every experience has a positive priority
+	 */
+	protected double					epsilon = 1e-6;
+
+	/**
+	 * The largest priority given to an experience, which is given to new experiences
+	 */
+	protected double					maxPriority = 1.;
+
+
+	/**
+	 * Initializes with alpha = 0.6 and beta = 0.4.
+	 * @param size the number of experiences to store
+	 */
+	public PrioritizedReplayMemory(int size) {
+		this(size, 0.6, 0.4);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param size the number of experiences to store
+	 * @param alpha the exponent of the temporal difference errors in the priorities; 0 is uniform sampling
+	 * @param beta the exponent of the importance sampling weights; 1 fully corrects the sampling bias
+	 */
+	public PrioritizedReplayMemory(int size, double alpha, double beta) {
+		if(size < 1){
+			throw new RuntimeException("PrioritizedReplayMemory requires memory size > 0; was request size of " + size);
+		}
+		this.memory = new EnvironmentOutcome[size];
+		this.priorities = new SumTree(size);
+		this.alpha = alpha;
+		this.beta = beta;
+	}
+
+
+	/**
+	 * Returns the exponent of the temporal difference errors in the priorities
+	 * @return the exponent of the temporal difference errors in the priorities
+	 */
+	public synchronized double getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Sets the exponent of the temporal difference errors in the priorities, which only affects priorities set afterwards
+	 * @param alpha the exponent of the temporal difference errors; 0 is uniform sampling
+	 */
+	public synchronized void setAlpha(double alpha) {
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Returns the exponent of the importance sampling weights
+	 * @return the exponent of the importance sampling weights
+	 */
+	public synchronized double getBeta() {
+		return beta;
+	}
+
+	/**
+	 * Sets the exponent of the importance sampling weights, which is typically annealed from its initial value toward 1 over learning.
+	 * @param beta the exponent of the importance sampling weights
+	 */
+	public synchronized void setBeta(double beta) {
+		this.beta = beta;
+	}
+
+	/**
+	 * Returns the constant added to the absolute temporal difference errors
+	 * @return the constant added to the absolute temporal difference errors
+	 */
+	public synchronized double getEpsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * Sets the constant added to the absolute temporal difference errors so that every experience has a positive priority
+	 * @param epsilon the constant; must be positive
+	 */
+	public synchronized void setEpsilon(double epsilon) {
+		if(!(epsilon > 0.)){
+			throw new RuntimeException("The epsilon of PrioritizedReplayMemory must be positive; was " + epsilon);
+		}
+		this.epsilon = epsilon;
+	}
+
+
+	/**
+	 * Returns the number of stored experiences
+	 * @return the number of stored experiences
+	 */
+	public synchronized int size(){
+		return this.size;
+	}
+
+
+	/**
+	 * Returns the priority of the experience stored at an index
+	 * @param i the index of the experience
+	 * @return the priority of the experience
+	 */
+	public synchronized double priority(int i){
+		return this.priorities.get(i);
+	}
+
+
+	@Override
+	public synchronized void addExperience(EnvironmentOutcome eo) {
+		this.memory[this.next] = eo;
+		this.priorities.set(this.next, this.maxPriority);
+		this.next = (this.next + 1) % this.memory.length;
+		this.size = Math.min(this.size + 1, this.memory.length);
+	}
+
+
+	/**
+	 * Samples up to n experiences into a new {@link Minibatch}.
+	 * @param n the desired number of experiences to sample
+	 * @return a {@link Minibatch} of the sampled experiences, which is empty if the memory is empty
+	 */
+	@Override
+	public List<EnvironmentOutcome> sampleExperiences(int n) {
+		Minibatch batch = new Minibatch(n);
+		this.sample(batch, n);
+		return batch;
+	}
+
+
+	/**
+	 * Samples n experiences with replacement into a caller-provided minibatch, replacing its previous contents, without allocating any objects.
+	 * One experience is drawn from each of n equal segments of the total priority.
+	 * @param batch the minibatch to fill, which must have a capacity of at least n
+	 * @param n the number of experiences to sample
+	 * @return the number of sampled experiences, which is n unless the memory is empty
+	 */
+	public synchronized int sample(Minibatch batch, int n) {
+
+		if(n > batch.capacity()){
+			throw new RuntimeException("Cannot sample " + n + " experiences into a Minibatch with capacity " + batch.capacity());
+		}
+
+		batch.size = 0;
+		batch.source = this;
+		if(this.size == 0){
+			return 0;
+		}
+
+		Random r = RandomFactory.getMapped(0);
+		double total = this.priorities.total();
+		double segment = total / n;
+		double maxWeight = Math.pow(this.size * this.priorities.minPositive() / total, -this.beta);
+		for(int i = 0; i < n; i++){
+			int ind = this.priorities.find((i + r.nextDouble()) * segment);
+			double p = this.priorities.get(ind) / total;
+			batch.outcomes[i] = this.memory[ind];
+			batch.indices[i] = ind;
+			batch.weights[i] = Math.pow(this.size * p, -this.beta) / maxWeight;
+			batch.errors[i] = 0.;
+		}
+		batch.size = n;
+
+		return n;
+	}
+
+
+	/**
+	 * Sets the priorities of the experiences of a minibatch from the temporal difference errors stored in its errors array. Experiences
+	 * that were replaced since the batch was sampled are updated too, which is harmless because their priorities will be corrected when they are next replayed.
+	 * @param batch the minibatch, sampled from this memory, whose errors have been set
+	 */
+	public synchronized void updatePriorities(Minibatch batch){
+		if(batch.source != this){
+			throw new RuntimeException("Cannot update priorities from a Minibatch that was not sampled from this memory.");
+		}
+		for(int i = 0; i < batch.size; i++){
+			double p = Math.pow(Math.abs(batch.errors[i]) + this.epsilon, this.alpha);
+			this.priorities.set(batch.indices[i], p);
+			this.maxPriority = Math.max(this.maxPriority, p);
+		}
+	}
+
+
+	@Override
+	public synchronized void resetMemory() {
+		for(int i = 0; i < this.memory.length; i++){
+			this.memory[i] = null;
+		}
+		this.priorities.clear();
+		this.next = 0;
+		this.size = 0;
+		this.maxPriority = 1.;
+	}
+
+
+	/**
+	 * A reusable buffer of sampled experiences, with the memory index, importance sampling weight, and temporal difference error of each.
+	 * A minibatch is also a read-only {@link List} of its sampled outcomes.
+	 */
+	public static class Minibatch extends AbstractList<EnvironmentOutcome> {
+
+		/**
+		 * The sampled outcomes
+		 */
+		public final EnvironmentOutcome [] outcomes;
+
+		/**
+		 * The memory index of each sampled outcome
+		 */
+		public final int [] indices;
+
+		/**
+		 * The importance sampling weight of each sampled outcome
+		 */
+		public final double [] weights;
+
+		/**
+		 * The temporal difference error of each sampled outcome, set by the learner before {@link PrioritizedReplayMemory#updatePriorities(Minibatch)}
+		 */
+		public final double [] errors;
+
+		/**
+		 * The number of sampled outcomes
+		 */
+		protected int size;
+
+		/**
+		 * The memory from which the outcomes were sampled
+		 */
+		protected PrioritizedReplayMemory source;
+
+
+		/**
+		 * Initializes an empty minibatch.
+		 * @param capacity the largest number of outcomes that can be sampled into it
+		 */
+		public Minibatch(int capacity) {
+			this.outcomes = new EnvironmentOutcome[capacity];
+			this.indices = new int[capacity];
+			this.weights = new double[capacity];
+			this.errors = new double[capacity];
+		}
+
+		/**
+		 * Returns the largest number of outcomes that can be sampled into this minibatch
+		 * @return the capacity of this minibatch
+		 */
+		public int capacity(){
+			return this.outcomes.length;
+		}
+
+		/**
+		 * Returns the memory from which the outcomes were sampled
+		 * @return the memory from which the outcomes were sampled, or null if nothing has been sampled
+		 */
+		public PrioritizedReplayMemory source(){
+			return this.source;
+		}
+
+		@Override
+		public EnvironmentOutcome get(int index) {
+			if(index < 0 || index >= this.size){
+				throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for Minibatch of size " + this.size);
+			}
+			return this.outcomes[index];
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+	}
+
+}
@@ -21,11 +21,18 @@ import burlap.mdp.core.state.State;
 import burlap.mdp.singleagent.SADomain;
 import burlap.mdp.singleagent.environment.Environment;
 import burlap.mdp.singleagent.model.RewardFunction;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.parallel.ParallelUtilities;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
 import org.ejml.simple.SimpleMatrix;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -37,6 +44,12 @@ import java.util.List;
  * By default this constant is 100, but you can change it with the {@link #setIdentityScalar(double)}
  * method.
  * <p>
+ * By default, LSTDQ performs the Sherman-Morrison update of the inverse matrix in place on a preallocated row-major double array, skipping
+ * the zero entries of the feature vectors, so that processing a sample allocates no memory. Alternatively, batch LSTDQ can be enabled with
+ * {@link #toggleBatchLSTDQ(boolean)}: the A matrix and b vector are then accumulated (in parallel across chunks of the dataset
+ * if {@link #setLSTDQParallelism(int)} is greater than 1) and the weights are found with a single LU solve. Both produce the same weights up to
+ * floating point rounding; batch LSTDQ is faster when the dataset is much larger than the number of features and processors are available.
+ * <p>
  * If you do use the {@link #planFromState(State)} method, you should first initialize the parameters for it using the
  * {@link #initializeForPlanning(int, SARSCollector)} or
  * {@link #initializeForPlanning(int)} method.
@@ -148,6 +161,37 @@ public class LSPI extends MDPSolver implements QProvider, LearningAgent, Planner
 	 * The number of the most recent learning episodes to store.
 	 */
 	protected int													numEpisodesToStore;
+
+
+	/**
+	 * Whether LSTDQ accumulates A and b and solves for the weights once, rather than incrementally updating the inverse matrix
+	 */
+	protected boolean												batchLSTDQ = false;
+
+	/**
+	 * The fork-join pool used to accumulate A and b of batch LSTDQ in parallel, which holds the number of threads. Lazily created.
+	 */
+	protected LazyForkJoinPool										pool = new LazyForkJoinPool("LSTDQ", 1);
+
+	/**
+	 * The row-major nf x nf matrix buffer of LSTDQ: the inverse matrix in incremental mode; the A matrix in batch mode.
+	 */
+	protected double []												lstdqMatrix;
+
+	/**
+	 * The nf-length b vector buffer of LSTDQ
+	 */
+	protected double []												lstdqB;
+
+	/**
+	 * Scratch buffers of incremental LSTDQ for B*phi, (phi - gamma*phi')^T*B and phi - gamma*phi'
+	 */
+	protected double []												lstdqU, lstdqV, lstdqD;
+
+	/**
+	 * Scratch buffers of incremental LSTDQ for the indices of the non-zero entries of phi and phi - gamma*phi'
+	 */
+	protected int []												lstdqPhiNonZero, lstdqDNonZero;
 	
 	
 	
@@ -378,6 +422,44 @@ public class LSPI extends MDPSolver implements QProvider, LearningAgent, Planner
 		this.maxChange = maxChange;
 	}
 
+
+	/**
+	 * Returns whether LSTDQ accumulates A and b and solves for the weights once, rather than incrementally updating the inverse matrix
+	 * @return true if batch LSTDQ is used; false if the incremental Sherman-Morrison update is used.
+	 */
+	public boolean isUsingBatchLSTDQ() {
+		return batchLSTDQ;
+	}
+
+
+	/**
+	 * Sets whether LSTDQ accumulates A and b and solves for the weights once with an LU decomposition (batch LSTDQ), or
+	 * incrementally updates the inverse matrix with the Sherman-Morrison formula for each sample (the default).
+	 * @param batchLSTDQ if true, batch LSTDQ is used; if false, the incremental update is used.
+	 */
+	public void toggleBatchLSTDQ(boolean batchLSTDQ) {
+		this.batchLSTDQ = batchLSTDQ;
+	}
+
+
+	/**
+	 * Returns the number of threads over which batch LSTDQ accumulates A and b
+	 * @return the number of threads over which batch LSTDQ accumulates A and b
+	 */
+	public int getLSTDQParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of threads over which batch LSTDQ accumulates A and b. Each thread accumulates the samples of one chunk of
+	 * the dataset into its own nf x nf matrix, and the matrices are summed before solving. Has no effect on incremental LSTDQ.
+	 * @param lstdqParallelism the number of threads; must be at least 1.
+	 */
+	public void setLSTDQParallelism(int lstdqParallelism) {
+		this.pool.setParallelism(lstdqParallelism);
+	}
+
 	
 	/**
 	 * Runs LSTDQ on this object's current {@link SARSData} dataset.
@@ -397,40 +479,259 @@ public class LSPI extends MDPSolver implements QProvider, LearningAgent, Planner
 			nf = Math.max(nf, transitionFeatures.sActionFeatures.length);
 		}
 
-		SimpleMatrix B = SimpleMatrix.identity(nf).scale(this.identityScalar);
-		SimpleMatrix b = new SimpleMatrix(nf, 1);
+		double [] w = this.batchLSTDQ ? this.batchLSTDQWeights(features, nf) : this.incrementalLSTDQWeights(features, nf);
 		
+		this.vfa = this.vfa.copy();
+		for(int i = 0; i < nf; i++){
+			this.vfa.setParameter(i, w[i]);
+		}
 		
+		return new SimpleMatrix(nf, 1, true, w);
 		
+		
+	}
+
+
+	/**
+	 * Computes the LSTDQ weights by updating the inverse matrix B in place with the Sherman-Morrison formula for each sample:
+	 * B = B - (B phi)((phi - gamma phi')^T B) / (1 + (phi - gamma phi')^T B phi). Only the non-zero entries of phi and phi - gamma phi'
+	 * are visited when computing the two vector products, and no memory is allocated per sample.
+	 * @param features the state-action and next state-action features of each sample
+	 * @param nf the number of features
+	 * @return the weights
+	 */
+	protected double [] incrementalLSTDQWeights(List<SSFeatures> features, int nf){
+
+		this.ensureLSTDQBuffers(nf);
+		double [] B = this.lstdqMatrix;
+		double [] b = this.lstdqB;
+		double [] u = this.lstdqU;
+		double [] v = this.lstdqV;
+		double [] d = this.lstdqD;
+		int [] phiNZ = this.lstdqPhiNonZero;
+		int [] dNZ = this.lstdqDNonZero;
+
+		Arrays.fill(B, 0, nf*nf, 0.);
+		Arrays.fill(b, 0, nf, 0.);
+		for(int i = 0; i < nf; i++){
+			B[i*nf + i] = this.identityScalar;
+		}
+
 		for(int i = 0; i < features.size(); i++){
 
-			SimpleMatrix phi = this.phiConstructor(features.get(i).sActionFeatures, nf);
-			SimpleMatrix phiPrime = this.phiConstructor(features.get(i).sPrimeActionFeatures, nf);
+			double [] phi = features.get(i).sActionFeatures;
+			double [] phiPrime = features.get(i).sPrimeActionFeatures;
 			double r = this.dataset.get(i).r;
-			
 
-			SimpleMatrix numerator = B.mult(phi).mult(phi.minus(phiPrime.scale(gamma)).transpose()).mult(B);
-			SimpleMatrix denomenatorM = phi.minus(phiPrime.scale(this.gamma)).transpose().mult(B).mult(phi);
-			double denomenator = denomenatorM.get(0) + 1;
-			
-			B = B.minus(numerator.scale(1./denomenator));
-			b = b.plus(phi.scale(r));
-			
-			//DPrint.cl(0, "updated matrix for row " + i + "/" + features.size());
-			
+			int nPhi = 0;
+			int nD = 0;
+			for(int k = 0; k < nf; k++){
+				double pk = k < phi.length ? phi[k] : 0.;
+				double ppk = k < phiPrime.length ? phiPrime[k] : 0.;
+				double dk = pk - this.gamma * ppk;
+				d[k] = dk;
+				if(pk != 0.){
+					phiNZ[nPhi] = k;
+					nPhi++;
+				}
+				if(dk != 0.){
+					dNZ[nD] = k;
+					nD++;
+				}
+			}
+
+			//u = B phi
+			for(int row = 0; row < nf; row++){
+				int offset = row*nf;
+				double sum = 0.;
+				for(int t = 0; t < nPhi; t++){
+					int k = phiNZ[t];
+					sum += B[offset + k] * phi[k];
+				}
+				u[row] = sum;
+			}
+
+			//v = d^T B
+			Arrays.fill(v, 0, nf, 0.);
+			for(int t = 0; t < nD; t++){
+				int k = dNZ[t];
+				double dk = d[k];
+				int offset = k*nf;
+				for(int col = 0; col < nf; col++){
+					v[col] += dk * B[offset + col];
+				}
+			}
+
+			//1 + d^T B phi
+			double denominator = 1.;
+			for(int t = 0; t < nPhi; t++){
+				int k = phiNZ[t];
+				denominator += v[k] * phi[k];
+			}
+
+			double scale = 1. / denominator;
+			for(int row = 0; row < nf; row++){
+				double ur = u[row] * scale;
+				if(ur == 0.){
+					continue;
+				}
+				int offset = row*nf;
+				for(int col = 0; col < nf; col++){
+					B[offset + col] -= ur * v[col];
+				}
+			}
+
+			for(int t = 0; t < nPhi; t++){
+				int k = phiNZ[t];
+				b[k] += r * phi[k];
+			}
+
 		}
-		
-		
-		SimpleMatrix w = B.mult(b);
-		
-		this.vfa = this.vfa.copy();
-		for(int i = 0; i < nf; i++){
-			this.vfa.setParameter(i, w.get(i, 0));
+
+		double [] w = new double[nf];
+		for(int row = 0; row < nf; row++){
+			int offset = row*nf;
+			double sum = 0.;
+			for(int k = 0; k < nf; k++){
+				sum += B[offset + k] * b[k];
+			}
+			w[row] = sum;
 		}
-		
+
 		return w;
-		
-		
+	}
+
+
+	/**
+	 * Computes the LSTDQ weights by accumulating A = I/identityScalar + sum phi (phi - gamma phi')^T and b = sum r phi, and then solving
+	 * A w = b with an LU decomposition. The initial identity term makes the solution match that of the incremental update, whose inverse matrix
+	 * starts as identityScalar*I. If the LSTDQ parallelism is greater than 1, the dataset is split into that many chunks that are accumulated
+	 * concurrently into separate matrices.
+	 * @param features the state-action and next state-action features of each sample
+	 * @param nf the number of features
+	 * @return the weights
+	 */
+	protected double [] batchLSTDQWeights(final List<SSFeatures> features, final int nf){
+
+		this.ensureLSTDQBuffers(nf);
+		double [] A = this.lstdqMatrix;
+		double [] b = this.lstdqB;
+
+		Arrays.fill(A, 0, nf*nf, 0.);
+		Arrays.fill(b, 0, nf, 0.);
+		for(int i = 0; i < nf; i++){
+			A[i*nf + i] = 1. / this.identityScalar;
+		}
+
+		int n = features.size();
+		int nChunks = Math.min(this.getLSTDQParallelism(), Math.max(1, n / 1024));
+		if(nChunks <= 1){
+			this.accumulateLSTDQ(features, 0, n, nf, A, b);
+		}
+		else{
+
+			List<Callable<double[][]>> tasks = new ArrayList<Callable<double[][]>>(nChunks);
+			for(int c = 0; c < nChunks; c++){
+				final int start = (int)((long)n * c / nChunks);
+				final int end = (int)((long)n * (c+1) / nChunks);
+				tasks.add(new Callable<double[][]>() {
+					@Override
+					public double[][] call() throws Exception {
+						double [] chunkA = new double[nf*nf];
+						double [] chunkB = new double[nf];
+						accumulateLSTDQ(features, start, end, nf, chunkA, chunkB);
+						return new double[][]{chunkA, chunkB};
+					}
+				});
+			}
+
+			for(double [][] chunk : ParallelUtilities.invokeAll(this.pool.get(), tasks, "LSTDQ workers")){
+				for(int i = 0; i < nf*nf; i++){
+					A[i] += chunk[0][i];
+				}
+				for(int i = 0; i < nf; i++){
+					b[i] += chunk[1][i];
+				}
+			}
+
+		}
+
+		DenseMatrix64F Am = DenseMatrix64F.wrap(nf, nf, A);
+		DenseMatrix64F bm = DenseMatrix64F.wrap(nf, 1, b);
+		DenseMatrix64F w = new DenseMatrix64F(nf, 1);
+		LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.linear(nf);
+		if(!solver.setA(Am)){
+			throw new RuntimeException("LSTDQ could not solve for the weights because the A matrix is singular.");
+		}
+		solver.solve(bm, w);
+
+		return w.data;
+	}
+
+
+	/**
+	 * Adds the samples in the range [start, end) to the row-major A matrix and b vector of batch LSTDQ.
+	 * @param features the state-action and next state-action features of each sample
+	 * @param start the first sample index
+	 * @param end one past the last sample index
+	 * @param nf the number of features
+	 * @param A the row-major nf x nf A matrix to add to
+	 * @param b the b vector to add to
+	 */
+	protected void accumulateLSTDQ(List<SSFeatures> features, int start, int end, int nf, double [] A, double [] b){
+
+		double [] d = new double[nf];
+		int [] dNZ = new int[nf];
+
+		for(int i = start; i < end; i++){
+
+			double [] phi = features.get(i).sActionFeatures;
+			double [] phiPrime = features.get(i).sPrimeActionFeatures;
+			double r = this.dataset.get(i).r;
+
+			int nD = 0;
+			for(int k = 0; k < nf; k++){
+				double pk = k < phi.length ? phi[k] : 0.;
+				double ppk = k < phiPrime.length ? phiPrime[k] : 0.;
+				double dk = pk - this.gamma * ppk;
+				if(dk != 0.){
+					d[nD] = dk;
+					dNZ[nD] = k;
+					nD++;
+				}
+			}
+
+			for(int k = 0; k < phi.length && k < nf; k++){
+				double pk = phi[k];
+				if(pk == 0.){
+					continue;
+				}
+				int offset = k*nf;
+				for(int t = 0; t < nD; t++){
+					A[offset + dNZ[t]] += pk * d[t];
+				}
+				b[k] += r * pk;
+			}
+
+		}
+
+	}
+
+
+	/**
+	 * Makes sure the LSTDQ buffers can hold nf features, reallocating them if they are too small.
+	 * @param nf the number of features
+	 */
+	protected void ensureLSTDQBuffers(int nf){
+		if(this.lstdqB == null || this.lstdqB.length < nf){
+			this.lstdqMatrix = new double[nf*nf];
+			this.lstdqB = new double[nf];
+			this.lstdqU = new double[nf];
+			this.lstdqV = new double[nf];
+			this.lstdqD = new double[nf];
+			this.lstdqPhiNonZero = new int[nf];
+			this.lstdqDNonZero = new int[nf];
+		}
 	}
 	
 	/**
@@ -8,6 +8,8 @@ import burlap.behavior.policy.Policy;
 import burlap.behavior.singleagent.Episode;
 import burlap.behavior.singleagent.MDPSolver;
 import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.singleagent.learning.tdmethods.qtable.MapQTable;
+import burlap.behavior.singleagent.learning.tdmethods.qtable.QTable;
 import burlap.behavior.singleagent.options.EnvironmentOptionOutcome;
 import burlap.behavior.singleagent.options.Option;
 import burlap.behavior.singleagent.planning.Planner;
@@ -28,9 +30,15 @@ import org.yaml.snakeyaml.Yaml;
 
 import javax.management.RuntimeErrorException;
 import java.io.*;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 
 /**
@@ -48,6 +56,10 @@ import java.util.Map;
  * want to use a custom learning rate decay schedule rather than a constant learning rate, use the
  * {@link #setLearningRateFunction(burlap.behavior.learningrate.LearningRate)}.
  * <p>
+ * Q-values are stored in a {@link QTable}, which by default is a {@link MapQTable} of {@link QValue} objects. For problems
+ * with very many state-action pairs, use {@link #setQTable(QTable)} to set a more compact table, such as a
+ * {@link burlap.behavior.singleagent.learning.tdmethods.qtable.FlatQTable}.
+ * <p>
  * 1. Watkins, Christopher JCH, and Peter Dayan. "Q-learning." Machine learning 8.3-4 (1992): 279-292. <p>
  * 2. Sutton, Richard S., Doina Precup, and Satinder Singh. "Between MDPs and semi-MDPs: A framework for temporal abstraction in reinforcement learning." Artificial intelligence 112.1 (1999): 181-211.
  * 
@@ -58,9 +70,18 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 
 
 	/**
-	 * The tabular mapping from states to Q-values
+	 * The tabular storage of the Q-values
 	 */
-	protected Map<HashableState, QLearningStateNode> 				qFunction;
+	protected QTable 												qTable;
+
+	/**
+	 * A {@link Map} view of {@link #qTable} from states to their {@link QLearningStateNode}s.
+	 * @deprecated Q-values are now stored in {@link #qTable}; use its methods instead. This view is kept so that existing subclasses
+	 * still compile. If the table is a {@link MapQTable}, the nodes returned by the view are the stored nodes, so modifying their
+	 * {@link QValue}s modifies the table; for other tables they are copies. Nodes that are put into the view have their Q-values copied into the table.
+	 */
+	@Deprecated
+	protected Map<HashableState, QLearningStateNode> 				qFunction = new QTableStateNodeMap();
 	
 	/**
 	 * The object that defines how Q-values are initialized.
@@ -209,7 +230,7 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 						  QFunction qInitFunction, double learningRate, Policy learningPolicy, int maxEpisodeSize){
 		
 		this.solverInit(domain, gamma, hashingFactory);
-		this.qFunction = new HashMap<HashableState, QLearningStateNode>();
+		this.qTable = new MapQTable();
 		this.learningRate = new ConstantLR(learningRate);
 		this.learningPolicy = learningPolicy;
 		this.maxEpisodeSize = maxEpisodeSize;
@@ -250,6 +271,24 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 	}
 	
 	
+	/**
+	 * Sets the table in which Q-values are stored. Any Q-values stored in the previous table are not transferred.
+	 * @param qTable the {@link QTable} in which Q-values will be stored.
+	 */
+	public void setQTable(QTable qTable){
+		this.qTable = qTable;
+	}
+
+
+	/**
+	 * Returns the table in which Q-values are stored.
+	 * @return the {@link QTable} in which Q-values are stored.
+	 */
+	public QTable getQTable(){
+		return this.qTable;
+	}
+	
+	
 	/**
 	 * Sets which policy this agent should use for learning.
 	 * @param p the policy to use for learning.
@@ -313,7 +352,8 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 
 	@Override
 	public double qValue(State s, Action a) {
-		return this.getQ(this.stateHash(s), a).q;
+		int row = this.getStateRow(this.stateHash(s));
+		return this.qTable.q(row, this.getActionIndex(row, a));
 	}
 	
 	
@@ -323,8 +363,7 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 	 * @return the possible Q-values for a given hashed stated.
 	 */
 	protected List<QValue> getQs(HashableState s) {
-		QLearningStateNode node = this.getStateNode(s);
-		return node.qEntry;
+		return this.qTable.qValues(this.getStateRow(s));
 	}
 
 
@@ -333,52 +372,98 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 	 * @param s the hashed state
 	 * @param a the action
 	 * @return the Q-value for a given hashed state and action; null is returned if there is not Q-value currently stored.
+	 * @deprecated use {@link #getStateRow(HashableState)} and {@link QTable#q(int, int)} instead. If the table is a {@link MapQTable},
+	 * the returned {@link QValue} is the stored object, so modifying it modifies the table; for other tables it is a copy.
 	 */
+	@Deprecated
 	protected QValue getQ(HashableState s, Action a) {
-		QLearningStateNode node = this.getStateNode(s);
-
-		for(QValue qv : node.qEntry){
-			if(qv.a.equals(a)){
-				return qv;
-			}
+		int row = this.getStateRow(s);
+		int index = this.qTable.actionIndex(row, a);
+		if(index == -1){
+			return null; //no action for this state indexed
 		}
-		
-		return null; //no action for this state indexed
+		return this.qTable.qValues(row).get(index);
 	}
 
 
 	@Override
 	public double value(State s) {
-		return Helper.maxQ(this, s);
+		return this.getMaxQ(this.stateHash(s));
 	}
 	
 	/**
-	 * Returns the {@link QLearningStateNode} object stored for the given hashed state. If no {@link QLearningStateNode} object.
-	 * is stored, then it is created and has its Q-value initialize using this objects {@link burlap.behavior.valuefunction.QFunction} data member.
-	 * @param s the hashed state for which to get the {@link QLearningStateNode} object
-	 * @return the {@link QLearningStateNode} object stored for the given hashed state. If no {@link QLearningStateNode} object.
+	 * Returns the {@link QTable} row of the given hashed state. If the state is not stored,
+	 * then it is added and has its Q-values initialized using this objects {@link burlap.behavior.valuefunction.QFunction} data member.
+	 * @param s the hashed state for which to get the row
+	 * @return the {@link QTable} row of the given hashed state.
 	 */
-	protected QLearningStateNode getStateNode(HashableState s){
+	protected int getStateRow(HashableState s){
 		
-		QLearningStateNode node = qFunction.get(s);
+		int row = this.qTable.stateRow(s);
 		
-		if(node == null){
-			node = new QLearningStateNode(s);
+		if(row == -1){
 			List<Action> gas = this.applicableActions(s.s());
 			if(gas.isEmpty()){
-				gas = this.applicableActions(s.s());
 				throw new RuntimeErrorException(new Error("No possible actions in this state, cannot continue Q-learning"));
 			}
-			for(Action ga : gas){
-				node.addQValue(ga, qInitFunction.qValue(s.s(), ga));
+			double [] qs = new double[gas.size()];
+			for(int i = 0; i < qs.length; i++){
+				qs[i] = qInitFunction.qValue(s.s(), gas.get(i));
 			}
 			
-			qFunction.put(s, node);
+			row = this.qTable.addState(s, gas, qs);
 		}
 		
-		return node;
+		return row;
 		
 	}
+
+
+	/**
+	 * Returns the {@link QLearningStateNode} object stored for the given hashed state. If the state is not stored,
+	 * then it is added and has its Q-values initialized using this objects {@link burlap.behavior.valuefunction.QFunction} data member.
+	 * @param s the hashed state for which to get the {@link QLearningStateNode} object
+	 * @return the {@link QLearningStateNode} object for the given hashed state.
+	 * @deprecated use {@link #getStateRow(HashableState)} instead. If the table is a {@link MapQTable}, the returned node is the stored
+	 * node, so modifying its {@link QValue}s modifies the table; for other tables it is a copy.
+	 */
+	@Deprecated
+	protected QLearningStateNode getStateNode(HashableState s){
+		return this.stateNode(this.getStateRow(s));
+	}
+
+
+	/**
+	 * Returns the {@link QLearningStateNode} of the given {@link QTable} row. If the table is a {@link MapQTable}, it is the stored node;
+	 * otherwise, it is a copy of the row.
+	 * @param row the {@link QTable} row
+	 * @return the {@link QLearningStateNode} of the row
+	 */
+	protected QLearningStateNode stateNode(int row){
+		if(this.qTable instanceof MapQTable){
+			return ((MapQTable)this.qTable).node(row);
+		}
+		QLearningStateNode node = new QLearningStateNode(this.qTable.state(row));
+		for(int i = 0; i < this.qTable.numActions(row); i++){
+			node.addQValue(this.qTable.action(row, i), this.qTable.q(row, i));
+		}
+		return node;
+	}
+
+
+	/**
+	 * Returns the action index of the given action in the given {@link QTable} row.
+	 * @param row the {@link QTable} row
+	 * @param a the action
+	 * @return the action index of the action
+	 */
+	protected int getActionIndex(int row, Action a){
+		int index = this.qTable.actionIndex(row, a);
+		if(index == -1){
+			throw new RuntimeException("QLearning has no Q-value stored for action " + a.toString() + " in the queried state.");
+		}
+		return index;
+	}
 	
 	/**
 	 * Returns the maximum Q-value in the hashed stated.
@@ -386,14 +471,7 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 	 * @return the maximum Q-value in the hashed stated.
 	 */
 	protected double getMaxQ(HashableState s){
-		List <QValue> qs = this.getQs(s);
-		double max = Double.NEGATIVE_INFINITY;
-		for(QValue q : qs){
-			if(q.q > max){
-				max = q.q;
-			}
-		}
-		return max;
+		return this.qTable.maxQ(this.getStateRow(s));
 	}
 
 	/**
@@ -440,7 +518,8 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 		while(!env.isInTerminalState() && (eStepCounter < maxSteps || maxSteps == -1)){
 
 			Action action = learningPolicy.action(curState.s());
-			QValue curQ = this.getQ(curState, action);
+			int curRow = this.getStateRow(curState);
+			int curAction = this.getActionIndex(curRow, action);
 
 
 
@@ -476,12 +555,13 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 
 
 
-			double oldQ = curQ.q;
+			double oldQ = this.qTable.q(curRow, curAction);
 
 			//update Q-value
-			curQ.q = curQ.q + this.learningRate.pollLearningRate(this.totalNumberOfSteps, curState.s(), action) * (r + (discount * maxQ) - curQ.q);
+			double newQ = oldQ + this.learningRate.pollLearningRate(this.totalNumberOfSteps, curState.s(), action) * (r + (discount * maxQ) - oldQ);
+			this.qTable.setQ(curRow, curAction, newQ);
 
-			double deltaQ = Math.abs(oldQ - curQ.q);
+			double deltaQ = Math.abs(oldQ - newQ);
 			if(deltaQ > maxQChangeInLastEpisode){
 				maxQChangeInLastEpisode = deltaQ;
 			}
@@ -503,7 +583,7 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 	
 	@Override
 	public void resetSolver(){
-		this.qFunction.clear();
+		this.qTable.clear();
 		this.eStepCounter = 0;
 		this.maxQChangeInLastEpisode = Double.POSITIVE_INFINITY;
 	}
@@ -517,9 +597,16 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 	 * @param path the path to write the value function
 	 */
 	public void writeQTable(String path){
+
+		Map<HashableState, QLearningStateNode> qFunction = new LinkedHashMap<HashableState, QLearningStateNode>(this.qTable.numStates());
+		for(int row = 0; row < this.qTable.numStates(); row++){
+			QLearningStateNode node = this.stateNode(row);
+			qFunction.put(node.s, node);
+		}
+
 		Yaml yaml = new Yaml();
 		try {
-			yaml.dump(this.qFunction, new BufferedWriter(new FileWriter(path)));
+			yaml.dump(qFunction, new BufferedWriter(new FileWriter(path)));
 		} catch(IOException e) {
 			e.printStackTrace();
 		}
@@ -527,17 +614,132 @@ public class QLearning extends MDPSolver implements QProvider, LearningAgent, Pl
 
 
 	/**
-	 * Loads the q-function table located on disk at the specified path. Expects the file to be a Yaml
-	 * representation of a Java {@link Map} from {@link HashableState} to {@link QLearningStateNode}.
+	 * Loads the q-function table located on disk at the specified path into this object's {@link QTable}, replacing its contents.
+	 * Expects the file to be a Yaml representation of a Java {@link Map} from {@link HashableState} to {@link QLearningStateNode}.
 	 * @param path the path to the save value function table
 	 */
 	public void loadQTable(String path){
 		Yaml yaml = new Yaml();
 		try {
-			this.qFunction = (Map<HashableState, QLearningStateNode>)yaml.load(new FileInputStream(path));
+			Map<HashableState, QLearningStateNode> qFunction = (Map<HashableState, QLearningStateNode>)yaml.load(new FileInputStream(path));
+			this.qTable.clear();
+			for(QLearningStateNode node : qFunction.values()){
+				List<Action> actions = new ArrayList<Action>(node.qEntry.size());
+				double [] qs = new double[node.qEntry.size()];
+				for(int i = 0; i < qs.length; i++){
+					actions.add(node.qEntry.get(i).a);
+					qs[i] = node.qEntry.get(i).q;
+				}
+				this.qTable.addState(node.s, actions, qs);
+			}
 		} catch(FileNotFoundException e) {
 			e.printStackTrace();
 		}
 	}
 
+
+
+	/**
+	 * The deprecated {@link Map} view of {@link #qTable} from states to their {@link QLearningStateNode}s.
+	 */
+	protected class QTableStateNodeMap extends AbstractMap<HashableState, QLearningStateNode> {
+
+		@Override
+		public int size() {
+			return qTable.numStates();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof HashableState && qTable.stateRow((HashableState)key) != -1;
+		}
+
+		@Override
+		public QLearningStateNode get(Object key) {
+			if(!(key instanceof HashableState)){
+				return null;
+			}
+			int row = qTable.stateRow((HashableState)key);
+			if(row == -1){
+				return null;
+			}
+			return stateNode(row);
+		}
+
+		@Override
+		public QLearningStateNode put(HashableState key, QLearningStateNode node) {
+			int row = qTable.stateRow(key);
+			if(row == -1){
+				List<Action> actions = new ArrayList<Action>(node.qEntry.size());
+				double [] qs = new double[node.qEntry.size()];
+				for(int i = 0; i < qs.length; i++){
+					actions.add(node.qEntry.get(i).a);
+					qs[i] = node.qEntry.get(i).q;
+				}
+				qTable.addState(key, actions, qs);
+				return null;
+			}
+			QLearningStateNode prev = stateNode(row);
+			if(prev == node){
+				return prev;
+			}
+			if(qTable instanceof MapQTable){
+				prev = new QLearningStateNode(key);
+				for(QValue q : qTable.qValues(row)){
+					prev.addQValue(q.a, q.q);
+				}
+			}
+			for(QValue q : node.qEntry){
+				int index = qTable.actionIndex(row, q.a);
+				if(index == -1){
+					throw new RuntimeException("Cannot put a node with action " + q.a.toString() + " because the QTable row of its state does not have that action.");
+				}
+				qTable.setQ(row, index, q.q);
+			}
+			return prev;
+		}
+
+		@Override
+		public void clear() {
+			qTable.clear();
+		}
+
+		@Override
+		public Set<Entry<HashableState, QLearningStateNode>> entrySet() {
+			return new AbstractSet<Entry<HashableState, QLearningStateNode>>() {
+				@Override
+				public Iterator<Entry<HashableState, QLearningStateNode>> iterator() {
+					return new Iterator<Entry<HashableState, QLearningStateNode>>() {
+
+						int row = 0;
+
+						@Override
+						public boolean hasNext() {
+							return row < qTable.numStates();
+						}
+
+						@Override
+						public Entry<HashableState, QLearningStateNode> next() {
+							if(!this.hasNext()){
+								throw new NoSuchElementException();
+							}
+							QLearningStateNode node = stateNode(row++);
+							return new SimpleImmutableEntry<HashableState, QLearningStateNode>(node.s, node);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException("States cannot be removed from a QTable.");
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return qTable.numStates();
+				}
+			};
+		}
+	}
+
 }
@@ -14,7 +14,7 @@ import burlap.mdp.singleagent.environment.EnvironmentOutcome;
 import burlap.statehashing.HashableState;
 import burlap.statehashing.HashableStateFactory;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 
 
 /**
@@ -45,6 +45,33 @@ public class SarsaLam extends QLearning {
 	 * the strength of eligibility traces (0 for one step, 1 for full propagation)
 	 */
 	protected double				lambda;
+
+
+	/**
+	 * The {@link burlap.behavior.singleagent.learning.tdmethods.qtable.QTable} row of each eligibility trace in the current episode.
+	 * The trace arrays are reused between episodes so that eligibility traces do not need to be allocated.
+	 */
+	protected int []				traceRows = new int[64];
+
+	/**
+	 * The action index of each eligibility trace in the current episode
+	 */
+	protected int []				traceActions = new int[64];
+
+	/**
+	 * The eligibility value of each eligibility trace in the current episode
+	 */
+	protected double []				traceEligibilities = new double[64];
+
+	/**
+	 * The numeric Q-value of each eligibility trace right after the update of the step that created it
+	 */
+	protected double []				traceInitialQs = new double[64];
+
+	/**
+	 * The number of eligibility traces in the current episode
+	 */
+	protected int					numTraces;
 	
 	
 	/**
@@ -153,12 +180,12 @@ public class SarsaLam extends QLearning {
 
 		HashableState curState = this.stateHash(initialState);
 		eStepCounter = 0;
-		LinkedList<EligibilityTrace> traces = new LinkedList<SarsaLam.EligibilityTrace>();
-
-		Action action = learningPolicy.action(curState.s());
-		QValue curQ = this.getQ(curState, action);
 
+		this.numTraces = 0;
 
+		Action action = learningPolicy.action(curState.s());
+		int curRow = this.getStateRow(curState);
+		int curAction = this.getActionIndex(curRow, action);
 
 		while(!env.isInTerminalState() && (eStepCounter < maxSteps || maxSteps == -1)){
 
@@ -172,8 +199,9 @@ public class SarsaLam extends QLearning {
 
 			HashableState nextState = this.stateHash(eo.op);
 			Action nextAction = learningPolicy.action(nextState.s());
-			QValue nextQ = this.getQ(nextState, nextAction);
-			double nextQV = nextQ.q;
+			int nextRow = this.getStateRow(nextState);
+			int nextActionIndex = this.getActionIndex(nextRow, nextAction);
+			double nextQV = this.qTable.q(nextRow, nextActionIndex);
 
 			if(env.isInTerminalState()){
 				nextQV = 0.;
@@ -196,46 +224,48 @@ public class SarsaLam extends QLearning {
 
 
 			//delta
-			double delta = r + (discount * nextQV) - curQ.q;
+			double delta = r + (discount * nextQV) - this.qTable.q(curRow, curAction);
+
 
 			//update all
 			boolean foundCurrentQTrace = false;
-			for(EligibilityTrace et : traces){
+			for(int t = 0; t < this.numTraces; t++){
 
-				if(et.sh.equals(curState)){
-					if(et.q.a.equals(action)){
+				int traceRow = this.traceRows[t];
+				int traceAction = this.traceActions[t];
+
+				//rows are unique per state, so comparing rows compares states
+				if(traceRow == curRow){
+					if(traceAction == curAction){
 						foundCurrentQTrace = true;
-						et.eligibility = 1.; //replacing traces
+						this.traceEligibilities[t] = 1.; //replacing traces
 					}
 					else{
-						et.eligibility = 0.; //replacing traces
+						this.traceEligibilities[t] = 0.; //replacing traces
 					}
 				}
 
-				double learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, et.sh.s(), et.q.a);
+				double learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, this.qTable.state(traceRow).s(), this.qTable.action(traceRow, traceAction));
 
-				et.q.q = et.q.q + (learningRate * et.eligibility * delta);
-				et.eligibility = et.eligibility * lambda * discount;
+				double q = this.qTable.q(traceRow, traceAction) + (learningRate * this.traceEligibilities[t] * delta);
+				this.qTable.setQ(traceRow, traceAction, q);
+				this.traceEligibilities[t] = this.traceEligibilities[t] * lambda * discount;
 
-				double deltaQ = Math.abs(et.initialQ - et.q.q);
+				double deltaQ = Math.abs(this.traceInitialQs[t] - q);
 				if(deltaQ > maxQChangeInLastEpisode){
 					maxQChangeInLastEpisode = deltaQ;
 				}
 
 			}
 
-			if(!foundCurrentQTrace){
-				//then update and add it
-				double learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, curQ.s, curQ.a);
-				curQ.q = curQ.q + (learningRate * delta);
-				EligibilityTrace et = new EligibilityTrace(curState, curQ, lambda*discount);
 
-				traces.add(et);
 
-				double deltaQ = Math.abs(et.initialQ - et.q.q);
-				if(deltaQ > maxQChangeInLastEpisode){
-					maxQChangeInLastEpisode = deltaQ;
-				}
+			if(!foundCurrentQTrace){
+				//then update and add it
+				double learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, curState.s(), action);
+				double q = this.qTable.q(curRow, curAction) + (learningRate * delta);
+				this.qTable.setQ(curRow, curAction, q);
+				this.addTrace(curRow, curAction, lambda*discount, q);
 
 			}
 
@@ -243,27 +273,50 @@ public class SarsaLam extends QLearning {
 			//move on
 			curState = nextState;
 			action = nextAction;
-			curQ = nextQ;
+			curRow = nextRow;
+			curAction = nextActionIndex;
 
 			this.totalNumberOfSteps++;
 
-		}
 
+		}
 
 		return ea;
 	}
 
 
-	
-	
-	
-	
-	
 	/**
-	 * A data structure for maintaining eligibility trace values
+	 * Adds an eligibility trace for the given {@link burlap.behavior.singleagent.learning.tdmethods.qtable.QTable} row and action index,
+	 * growing the trace arrays if needed.
+	 * @param row the {@link burlap.behavior.singleagent.learning.tdmethods.qtable.QTable} row of the trace
+	 * @param actionIndex the action index of the trace
+	 * @param eligibility the eligibility value
+	 * @param initialQ the numeric Q-value of the trace when it was created, after the update of the step that created it
+	 */
+	protected void addTrace(int row, int actionIndex, double eligibility, double initialQ){
+		if(this.numTraces == this.traceRows.length){
+			int ncap = this.traceRows.length * 2;
+			this.traceRows = Arrays.copyOf(this.traceRows, ncap);
+			this.traceActions = Arrays.copyOf(this.traceActions, ncap);
+			this.traceEligibilities = Arrays.copyOf(this.traceEligibilities, ncap);
+			this.traceInitialQs = Arrays.copyOf(this.traceInitialQs, ncap);
+		}
+		this.traceRows[this.numTraces] = row;
+		this.traceActions[this.numTraces] = actionIndex;
+		this.traceEligibilities[this.numTraces] = eligibility;
+		this.traceInitialQs[this.numTraces] = initialQ;
+		this.numTraces++;
+	}
+
+
+	/**
+	 * A data structure for maintaining eligibility trace information.
 	 * @author James MacGlashan
-	 *
+	 * @deprecated {@link SarsaLam} now keeps its eligibility traces in the primitive arrays {@link #traceRows}, {@link #traceActions},
+	 * {@link #traceEligibilities} and {@link #traceInitialQs}, addressed by {@link burlap.behavior.singleagent.learning.tdmethods.qtable.QTable}
+	 * row and action index. This class is no longer used by {@link SarsaLam} and is kept so that existing code that refers to it still compiles.
 	 */
+	@Deprecated
 	public static class EligibilityTrace{
 		
 		/**
@@ -303,7 +356,5 @@ public class SarsaLam extends QLearning {
 		
 		
 	}
-	
-	
 
 }
@@ -0,0 +1,336 @@
+package burlap.behavior.singleagent.learning.tdmethods.qtable;
+
+import burlap.behavior.valuefunction.QValue;
+import burlap.mdp.core.action.Action;
+import burlap.statehashing.HashableState;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link QTable} that stores all Q-values in a single flat double array. States are indexed by an open-addressing
+ * (linear probing) hash index that stores each state's hash code alongside it, actions are mapped to int ids by an action index,
+ * and each row is a contiguous range of slots in the Q-value array with a parallel array of action ids. Compared to {@link MapQTable},
+ * there are no per-state or per-Q-value objects beyond the stored {@link HashableState} itself, and reading or writing a
+ * Q-value does not allocate. Each distinct action is stored once, and {@link #action(int, int)} returns that stored object, so the
+ * action index of an action chosen from the table's Q-values is found by reference without hashing the action.
+ * <p>
+ * The {@link QValue} lists returned by {@link #qValues(int)} are read-only views that create a {@link QValue} for each element
+ * when it is accessed; modifying those {@link QValue} objects does not modify the table.
+ * @author James MacGlashan
+ *
+ */
+public class FlatQTable implements QTable {
+
+	/**
+	 * The hashed states of the open-addressing state index; null for empty buckets.
+	 */
+	protected HashableState []					indexStates;
+
+	/**
+	 * The hash code of the state in each bucket of the state index
+	 */
+	protected int []							indexHashes;
+
+	/**
+	 * The row of the state in each bucket of the state index
+	 */
+	protected int []							indexRows;
+
+	/**
+	 * The hashed state of each row
+	 */
+	protected HashableState []					rowStates;
+
+	/**
+	 * The first Q-value slot of each row
+	 */
+	protected int []							rowOffsets;
+
+	/**
+	 * The number of actions (slots) of each row
+	 */
+	protected int []							rowLengths;
+
+	/**
+	 * The number of stored rows (states)
+	 */
+	protected int								numRows;
+
+	/**
+	 * The Q-value of each slot
+	 */
+	protected double []							qs;
+
+	/**
+	 * The action id of each slot
+	 */
+	protected int []							slotActions;
+
+	/**
+	 * The number of used slots
+	 */
+	protected int								numSlots;
+
+	/**
+	 * The id of each action
+	 */
+	protected Map<Action, Integer>				actionIds = new HashMap<Action, Integer>();
+
+	/**
+	 * The action of each action id
+	 */
+	protected Action []							actions = new Action[8];
+
+
+	/**
+	 * Initializes with an initial capacity of 1024 states.
+	 */
+	public FlatQTable(){
+		this(1024, 4);
+	}
+
+
+	/**
+	 * Initializes with the given initial capacity. The table grows as needed.
+	 * @param expectedStates the expected number of states
+	 * @param expectedActionsPerState the expected number of actions per state
+	 */
+	public FlatQTable(int expectedStates, int expectedActionsPerState){
+		int capacity = Math.max(16, expectedStates);
+		int buckets = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		this.indexStates = new HashableState[buckets];
+		this.indexHashes = new int[buckets];
+		this.indexRows = new int[buckets];
+		this.rowStates = new HashableState[capacity];
+		this.rowOffsets = new int[capacity];
+		this.rowLengths = new int[capacity];
+		int slots = capacity * Math.max(1, expectedActionsPerState);
+		this.qs = new double[slots];
+		this.slotActions = new int[slots];
+	}
+
+
+	@Override
+	public int stateRow(HashableState sh) {
+		int hash = sh.hashCode();
+		int mask = this.indexStates.length - 1;
+		int b = spread(hash) & mask;
+		while(true){
+			HashableState stored = this.indexStates[b];
+			if(stored == null){
+				return -1;
+			}
+			if(this.indexHashes[b] == hash && (stored == sh || stored.equals(sh))){
+				return this.indexRows[b];
+			}
+			b = (b + 1) & mask;
+		}
+	}
+
+	@Override
+	public int addState(HashableState sh, List<Action> actions, double[] qs) {
+
+		if(this.numRows == this.rowStates.length){
+			int ncap = this.rowStates.length * 2;
+			this.rowStates = Arrays.copyOf(this.rowStates, ncap);
+			this.rowOffsets = Arrays.copyOf(this.rowOffsets, ncap);
+			this.rowLengths = Arrays.copyOf(this.rowLengths, ncap);
+		}
+		if(this.numSlots + qs.length > this.qs.length){
+			int ncap = Math.max(this.qs.length * 2, this.numSlots + qs.length);
+			this.qs = Arrays.copyOf(this.qs, ncap);
+			this.slotActions = Arrays.copyOf(this.slotActions, ncap);
+		}
+
+		int row = this.numRows;
+		this.rowStates[row] = sh;
+		this.rowOffsets[row] = this.numSlots;
+		this.rowLengths[row] = qs.length;
+		for(int i = 0; i < qs.length; i++){
+			this.qs[this.numSlots] = qs[i];
+			this.slotActions[this.numSlots] = this.actionId(actions.get(i));
+			this.numSlots++;
+		}
+		this.numRows++;
+
+		if(this.numRows * 2 > this.indexStates.length){
+			this.rehash(this.indexStates.length * 2);
+		}
+		this.insertIntoIndex(sh, sh.hashCode(), row);
+
+		return row;
+	}
+
+	@Override
+	public int numStates() {
+		return this.numRows;
+	}
+
+	@Override
+	public HashableState state(int row) {
+		return this.rowStates[row];
+	}
+
+	@Override
+	public int numActions(int row) {
+		return this.rowLengths[row];
+	}
+
+	@Override
+	public Action action(int row, int actionIndex) {
+		return this.actions[this.slotActions[this.rowOffsets[row] + actionIndex]];
+	}
+
+	/**
+	 * Returns the action index of the given action in the given row, or -1 if the row has no such action. The row's actions are first
+	 * compared to the given action by reference, which finds the action without hashing it when it is an action object returned by
+	 * {@link #action(int, int)} or {@link #qValues(int)}, as the actions chosen by a greedy or epsilon-greedy policy over the table are.
+	 * Other action objects are looked up by equality.
+	 * @param row the row
+	 * @param a the action
+	 * @return the action index of the action, or -1 if the row does not have it
+	 */
+	@Override
+	public int actionIndex(int row, Action a) {
+		int offset = this.rowOffsets[row];
+		int n = this.rowLengths[row];
+		for(int i = 0; i < n; i++){
+			if(this.actions[this.slotActions[offset + i]] == a){
+				return i;
+			}
+		}
+		Integer id = this.actionIds.get(a);
+		if(id == null){
+			return -1;
+		}
+		for(int i = 0; i < n; i++){
+			if(this.slotActions[offset + i] == id){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public double q(int row, int actionIndex) {
+		return this.qs[this.rowOffsets[row] + actionIndex];
+	}
+
+	@Override
+	public void setQ(int row, int actionIndex, double q) {
+		this.qs[this.rowOffsets[row] + actionIndex] = q;
+	}
+
+	@Override
+	public double maxQ(int row) {
+		int offset = this.rowOffsets[row];
+		int end = offset + this.rowLengths[row];
+		double max = Double.NEGATIVE_INFINITY;
+		for(int i = offset; i < end; i++){
+			if(this.qs[i] > max){
+				max = this.qs[i];
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public List<QValue> qValues(final int row) {
+		return new AbstractList<QValue>() {
+			@Override
+			public QValue get(int index) {
+				if(index < 0 || index >= rowLengths[row]){
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rowLengths[row]);
+				}
+				return new QValue(rowStates[row].s(), action(row, index), q(row, index));
+			}
+
+			@Override
+			public int size() {
+				return rowLengths[row];
+			}
+		};
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.indexStates, null);
+		Arrays.fill(this.rowStates, 0, this.numRows, null);
+		this.numRows = 0;
+		this.numSlots = 0;
+	}
+
+
+	/**
+	 * Returns the id of the given action, giving it a new id if it does not have one yet.
+	 * @param a the action
+	 * @return the id of the action
+	 */
+	protected int actionId(Action a){
+		Integer id = this.actionIds.get(a);
+		if(id == null){
+			id = this.actionIds.size();
+			if(id == this.actions.length){
+				this.actions = Arrays.copyOf(this.actions, this.actions.length * 2);
+			}
+			this.actions[id] = a;
+			this.actionIds.put(a, id);
+		}
+		return id;
+	}
+
+
+	/**
+	 * Inserts a state that is not already in the state index.
+	 * @param sh the hashed state
+	 * @param hash the hash code of the hashed state
+	 * @param row the row of the state
+	 */
+	protected void insertIntoIndex(HashableState sh, int hash, int row){
+		int mask = this.indexStates.length - 1;
+		int b = spread(hash) & mask;
+		while(this.indexStates[b] != null){
+			b = (b + 1) & mask;
+		}
+		this.indexStates[b] = sh;
+		this.indexHashes[b] = hash;
+		this.indexRows[b] = row;
+	}
+
+
+	/**
+	 * Resizes the state index to the given number of buckets, reusing the stored hash codes.
+	 * @param buckets the new number of buckets; must be a power of two
+	 */
+	protected void rehash(int buckets){
+		HashableState [] oldStates = this.indexStates;
+		int [] oldHashes = this.indexHashes;
+		int [] oldRows = this.indexRows;
+		this.indexStates = new HashableState[buckets];
+		this.indexHashes = new int[buckets];
+		this.indexRows = new int[buckets];
+		for(int i = 0; i < oldStates.length; i++){
+			if(oldStates[i] != null){
+				this.insertIntoIndex(oldStates[i], oldHashes[i], oldRows[i]);
+			}
+		}
+	}
+
+
+	/**
+	 * Spreads the bits of a hash code so that hash codes that differ only in their high bits do not collide in the index.
+	 * @param h the hash code
+	 * @return the spread hash code
+	 */
+	protected static int spread(int h){
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+
+}
@@ -0,0 +1,124 @@
+package burlap.behavior.singleagent.learning.tdmethods.qtable;
+
+import burlap.behavior.singleagent.learning.tdmethods.QLearningStateNode;
+import burlap.behavior.valuefunction.QValue;
+import burlap.mdp.core.action.Action;
+import burlap.statehashing.HashableState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default {@link QTable}, which stores a {@link QLearningStateNode} of {@link QValue} objects for each state in a {@link HashMap}.
+ * The {@link QValue} lists returned by {@link #qValues(int)} are the stored objects, so modifying them modifies the table.
+ * @author James MacGlashan
+ *
+ */
+public class MapQTable implements QTable {
+
+	/**
+	 * The row of each stored state
+	 */
+	protected Map<HashableState, Integer>			rowIds = new HashMap<HashableState, Integer>();
+
+	/**
+	 * The state node of each row
+	 */
+	protected List<QLearningStateNode>				rows = new ArrayList<QLearningStateNode>();
+
+
+	/**
+	 * Returns the {@link QLearningStateNode} of the given row
+	 * @param row the row
+	 * @return the {@link QLearningStateNode} of the row
+	 */
+	public QLearningStateNode node(int row){
+		return this.rows.get(row);
+	}
+
+	@Override
+	public int stateRow(HashableState sh) {
+		Integer row = this.rowIds.get(sh);
+		if(row == null){
+			return -1;
+		}
+		return row;
+	}
+
+	@Override
+	public int addState(HashableState sh, List<Action> actions, double[] qs) {
+		QLearningStateNode node = new QLearningStateNode(sh);
+		for(int i = 0; i < qs.length; i++){
+			node.addQValue(actions.get(i), qs[i]);
+		}
+		int row = this.rows.size();
+		this.rows.add(node);
+		this.rowIds.put(sh, row);
+		return row;
+	}
+
+	@Override
+	public int numStates() {
+		return this.rows.size();
+	}
+
+	@Override
+	public HashableState state(int row) {
+		return this.rows.get(row).s;
+	}
+
+	@Override
+	public int numActions(int row) {
+		return this.rows.get(row).qEntry.size();
+	}
+
+	@Override
+	public Action action(int row, int actionIndex) {
+		return this.rows.get(row).qEntry.get(actionIndex).a;
+	}
+
+	@Override
+	public int actionIndex(int row, Action a) {
+		List<QValue> qs = this.rows.get(row).qEntry;
+		for(int i = 0; i < qs.size(); i++){
+			if(qs.get(i).a.equals(a)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public double q(int row, int actionIndex) {
+		return this.rows.get(row).qEntry.get(actionIndex).q;
+	}
+
+	@Override
+	public void setQ(int row, int actionIndex, double q) {
+		this.rows.get(row).qEntry.get(actionIndex).q = q;
+	}
+
+	@Override
+	public double maxQ(int row) {
+		double max = Double.NEGATIVE_INFINITY;
+		for(QValue q : this.rows.get(row).qEntry){
+			if(q.q > max){
+				max = q.q;
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public List<QValue> qValues(int row) {
+		return this.rows.get(row).qEntry;
+	}
+
+	@Override
+	public void clear() {
+		this.rowIds.clear();
+		this.rows.clear();
+	}
+}
@@ -0,0 +1,107 @@
+package burlap.behavior.singleagent.learning.tdmethods.qtable;
+
+import burlap.behavior.valuefunction.QValue;
+import burlap.mdp.core.action.Action;
+import burlap.statehashing.HashableState;
+
+import java.util.List;
+
+/**
+ * The storage backend of the tabular Q-function of {@link burlap.behavior.singleagent.learning.tdmethods.QLearning} and
+ * {@link burlap.behavior.singleagent.learning.tdmethods.SarsaLam}. Each stored state is given an int row and each of the state's actions
+ * is given an index within that row, so that learning updates can read and write Q-values by (row, action index) without
+ * allocating {@link QValue} objects. Rows and action indices of a stored state never change until the table is cleared.
+ * @author James MacGlashan
+ *
+ */
+public interface QTable {
+
+	/**
+	 * Returns the row of the given hashed state, or -1 if the state is not stored.
+	 * @param sh the hashed state
+	 * @return the row of the state, or -1 if it is not stored
+	 */
+	int stateRow(HashableState sh);
+
+	/**
+	 * Adds a new state with the given actions and initial Q-values and returns its row. The state must not already be stored.
+	 * @param sh the hashed state to add
+	 * @param actions the actions of the state; their index in this list will be their action index in the row
+	 * @param qs the initial Q-value of each action
+	 * @return the row of the added state
+	 */
+	int addState(HashableState sh, List<Action> actions, double [] qs);
+
+	/**
+	 * Returns the number of stored states.
+	 * @return the number of stored states
+	 */
+	int numStates();
+
+	/**
+	 * Returns the hashed state of the given row
+	 * @param row the row
+	 * @return the hashed state of the row
+	 */
+	HashableState state(int row);
+
+	/**
+	 * Returns the number of actions of the given row
+	 * @param row the row
+	 * @return the number of actions of the row
+	 */
+	int numActions(int row);
+
+	/**
+	 * Returns the action at the given action index of the given row
+	 * @param row the row
+	 * @param actionIndex the action index
+	 * @return the action
+	 */
+	Action action(int row, int actionIndex);
+
+	/**
+	 * Returns the action index of the given action in the given row, or -1 if the row has no such action.
+	 * @param row the row
+	 * @param a the action
+	 * @return the action index of the action, or -1 if the row does not have it
+	 */
+	int actionIndex(int row, Action a);
+
+	/**
+	 * Returns the Q-value at the given row and action index
+	 * @param row the row
+	 * @param actionIndex the action index
+	 * @return the Q-value
+	 */
+	double q(int row, int actionIndex);
+
+	/**
+	 * Sets the Q-value at the given row and action index
+	 * @param row the row
+	 * @param actionIndex the action index
+	 * @param q the new Q-value
+	 */
+	void setQ(int row, int actionIndex, double q);
+
+	/**
+	 * Returns the maximum Q-value of the given row.
+	 * @param row the row
+	 * @return the maximum Q-value of the row
+	 */
+	double maxQ(int row);
+
+	/**
+	 * Returns the Q-values of the given row as a list of {@link QValue} objects. Whether modifying the returned {@link QValue}
+	 * objects modifies the table depends on the implementation; use {@link #setQ(int, int, double)} to change Q-values.
+	 * @param row the row
+	 * @return the Q-values of the row
+	 */
+	List<QValue> qValues(int row);
+
+	/**
+	 * Removes all stored states.
+	 */
+	void clear();
+
+}
@@ -6,8 +6,10 @@ import burlap.behavior.policy.Policy;
 import burlap.behavior.singleagent.Episode;
 import burlap.behavior.singleagent.MDPSolver;
 import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.singleagent.learning.experiencereplay.ConcurrentFixedSizeMemory;
 import burlap.behavior.singleagent.learning.experiencereplay.ExperienceMemory;
 import burlap.behavior.singleagent.learning.experiencereplay.FixedSizeMemory;
+import burlap.behavior.singleagent.learning.experiencereplay.PrioritizedReplayMemory;
 import burlap.behavior.singleagent.options.EnvironmentOptionOutcome;
 import burlap.behavior.valuefunction.QProvider;
 import burlap.behavior.valuefunction.QValue;
@@ -17,10 +19,17 @@ import burlap.mdp.core.action.Action;
 import burlap.mdp.core.state.State;
 import burlap.mdp.singleagent.SADomain;
 import burlap.mdp.singleagent.environment.Environment;
+import burlap.mdp.singleagent.environment.EnvironmentFactory;
 import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.parallel.ParallelUtilities;
+import burlap.parallel.ProgressSignal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract implementation of Q-learning with value function approximation and support for using experience replay
@@ -73,6 +82,12 @@ public abstract class ApproximateQLearning extends MDPSolver implements Learning
 	protected ExperienceMemory memory = new FixedSizeMemory(1, true);
 
 
+	/**
+	 * The reusable minibatch into which a {@link PrioritizedReplayMemory} is sampled
+	 */
+	protected PrioritizedReplayMemory.Minibatch replayBatch;
+
+
 	/**
 	 * The state mapping to convert between states
 	 */
@@ -101,6 +116,32 @@ public abstract class ApproximateQLearning extends MDPSolver implements Learning
 	protected int totalEpisodes = 0;
 
 
+	/**
+	 * The epsilon of the epsilon-greedy policies followed by the actor threads of {@link #runActorLearner(EnvironmentFactory, int, int, int)}
+	 */
+	protected double actorEpsilon = 0.1;
+
+	/**
+	 * The number of learner updates between copies of the Q-function for the actor threads, when no stale target is used
+	 */
+	protected int actorSnapshotInterval = 100;
+
+	/**
+	 * The target number of learner updates per environment step in {@link #runActorLearner(EnvironmentFactory, int, int, int)}; 0 or less for no rate limit
+	 */
+	protected double updatesPerStep = 0.;
+
+	/**
+	 * The number of environment steps the actors may run ahead of the target rate of learner updates before they wait for the learner
+	 */
+	protected int rateLimitTolerance = 0;
+
+	/**
+	 * The snapshot of the Q-function followed by the actor threads
+	 */
+	protected volatile ParametricFunction.ParametricStateActionFunction actorVfa;
+
+
 	/**
 	 * Initializes
 	 * @param domain the learning domain
@@ -204,7 +245,7 @@ public abstract class ApproximateQLearning extends MDPSolver implements Learning
 			e.transition(a, eo.op, eo.r);
 
 			//perform learners
-			List<EnvironmentOutcome> samples = this.memory.sampleExperiences(this.numReplay);
+			List<EnvironmentOutcome> samples = this.sampleMemory();
 			this.updateQFunction(samples);
 
 			//update stale function
@@ -303,6 +344,24 @@ public abstract class ApproximateQLearning extends MDPSolver implements Learning
 	}
 
 
+	/**
+	 * Samples the experiences for a learning update from the experience memory. A {@link PrioritizedReplayMemory} is sampled into a
+	 * reused {@link PrioritizedReplayMemory.Minibatch}, which is returned, so that sampling does not allocate; other memories are
+	 * sampled with {@link ExperienceMemory#sampleExperiences(int)}.
+	 * @return the sampled experiences
+	 */
+	protected List<EnvironmentOutcome> sampleMemory(){
+		if(this.memory instanceof PrioritizedReplayMemory){
+			if(this.replayBatch == null || this.replayBatch.capacity() < this.numReplay){
+				this.replayBatch = new PrioritizedReplayMemory.Minibatch(this.numReplay);
+			}
+			((PrioritizedReplayMemory)this.memory).sample(this.replayBatch, this.numReplay);
+			return this.replayBatch;
+		}
+		return this.memory.sampleExperiences(this.numReplay);
+	}
+
+
 	/**
 	 * Updates the state Q-function to the current value function, by setting the state function to a copy of the current value
 	 * function estimate. A copy is made by invoking the {@link ParametricFunction#copy()} method. However, if the state duration
@@ -320,6 +379,207 @@ public abstract class ApproximateQLearning extends MDPSolver implements Learning
 	}
 
 
+	/**
+	 * Returns the epsilon of the epsilon-greedy policies followed by the actor threads of {@link #runActorLearner(EnvironmentFactory, int, int, int)}
+	 * @return the epsilon of the actor policies
+	 */
+	public double getActorEpsilon() {
+		return actorEpsilon;
+	}
+
+
+	/**
+	 * Sets the epsilon of the epsilon-greedy policies followed by the actor threads of {@link #runActorLearner(EnvironmentFactory, int, int, int)}
+	 * @param actorEpsilon the epsilon of the actor policies
+	 */
+	public void setActorEpsilon(double actorEpsilon) {
+		this.actorEpsilon = actorEpsilon;
+	}
+
+
+	/**
+	 * Sets the number of learner updates between copies of the Q-function for the actor threads of {@link #runActorLearner(EnvironmentFactory, int, int, int)}.
+	 * This is only used when no stale target is used; otherwise the actors follow the stale Q-function.
+	 * @param actorSnapshotInterval the number of learner updates between Q-function snapshots; must be at least 1
+	 */
+	public void setActorSnapshotInterval(int actorSnapshotInterval) {
+		if(actorSnapshotInterval < 1){
+			throw new RuntimeException("The actor snapshot interval must be at least 1; was " + actorSnapshotInterval);
+		}
+		this.actorSnapshotInterval = actorSnapshotInterval;
+	}
+
+
+	/**
+	 * Limits the rate of learner updates relative to the rate of environment steps in {@link #runActorLearner(EnvironmentFactory, int, int, int)}.
+	 * The learner waits for new experience rather than exceed updatesPerStep updates per environment step, and the actors wait for the
+	 * learner when they are more than tolerance steps ahead of that rate. An updatesPerStep of 1 matches the number of updates of
+	 * {@link #runLearningEpisode(Environment, int)}, so that learning progresses per step as it does on a single thread. By default there is
+	 * no limit: the actors step as fast as they can and the learner updates as fast as it can, which maximizes throughput, but learns less per
+	 * step when the learner is slower than the actors.
+	 * @param updatesPerStep the number of learner updates per environment step; 0 or less for no rate limit
+	 * @param tolerance the number of environment steps the actors may run ahead of the learner
+	 */
+	public void setUpdateRateLimit(double updatesPerStep, int tolerance) {
+		if(tolerance < 0){
+			throw new RuntimeException("The rate limit tolerance must be non-negative; was " + tolerance);
+		}
+		this.updatesPerStep = updatesPerStep;
+		this.rateLimitTolerance = tolerance;
+	}
+
+
+	/**
+	 * Learns with separate actor and learner threads, so that stepping environments and updating the Q-function do not block each other.
+	 * Each of numActors actor threads runs episodes in its own environment from the given factory, following an epsilon-greedy policy
+	 * (see {@link #setActorEpsilon(double)}) over a snapshot of the Q-function, and adds every outcome to the experience memory.
+	 * Meanwhile, the calling thread acts as the learner: it repeatedly samples experiences from the memory, passes them to
+	 * {@link #updateQFunction(List)}, and manages the stale target function as {@link #runLearningEpisode(Environment, int)} does.
+	 * When a stale target is used (see {@link #useStaleTarget(int)}), the actors follow the stale function, which is never modified
+	 * after it is copied; otherwise the learner gives the actors a copy of the Q-function every {@link #setActorSnapshotInterval(int)} updates.
+	 * The actors and learner run at their own rates unless a rate limit is set with {@link #setUpdateRateLimit(double, int)}. A thread that
+	 * must wait, for the learner because there is no new experience or for an actor because it is ahead of the rate limit, blocks on a
+	 * {@link ProgressSignal} until the other side makes progress rather than spinning.
+	 * <p>
+	 * The experience memory must be safe to use from multiple threads, such as a {@link ConcurrentFixedSizeMemory}, and the
+	 * environments of the factory must share no mutable state. Copies of the Q-function must share no mutable state with it either; for
+	 * example, a {@link burlap.behavior.functionapproximation.dense.DenseCrossProductFeatures} should be given the offsets of all actions
+	 * when it is constructed rather than assigning them lazily. Because experience is collected concurrently, results are not
+	 * reproducible from a seed.
+	 * @param envFactory the factory of the actors' environments
+	 * @param numActors the number of actor threads
+	 * @param numSteps the total number of environment steps taken by all actors
+	 * @param maxEpisodeSteps the maximum number of steps of an actor's episode before its environment is reset; -1 for no limit
+	 * @return the number of environment steps per second achieved by the actors
+	 */
+	public double runActorLearner(EnvironmentFactory envFactory, int numActors, final int numSteps, final int maxEpisodeSteps){
+
+		if(numActors < 1){
+			throw new RuntimeException("runActorLearner requires at least 1 actor; was " + numActors);
+		}
+
+		this.actorVfa = this.staleDuration > 1 ? this.staleVfa : (ParametricFunction.ParametricStateActionFunction)this.vfa.copy();
+		final AtomicInteger claimedSteps = new AtomicInteger();
+		final AtomicInteger stepsTaken = new AtomicInteger();
+		final AtomicInteger episodes = new AtomicInteger();
+		final AtomicInteger updates = new AtomicInteger();
+		final AtomicInteger activeActors = new AtomicInteger(numActors);
+		final ProgressSignal stepSignal = new ProgressSignal();
+		final ProgressSignal updateSignal = new ProgressSignal();
+
+		List<Environment> envs = new ArrayList<Environment>(numActors);
+		for(int i = 0; i < numActors; i++){
+			envs.add(envFactory.generateEnvironment());
+		}
+
+		ExecutorService actors = Executors.newFixedThreadPool(numActors);
+		List<Future<?>> futures = new ArrayList<Future<?>>(numActors);
+		long startTime = System.nanoTime();
+		for(final Environment env : envs){
+			futures.add(actors.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						runActor(env, claimedSteps, stepsTaken, episodes, updates, stepSignal, updateSignal, numSteps, maxEpisodeSteps);
+					} finally {
+						activeActors.decrementAndGet();
+						stepSignal.signalAll();
+					}
+				}
+			}));
+		}
+		actors.shutdown();
+
+		int baseSteps = this.totalSteps;
+		try {
+			while(activeActors.get() > 0){
+				long stepVersion = stepSignal.version();
+				int taken = stepsTaken.get();
+				if(this.updatesPerStep > 0. && updates.get() >= taken * this.updatesPerStep){
+					stepSignal.awaitChange(stepVersion);
+					continue;
+				}
+				List<EnvironmentOutcome> samples = this.sampleMemory();
+				if(samples.isEmpty()){
+					stepSignal.awaitChange(stepVersion);
+					continue;
+				}
+				this.totalSteps = baseSteps + taken;
+				this.updateQFunction(samples);
+				int nUpdates = updates.incrementAndGet();
+				if(this.updatesPerStep > 0.){
+					updateSignal.signalAll();
+				}
+
+				this.stepsSinceStale++;
+				if(this.stepsSinceStale >= this.staleDuration){
+					this.updateStaleFunction();
+					if(this.staleDuration > 1){
+						this.actorVfa = this.staleVfa;
+					}
+				}
+				if(this.staleDuration <= 1 && nUpdates % this.actorSnapshotInterval == 0){
+					this.actorVfa = (ParametricFunction.ParametricStateActionFunction)this.vfa.copy();
+				}
+			}
+		} finally {
+			actors.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+
+		for(Future<?> f : futures){
+			ParallelUtilities.await(f, "actor threads");
+		}
+
+		this.totalSteps = baseSteps + stepsTaken.get();
+		this.totalEpisodes += episodes.get();
+		this.actorVfa = null;
+
+		return stepsTaken.get() / Math.max(seconds, 1e-9);
+	}
+
+
+	/**
+	 * Runs the episodes of one actor thread until the actors have claimed the given number of steps.
+	 * @param env the actor's environment
+	 * @param claimedSteps the number of steps claimed by all actors
+	 * @param stepsTaken the number of steps taken by all actors
+	 * @param episodes the number of episodes completed by all actors
+	 * @param updates the number of learner updates
+	 * @param stepSignal the signal on which the actor reports each step it takes
+	 * @param updateSignal the signal on which the learner reports its updates, which the actor waits for when it is ahead of the rate limit
+	 * @param numSteps the total number of steps to take
+	 * @param maxEpisodeSteps the maximum number of steps of an episode; -1 for no limit
+	 */
+	protected void runActor(Environment env, AtomicInteger claimedSteps, AtomicInteger stepsTaken, AtomicInteger episodes, AtomicInteger updates, ProgressSignal stepSignal, ProgressSignal updateSignal, int numSteps, int maxEpisodeSteps){
+		Policy p = new EpsilonGreedy(new ActorQProvider(), this.actorEpsilon);
+		int eStepCounter = 0;
+		while(!Thread.currentThread().isInterrupted() && claimedSteps.getAndIncrement() < numSteps){
+			if(env.isInTerminalState() || (maxEpisodeSteps != -1 && eStepCounter >= maxEpisodeSteps)){
+				env.resetEnvironment();
+				eStepCounter = 0;
+				episodes.incrementAndGet();
+			}
+			if(this.updatesPerStep > 0.){
+				while(!Thread.currentThread().isInterrupted()){
+					long updateVersion = updateSignal.version();
+					if(stepsTaken.get() <= updates.get() / this.updatesPerStep + this.rateLimitTolerance){
+						break;
+					}
+					updateSignal.awaitChange(updateVersion);
+				}
+			}
+			State curState = this.stateMapping.mapState(env.currentObservation());
+			Action a = p.action(curState);
+			EnvironmentOutcome eo = env.executeAction(a);
+			this.memory.addExperience(eo);
+			eStepCounter += eo instanceof EnvironmentOptionOutcome ? ((EnvironmentOptionOutcome)eo).numSteps() : 1;
+			stepsTaken.incrementAndGet();
+			stepSignal.signalAll();
+		}
+	}
+
+
 	/**
 	 * Causes learned to be resumed as if stepNumber is the total number of learning steps and episodeNumber is the total number of learning episodes
 	 * @param stepNumber the presumed number of learning steps
@@ -340,4 +600,56 @@ public abstract class ApproximateQLearning extends MDPSolver implements Learning
 	 */
 	public abstract void updateQFunction(List<EnvironmentOutcome> samples);
 
+
+	/**
+	 * A {@link QProvider} over an actor thread's own copy of the Q-function snapshot, which is refreshed whenever the learner publishes
+	 * a new snapshot. Each actor evaluates its own copy because Q-functions may cache their last evaluation.
+	 */
+	protected class ActorQProvider implements QProvider{
+
+		/**
+		 * The snapshot from which the local copy was made
+		 */
+		protected ParametricFunction.ParametricStateActionFunction source;
+
+		/**
+		 * The actor's copy of the snapshot
+		 */
+		protected ParametricFunction.ParametricStateActionFunction local;
+
+		@Override
+		public List<QValue> qValues(State s) {
+			ParametricFunction.ParametricStateActionFunction f = this.function();
+			List<Action> actions = applicableActions(s);
+			List<QValue> qs = new ArrayList<QValue>(actions.size());
+			for(Action a : actions){
+				qs.add(new QValue(s, a, f.evaluate(s, a)));
+			}
+			return qs;
+		}
+
+		@Override
+		public double qValue(State s, Action a) {
+			return this.function().evaluate(s, a);
+		}
+
+		@Override
+		public double value(State s) {
+			return QProvider.Helper.maxQ(this, s);
+		}
+
+		/**
+		 * Returns the actor's copy of the latest snapshot, copying the snapshot if it has changed
+		 * @return the actor's copy of the latest snapshot
+		 */
+		protected ParametricFunction.ParametricStateActionFunction function(){
+			ParametricFunction.ParametricStateActionFunction snapshot = actorVfa;
+			if(snapshot != this.source){
+				this.source = snapshot;
+				this.local = (ParametricFunction.ParametricStateActionFunction)snapshot.copy();
+			}
+			return this.local;
+		}
+	}
+
 }
@@ -4,6 +4,7 @@ import burlap.behavior.functionapproximation.DifferentiableStateActionValue;
 import burlap.behavior.functionapproximation.FunctionGradient;
 import burlap.behavior.learningrate.ConstantLR;
 import burlap.behavior.learningrate.LearningRate;
+import burlap.behavior.singleagent.learning.experiencereplay.PrioritizedReplayMemory;
 import burlap.behavior.singleagent.options.EnvironmentOptionOutcome;
 import burlap.datastructures.HashedAggregator;
 import burlap.mdp.singleagent.SADomain;
@@ -15,6 +16,8 @@ import java.util.Map;
 /**
  * An implementation of Gradient Descent Q-learning. By default, updates the Q-function for the most recent example,
  * but because it extends {@link ApproximateQLearning}, it can set to use experience replay and state Q-functions.
+ * When the experiences come from a {@link PrioritizedReplayMemory}, each experience's gradient is scaled by its importance
+ * sampling weight and the experience's priority is updated with its temporal difference error.
  * @author James MacGlashan.
  */
 public class GradientDescentQLearning extends ApproximateQLearning {
@@ -60,7 +63,10 @@ public class GradientDescentQLearning extends ApproximateQLearning {
 	@Override
 	public void updateQFunction(List<EnvironmentOutcome> samples) {
 
+		PrioritizedReplayMemory.Minibatch batch = samples instanceof PrioritizedReplayMemory.Minibatch ? (PrioritizedReplayMemory.Minibatch)samples : null;
+
 		HashedAggregator<Integer> sumGradient = new HashedAggregator<Integer>();
+		int i = 0;
 		for(EnvironmentOutcome eo : samples){
 
 			//get statistics
@@ -74,10 +80,18 @@ public class GradientDescentQLearning extends ApproximateQLearning {
 			//compute function delta
 			double delta = eo.r + (discount*nextQV) - curQ;
 
+			//weight prioritized samples by their importance sampling weight
+			double weight = 1.;
+			if(batch != null){
+				batch.errors[i] = delta;
+				weight = batch.weights[i];
+			}
+			i++;
+
 			//get gradient and add it
 			FunctionGradient gradient = ((DifferentiableStateActionValue)this.vfa).gradient(eo.o, eo.a);
 			for(FunctionGradient.PartialDerivative pd : gradient.getNonZeroPartialDerivatives()){
-				double errorPd = pd.value*delta;
+				double errorPd = pd.value*delta*weight;
 				sumGradient.add(pd.parameterId, errorPd);
 			}
 
@@ -95,6 +109,10 @@ public class GradientDescentQLearning extends ApproximateQLearning {
 			this.vfa.setParameter(pind, nP);
 		}
 
+		if(batch != null){
+			batch.source().updatePriorities(batch);
+		}
+
 	}
 
 
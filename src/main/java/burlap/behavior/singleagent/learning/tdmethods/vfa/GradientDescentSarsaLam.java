@@ -15,6 +15,7 @@ import burlap.behavior.singleagent.options.Option;
 import burlap.behavior.singleagent.planning.Planner;
 import burlap.behavior.valuefunction.QProvider;
 import burlap.behavior.valuefunction.QValue;
+import burlap.datastructures.IntIdIndex;
 import burlap.mdp.core.action.Action;
 import burlap.mdp.core.state.State;
 import burlap.mdp.singleagent.SADomain;
@@ -130,6 +131,22 @@ public class GradientDescentSarsaLam extends MDPSolver implements QProvider, Lea
 	 * The total number of learning steps performed by this agent.
 	 */
 	protected int													totalNumberOfSteps = 0;
+
+
+	/**
+	 * The eligibility traces of the current episode, which are reused across episodes
+	 */
+	protected SparseEligibilityTraces								traces = new SparseEligibilityTraces();
+
+	/**
+	 * Buffer holding a copy of the gradient of the current step, since a VFA may reuse the gradient object it returns
+	 */
+	protected FunctionGradient.SparseArrayGradient					stepGradient = new FunctionGradient.SparseArrayGradient();
+
+	/**
+	 * Buffer holding a copy of the gradient of each action when replacing traces
+	 */
+	protected FunctionGradient.SparseArrayGradient					replacedGradient = new FunctionGradient.SparseArrayGradient();
 	
 	
 	/**
@@ -330,14 +347,16 @@ public class GradientDescentSarsaLam extends MDPSolver implements QProvider, Lea
 
 		State curState = initialState;
 		eStepCounter = 0;
-		Map <Integer, EligibilityTraceVector> traces = new HashMap<Integer, EligibilityTraceVector>();
+		SparseEligibilityTraces traces = this.traces;
+		traces.clear();
 
 		Action action = this.learningPolicy.action(curState);
 		while(!env.isInTerminalState() && (eStepCounter < maxSteps || maxSteps == -1)){
 
 			//get Q-value and gradient
 			double curQ = this.vfa.evaluate(curState, action);
-			FunctionGradient gradient = this.vfa.gradient(curState, action);
+			FunctionGradient.SparseArrayGradient gradient = this.stepGradient;
+			gradient.set(this.vfa.gradient(curState, action));
 
 			EnvironmentOutcome eo;
 			if(!(action instanceof Option)){
@@ -380,30 +399,32 @@ public class GradientDescentSarsaLam extends MDPSolver implements QProvider, Lea
 
 					//get non-zero parameters and zero them
 					this.vfa.evaluate(curState, oa);
-					FunctionGradient ofg = this.vfa.gradient(curState, oa);
-					for(FunctionGradient.PartialDerivative pds : ofg.getNonZeroPartialDerivatives()){
-						EligibilityTraceVector et = traces.get(pds.parameterId);
-						if(et != null){
-							et.eligibilityValue = 0.;
+					FunctionGradient.SparseArrayGradient ofg = this.replacedGradient;
+					ofg.set(this.vfa.gradient(curState, oa));
+					for(int i = 0; i < ofg.numNonZeroPDs(); i++){
+						int param = ofg.parameterId(i);
+						if(traces.contains(param)){
+							traces.setEligibility(param, 0.);
 						}
 						else{
 							//no trace for this yet, so add it
-							et = new EligibilityTraceVector(pds.parameterId, this.vfa.getParameter(pds.parameterId), 0.);
-							traces.put(pds.parameterId, et);
+							traces.add(param, this.vfa.getParameter(param));
 						}
 					}
 
 				}
 			}
-			else{
-				//if not using replacing traces, then add any new parameters whose traces need to be set, but set initially
-				//at zero since it will be updated in the next loop
-				for(FunctionGradient.PartialDerivative pds : gradient.getNonZeroPartialDerivatives()){
-					if(!traces.containsKey(pds.parameterId)){
-						traces.put(pds.parameterId, new EligibilityTraceVector(pds.parameterId, this.vfa.getParameter(pds.parameterId), 0.));
+
+			//add the gradient to the traces, adding any new parameters whose traces start at zero
+			for(int i = 0; i < gradient.numNonZeroPDs(); i++){
+				int param = gradient.parameterId(i);
+				if(!traces.contains(param)){
+					if(this.useReplacingTraces){
+						continue;
 					}
+					traces.add(param, this.vfa.getParameter(param));
 				}
-
+				traces.setEligibility(param, traces.eligibility(param) + gradient.value(i));
 			}
 
 
@@ -413,33 +434,31 @@ public class GradientDescentSarsaLam extends MDPSolver implements QProvider, Lea
 				learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, curState, action);
 			}
 
-			Set <Integer> deletedSet = new HashSet<Integer>();
-			for(EligibilityTraceVector et : traces.values()){
+			//scan backwards so that deleting a trace, which moves the last trace into its place, does not skip any
+			for(int i = traces.size() - 1; i >= 0; i--){
+				int param = traces.parameterId(i);
 				if(this.useFeatureWiseLearningRate){
-					learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, et.weight);
+					learningRate = this.learningRate.pollLearningRate(this.totalNumberOfSteps, param);
 				}
 
-				et.eligibilityValue += gradient.getPartialDerivative(et.weight);
-				double newParam = vfa.getParameter(et.weight) + learningRate * delta * et.eligibilityValue;
-				this.vfa.setParameter(et.weight, newParam);
+				double eligibility = traces.eligibility(param);
+				double newParam = vfa.getParameter(param) + learningRate * delta * eligibility;
+				this.vfa.setParameter(param, newParam);
 
-				double deltaW = Math.abs(et.initialWeightValue - newParam);
+				double deltaW = Math.abs(traces.initialWeight(param) - newParam);
 				if(deltaW > maxWeightChangeInLastEpisode){
 					maxWeightChangeInLastEpisode = deltaW;
 				}
 
 				//now decay and delete from tracking if too small
-				et.eligibilityValue *= this.lambda*discount;
-				if(et.eligibilityValue < this.minEligibityForUpdate){
-					deletedSet.add(et.weight);
+				eligibility *= this.lambda*discount;
+				if(eligibility < this.minEligibityForUpdate){
+					traces.remove(param);
+				}
+				else{
+					traces.setEligibility(param, eligibility);
 				}
 
-
-			}
-
-			//delete traces marked for deletion
-			for(Integer t : deletedSet){
-				traces.remove(t);
 			}
 
 			//move on
@@ -514,6 +533,148 @@ public class GradientDescentSarsaLam extends MDPSolver implements QProvider, Lea
 	}
 	
 	
+	/**
+	 * Stores the eligibility traces of an episode in primitive arrays, along with the list of parameters that currently have a trace, so
+	 * that adding, finding, and removing a trace take constant time and a learning step does not allocate objects once the arrays have
+	 * grown to the number of parameters traced in an episode. Parameter ids are mapped to array positions with an {@link IntIdIndex},
+	 * so they may be any int values.
+	 * @author James MacGlashan
+	 */
+	public static class SparseEligibilityTraces {
+
+		/**
+		 * The array position of each parameter that has had a trace since the last {@link #clear()}
+		 */
+		protected IntIdIndex		index = new IntIdIndex();
+
+		/**
+		 * The eligibility value of each parameter, by array position
+		 */
+		protected double []			eligibility = new double[16];
+
+		/**
+		 * The value of each parameter when its trace started, by array position
+		 */
+		protected double []			initialWeight = new double[16];
+
+		/**
+		 * One more than the position of each parameter in the active list, or 0 if it has no trace, by array position
+		 */
+		protected int []			position = new int[16];
+
+		/**
+		 * The array positions of the parameters that have a trace
+		 */
+		protected int []			active = new int[16];
+
+		/**
+		 * The number of parameters that have a trace
+		 */
+		protected int				size = 0;
+
+
+		/**
+		 * Returns the number of parameters that have a trace
+		 * @return the number of parameters that have a trace
+		 */
+		public int size(){
+			return this.size;
+		}
+
+		/**
+		 * Returns the parameter id of the ith trace. Removing a trace moves the last trace into its position.
+		 * @param i the index of the trace, in [0, {@link #size()})
+		 * @return the parameter id
+		 */
+		public int parameterId(int i){
+			return this.index.id(this.active[i]);
+		}
+
+		/**
+		 * Returns whether a parameter has a trace
+		 * @param parameterId the parameter id
+		 * @return true if the parameter has a trace; false otherwise
+		 */
+		public boolean contains(int parameterId){
+			int p = this.index.index(parameterId);
+			return p != -1 && this.position[p] != 0;
+		}
+
+		/**
+		 * Adds a trace for a parameter with an eligibility value of 0.
+		 * @param parameterId the parameter id, which must not already have a trace
+		 * @param weightValue the current value of the parameter
+		 */
+		public void add(int parameterId, double weightValue){
+			int p = this.index.add(parameterId);
+			if(p >= this.position.length){
+				int n = 2 * this.position.length;
+				this.eligibility = Arrays.copyOf(this.eligibility, n);
+				this.initialWeight = Arrays.copyOf(this.initialWeight, n);
+				this.position = Arrays.copyOf(this.position, n);
+			}
+			if(this.size == this.active.length){
+				this.active = Arrays.copyOf(this.active, 2 * this.active.length);
+			}
+			this.eligibility[p] = 0.;
+			this.initialWeight[p] = weightValue;
+			this.active[this.size] = p;
+			this.size++;
+			this.position[p] = this.size;
+		}
+
+		/**
+		 * Returns the eligibility value of a parameter with a trace
+		 * @param parameterId the parameter id
+		 * @return the eligibility value
+		 */
+		public double eligibility(int parameterId){
+			return this.eligibility[this.index.index(parameterId)];
+		}
+
+		/**
+		 * Sets the eligibility value of a parameter with a trace
+		 * @param parameterId the parameter id
+		 * @param eligibilityValue the eligibility value
+		 */
+		public void setEligibility(int parameterId, double eligibilityValue){
+			this.eligibility[this.index.index(parameterId)] = eligibilityValue;
+		}
+
+		/**
+		 * Returns the value of a parameter when its trace started
+		 * @param parameterId the parameter id
+		 * @return the value of the parameter when its trace started
+		 */
+		public double initialWeight(int parameterId){
+			return this.initialWeight[this.index.index(parameterId)];
+		}
+
+		/**
+		 * Removes the trace of a parameter, moving the last trace into its position.
+		 * @param parameterId the parameter id, which must have a trace
+		 */
+		public void remove(int parameterId){
+			int p = this.index.index(parameterId);
+			int i = this.position[p] - 1;
+			this.size--;
+			int last = this.active[this.size];
+			this.active[i] = last;
+			this.position[last] = i + 1;
+			this.position[p] = 0;
+		}
+
+		/**
+		 * Removes all traces.
+		 */
+		public void clear(){
+			this.index.clear();
+			this.size = 0;
+		}
+
+	}
+
+
 	/**
 	 * An object for keeping track of the eligibility traces within an episode for each VFA weight
 	 * @author James MacGlashan
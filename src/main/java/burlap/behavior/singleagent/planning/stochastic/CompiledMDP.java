@@ -0,0 +1,455 @@
+package burlap.behavior.singleagent.planning.stochastic;
+
+import burlap.behavior.singleagent.options.Option;
+import burlap.behavior.singleagent.planning.stochastic.dpoperator.DPOperator;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.ActionType;
+import burlap.mdp.core.action.ActionUtils;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A compiled, index-based representation of a finite tabular MDP for use by {@link DynamicProgramming} planners. Each state is assigned
+ * an int id and the transition dynamics are stored in a compressed sparse row (CSR) layout: the applicable actions of state s are
+ * the rows <code>[actionStart(s), actionEnd(s))</code>, and the outcomes of row a are the entries <code>[transitionStart(a), transitionEnd(a))</code>
+ * of the parallel successor id and probability arrays. Each row also stores its expected immediate reward and the discount that is
+ * applied to the expected successor value, so that
+ * <p>
+ * Q(s, a) = reward(a) + discount(a) * sum_{s'} p(s' | s, a) V(s')
+ * <p>
+ * For regular actions the discount is the MDP discount factor; for {@link burlap.behavior.singleagent.options.Option}s, the transition probabilities
+ * are already discounted so the row discount is 1.
+ * <p>
+ * States are compiled from a collection of "expanded" states, which receive the ids 0 through {@link #numExpandedStates()}-1. Any successor state
+ * that is not in that collection (for example, terminal states at which a reachability analysis was pruned) is given a subsequent id but has no
+ * action rows and is never backed up; its value is whatever the value array holds for it. After compiling, Bellman backups are computed
+ * on primitive value arrays indexed by state id without any state hashing or object allocation. Use {@link #newQBuffers()} to get the scratch
+ * space that {@link #backup(int, double[], DPOperator, double[][])} needs; each thread performing backups should have its own.
+ * @author James MacGlashan
+ *
+ */
+public class CompiledMDP {
+
+	/**
+	 * The hashed state for each state id
+	 */
+	protected HashableState []										states;
+
+	/**
+	 * The id of each hashed state
+	 */
+	protected Map<HashableState, Integer>							stateIds;
+
+	/**
+	 * The number of states that were expanded (given action rows) when compiled. These are the states with ids 0 through numExpanded-1.
+	 */
+	protected int													numExpanded;
+
+	/**
+	 * Whether each state is a terminal state
+	 */
+	protected boolean []											terminal;
+
+	/**
+	 * The action rows of state s are in the range [actionOffsets[s], actionOffsets[s+1]).
+	 */
+	protected int []												actionOffsets;
+
+	/**
+	 * The action of each action row
+	 */
+	protected Action []												actions;
+
+	/**
+	 * The expected immediate reward of each action row
+	 */
+	protected double []												rewards;
+
+	/**
+	 * The discount applied to the expected successor value of each action row
+	 */
+	protected double []												discounts;
+
+	/**
+	 * The outcomes of action row a are in the range [transitionOffsets[a], transitionOffsets[a+1]).
+	 */
+	protected int []												transitionOffsets;
+
+	/**
+	 * The successor state id of each outcome
+	 */
+	protected int []												successors;
+
+	/**
+	 * The probability of each outcome
+	 */
+	protected double []												probabilities;
+
+	/**
+	 * The maximum number of action rows of any state
+	 */
+	protected int													maxActions;
+
+
+	/**
+	 * Compiles the transition dynamics of the given expanded states. The expanded states receive the ids 0 through states.size()-1 in the iteration
+	 * order of the collection.
+	 * @param states the states to expand; typically the reachable states found by a planner's reachability analysis
+	 * @param model the model from which transition dynamics are enumerated
+	 * @param actionTypes the action types from which the applicable actions of each state are generated
+	 * @param hashingFactory the hashing factory used to hash successor states
+	 * @param gamma the discount factor
+	 */
+	public CompiledMDP(Collection<HashableState> states, FullModel model, List<ActionType> actionTypes, HashableStateFactory hashingFactory, double gamma){
+
+		this.numExpanded = states.size();
+		this.stateIds = new HashMap<HashableState, Integer>(this.numExpanded * 2);
+		List<HashableState> stateList = new ArrayList<HashableState>(this.numExpanded);
+		for(HashableState sh : states){
+			this.stateIds.put(sh, stateList.size());
+			stateList.add(sh);
+		}
+
+		this.actionOffsets = new int[this.numExpanded + 1];
+		int rowCapacity = Math.max(16, this.numExpanded * 2);
+		this.actions = new Action[rowCapacity];
+		this.rewards = new double[rowCapacity];
+		this.discounts = new double[rowCapacity];
+		this.transitionOffsets = new int[rowCapacity + 1];
+		int transitionCapacity = rowCapacity * 2;
+		this.successors = new int[transitionCapacity];
+		this.probabilities = new double[transitionCapacity];
+
+		int nRows = 0;
+		int nTransitions = 0;
+		for(int s = 0; s < this.numExpanded; s++){
+
+			this.actionOffsets[s] = nRows;
+			HashableState sh = stateList.get(s);
+			if(model.terminal(sh.s())){
+				continue;
+			}
+
+			List<Action> gas = ActionUtils.allApplicableActionsForTypes(actionTypes, sh.s());
+			this.maxActions = Math.max(this.maxActions, gas.size());
+			for(Action ga : gas){
+
+				if(nRows == this.actions.length){
+					int ncap = this.actions.length * 2;
+					this.actions = Arrays.copyOf(this.actions, ncap);
+					this.rewards = Arrays.copyOf(this.rewards, ncap);
+					this.discounts = Arrays.copyOf(this.discounts, ncap);
+					this.transitionOffsets = Arrays.copyOf(this.transitionOffsets, ncap + 1);
+				}
+
+				this.actions[nRows] = ga;
+				this.transitionOffsets[nRows] = nTransitions;
+
+				List<TransitionProb> tps = model.transitions(sh.s(), ga);
+				double r = 0.;
+				if(ga instanceof Option){
+					//for options, expected reward is on state-action level and the probabilities are already discounted
+					r = tps.get(0).eo.r;
+					this.discounts[nRows] = 1.;
+				}
+				else{
+					this.discounts[nRows] = gamma;
+				}
+
+				for(TransitionProb tp : tps){
+
+					if(nTransitions == this.successors.length){
+						int ncap = this.successors.length * 2;
+						this.successors = Arrays.copyOf(this.successors, ncap);
+						this.probabilities = Arrays.copyOf(this.probabilities, ncap);
+					}
+
+					HashableState tsh = hashingFactory.hashState(tp.eo.op);
+					Integer tid = this.stateIds.get(tsh);
+					if(tid == null){
+						tid = stateList.size();
+						this.stateIds.put(tsh, tid);
+						stateList.add(tsh);
+					}
+
+					this.successors[nTransitions] = tid;
+					this.probabilities[nTransitions] = tp.p;
+					if(!(ga instanceof Option)){
+						r += tp.p * tp.eo.r;
+					}
+					nTransitions++;
+
+				}
+
+				this.rewards[nRows] = r;
+				nRows++;
+
+			}
+
+		}
+		this.actionOffsets[this.numExpanded] = nRows;
+		this.transitionOffsets[nRows] = nTransitions;
+
+		//trim to size
+		this.actions = Arrays.copyOf(this.actions, nRows);
+		this.rewards = Arrays.copyOf(this.rewards, nRows);
+		this.discounts = Arrays.copyOf(this.discounts, nRows);
+		this.transitionOffsets = Arrays.copyOf(this.transitionOffsets, nRows + 1);
+		this.successors = Arrays.copyOf(this.successors, nTransitions);
+		this.probabilities = Arrays.copyOf(this.probabilities, nTransitions);
+
+		this.states = stateList.toArray(new HashableState[stateList.size()]);
+		this.terminal = new boolean[this.states.length];
+		for(int s = 0; s < this.states.length; s++){
+			this.terminal[s] = model.terminal(this.states[s].s());
+		}
+
+	}
+
+
+	/**
+	 * Returns the total number of states, including successor states that were not expanded.
+	 * @return the total number of states
+	 */
+	public int numStates(){
+		return this.states.length;
+	}
+
+
+	/**
+	 * Returns the number of expanded states, which have the ids 0 through numExpandedStates()-1.
+	 * @return the number of expanded states
+	 */
+	public int numExpandedStates(){
+		return this.numExpanded;
+	}
+
+
+	/**
+	 * Returns the total number of action rows.
+	 * @return the total number of action rows
+	 */
+	public int numActionRows(){
+		return this.actions.length;
+	}
+
+
+	/**
+	 * Returns the total number of stored transition outcomes.
+	 * @return the total number of stored transition outcomes
+	 */
+	public int numTransitions(){
+		return this.successors.length;
+	}
+
+
+	/**
+	 * Returns the id of the given hashed state, or -1 if the state is not part of this compiled MDP.
+	 * @param sh the hashed state
+	 * @return the id of the state, or -1 if it is not part of this compiled MDP.
+	 */
+	public int stateId(HashableState sh){
+		Integer id = this.stateIds.get(sh);
+		if(id == null){
+			return -1;
+		}
+		return id;
+	}
+
+
+	/**
+	 * Returns the hashed state with the given id
+	 * @param id the state id
+	 * @return the hashed state with the given id
+	 */
+	public HashableState state(int id){
+		return this.states[id];
+	}
+
+
+	/**
+	 * Returns whether the state with the given id is a terminal state
+	 * @param id the state id
+	 * @return true if the state is terminal; false otherwise
+	 */
+	public boolean isTerminal(int id){
+		return this.terminal[id];
+	}
+
+
+	/**
+	 * Returns the first action row of the given state
+	 * @param s the state id
+	 * @return the first action row of the state
+	 */
+	public int actionStart(int s){
+		if(s >= this.numExpanded){
+			return this.actionOffsets[this.numExpanded];
+		}
+		return this.actionOffsets[s];
+	}
+
+
+	/**
+	 * Returns the action row after the last action row of the given state
+	 * @param s the state id
+	 * @return the exclusive end of the action rows of the state
+	 */
+	public int actionEnd(int s){
+		if(s >= this.numExpanded){
+			return this.actionOffsets[this.numExpanded];
+		}
+		return this.actionOffsets[s+1];
+	}
+
+
+	/**
+	 * Returns the action of the given action row
+	 * @param row the action row
+	 * @return the action of the action row
+	 */
+	public Action action(int row){
+		return this.actions[row];
+	}
+
+
+	/**
+	 * Returns the first transition outcome of the given action row
+	 * @param row the action row
+	 * @return the first transition outcome of the action row
+	 */
+	public int transitionStart(int row){
+		return this.transitionOffsets[row];
+	}
+
+
+	/**
+	 * Returns the transition outcome after the last transition outcome of the given action row
+	 * @param row the action row
+	 * @return the exclusive end of the transition outcomes of the action row
+	 */
+	public int transitionEnd(int row){
+		return this.transitionOffsets[row+1];
+	}
+
+
+	/**
+	 * Returns the successor state id of the given transition outcome
+	 * @param t the transition outcome
+	 * @return the successor state id
+	 */
+	public int successor(int t){
+		return this.successors[t];
+	}
+
+
+	/**
+	 * Returns the probability of the given transition outcome
+	 * @param t the transition outcome
+	 * @return the probability of the transition outcome
+	 */
+	public double probability(int t){
+		return this.probabilities[t];
+	}
+
+
+	/**
+	 * Creates a new array of value entries for every state, filled with the value of each state under the given value function
+	 * @param vf the value function from which to take the values
+	 * @return the value array, indexed by state id
+	 */
+	public double [] values(DynamicProgramming vf){
+		double [] v = new double[this.states.length];
+		for(int s = 0; s < v.length; s++){
+			v[s] = vf.value(this.states[s]);
+		}
+		return v;
+	}
+
+
+	/**
+	 * Returns new scratch space for {@link #backup(int, double[], DPOperator, double[][])}. The array at index k has length k,
+	 * for each k from 0 to the maximum number of actions of any state.
+	 * @return scratch Q-value buffers, indexed by their length.
+	 */
+	public double [][] newQBuffers(){
+		double [][] buffers = new double[this.maxActions+1][];
+		for(int i = 0; i < buffers.length; i++){
+			buffers[i] = new double[i];
+		}
+		return buffers;
+	}
+
+
+	/**
+	 * Computes the Q-value of the given action row
+	 * @param row the action row
+	 * @param v the value array, indexed by state id
+	 * @return the Q-value of the action row
+	 */
+	public double q(int row, double [] v){
+		double ev = 0.;
+		int end = this.transitionOffsets[row+1];
+		for(int t = this.transitionOffsets[row]; t < end; t++){
+			ev += this.probabilities[t] * v[this.successors[t]];
+		}
+		return this.rewards[row] + this.discounts[row] * ev;
+	}
+
+
+	/**
+	 * Computes the backed up value of the given state without storing it. Terminal states always back up to 0.
+	 * @param s the id of the state to back up; must be an expanded state
+	 * @param v the value array, indexed by state id
+	 * @param operator the operator that reduces the state's Q-values into its value
+	 * @param qBuffers the scratch space returned by {@link #newQBuffers()}
+	 * @return the backed up value of the state
+	 */
+	public double backup(int s, double [] v, DPOperator operator, double [][] qBuffers){
+		if(this.terminal[s]){
+			return 0.;
+		}
+		int start = this.actionOffsets[s];
+		int end = this.actionOffsets[s+1];
+		double [] qs = qBuffers[end - start];
+		for(int row = start; row < end; row++){
+			qs[row - start] = this.q(row, v);
+		}
+		return operator.apply(qs);
+	}
+
+
+	/**
+	 * Computes the fixed-policy backed up value of the given state without storing it. Terminal states always back up to 0.
+	 * @param s the id of the state to back up; must be an expanded state
+	 * @param v the value array, indexed by state id
+	 * @param rowPolicyProbs the probability of each action row under the policy being evaluated, indexed by action row
+	 * @return the backed up value of the state
+	 */
+	public double fixedPolicyBackup(int s, double [] v, double [] rowPolicyProbs){
+		if(this.terminal[s]){
+			return 0.;
+		}
+		double weightedQ = 0.;
+		int end = this.actionOffsets[s+1];
+		for(int row = this.actionOffsets[s]; row < end; row++){
+			double p = rowPolicyProbs[row];
+			if(p == 0.){
+				continue; //doesn't contribute
+			}
+			weightedQ += p * this.q(row, v);
+		}
+		return weightedQ;
+	}
+
+}
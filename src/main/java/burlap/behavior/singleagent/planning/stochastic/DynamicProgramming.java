@@ -46,6 +46,19 @@ public class DynamicProgramming extends MDPSolver implements ValueFunction, QPro
 
 
 	protected DPOperator operator = new BellmanOperator();
+
+
+	/**
+	 * Whether planning sweeps should be run on a {@link CompiledMDP} of the state space rather than by querying the model.
+	 */
+	protected boolean useCompiledModel = false;
+
+
+	/**
+	 * The compiled transition dynamics of the states in the value function. Lazily created when first needed and discarded
+	 * whenever the state space is changed.
+	 */
+	protected CompiledMDP compiledModel;
 	
 
 	
@@ -73,9 +86,22 @@ public class DynamicProgramming extends MDPSolver implements ValueFunction, QPro
 		return this.model;
 	}
 
+	@Override
+	public void setModel(SampleModel model) {
+		super.setModel(model);
+		this.compiledModel = null;
+	}
+
+	@Override
+	public void setGamma(double gamma) {
+		super.setGamma(gamma);
+		this.compiledModel = null;
+	}
+
 	@Override
 	public void resetSolver(){
 		this.valueFunction.clear();
+		this.compiledModel = null;
 	}
 	
 	/**
@@ -111,6 +137,53 @@ public class DynamicProgramming extends MDPSolver implements ValueFunction, QPro
 		this.operator = operator;
 	}
 
+	/**
+	 * Sets whether planning sweeps are run on a {@link CompiledMDP}: a one-time enumeration of the transition dynamics of the
+	 * state space into primitive arrays, after which every sweep backs up states on a primitive value array without querying the model,
+	 * hashing states, or allocating objects. This requires memory proportional to the number of stored transitions, and the model must be a
+	 * {@link FullModel}. If the model's dynamics change, the state space must be recomputed for the change to be reflected. The default is false.
+	 * @param toggle true to run sweeps on the compiled state space; false to query the model on each backup.
+	 */
+	public void toggleCompiledModel(boolean toggle){
+		this.useCompiledModel = toggle;
+	}
+
+
+	/**
+	 * Returns whether planning sweeps are run on a {@link CompiledMDP}
+	 * @return true if planning sweeps are run on a {@link CompiledMDP}; false otherwise.
+	 */
+	public boolean isUsingCompiledModel(){
+		return this.useCompiledModel;
+	}
+
+
+	/**
+	 * Returns the {@link CompiledMDP} of the states currently stored in the value function, compiling it first if it has not been
+	 * compiled since the state space last changed.
+	 * @return the {@link CompiledMDP} of the states in the value function.
+	 */
+	public CompiledMDP getCompiledModel(){
+		if(this.compiledModel == null){
+			this.compiledModel = new CompiledMDP(this.valueFunction.keySet(), (FullModel)this.model, this.actionTypes, this.hashingFactory, this.gamma);
+		}
+		return this.compiledModel;
+	}
+
+
+	/**
+	 * Stores the values of the expanded states of a {@link CompiledMDP} value array into the value function.
+	 * @param cmdp the compiled MDP that indexes the value array
+	 * @param v the value array, indexed by state id
+	 */
+	protected void storeCompiledValues(CompiledMDP cmdp, double [] v){
+		int n = cmdp.numExpandedStates();
+		for(int s = 0; s < n; s++){
+			this.valueFunction.put(cmdp.state(s), v[s]);
+		}
+	}
+
+
 	/**
 	 * Returns whether a value for the given state has been computed previously.
 	 * @param s the state to check
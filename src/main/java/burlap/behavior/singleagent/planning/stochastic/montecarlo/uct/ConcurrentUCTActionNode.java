@@ -0,0 +1,175 @@
+package burlap.behavior.singleagent.planning.stochastic.montecarlo.uct;
+
+import burlap.mdp.core.action.Action;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link UCTActionNode} whose statistics can be updated concurrently by multiple rollout threads, as is done by the tree parallel
+ * mode of {@link ParallelUCT}. The visit count and sum of returns are kept in atomic counters, and the node also counts the
+ * virtual losses of rollouts that have selected it but not yet backed up their return. Successor bookkeeping is synchronized on the node.
+ * <p>
+ * The inherited {@link #n} and {@link #sumReturn} fields are not updated while rollouts run; they are set from the atomic counters
+ * when {@link #publish()} is called, which {@link ParallelUCT} does once planning completes.
+ * @author James MacGlashan
+ *
+ */
+public class ConcurrentUCTActionNode extends UCTActionNode {
+
+	/**
+	 * The number of backed up returns
+	 */
+	protected final AtomicInteger		visits = new AtomicInteger();
+
+	/**
+	 * The raw long bits of the sum of backed up returns
+	 */
+	protected final AtomicLong			sumReturnBits = new AtomicLong(Double.doubleToRawLongBits(0.));
+
+	/**
+	 * The number of rollouts that have selected this node and not yet backed up their return
+	 */
+	protected final AtomicInteger		virtualLosses = new AtomicInteger();
+
+
+	/**
+	 * Generates a new action node for a given action. All statistics are initialized to 0.
+	 * @param a the action this node wraps.
+	 */
+	public ConcurrentUCTActionNode(Action a) {
+		super(a);
+	}
+
+
+	/**
+	 * Returns the number of backed up returns
+	 * @return the number of backed up returns
+	 */
+	public int visits(){
+		return this.visits.get();
+	}
+
+
+	/**
+	 * Returns the sum of backed up returns
+	 * @return the sum of backed up returns
+	 */
+	public double sumOfReturns(){
+		return Double.longBitsToDouble(this.sumReturnBits.get());
+	}
+
+
+	/**
+	 * Returns the number of rollouts that have selected this node and not yet backed up their return
+	 * @return the number of pending virtual losses
+	 */
+	public int virtualLosses(){
+		return this.virtualLosses.get();
+	}
+
+
+	/**
+	 * Marks that a rollout has selected this node and will back up its return later.
+	 */
+	public void addVirtualLoss(){
+		this.virtualLosses.incrementAndGet();
+	}
+
+
+	/**
+	 * Backs up the return of a rollout that previously called {@link #addVirtualLoss()} and removes its virtual loss.
+	 * @param sampledReturn the sample return observed
+	 */
+	public void completeVisit(double sampledReturn){
+		this.update(sampledReturn);
+		this.virtualLosses.decrementAndGet();
+	}
+
+
+	/**
+	 * Adds the statistics of another tree's node for the same action to this node's statistics.
+	 * @param n the number of visits to add
+	 * @param sumReturn the sum of returns to add
+	 */
+	public void merge(int n, double sumReturn){
+		this.addToSum(sumReturn);
+		this.visits.addAndGet(n);
+	}
+
+
+	/**
+	 * Sets the inherited {@link #n} and {@link #sumReturn} fields from the atomic counters.
+	 */
+	public void publish(){
+		this.n = this.visits.get();
+		this.sumReturn = this.sumOfReturns();
+	}
+
+
+	@Override
+	public double averageReturn() {
+		int n = this.visits.get();
+		if(n == 0){
+			return Double.NEGATIVE_INFINITY;
+		}
+		return this.sumOfReturns() / n;
+	}
+
+
+	@Override
+	public void update(double sampledReturn) {
+		this.addToSum(sampledReturn);
+		this.visits.incrementAndGet();
+	}
+
+
+	@Override
+	public synchronized void addSuccessor(UCTStateNode node) {
+		super.addSuccessor(node);
+	}
+
+
+	@Override
+	public synchronized boolean referencesSuccessor(UCTStateNode node) {
+		return super.referencesSuccessor(node);
+	}
+
+
+	@Override
+	public synchronized List<UCTStateNode> getAllSuccessors() {
+		return super.getAllSuccessors();
+	}
+
+
+	/**
+	 * Atomically adds a value to the sum of returns.
+	 * @param v the value to add
+	 */
+	protected void addToSum(double v){
+		while(true){
+			long cur = this.sumReturnBits.get();
+			long next = Double.doubleToRawLongBits(Double.longBitsToDouble(cur) + v);
+			if(this.sumReturnBits.compareAndSet(cur, next)){
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * A factory for generating ConcurrentUCTActionNode objects.
+	 * @author James MacGlashan
+	 *
+	 */
+	public static class ConcurrentUCTActionConstructor extends UCTActionConstructor{
+
+		@Override
+		public UCTActionNode generate(Action a) {
+			return new ConcurrentUCTActionNode(a);
+		}
+
+	}
+
+}
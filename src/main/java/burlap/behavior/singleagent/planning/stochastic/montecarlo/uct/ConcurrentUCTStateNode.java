@@ -0,0 +1,91 @@
+package burlap.behavior.singleagent.planning.stochastic.montecarlo.uct;
+
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCTActionNode.UCTActionConstructor;
+import burlap.mdp.core.action.ActionType;
+import burlap.statehashing.HashableState;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link UCTStateNode} whose visit count can be updated concurrently by multiple rollout threads, as is done by the tree parallel
+ * mode of {@link ParallelUCT}. The inherited {@link #n} field is only set from the atomic counter when {@link #publish()} is called.
+ * @author James MacGlashan
+ *
+ */
+public class ConcurrentUCTStateNode extends UCTStateNode {
+
+	/**
+	 * The number of times this node has been visited
+	 */
+	protected final AtomicInteger		visits = new AtomicInteger();
+
+
+	/**
+	 * Initializes the UCT state node.
+	 * @param s the state that this node wraps
+	 * @param d the depth of the node
+	 * @param actionTypes the possible OO-MDP actions that can be taken
+	 * @param constructor a {@link UCTActionNode} factory that can be used to create ActionNodes for each of the actions.
+	 */
+	public ConcurrentUCTStateNode(HashableState s, int d, List<ActionType> actionTypes, UCTActionConstructor constructor) {
+		super(s, d, actionTypes, constructor);
+	}
+
+
+	/**
+	 * Returns the number of times this node has been visited
+	 * @return the number of times this node has been visited
+	 */
+	public int visits(){
+		return this.visits.get();
+	}
+
+
+	/**
+	 * Atomically increments the visit count and returns the new count.
+	 * @return the new visit count
+	 */
+	public int incrementVisits(){
+		return this.visits.incrementAndGet();
+	}
+
+
+	/**
+	 * Atomically adds to the visit count.
+	 * @param n the number of visits to add
+	 */
+	public void addVisits(int n){
+		this.visits.addAndGet(n);
+	}
+
+
+	/**
+	 * Sets the inherited {@link #n} field from the atomic counter and publishes the statistics of all
+	 * {@link ConcurrentUCTActionNode} children.
+	 */
+	public void publish(){
+		this.n = this.visits.get();
+		for(UCTActionNode an : this.actionNodes){
+			if(an instanceof ConcurrentUCTActionNode){
+				((ConcurrentUCTActionNode)an).publish();
+			}
+		}
+	}
+
+
+	/**
+	 * A factory for generating ConcurrentUCTStateNode objects
+	 * @author James MacGlashan
+	 *
+	 */
+	public static class ConcurrentUCTStateConstructor extends UCTStateConstructor{
+
+		@Override
+		public UCTStateNode generate(HashableState s, int d, List<ActionType> actionTypes, UCTActionConstructor constructor) {
+			return new ConcurrentUCTStateNode(s, d, actionTypes, constructor);
+		}
+
+	}
+
+}
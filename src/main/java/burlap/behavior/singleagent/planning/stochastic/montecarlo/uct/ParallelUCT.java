@@ -0,0 +1,631 @@
+package burlap.behavior.singleagent.planning.stochastic.montecarlo.uct;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.singleagent.options.EnvironmentOptionOutcome;
+import burlap.behavior.singleagent.options.Option;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.ConcurrentUCTActionNode.ConcurrentUCTActionConstructor;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.ConcurrentUCTStateNode.ConcurrentUCTStateConstructor;
+import burlap.debugtools.DPrint;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.parallel.ParallelUtilities;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-threaded implementation of {@link UCT} that performs rollouts on multiple worker threads. Two forms of parallelism are supported,
+ * selected with {@link #setParallelMode(ParallelMode)}:
+ * <p>
+ * {@link ParallelMode#ROOT}: each worker builds its own independent UCT tree from the planning state with its own random generator.
+ * Once all workers finish, the visit counts and sum of returns of the root's action nodes are summed across the trees
+ * into the root of this planner. Workers never synchronize while planning, but the root is the only node of the resulting tree, so
+ * a {@link UCTTreeWalkPolicy} can only be used for the planning state.
+ * <p>
+ * {@link ParallelMode#TREE} (the default): all workers perform rollouts in a single shared tree made of {@link ConcurrentUCTStateNode}
+ * and {@link ConcurrentUCTActionNode} objects, whose statistics are atomic counters, and whose depth index is made of concurrent maps.
+ * To keep workers from all following the same path, a rollout adds a virtual loss to every action node it selects until it
+ * backs up its return: the upper confidence value of an action node is computed as if each of its pending rollouts
+ * had returned the negative of the virtual loss value (see {@link #setVirtualLoss(double)}). When planning completes, the atomic counters are published into the
+ * {@link UCTStateNode#n}, {@link UCTActionNode#n} and {@link UCTActionNode#sumReturn} fields so that the tree can be used like a
+ * {@link UCT} tree.
+ * <p>
+ * Planning stops once the maximum number of rollouts given to the constructor have been performed (-1 for no limit), once the time budget
+ * set with {@link #setPlanningTimeBudget(long)} has elapsed, or once a goal was found if {@link #useGoalConditionStopCriteria(burlap.mdp.auxiliary.stateconditiontest.StateConditionTest)}
+ * was used; whichever comes first. In root parallel mode, the rollouts are divided evenly between the trees.
+ * <p>
+ * Because rollouts are performed concurrently, several workers may call the {@link burlap.mdp.singleagent.model.SampleModel#sample(burlap.mdp.core.state.State, burlap.mdp.core.action.Action)}
+ * and {@link burlap.mdp.singleagent.model.SampleModel#terminal(burlap.mdp.core.state.State)} methods of the domain's model, the
+ * {@link burlap.mdp.core.action.ActionType}s of the domain, and {@link HashableStateFactory#hashState(burlap.mdp.core.state.State)} at the same time.
+ * Models whose sampling only reads shared data, like those built from a state model, reward function and terminal function that keep no caches,
+ * can be used as is; a model that caches or mutates state between calls, such as {@link burlap.behavior.singleagent.options.model.BFSMarkovOptionModel},
+ * cannot. When the model draws from {@link burlap.debugtools.RandomFactory}, workers share its {@link java.util.Random}, so the rollouts of
+ * different runs are not reproducible from a seed.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelUCT extends UCT {
+
+	/**
+	 * The kinds of parallelism supported by {@link ParallelUCT}.
+	 */
+	public enum ParallelMode{
+		/**
+		 * Each worker builds an independent tree whose root statistics are merged
+		 */
+		ROOT,
+
+		/**
+		 * All workers perform rollouts in a single shared tree with virtual loss
+		 */
+		TREE
+	}
+
+
+	/**
+	 * The kind of parallelism used
+	 */
+	protected ParallelMode											parallelMode = ParallelMode.TREE;
+
+	/**
+	 * The maximum wall clock time in milliseconds that planning may take; 0 or less for no limit.
+	 */
+	protected long													planningTimeBudget = 0;
+
+	/**
+	 * The value whose negative is assumed as the return of each pending rollout of an action node when selecting actions in tree parallel mode
+	 */
+	protected double												virtualLoss = 1.;
+
+	/**
+	 * The pool used to run the workers. Lazily created on the first planning call.
+	 */
+	protected LazyForkJoinPool										pool = new LazyForkJoinPool("ParallelUCT", 1);
+
+	/**
+	 * The System.nanoTime() at which the current planning call must stop, or Long.MAX_VALUE if there is no time budget.
+	 */
+	protected long													deadline;
+
+	/**
+	 * Whether a goal was found by any worker during the current planning call
+	 */
+	protected AtomicBoolean											goalReached = new AtomicBoolean();
+
+
+	/**
+	 * Initializes with a parallelism level equal to the number of available processors.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory
+	 * @param horizon the planning horizon
+	 * @param nRollouts the number of rollouts to perform; -1 for no limit
+	 * @param explorationBias the exploration bias constant (suggested &gt;2)
+	 */
+	public ParallelUCT(SADomain domain, double gamma, HashableStateFactory hashingFactory, int horizon, int nRollouts, int explorationBias){
+		this(domain, gamma, hashingFactory, horizon, nRollouts, explorationBias, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory
+	 * @param horizon the planning horizon
+	 * @param nRollouts the number of rollouts to perform; -1 for no limit
+	 * @param explorationBias the exploration bias constant (suggested &gt;2)
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelUCT(SADomain domain, double gamma, HashableStateFactory hashingFactory, int horizon, int nRollouts, int explorationBias, int parallelism){
+		super(domain, gamma, hashingFactory, horizon, nRollouts, explorationBias);
+		this.stateNodeConstructor = new ConcurrentUCTStateConstructor();
+		this.actionNodeConstructor = new ConcurrentUCTActionConstructor();
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the kind of parallelism used
+	 * @return the kind of parallelism used
+	 */
+	public ParallelMode getParallelMode() {
+		return parallelMode;
+	}
+
+
+	/**
+	 * Sets the kind of parallelism used. The default is {@link ParallelMode#TREE}.
+	 * @param parallelMode the kind of parallelism to use
+	 */
+	public void setParallelMode(ParallelMode parallelMode) {
+		this.parallelMode = parallelMode;
+	}
+
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of worker threads. In root parallel mode, this is also the number of trees.
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the maximum wall clock time in milliseconds that planning may take; 0 or less for no limit.
+	 * @return the planning time budget in milliseconds
+	 */
+	public long getPlanningTimeBudget() {
+		return planningTimeBudget;
+	}
+
+
+	/**
+	 * Sets the maximum wall clock time in milliseconds that planning may take. Planning stops at the first rollout that would begin after
+	 * the budget has elapsed, or earlier if the maximum number of rollouts has been performed. Use -1 as the number of rollouts
+	 * in the constructor to plan until the budget elapses.
+	 * @param planningTimeBudget the planning time budget in milliseconds; 0 or less for no limit.
+	 */
+	public void setPlanningTimeBudget(long planningTimeBudget) {
+		this.planningTimeBudget = planningTimeBudget;
+	}
+
+
+	/**
+	 * Returns the virtual loss value used in tree parallel mode
+	 * @return the virtual loss value
+	 */
+	public double getVirtualLoss() {
+		return virtualLoss;
+	}
+
+
+	/**
+	 * Sets the value whose negative is assumed as the return of each pending rollout of an action node when selecting actions in tree parallel mode.
+	 * Larger values spread concurrent rollouts more across the tree. The default is 1.
+	 * @param virtualLoss the virtual loss value
+	 */
+	public void setVirtualLoss(double virtualLoss) {
+		this.virtualLoss = virtualLoss;
+	}
+
+
+	@Override
+	public GreedyQPolicy planFromState(State initialState) {
+
+		if(this.maxRollOutsFromRoot == -1 && this.planningTimeBudget <= 0 && this.goalCondition == null){
+			throw new RuntimeException("ParallelUCT needs a rollout limit, a planning time budget, or a goal condition to know when to stop planning.");
+		}
+
+		this.goalReached.set(false);
+		this.deadline = Long.MAX_VALUE;
+		if(this.planningTimeBudget > 0){
+			this.deadline = System.nanoTime() + this.planningTimeBudget * 1000000L;
+		}
+
+		if(this.parallelMode == ParallelMode.ROOT){
+			this.planRootParallel(initialState);
+		}
+		else{
+			this.planTreeParallel(initialState);
+		}
+
+		this.foundGoal = this.goalReached.get();
+
+		DPrint.cl(debugCode, "\nRollouts: " + numRollOutsFromRoot + "; Best Action Expected Return: " + this.bestReturnAction(root).averageReturn());
+
+		return new GreedyQPolicy(this);
+	}
+
+
+	/**
+	 * Builds an independent tree on each worker and merges the statistics of their roots into the root of this planner.
+	 * @param initialState the state from which to plan
+	 */
+	protected void planRootParallel(State initialState){
+
+		HashableState shi = this.stateHash(initialState);
+
+		List<RootTree> trees = new ArrayList<RootTree>(this.getParallelism());
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(this.getParallelism());
+		for(int i = 0; i < this.getParallelism(); i++){
+			int rollouts = this.maxRollOutsFromRoot;
+			if(rollouts != -1){
+				rollouts = this.maxRollOutsFromRoot / this.getParallelism() + (i < this.maxRollOutsFromRoot % this.getParallelism() ? 1 : 0);
+				if(rollouts == 0){
+					continue;
+				}
+			}
+			final RootTree tree = new RootTree(rollouts, new Random(this.rand.nextLong()));
+			final State s = shi.s();
+			trees.add(tree);
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					tree.planFromState(s);
+					return null;
+				}
+			});
+		}
+
+		this.runAll(tasks);
+
+		root = stateNodeConstructor.generate(shi, 0, actionTypes, actionNodeConstructor);
+		ConcurrentUCTStateNode croot = (ConcurrentUCTStateNode)root;
+
+		treeSize = 0;
+		numVisits = 0;
+		numRollOutsFromRoot = 0;
+		uniqueStatesInTree = new HashSet<HashableState>();
+		for(RootTree tree : trees){
+			UCTStateNode troot = tree.getRoot();
+			croot.addVisits(troot.n);
+			for(int i = 0; i < croot.actionNodes.size(); i++){
+				UCTActionNode an = troot.actionNodes.get(i);
+				if(!an.action.equals(croot.actionNodes.get(i).action)){
+					throw new RuntimeException("Root trees of ParallelUCT have different actions for the planning state.");
+				}
+				((ConcurrentUCTActionNode)croot.actionNodes.get(i)).merge(an.n, an.sumReturn);
+			}
+			treeSize += tree.treeSize;
+			numVisits += tree.numVisits;
+			numRollOutsFromRoot += tree.numRollOutsFromRoot;
+			if(tree.foundGoal){
+				this.goalReached.set(true);
+			}
+		}
+		croot.publish();
+
+		stateDepthIndex = new ArrayList<Map<HashableState, UCTStateNode>>();
+		statesToStateNodes = new HashMap<HashableState, List<UCTStateNode>>();
+		Map <HashableState, UCTStateNode> depth0Map = new HashMap<HashableState, UCTStateNode>();
+		depth0Map.put(shi, root);
+		stateDepthIndex.add(depth0Map);
+
+	}
+
+
+	/**
+	 * Performs rollouts on all workers in a single shared tree and then publishes the tree's atomic statistics.
+	 * @param initialState the state from which to plan
+	 */
+	protected void planTreeParallel(State initialState){
+
+		HashableState shi = this.stateHash(initialState);
+		root = stateNodeConstructor.generate(shi, 0, actionTypes, actionNodeConstructor);
+		if(!(root instanceof ConcurrentUCTStateNode) || !(root.actionNodes.isEmpty() || root.actionNodes.get(0) instanceof ConcurrentUCTActionNode)){
+			throw new RuntimeException("Tree parallel ParallelUCT requires state and action node constructors that generate ConcurrentUCTStateNode and ConcurrentUCTActionNode objects.");
+		}
+
+		uniqueStatesInTree = Collections.newSetFromMap(new ConcurrentHashMap<HashableState, Boolean>());
+		stateDepthIndex = new CopyOnWriteArrayList<Map<HashableState, UCTStateNode>>();
+		statesToStateNodes = new ConcurrentHashMap<HashableState, List<UCTStateNode>>();
+		List<Map<HashableState, UCTStateNode>> depthMaps = new ArrayList<Map<HashableState, UCTStateNode>>(maxHorizon+1);
+		for(int i = 0; i <= maxHorizon; i++){
+			depthMaps.add(new ConcurrentHashMap<HashableState, UCTStateNode>());
+		}
+		stateDepthIndex.addAll(depthMaps);
+		stateDepthIndex.get(0).put(shi, root);
+
+		final AtomicInteger rolloutsClaimed = new AtomicInteger();
+		final AtomicInteger rolloutsCompleted = new AtomicInteger();
+		final AtomicInteger visits = new AtomicInteger();
+		final AtomicInteger nodesAdded = new AtomicInteger();
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(this.getParallelism());
+		for(int i = 0; i < this.getParallelism(); i++){
+			final RolloutContext ctx = new RolloutContext(new Random(this.rand.nextLong()), visits, nodesAdded);
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					while(!stopParallelPlanning()){
+						if(maxRollOutsFromRoot != -1 && rolloutsClaimed.incrementAndGet() > maxRollOutsFromRoot){
+							break;
+						}
+						ctx.foundGoalOnRollout = false;
+						concurrentTreeRollOut((ConcurrentUCTStateNode)root, 0, maxHorizon, ctx);
+						rolloutsCompleted.incrementAndGet();
+					}
+					return null;
+				}
+			});
+		}
+
+		this.runAll(tasks);
+
+		numRollOutsFromRoot = rolloutsCompleted.get();
+		numVisits = visits.get();
+		treeSize = 1 + nodesAdded.get();
+
+		for(Map<HashableState, UCTStateNode> depthMap : stateDepthIndex){
+			for(UCTStateNode snode : depthMap.values()){
+				((ConcurrentUCTStateNode)snode).publish();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Returns true if the workers should stop starting new rollouts because the time budget elapsed or a goal was found.
+	 * The rollout limit is checked separately.
+	 * @return true if workers should stop; false otherwise.
+	 */
+	protected boolean stopParallelPlanning(){
+		if(this.goalReached.get()){
+			return true;
+		}
+		return this.deadline != Long.MAX_VALUE && System.nanoTime() - this.deadline >= 0;
+	}
+
+
+	/**
+	 * Performs a rollout in the shared tree from the given node. This is the concurrent counterpart of {@link #treeRollOut(UCTStateNode, int, int)}:
+	 * selected action nodes carry a virtual loss until their return is backed up, and new nodes are connected to the tree with
+	 * an atomic put so that a node generated concurrently by another worker is reused instead.
+	 * @param node the node from which to rollout
+	 * @param depth the depth of the node
+	 * @param childrenLeftToAdd the number of new subsequent nodes that can be connected to the tree
+	 * @param ctx the rollout state of the calling worker
+	 * @return the sample return from rolling out from this node
+	 */
+	protected double concurrentTreeRollOut(ConcurrentUCTStateNode node, int depth, int childrenLeftToAdd, RolloutContext ctx){
+
+		ctx.visits.incrementAndGet();
+
+		if(depth == maxHorizon){
+			return 0.;
+		}
+
+		if(model.terminal(node.state.s())){
+			if(goalCondition != null && goalCondition.satisfies(node.state.s())){
+				this.goalReached.set(true);
+				ctx.foundGoalOnRollout = true;
+			}
+			return 0.;
+		}
+
+		ConcurrentUCTActionNode anode = this.selectConcurrentActionNode(node, ctx.rand);
+
+		if(anode == null){
+			//no actions can be performed in this state
+			return 0.;
+		}
+
+		node.incrementVisits();
+		anode.addVirtualLoss();
+
+		//sample the action
+		EnvironmentOutcome eo = model.sample(node.state.s(), anode.action);
+		HashableState shprime = this.stateHash(eo.op);
+		double r = eo.r;
+		int depthChange = 1;
+		if(anode.action instanceof Option){
+			depthChange = ((EnvironmentOptionOutcome)eo).numSteps();
+		}
+
+		ConcurrentUCTStateNode snprime = (ConcurrentUCTStateNode)this.queryTreeIndex(shprime, depth+depthChange);
+
+		double sampledReturn;
+
+		boolean shouldConnectNode = false;
+		double futureReturn;
+		if(snprime != null){
+
+			//then this state already exists in the tree
+
+			if(!anode.referencesSuccessor(snprime)){
+				//then this successor has not been generated by this state-action pair before and should be indexed
+				anode.addSuccessor(snprime);
+			}
+
+			futureReturn = this.concurrentTreeRollOut(snprime, depth + depthChange, childrenLeftToAdd, ctx);
+			sampledReturn = r + Math.pow(gamma, depthChange) * futureReturn;
+
+		}
+		else{
+
+			//this state is not in the tree at this depth so create it
+			snprime = (ConcurrentUCTStateNode)stateNodeConstructor.generate(shprime, depth+1, actionTypes, actionNodeConstructor);
+
+			//store it in the tree depending on how many new nodes have already been stored in this roll out
+			if(childrenLeftToAdd > 0){
+				shouldConnectNode = true;
+			}
+
+			//and do an exploratory sample from it
+			futureReturn = this.concurrentTreeRollOut(snprime, depth + depthChange, childrenLeftToAdd-1, ctx);
+			sampledReturn = r + gamma * futureReturn;
+
+		}
+
+		anode.completeVisit(sampledReturn);
+
+		if(shouldConnectNode || ctx.foundGoalOnRollout){
+			UCTStateNode connected = this.addNodeToConcurrentIndexTree(snprime, ctx);
+			anode.addSuccessor(connected);
+			uniqueStatesInTree.add(connected.state);
+		}
+
+		return sampledReturn;
+	}
+
+
+	/**
+	 * Selects which action to take in the shared tree. Unexplored actions, which have neither backed up returns nor pending rollouts, are selected first.
+	 * Otherwise, the action with the highest upper confidence Q-value is selected, where each pending rollout counts as a visit that
+	 * returned the negative of the virtual loss value. Ties are broken randomly.
+	 * @param snode the node from which to select an action.
+	 * @param rand the random generator of the calling worker
+	 * @return the {@link ConcurrentUCTActionNode} to be taken.
+	 */
+	protected ConcurrentUCTActionNode selectConcurrentActionNode(ConcurrentUCTStateNode snode, Random rand){
+
+		List <UCTActionNode> candidates = new ArrayList<UCTActionNode>();
+
+		boolean untriedNodes = false;
+		double maxUCTQ = Double.NEGATIVE_INFINITY;
+		int ns = Math.max(1, snode.visits());
+
+		for(UCTActionNode an : snode.actionNodes){
+
+			ConcurrentUCTActionNode can = (ConcurrentUCTActionNode)an;
+			int pending = can.virtualLosses();
+			int na = can.visits() + pending;
+
+			if(!untriedNodes){
+				if(na == 0){
+					untriedNodes = true;
+					candidates.clear();
+					candidates.add(an);
+				}
+				else{
+					double UCTQ = (can.sumOfReturns() - pending * this.virtualLoss) / na + this.explorationQBoost(Math.max(ns, na), na);
+					if(UCTQ > maxUCTQ){
+						candidates.clear();
+						candidates.add(an);
+						maxUCTQ = UCTQ;
+					}
+					else if(UCTQ == maxUCTQ){
+						candidates.add(an);
+					}
+				}
+			}
+			else if(na == 0){
+				candidates.add(an);
+			}
+
+		}
+
+		if(candidates.isEmpty()){
+			return null;
+		}
+
+		//only one thing to do
+		if(candidates.size() == 1){
+			return (ConcurrentUCTActionNode)candidates.get(0);
+		}
+
+		return (ConcurrentUCTActionNode)candidates.get(rand.nextInt(candidates.size()));
+
+	}
+
+
+	/**
+	 * Connects a {@link UCTStateNode} to the shared tree unless another worker already connected a node for the same state and depth,
+	 * in which case that node is returned instead.
+	 * @param snode the {@link UCTStateNode} to add
+	 * @param ctx the rollout state of the calling worker
+	 * @return the node of the state and depth in the tree
+	 */
+	protected UCTStateNode addNodeToConcurrentIndexTree(UCTStateNode snode, RolloutContext ctx){
+
+		if(stateDepthIndex.size() <= snode.depth){
+			synchronized(this){
+				while(stateDepthIndex.size() <= snode.depth){
+					stateDepthIndex.add(new ConcurrentHashMap<HashableState, UCTStateNode>());
+				}
+			}
+		}
+
+		UCTStateNode existing = ((ConcurrentMap<HashableState, UCTStateNode>)stateDepthIndex.get(snode.depth)).putIfAbsent(snode.state, snode);
+		if(existing != null){
+			return existing;
+		}
+
+		List <UCTStateNode> depthNodes = statesToStateNodes.get(snode.state);
+		if(depthNodes == null){
+			depthNodes = new CopyOnWriteArrayList<UCTStateNode>();
+			List<UCTStateNode> stored = ((ConcurrentMap<HashableState, List<UCTStateNode>>)statesToStateNodes).putIfAbsent(snode.state, depthNodes);
+			if(stored != null){
+				depthNodes = stored;
+			}
+		}
+		depthNodes.add(snode);
+
+		ctx.nodesAdded.incrementAndGet();
+
+		return snode;
+	}
+
+
+	/**
+	 * Runs the given tasks on the pool and waits for all of them to complete, rethrowing the first failure.
+	 * @param tasks the tasks to run
+	 */
+	protected void runAll(List<Callable<Object>> tasks){
+		ParallelUtilities.invokeAll(this.pool.get(), tasks, "ParallelUCT workers");
+	}
+
+
+	/**
+	 * The rollout state of a tree parallel worker.
+	 */
+	protected static class RolloutContext{
+
+		protected final Random rand;
+		protected final AtomicInteger visits;
+		protected final AtomicInteger nodesAdded;
+		protected boolean foundGoalOnRollout;
+
+		public RolloutContext(Random rand, AtomicInteger visits, AtomicInteger nodesAdded) {
+			this.rand = rand;
+			this.visits = visits;
+			this.nodesAdded = nodesAdded;
+		}
+	}
+
+
+	/**
+	 * A single threaded {@link UCT} tree of a root parallel worker. It uses the planner's model, hashing factory, exploration bias and
+	 * goal condition, has its own random generator, and also stops when the planner's time budget elapses or another tree found a goal.
+	 */
+	protected class RootTree extends UCT{
+
+		public RootTree(int nRollouts, Random rand) {
+			super(ParallelUCT.this.domain, ParallelUCT.this.gamma, ParallelUCT.this.hashingFactory, ParallelUCT.this.maxHorizon, nRollouts, 0);
+			this.setModel(ParallelUCT.this.model);
+			this.explorationBias = ParallelUCT.this.explorationBias;
+			this.goalCondition = ParallelUCT.this.goalCondition;
+			this.debugCode = ParallelUCT.this.debugCode;
+			this.rand = rand;
+		}
+
+		@Override
+		public boolean stopPlanning() {
+			if(super.stopPlanning()){
+				if(this.foundGoal){
+					ParallelUCT.this.goalReached.set(true);
+				}
+				return true;
+			}
+			return stopParallelPlanning();
+		}
+	}
+
+}
@@ -3,7 +3,10 @@ package burlap.behavior.singleagent.planning.stochastic.policyiteration;
 import burlap.behavior.policy.EnumerablePolicy;
 import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.policy.Policy;
+import burlap.behavior.policy.PolicyUtils;
+import burlap.behavior.policy.support.ActionProb;
 import burlap.behavior.singleagent.planning.Planner;
+import burlap.behavior.singleagent.planning.stochastic.CompiledMDP;
 import burlap.behavior.singleagent.planning.stochastic.DynamicProgramming;
 import burlap.debugtools.DPrint;
 import burlap.mdp.core.action.Action;
@@ -206,6 +209,10 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 		if(!this.foundReachableStates){
 			throw new RuntimeException("Cannot run VI until the reachable states have been found. Use planFromState method at least once or instead.");
 		}
+
+		if(this.useCompiledModel){
+			return this.evaluatePolicyCompiled();
+		}
 		
 		double maxChangeInPolicyEvaluation = Double.NEGATIVE_INFINITY;
 		
@@ -238,6 +245,61 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 		return maxChangeInPolicyEvaluation;
 		
 	}
+
+
+	/**
+	 * Computes the value function under following the current evaluative policy on the {@link CompiledMDP} of the reachable states.
+	 * The policy's action distribution is queried only once per state, after which the evaluation sweeps run on primitive arrays.
+	 * @return the maximum single iteration change in the value function
+	 */
+	protected double evaluatePolicyCompiled(){
+
+		CompiledMDP cmdp = this.getCompiledModel();
+		int n = cmdp.numExpandedStates();
+
+		double [] rowPolicyProbs = new double[cmdp.numActionRows()];
+		for(int s = 0; s < n; s++){
+			if(cmdp.isTerminal(s)){
+				continue;
+			}
+			List<ActionProb> policyDistribution = this.evaluativePolicy.policyDistribution(cmdp.state(s).s());
+			for(int row = cmdp.actionStart(s); row < cmdp.actionEnd(s); row++){
+				rowPolicyProbs[row] = PolicyUtils.actionProbGivenDistribution(cmdp.action(row), policyDistribution);
+			}
+		}
+
+		double [] v = cmdp.values(this);
+		double maxChangeInPolicyEvaluation = Double.NEGATIVE_INFINITY;
+
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+
+			double delta = 0.;
+			for(int s = 0; s < n; s++){
+
+				double q = cmdp.fixedPolicyBackup(s, v, rowPolicyProbs);
+				delta = Math.max(Math.abs(q - v[s]), delta);
+				v[s] = q;
+
+			}
+
+			maxChangeInPolicyEvaluation = Math.max(delta, maxChangeInPolicyEvaluation);
+
+			if(delta < this.maxEvalDelta){
+				i++;
+				break; //approximated well enough; stop iterating
+			}
+
+		}
+
+		this.storeCompiledValues(cmdp, v);
+
+		DPrint.cl(this.debugCode, "Iterations in inner VI for policy eval: " + i);
+		this.totalValueIterations += i;
+
+		return maxChangeInPolicyEvaluation;
+
+	}
 	
 	
 	
@@ -302,6 +364,7 @@ public class PolicyIteration extends DynamicProgramming implements Planner {
 		DPrint.cl(this.debugCode, "Finished reachability analysis; # states: " + valueFunction.size());
 		
 		this.foundReachableStates = true;
+		this.compiledModel = null;
 		
 		return true;
 		
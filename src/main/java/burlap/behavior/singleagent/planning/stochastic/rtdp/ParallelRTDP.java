@@ -0,0 +1,563 @@
+package burlap.behavior.singleagent.planning.stochastic.rtdp;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.valuefunction.ValueFunction;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.parallel.ParallelUtilities;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * An asynchronous multi-threaded implementation of {@link RTDP}. Worker threads run rollouts from the initial state at the same time,
+ * sharing a {@link ConcurrentHashMap} value function, and claim rollouts from the shared rollout budget until it is exhausted or planning
+ * converges. Convergence is global: the consecutive rollouts whose value function change is smaller than the max delta are counted across all
+ * workers, and every worker stops once there have been {@link #setMinNumRolloutsWithSmallValueChange(int)} of them.
+ * <p>
+ * Unlike {@link RTDP}, each rollout step computes the Q-values of the current state once, uses them for the Bellman update, and then
+ * follows the greedy action with respect to them (breaking ties randomly), rather than enumerating the transitions of every action again
+ * to select the action. The rollout policy set with {@link #setRollOutPolicy(burlap.behavior.policy.Policy)} is therefore not used.
+ * <p>
+ * By default, states are also labeled as solved as in Labeled RTDP [1]: after each rollout, the visited states are checked in reverse order,
+ * and a state is labeled solved when every state reachable from it under the greedy policy has a Bellman residual smaller than the max delta.
+ * Every greedy action of a state is followed when checking, so the {@link GreedyQPolicy} returned by planning, which breaks ties randomly, stays
+ * among solved states.
+ * Rollouts end when they reach a solved state, so workers stop re-exploring converged regions, and planning ends once the initial state is solved.
+ * Because the value function is shared, another worker may change the value of a state while it is being checked, so a check that finds its
+ * states solved verifies them again while holding the write lock of a read-write lock, whose read lock workers hold while storing values, and
+ * values of solved states are never stored. Labels therefore only change the values that workers store once they are consistent.
+ * Labeling can be disabled with {@link #toggleLabeling(boolean)}.
+ * <p>
+ * Because rollouts run concurrently, workers call {@link FullModel#transitions(State, burlap.mdp.core.action.Action)} (for Bellman backups),
+ * {@link FullModel#sample(State, burlap.mdp.core.action.Action)} (to choose the next state of a rollout) and {@link FullModel#terminal(State)}
+ * of the domain's model, {@link HashableStateFactory#hashState(State)}, and the value function initialization for states that have no
+ * value yet, all from multiple threads at once. Each of these must therefore only read shared data or synchronize its own caches;
+ * {@link burlap.behavior.singleagent.options.model.BFSMarkovOptionModel}, for instance, fills unsynchronized maps and cannot be used.
+ * <p>
+ * 1. Bonet, Blai, and Hector Geffner. "Labeled RTDP: Improving the convergence of real-time dynamic programming." ICAPS. Vol. 3. 2003.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelRTDP extends RTDP {
+
+
+	/**
+	 * Whether to label solved states.
+	 */
+	protected boolean												useLabeling = true;
+
+	/**
+	 * The states labeled as solved.
+	 */
+	protected Set<HashableState>									solvedStates = Collections.newSetFromMap(new ConcurrentHashMap<HashableState, Boolean>());
+
+	/**
+	 * The number of Bellman updates performed by the workers during the current planning call.
+	 */
+	protected AtomicInteger											workerBellmanUpdates = new AtomicInteger();
+
+	/**
+	 * Workers hold the read lock while storing values and the write lock while labeling states as solved.
+	 */
+	protected ReentrantReadWriteLock								labelLock = new ReentrantReadWriteLock();
+
+	/**
+	 * The number of rollouts performed by the last planning call.
+	 */
+	protected int													numRolloutsPerformed = 0;
+
+	/**
+	 * The pool used to run the workers. Lazily created on the first planning call.
+	 */
+	protected LazyForkJoinPool										pool = new LazyForkJoinPool("ParallelRTDP", 1);
+
+
+	/**
+	 * Initializes with a parallelism level equal to the number of available processors. The value function will be initialized to vInit everywhere.
+	 * vInit should be set to something optimistic like VMax to ensure convergence.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param vInit the value to the the value function for all states will be initialized
+	 * @param numRollouts the maximum number of rollouts to perform across all workers when planning is started.
+	 * @param maxDelta when the maximum change in the value function from a rollout is smaller than this value, planning will terminate. It is also the Bellman residual below which states are labeled solved.
+	 * @param maxDepth the maximum depth/length of a rollout before it is terminated.
+	 */
+	public ParallelRTDP(SADomain domain, double gamma, HashableStateFactory hashingFactory, double vInit, int numRollouts, double maxDelta, int maxDepth){
+		this(domain, gamma, hashingFactory, vInit, numRollouts, maxDelta, maxDepth, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes. The value function will be initialized to vInit everywhere.
+	 * vInit should be set to something optimistic like VMax to ensure convergence.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param vInit the value to the the value function for all states will be initialized
+	 * @param numRollouts the maximum number of rollouts to perform across all workers when planning is started.
+	 * @param maxDelta when the maximum change in the value function from a rollout is smaller than this value, planning will terminate. It is also the Bellman residual below which states are labeled solved.
+	 * @param maxDepth the maximum depth/length of a rollout before it is terminated.
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelRTDP(SADomain domain, double gamma, HashableStateFactory hashingFactory, double vInit, int numRollouts, double maxDelta, int maxDepth, int parallelism){
+		super(domain, gamma, hashingFactory, vInit, numRollouts, maxDelta, maxDepth);
+		this.valueFunction = new ConcurrentHashMap<HashableState, Double>();
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Initializes. vInit should be optimistic, such as an admissible heuristic, to ensure convergence.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param vInit the object which defines how the value function will be initialized for each individual state.
+	 * @param numRollouts the maximum number of rollouts to perform across all workers when planning is started.
+	 * @param maxDelta when the maximum change in the value function from a rollout is smaller than this value, planning will terminate. It is also the Bellman residual below which states are labeled solved.
+	 * @param maxDepth the maximum depth/length of a rollout before it is terminated.
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelRTDP(SADomain domain, double gamma, HashableStateFactory hashingFactory, ValueFunction vInit, int numRollouts, double maxDelta, int maxDepth, int parallelism){
+		super(domain, gamma, hashingFactory, vInit, numRollouts, maxDelta, maxDepth);
+		this.valueFunction = new ConcurrentHashMap<HashableState, Double>();
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of worker threads.
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Sets whether states are labeled as solved. Disabling labeling also clears the current labels.
+	 * @param useLabeling whether to label solved states.
+	 */
+	public void toggleLabeling(boolean useLabeling){
+		this.useLabeling = useLabeling;
+		if(!useLabeling){
+			this.solvedStates.clear();
+		}
+	}
+
+
+	/**
+	 * Returns whether states are labeled as solved.
+	 * @return whether states are labeled as solved.
+	 */
+	public boolean isUsingLabeling(){
+		return this.useLabeling;
+	}
+
+
+	/**
+	 * Returns whether the given state has been labeled as solved.
+	 * @param s the state to test
+	 * @return true if the state has been labeled as solved; false otherwise.
+	 */
+	public boolean isSolved(State s){
+		return this.solvedStates.contains(this.stateHash(s));
+	}
+
+
+	/**
+	 * Returns the number of states labeled as solved.
+	 * @return the number of states labeled as solved.
+	 */
+	public int getNumberOfSolvedStates(){
+		return this.solvedStates.size();
+	}
+
+
+	/**
+	 * Returns the number of rollouts performed by all workers during the last planning call.
+	 * @return the number of rollouts performed during the last planning call.
+	 */
+	public int getNumberOfRolloutsPerformed(){
+		return this.numRolloutsPerformed;
+	}
+
+
+	@Override
+	public void resetSolver() {
+		super.resetSolver();
+		this.solvedStates.clear();
+	}
+
+
+	@Override
+	public void loadValueTable(String path) {
+		super.loadValueTable(path);
+		this.valueFunction = new ConcurrentHashMap<HashableState, Double>(this.valueFunction);
+		this.solvedStates.clear();
+	}
+
+
+	/**
+	 * Plans from the input state with all worker threads and then returns a {@link burlap.behavior.policy.GreedyQPolicy} that greedily
+	 * selects the action with the highest Q-value and breaks ties uniformly randomly.
+	 * @param initialState the initial state of the planning problem
+	 * @return a {@link burlap.behavior.policy.GreedyQPolicy}.
+	 */
+	@Override
+	public GreedyQPolicy planFromState(State initialState) {
+
+		final HashableState shi = this.stateHash(initialState);
+		final AtomicInteger rolloutsClaimed = new AtomicInteger();
+		final AtomicInteger rolloutsCompleted = new AtomicInteger();
+		final AtomicInteger consecutiveSmallDeltas = new AtomicInteger();
+		final AtomicBoolean converged = new AtomicBoolean(false);
+		this.workerBellmanUpdates.set(0);
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(this.getParallelism());
+		for(int i = 0; i < this.getParallelism(); i++){
+			final Random rand = new Random(RandomFactory.getMapped(0).nextLong());
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					List<HashableState> visited = new ArrayList<HashableState>();
+					while(!converged.get() && !(useLabeling && solvedStates.contains(shi))){
+						if(rolloutsClaimed.incrementAndGet() > numRollouts){
+							break;
+						}
+						double delta = rollout(shi, rand, visited);
+						rolloutsCompleted.incrementAndGet();
+						if(delta < maxDelta){
+							if(consecutiveSmallDeltas.incrementAndGet() >= minNumRolloutsWithSmallValueChange){
+								converged.set(true);
+							}
+						}
+						else{
+							consecutiveSmallDeltas.set(0);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		ParallelUtilities.invokeAll(this.pool.get(), tasks, "ParallelRTDP workers");
+
+		this.numRolloutsPerformed = rolloutsCompleted.get();
+		this.numberOfBellmanUpdates += this.workerBellmanUpdates.get();
+
+		DPrint.cl(debugCode, "Rollouts: " + this.numRolloutsPerformed + "; Solved states: " + this.solvedStates.size() + "; Initial state solved: " + this.solvedStates.contains(shi));
+
+		return new GreedyQPolicy(this);
+
+	}
+
+
+	/**
+	 * Performs one rollout from the given state, updating the value of each visited state (or, in batch mode, each visited state in reverse after the rollout),
+	 * and then checks whether the visited states are solved if labeling is enabled.
+	 * @param shi the hashed initial state of the rollout
+	 * @param rand the random number generator used to break ties between greedy actions
+	 * @param visited a list in which to record the visited states; its contents are replaced
+	 * @return the maximum change in the value function from the rollout
+	 */
+	protected double rollout(HashableState shi, Random rand, List<HashableState> visited){
+
+		visited.clear();
+		HashableState sh = shi;
+		double delta = 0.;
+		int nSteps = 0;
+		while(nSteps < this.maxDepth){
+
+			if(this.useLabeling && this.solvedStates.contains(sh)){
+				break;
+			}
+			if(this.model.terminal(sh.s())){
+				if(this.useLabeling){
+					this.solvedStates.add(sh);
+				}
+				break;
+			}
+
+			visited.add(sh);
+
+			GreedyBackup backup = this.greedyBackup(sh, rand);
+			if(!this.useBatch){
+				delta = Math.max(this.storeValue(sh, backup.value), delta);
+			}
+
+			sh = this.stateHash(this.model.sample(sh.s(), backup.action).op);
+			nSteps++;
+		}
+
+		if(this.useBatch){
+			for(int i = visited.size() - 1; i >= 0; i--){
+				HashableState vsh = visited.get(i);
+				delta = Math.max(this.storeValue(vsh, this.greedyBackup(vsh, rand).value), delta);
+			}
+		}
+
+		if(this.useLabeling){
+			for(int i = visited.size() - 1; i >= 0; i--){
+				if(!this.checkSolved(visited.get(i), rand)){
+					break;
+				}
+			}
+		}
+
+		return delta;
+
+	}
+
+
+	/**
+	 * Checks whether a state is solved: whether every state reachable from it under any greedy action has a Bellman residual
+	 * smaller than the max delta. If so, and they are still so when verified again while no values are being stored, all of those states are labeled
+	 * solved; otherwise, the Bellman updates of the explored states are performed in reverse order of exploration.
+	 * @param sh the hashed state to check
+	 * @param rand the random number generator used to break ties between greedy actions
+	 * @return true if the state is solved; false otherwise.
+	 */
+	protected boolean checkSolved(HashableState sh, Random rand){
+
+		if(this.solvedStates.contains(sh)){
+			return true;
+		}
+
+		boolean solved = true;
+		List<HashableState> open = new ArrayList<HashableState>();
+		List<HashableState> closed = new ArrayList<HashableState>();
+		Set<HashableState> seen = new HashSet<HashableState>();
+		open.add(sh);
+		seen.add(sh);
+
+		while(!open.isEmpty()){
+
+			HashableState cur = open.remove(open.size() - 1);
+			closed.add(cur);
+
+			if(this.model.terminal(cur.s())){
+				continue;
+			}
+
+			GreedyBackup backup = this.greedyBackup(cur, rand);
+			if(Math.abs(backup.value - this.value(cur)) >= this.maxDelta){
+				solved = false;
+				continue;
+			}
+
+			for(Action ga : backup.greedyActions()){
+				List<TransitionProb> tps = ((FullModel)this.model).transitions(cur.s(), ga);
+				for(TransitionProb tp : tps){
+					if(tp.p == 0.){
+						continue;
+					}
+					HashableState next = this.stateHash(tp.eo.op);
+					if(!this.solvedStates.contains(next) && seen.add(next)){
+						open.add(next);
+					}
+				}
+			}
+
+		}
+
+		if(solved){
+			this.labelLock.writeLock().lock();
+			try{
+				solved = this.isClosedAndConsistent(closed, seen, rand);
+				if(solved){
+					this.solvedStates.addAll(closed);
+				}
+			}finally{
+				this.labelLock.writeLock().unlock();
+			}
+		}
+
+		if(!solved){
+			for(int i = closed.size() - 1; i >= 0; i--){
+				HashableState cur = closed.get(i);
+				if(this.model.terminal(cur.s())){
+					continue;
+				}
+				this.storeValue(cur, this.greedyBackup(cur, rand).value);
+			}
+		}
+
+		return solved;
+
+	}
+
+
+	/**
+	 * Returns whether every non-terminal state in a set of states explored by {@link #checkSolved(HashableState, Random)} has a Bellman residual smaller
+	 * than the max delta, and whether the successors of all of its greedy actions are in the set or solved.
+	 * @param closed the explored states
+	 * @param explored the explored states, for membership tests
+	 * @param rand the random number generator used to break ties between greedy actions
+	 * @return true if the states are consistent and closed under the greedy policy; false otherwise.
+	 */
+	protected boolean isClosedAndConsistent(List<HashableState> closed, Set<HashableState> explored, Random rand){
+		for(HashableState cur : closed){
+			if(this.model.terminal(cur.s())){
+				continue;
+			}
+			GreedyBackup backup = this.greedyBackup(cur, rand);
+			if(Math.abs(backup.value - this.value(cur)) >= this.maxDelta){
+				return false;
+			}
+			for(Action ga : backup.greedyActions()){
+				List<TransitionProb> tps = ((FullModel)this.model).transitions(cur.s(), ga);
+				for(TransitionProb tp : tps){
+					if(tp.p == 0.){
+						continue;
+					}
+					HashableState next = this.stateHash(tp.eo.op);
+					if(!explored.contains(next) && !this.solvedStates.contains(next)){
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Stores the backed up value of a state and counts the Bellman update, unless the state has been labeled solved.
+	 * @param sh the hashed state
+	 * @param nv the new value of the state
+	 * @return the absolute change in the value of the state
+	 */
+	protected double storeValue(HashableState sh, double nv){
+		this.labelLock.readLock().lock();
+		try{
+			if(this.useLabeling && this.solvedStates.contains(sh)){
+				return 0.;
+			}
+			Double prev = this.valueFunction.put(sh, nv);
+			this.workerBellmanUpdates.incrementAndGet();
+			return Math.abs(nv - (prev == null ? this.getDefaultValue(sh.s()) : prev));
+		}finally{
+			this.labelLock.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Computes the Q-values of a non-terminal state once, and returns the backed up value of the state under this planner's
+	 * {@link burlap.behavior.singleagent.planning.stochastic.dpoperator.DPOperator} along with a greedy action, with ties broken randomly.
+	 * The value function is not modified.
+	 * @param sh the hashed state to back up
+	 * @param rand the random number generator used to break ties
+	 * @return the backed up value and a greedy action
+	 */
+	protected GreedyBackup greedyBackup(HashableState sh, Random rand){
+
+		List<Action> gas = this.applicableActions(sh.s());
+		if(gas.isEmpty()){
+			throw new RuntimeException("ParallelRTDP cannot back up a non-terminal state with no applicable actions.");
+		}
+		double [] qs = new double[gas.size()];
+		int best = 0;
+		int nTies = 1;
+		for(int i = 0; i < qs.length; i++){
+			qs[i] = this.computeQ(sh.s(), gas.get(i));
+			if(i > 0){
+				if(qs[i] > qs[best]){
+					best = i;
+					nTies = 1;
+				}
+				else if(qs[i] == qs[best]){
+					//reservoir sample uniformly among the tied actions
+					nTies++;
+					if(rand.nextInt(nTies) == 0){
+						best = i;
+					}
+				}
+			}
+		}
+
+		return new GreedyBackup(gas, qs, best, this.operator.apply(qs));
+	}
+
+
+	/**
+	 * The result of a greedy backup of a state.
+	 */
+	protected static class GreedyBackup {
+
+		/**
+		 * The applicable actions of the state
+		 */
+		public final List<Action> actions;
+
+		/**
+		 * The Q-values of the applicable actions
+		 */
+		public final double [] qs;
+
+		/**
+		 * A greedy action, chosen randomly among ties
+		 */
+		public final Action action;
+
+		/**
+		 * The backed up value of the state
+		 */
+		public final double value;
+
+		public GreedyBackup(List<Action> actions, double [] qs, int best, double value) {
+			this.actions = actions;
+			this.qs = qs;
+			this.action = actions.get(best);
+			this.value = value;
+		}
+
+		/**
+		 * Returns all the actions whose Q-value is the maximum.
+		 * @return the greedy actions
+		 */
+		public List<Action> greedyActions(){
+			double max = Double.NEGATIVE_INFINITY;
+			for(double q : this.qs){
+				max = Math.max(max, q);
+			}
+			List<Action> greedy = new ArrayList<Action>(1);
+			for(int i = 0; i < this.qs.length; i++){
+				if(this.qs[i] == max){
+					greedy.add(this.actions.get(i));
+				}
+			}
+			return greedy;
+		}
+	}
+
+}
@@ -0,0 +1,435 @@
+package burlap.behavior.singleagent.planning.stochastic.sparsesampling;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.singleagent.options.EnvironmentOptionOutcome;
+import burlap.behavior.singleagent.options.Option;
+import burlap.behavior.valuefunction.QValue;
+import burlap.datastructures.ConcurrentClockCache;
+import burlap.debugtools.DPrint;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-threaded implementation of {@link SparseSampling}. The Q-value estimate of each action of a node is computed as a separate task
+ * on a {@link ForkJoinPool}, so the per-action subtrees of the tree are built in parallel. Nodes below {@link #getForkHeight()} are
+ * computed sequentially by the task that reaches them, because their subtrees are too small to be worth scheduling.
+ * <p>
+ * Instead of the unbounded node map of {@link SparseSampling}, state nodes are memoized in a {@link ConcurrentClockCache} transposition table
+ * keyed by state and height whose capacity bounds the number of remembered nodes; the least recently used nodes are evicted (using the CLOCK
+ * approximation) once it is full. An evicted node is recomputed if it is needed again, so the capacity trades memory for computation,
+ * and the table may be kept across planning calls without growing without limit.
+ * <p>
+ * Each node's value is computed exactly once while it is in the table: the first task to need the value computes it, and any other task that
+ * needs it at the same time waits for that computation (as a {@link ForkJoinPool.ManagedBlocker}, so the pool can compensate for the
+ * waiting thread) rather than repeating it. Because a node's value only depends on nodes of smaller height, waiting cannot deadlock.
+ * <p>
+ * The domain's model, the hashing factory, and the leaf {@link burlap.behavior.valuefunction.ValueFunction} are used concurrently, so they must be thread-safe.
+ * The Q-value query methods are not thread-safe themselves; planning is parallelized within a single {@link #planFromState(State)} call.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelSparseSampling extends SparseSampling {
+
+	/**
+	 * The pool used to run the workers. Lazily created on the first planning call.
+	 */
+	protected LazyForkJoinPool									pool = new LazyForkJoinPool("ParallelSparseSampling", 1);
+
+	/**
+	 * The tree nodes indexed by state and height
+	 */
+	protected ConcurrentClockCache<HashedHeightState, ParallelStateNode>	transpositionTable;
+
+	/**
+	 * The minimum height of nodes whose action Q-values are estimated as separate tasks
+	 */
+	protected int												forkHeight = 2;
+
+	/**
+	 * The total number of pseudo-Bellman updates
+	 */
+	protected AtomicInteger										valueEstimates = new AtomicInteger();
+
+
+	/**
+	 * Initializes with a parallelism level equal to the number of available processors.
+	 * @param domain the planning domain
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory for matching generated states with their state nodes.
+	 * @param h the height of the tree
+	 * @param c the number of transition dynamics samples used. If set to -1, then the full transition dynamics are used.
+	 * @param maxCachedNodes the capacity of the transposition table
+	 */
+	public ParallelSparseSampling(SADomain domain, double gamma, HashableStateFactory hashingFactory, int h, int c, int maxCachedNodes){
+		this(domain, gamma, hashingFactory, h, c, maxCachedNodes, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the planning domain
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factory for matching generated states with their state nodes.
+	 * @param h the height of the tree
+	 * @param c the number of transition dynamics samples used. If set to -1, then the full transition dynamics are used.
+	 * @param maxCachedNodes the capacity of the transposition table
+	 * @param parallelism the number of worker threads
+	 */
+	public ParallelSparseSampling(SADomain domain, double gamma, HashableStateFactory hashingFactory, int h, int c, int maxCachedNodes, int parallelism){
+		super(domain, gamma, hashingFactory, h, c);
+		this.transpositionTable = new ConcurrentClockCache<HashedHeightState, ParallelStateNode>(maxCachedNodes);
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return the number of worker threads.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of worker threads.
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the minimum height of nodes whose action Q-values are estimated as separate tasks.
+	 * @return the minimum height of nodes whose action Q-values are estimated as separate tasks.
+	 */
+	public int getForkHeight() {
+		return forkHeight;
+	}
+
+
+	/**
+	 * Sets the minimum height of nodes whose action Q-values are estimated as separate tasks. Nodes below this height are computed
+	 * sequentially. Leaf nodes (height 0) are never forked. The default is 2.
+	 * @param forkHeight the minimum height of nodes whose action Q-values are estimated as separate tasks; must be at least 1.
+	 */
+	public void setForkHeight(int forkHeight) {
+		if(forkHeight < 1){
+			throw new RuntimeException("Fork height of ParallelSparseSampling must be at least 1; was " + forkHeight);
+		}
+		this.forkHeight = forkHeight;
+	}
+
+
+	/**
+	 * Returns the capacity of the transposition table.
+	 * @return the maximum number of state nodes remembered.
+	 */
+	public int getMaxCachedNodes(){
+		return this.transpositionTable.capacity();
+	}
+
+
+	/**
+	 * Returns the number of state nodes evicted from the transposition table since it was last cleared.
+	 * @return the number of evicted state nodes.
+	 */
+	public long getNumberOfEvictedNodes(){
+		return this.transpositionTable.evictions();
+	}
+
+
+	@Override
+	public void setForgetPreviousPlanResults(boolean forgetPreviousPlanResults) {
+		super.setForgetPreviousPlanResults(forgetPreviousPlanResults);
+		if(this.forgetPreviousPlanResults){
+			this.transpositionTable.clear();
+		}
+	}
+
+
+	@Override
+	public int getNumberOfValueEsitmates() {
+		return this.valueEstimates.get();
+	}
+
+
+	/**
+	 * Returns the number of state nodes currently in the transposition table plus the number of root states planned for.
+	 * @return the number of remembered state nodes.
+	 */
+	@Override
+	public int getNumberOfStateNodesCreated() {
+		return this.transpositionTable.size() + this.rootLevelQValues.size();
+	}
+
+
+	@Override
+	public GreedyQPolicy planFromState(State initialState) {
+
+		if(this.forgetPreviousPlanResults){
+			this.rootLevelQValues.clear();
+		}
+
+		HashableState sh = this.hashingFactory.hashState(initialState);
+		if(this.rootLevelQValues.containsKey(sh)){
+			return new GreedyQPolicy(this); //already planned for this state
+		}
+
+		DPrint.cl(this.debugCode, "Beginning Planning.");
+		int oldUpdates = this.valueEstimates.get();
+
+		final ParallelStateNode sn = this.getParallelStateNode(initialState, this.h);
+		List<QValue> qs = this.pool.get().invoke(new RecursiveTask<List<QValue>>() {
+			@Override
+			protected List<QValue> compute() {
+				return sn.estimateQs();
+			}
+		});
+		this.rootLevelQValues.put(sh, qs);
+		this.numUpdates = this.valueEstimates.get();
+
+		DPrint.cl(this.debugCode, "Finished Planning with " + (this.numUpdates - oldUpdates) + " value esitmates; for a cumulative total of: " + this.numUpdates);
+
+		if(this.forgetPreviousPlanResults){
+			this.transpositionTable.clear();
+		}
+
+		return new GreedyQPolicy(this);
+	}
+
+
+	@Override
+	public void resetSolver() {
+		super.resetSolver();
+		this.transpositionTable.clear();
+		this.valueEstimates.set(0);
+	}
+
+
+	/**
+	 * Either returns, or creates, indexes, and returns, the state node for the given state at the given height in the tree
+	 * @param s the state
+	 * @param height the height (distance from leaf node) of the node.
+	 * @return the state node for the given state at the given height in the tree
+	 */
+	protected ParallelStateNode getParallelStateNode(State s, int height){
+		HashableState sh = this.hashingFactory.hashState(s);
+		HashedHeightState hhs = new HashedHeightState(sh, height);
+		ParallelStateNode sn = this.transpositionTable.get(hhs);
+		if(sn == null){
+			sn = new ParallelStateNode(sh, height);
+			ParallelStateNode prev = this.transpositionTable.putIfAbsent(hhs, sn);
+			if(prev != null){
+				sn = prev;
+			}
+		}
+		return sn;
+	}
+
+
+	@Override
+	protected StateNode getStateNode(State s, int height) {
+		return this.getParallelStateNode(s, height);
+	}
+
+
+	/**
+	 * A {@link StateNode} whose value is computed once by the first thread that needs it, and whose action Q-values are estimated
+	 * as parallel tasks.
+	 * @author James MacGlashan
+	 *
+	 */
+	public class ParallelStateNode extends StateNode{
+
+		/**
+		 * Whether a thread has taken on computing this node's value
+		 */
+		protected final AtomicBoolean		claimed = new AtomicBoolean();
+
+		/**
+		 * Released once this node's value is computed
+		 */
+		protected final CountDownLatch		computed = new CountDownLatch(1);
+
+
+		/**
+		 * Creates a node for the given hased state at the given height
+		 * @param sh the hashed state
+		 * @param height the height of the node
+		 */
+		public ParallelStateNode(HashableState sh, int height) {
+			super(sh, height);
+		}
+
+
+		@Override
+		public List<QValue> estimateQs() {
+
+			if(this.height <= 0 || this.height < ParallelSparseSampling.this.forkHeight || !ForkJoinTask.inForkJoinPool()){
+				return super.estimateQs();
+			}
+
+			List<Action> gas = ParallelSparseSampling.this.applicableActions(this.sh.s());
+			List<RecursiveTask<Double>> tasks = new ArrayList<RecursiveTask<Double>>(gas.size());
+			for(final Action ga : gas){
+				tasks.add(new RecursiveTask<Double>() {
+					@Override
+					protected Double compute() {
+						if(!ParallelSparseSampling.this.computeExactValueFunction){
+							return sampledQEstimate(ga);
+						}
+						return exactQValue(ga);
+					}
+				});
+			}
+			ForkJoinTask.invokeAll(tasks);
+
+			List<QValue> qs = new ArrayList<QValue>(gas.size());
+			for(int i = 0; i < gas.size(); i++){
+				qs.add(new QValue(this.sh.s(), gas.get(i), tasks.get(i).join()));
+			}
+
+			return qs;
+		}
+
+
+		@Override
+		protected double sampledQEstimate(Action ga) {
+
+			double sum = 0.;
+
+			//generate C samples
+			int c = ParallelSparseSampling.this.getCAtHeight(this.height);
+			for(int i = 0; i < c; i++){
+
+				//execute
+				EnvironmentOutcome eo = model.sample(sh.s(), ga);
+				State ns = eo.op;
+
+				//manage option stepsize modifications
+				int k = 1;
+				if(eo instanceof EnvironmentOptionOutcome){
+					k = ((EnvironmentOptionOutcome)eo).numSteps();
+				}
+
+				//get reward; our rf will automatically do cumumative discounted if it's an option
+				double r = eo.r;
+
+				ParallelStateNode nsn = ParallelSparseSampling.this.getParallelStateNode(ns, this.height-k);
+
+				sum += r + Math.pow(ParallelSparseSampling.this.gamma, k)*nsn.estimateV();
+			}
+			sum /= (double)c;
+
+			return sum;
+		}
+
+
+		@Override
+		protected double exactQValue(Action ga) {
+
+			if(ga instanceof Option){
+				throw new RuntimeException("Sparse Sampling Planner with Full Bellman updates turned on cannot work with options because it needs factored access to the depth for each option transition. Use the standard sampling mode instead.");
+			}
+
+			double sum = 0.;
+			List<TransitionProb> tps = ((FullModel)model).transitions(sh.s(), ga);
+			for(TransitionProb tp : tps){
+				double r = tp.eo.r;
+				ParallelStateNode nsn = ParallelSparseSampling.this.getParallelStateNode(tp.eo.op, this.height-1);
+				sum += tp.p * (r + ParallelSparseSampling.this.gamma * nsn.estimateV());
+			}
+
+			return sum;
+		}
+
+
+		@Override
+		public double estimateV() {
+
+			if(this.computed.getCount() == 0){
+				return this.v;
+			}
+
+			if(this.claimed.compareAndSet(false, true)){
+				try{
+					this.v = this.computeV();
+					this.closed = true;
+				}finally{
+					this.computed.countDown();
+				}
+				return this.v;
+			}
+
+			this.awaitComputed();
+			if(!this.closed){
+				throw new RuntimeException("The thread computing the value of a sparse sampling node failed.");
+			}
+			return this.v;
+		}
+
+
+		/**
+		 * Computes the value of this node.
+		 * @return the value of this node
+		 */
+		protected double computeV(){
+
+			if(ParallelSparseSampling.this.model.terminal(sh.s())){
+				return 0.;
+			}
+
+			List<QValue> Qs = this.estimateQs();
+			double [] qs = new double[Qs.size()];
+			for(int i = 0; i < Qs.size(); i++){
+				qs[i] = Qs.get(i).q;
+			}
+			ParallelSparseSampling.this.valueEstimates.incrementAndGet();
+			return operator.apply(qs);
+		}
+
+
+		/**
+		 * Blocks until the thread that claimed this node has computed its value, letting the pool compensate for the blocked worker.
+		 */
+		protected void awaitComputed(){
+			try{
+				ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+					@Override
+					public boolean block() throws InterruptedException {
+						computed.await();
+						return true;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						return computed.getCount() == 0;
+					}
+				});
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for a sparse sampling node to be computed.", e);
+			}
+		}
+
+	}
+
+}
@@ -406,7 +406,7 @@ public class SparseSampling extends MDPSolver implements QProvider, Planner {
 		}
 		
 		//convert height from bottom to depth from root
-		int d = this.h = height;
+		int d = this.h - height;
 		int vc = (int) (this.c * Math.pow(this.gamma, 2*d));
 		if(vc == 0){
 			vc = 1;
@@ -0,0 +1,342 @@
+package burlap.behavior.singleagent.planning.stochastic.valueiteration;
+
+import burlap.behavior.singleagent.planning.stochastic.CompiledMDP;
+import burlap.debugtools.DPrint;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.singleagent.SADomain;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * A synchronous (Jacobi-style) parallel implementation of value iteration. Like {@link ValueIteration}, the state space is first
+ * found by a reachability analysis from the planning source state. Each VI iteration then partitions the reachable states across the
+ * worker threads of a {@link ForkJoinPool}. Each worker computes the Bellman backups of its states using only the values of the previous
+ * sweep and writes them into its range of a pre-sized array, along with the maximum change of its states. After all workers finish, the
+ * array is written back into the value function on the calling thread and the workers' maximum changes are merged to test for convergence.
+ * The workers only read the value function, which is never modified while they run.
+ * <p>
+ * Because every backup in a sweep uses the previous sweep's values (rather than the in-place values that the asynchronous {@link ValueIteration}
+ * uses), more sweeps may be needed to converge, but the converged value function is the same fixed point and each sweep is spread across all
+ * processors.
+ * <p>
+ * Because backups are computed concurrently, the following must be safe to call from multiple threads at once: the
+ * {@link burlap.mdp.singleagent.model.FullModel#transitions(burlap.mdp.core.state.State, Action)} and
+ * {@link burlap.mdp.singleagent.model.FullModel#terminal(burlap.mdp.core.state.State)} methods of the domain's model (and so its reward function and
+ * terminal function), {@link HashableStateFactory#hashState(burlap.mdp.core.state.State)}, and the value function initialization. Models
+ * that cache results in unsynchronized maps do not meet this requirement: {@link burlap.behavior.singleagent.options.model.BFSMarkovOptionModel}
+ * does not, and a {@link burlap.mdp.singleagent.model.DelegatedModel} only does if all of its delegates do.
+ * <p>
+ * If {@link #toggleCompiledModel(boolean)} is enabled, sweeps are run on the {@link CompiledMDP} of the reachable states with double-buffered
+ * primitive value arrays, and the value function is only updated once VI terminates.
+ * <p>
+ * This implementation is compatible with options, provided the model of the options meets the requirement above.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelValueIteration extends ValueIteration {
+
+
+	/**
+	 * The maximum number of states a single fork-join task will back up before it is split into smaller tasks.
+	 */
+	protected int													statesPerTask = 1024;
+
+	/**
+	 * The fork-join pool used to run sweeps. Lazily created on the first sweep.
+	 */
+	protected LazyForkJoinPool										pool = new LazyForkJoinPool("ParallelValueIteration", 1);
+
+
+	/**
+	 * Initializes with a parallelism level equal to the number of available processors.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param maxDelta when the maximum change in the value function is smaller than this value, VI will terminate.
+	 * @param maxIterations when the number of VI iterations exceeds this value, VI will terminate.
+	 */
+	public ParallelValueIteration(SADomain domain, double gamma, HashableStateFactory hashingFactory, double maxDelta, int maxIterations){
+		this(domain, gamma, hashingFactory, maxDelta, maxIterations, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the domain in which to plan
+	 * @param gamma the discount factor
+	 * @param hashingFactory the state hashing factor to use
+	 * @param maxDelta when the maximum change in the value function is smaller than this value, VI will terminate.
+	 * @param maxIterations when the number of VI iterations exceeds this value, VI will terminate.
+	 * @param parallelism the number of worker threads used for each sweep
+	 */
+	public ParallelValueIteration(SADomain domain, double gamma, HashableStateFactory hashingFactory, double maxDelta, int maxIterations, int parallelism){
+		super(domain, gamma, hashingFactory, maxDelta, maxIterations);
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the number of worker threads used for each sweep.
+	 * @return the number of worker threads used for each sweep.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of worker threads used for each sweep.
+	 * @param parallelism the number of worker threads used for each sweep; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the maximum number of states a single fork-join task will back up before it is split into smaller tasks.
+	 * @return the maximum number of states a single fork-join task will back up before it is split.
+	 */
+	public int getStatesPerTask() {
+		return statesPerTask;
+	}
+
+
+	/**
+	 * Sets the maximum number of states a single fork-join task will back up before it is split into smaller tasks.
+	 * Smaller values balance load better across workers when backup costs vary; larger values reduce the task overhead.
+	 * The default is 1024.
+	 * @param statesPerTask the maximum number of states a single fork-join task will back up before it is split; must be at least 1.
+	 */
+	public void setStatesPerTask(int statesPerTask) {
+		if(statesPerTask < 1){
+			throw new RuntimeException("States per task of ParallelValueIteration must be at least 1; was " + statesPerTask);
+		}
+		this.statesPerTask = statesPerTask;
+	}
+
+
+	/**
+	 * Runs synchronous parallel VI until the specified termination conditions are met. In general, this method should only be called indirectly through the {@link #planFromState(burlap.mdp.core.state.State)} method.
+	 * The {@link #performReachabilityFrom(burlap.mdp.core.state.State)} must have been performed at least once
+	 * in the past or a runtime exception will be thrown.
+	 */
+	@Override
+	public void runVI(){
+
+		if(!this.foundReachableStates){
+			throw new RuntimeException("Cannot run VI until the reachable states have been found. Use the planFromState or performReachabilityFrom method at least once before calling runVI.");
+		}
+
+		if(this.useCompiledModel){
+			this.runCompiledVI();
+			return;
+		}
+
+		HashableState [] states = this.valueFunction.keySet().toArray(new HashableState[this.valueFunction.size()]);
+		double [] nextValues = new double[states.length];
+
+		ForkJoinPool pool = this.getPool();
+
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+
+			double delta = pool.invoke(new SweepTask(states, nextValues, 0, states.length));
+
+			for(int j = 0; j < states.length; j++){
+				this.valueFunction.put(states[j], nextValues[j]);
+			}
+
+			if(delta < this.maxDelta){
+				break; //approximated well enough; stop iterating
+			}
+
+		}
+
+		DPrint.cl(this.debugCode, "Passes: " + i);
+
+		this.hasRunVI = true;
+
+	}
+
+
+	/**
+	 * Runs synchronous parallel VI on the {@link CompiledMDP} of the reachable states until the specified termination conditions are met.
+	 * Each sweep reads the values of the previous sweep from one primitive array and writes the backed up values into the other.
+	 */
+	@Override
+	protected void runCompiledVI(){
+
+		CompiledMDP cmdp = this.getCompiledModel();
+		int n = cmdp.numExpandedStates();
+		double [] v = cmdp.values(this);
+		double [] nextValues = v.clone(); //entries of unexpanded states are never written, so they must start equal
+
+		ForkJoinPool pool = this.getPool();
+
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+
+			double delta = pool.invoke(new CompiledSweepTask(cmdp, v, nextValues, 0, n));
+
+			double [] tmp = v;
+			v = nextValues;
+			nextValues = tmp;
+
+			if(delta < this.maxDelta){
+				break; //approximated well enough; stop iterating
+			}
+
+		}
+
+		this.storeCompiledValues(cmdp, v);
+
+		DPrint.cl(this.debugCode, "Passes: " + i);
+
+		this.hasRunVI = true;
+
+	}
+
+
+	/**
+	 * Computes the Bellman backup of the given hashed state using the current value function without storing the result.
+	 * @param sh the hashed state to back up
+	 * @return the backed up value of the state
+	 */
+	protected double computeBellmanBackup(HashableState sh){
+
+		if(this.model.terminal(sh.s())){
+			return 0.;
+		}
+
+		List<Action> gas = this.applicableActions(sh.s());
+		double [] qs = new double[gas.size()];
+		int i = 0;
+		for(Action ga : gas){
+			qs[i] = this.computeQ(sh.s(), ga);
+			i++;
+		}
+
+		return this.operator.apply(qs);
+	}
+
+
+	/**
+	 * Returns the fork-join pool to use, creating it if it does not exist yet.
+	 * @return the fork-join pool to use
+	 */
+	protected ForkJoinPool getPool(){
+		return this.pool.get();
+	}
+
+
+	/**
+	 * A fork-join task that computes the Bellman backups of a contiguous range of states into a buffer and returns the maximum change
+	 * in value over that range.
+	 */
+	protected class SweepTask extends RecursiveTask<Double> {
+
+		protected HashableState [] states;
+		protected double [] nextValues;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes.
+		 * @param states the states being swept
+		 * @param nextValues the buffer to write backed up values into; index aligned with states
+		 * @param start the first index (inclusive) of the range of states for this task
+		 * @param end the last index (exclusive) of the range of states for this task
+		 */
+		public SweepTask(HashableState [] states, double [] nextValues, int start, int end) {
+			this.states = states;
+			this.nextValues = nextValues;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Double compute() {
+
+			if(end - start > ParallelValueIteration.this.statesPerTask){
+				int mid = (start + end) >>> 1;
+				SweepTask left = new SweepTask(states, nextValues, start, mid);
+				SweepTask right = new SweepTask(states, nextValues, mid, end);
+				left.fork();
+				double rightDelta = right.compute();
+				return Math.max(left.join(), rightDelta);
+			}
+
+			double delta = 0.;
+			for(int i = start; i < end; i++){
+				HashableState sh = states[i];
+				double v = ParallelValueIteration.this.value(sh);
+				double nv = ParallelValueIteration.this.computeBellmanBackup(sh);
+				nextValues[i] = nv;
+				delta = Math.max(Math.abs(nv - v), delta);
+			}
+
+			return delta;
+		}
+	}
+
+
+	/**
+	 * A fork-join task that computes the Bellman backups of a contiguous range of {@link CompiledMDP} state ids into a buffer and returns
+	 * the maximum change in value over that range.
+	 */
+	protected class CompiledSweepTask extends RecursiveTask<Double> {
+
+		protected CompiledMDP cmdp;
+		protected double [] v;
+		protected double [] nextValues;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes.
+		 * @param cmdp the compiled MDP being swept
+		 * @param v the values of the previous sweep, indexed by state id
+		 * @param nextValues the buffer to write backed up values into, indexed by state id
+		 * @param start the first state id (inclusive) for this task
+		 * @param end the last state id (exclusive) for this task
+		 */
+		public CompiledSweepTask(CompiledMDP cmdp, double [] v, double [] nextValues, int start, int end) {
+			this.cmdp = cmdp;
+			this.v = v;
+			this.nextValues = nextValues;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Double compute() {
+
+			if(end - start > ParallelValueIteration.this.statesPerTask){
+				int mid = (start + end) >>> 1;
+				CompiledSweepTask left = new CompiledSweepTask(cmdp, v, nextValues, start, mid);
+				CompiledSweepTask right = new CompiledSweepTask(cmdp, v, nextValues, mid, end);
+				left.fork();
+				double rightDelta = right.compute();
+				return Math.max(left.join(), rightDelta);
+			}
+
+			double [][] qBuffers = cmdp.newQBuffers();
+			double delta = 0.;
+			for(int s = start; s < end; s++){
+				double nv = cmdp.backup(s, v, ParallelValueIteration.this.operator, qBuffers);
+				nextValues[s] = nv;
+				delta = Math.max(Math.abs(nv - v[s]), delta);
+			}
+
+			return delta;
+		}
+	}
+
+}
@@ -1,5 +1,6 @@
 package burlap.behavior.singleagent.planning.stochastic.valueiteration;
 
+import burlap.behavior.singleagent.planning.stochastic.CompiledMDP;
 import burlap.datastructures.HashIndexedHeap;
 import burlap.debugtools.DPrint;
 import burlap.mdp.core.action.Action;
@@ -64,6 +65,18 @@ public class PrioritizedSweeping extends ValueIteration{
 		
 		DPrint.cl(this.debugCode, "Beginning Planning.");
 		
+		CompiledMDP cmdp = null;
+		double [] v = null;
+		double [][] qBuffers = null;
+		if(this.useCompiledModel){
+			cmdp = this.getCompiledModel();
+			v = cmdp.values(this);
+			qBuffers = cmdp.newQBuffers();
+			for(BPTRNode node : this.priorityNodes){
+				node.compiledId = cmdp.stateId(node.sh);
+			}
+		}
+		
 		double lastDelta = Double.POSITIVE_INFINITY;
 		int numBackups = 0;
 		while(lastDelta > this.maxDelta && (numBackups < this.maxBackups || this.maxBackups == -1)){
@@ -71,8 +84,17 @@ public class PrioritizedSweeping extends ValueIteration{
 			BPTRNode node = this.priorityNodes.poll();
 			lastDelta = node.priority;
 			
-			double oldV = this.value(node.sh);
-			double newV = this.performBellmanUpdateOn(node.sh);
+			double oldV;
+			double newV;
+			if(cmdp != null && node.compiledId != -1){
+				oldV = v[node.compiledId];
+				newV = cmdp.backup(node.compiledId, v, this.operator, qBuffers);
+				v[node.compiledId] = newV;
+			}
+			else{
+				oldV = this.value(node.sh);
+				newV = this.performBellmanUpdateOn(node.sh);
+			}
 			double delta = Math.abs(newV-oldV);
 			
 			//update this nodes priority
@@ -90,6 +112,10 @@ public class PrioritizedSweeping extends ValueIteration{
 			
 		}
 		
+		if(cmdp != null){
+			this.storeCompiledValues(cmdp, v);
+		}
+		
 		DPrint.cl(this.debugCode, "Finished planning with " + numBackups + " Bellman backups");
 		
 	}
@@ -151,6 +177,7 @@ public class PrioritizedSweeping extends ValueIteration{
 		
 		this.foundReachableStates = true;
 		this.hasRunVI = false;
+		this.compiledModel = null;
 		
 		return true;
 		
@@ -190,6 +217,11 @@ public class PrioritizedSweeping extends ValueIteration{
 		public double maxSelfTransitionProb = 0.;
 		public double priority = Double.MAX_VALUE;
 		
+		/**
+		 * The id of this node's state in the {@link CompiledMDP} being swept, or -1 if it is not part of it.
+		 */
+		public int compiledId = -1;
+		
 		/**
 		 * Creates a back pointer for the given state with no back pointers and a priority of Double.MAX_VALUE (ensures one sweep of the state space to start)
 		 * @param sh the hased state for which this node will correspond
@@ -2,6 +2,7 @@ package burlap.behavior.singleagent.planning.stochastic.valueiteration;
 
 import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.singleagent.planning.Planner;
+import burlap.behavior.singleagent.planning.stochastic.CompiledMDP;
 import burlap.behavior.singleagent.planning.stochastic.DynamicProgramming;
 import burlap.debugtools.DPrint;
 import burlap.mdp.core.action.Action;
@@ -132,6 +133,11 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 		if(!this.foundReachableStates){
 			throw new RuntimeException("Cannot run VI until the reachable states have been found. Use the planFromState or performReachabilityFrom method at least once before calling runVI.");
 		}
+
+		if(this.useCompiledModel){
+			this.runCompiledVI();
+			return;
+		}
 		
 		Set <HashableState> states = valueFunction.keySet();
 		
@@ -160,6 +166,45 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 	}
 	
 	
+	/**
+	 * Runs VI on the {@link CompiledMDP} of the reachable states until the specified termination conditions are met. States are backed up
+	 * in place in the same order as {@link #runVI()} would, but on a primitive value array that is only stored back into the value function
+	 * once VI terminates.
+	 */
+	protected void runCompiledVI(){
+
+		CompiledMDP cmdp = this.getCompiledModel();
+		int n = cmdp.numExpandedStates();
+		double [] v = cmdp.values(this);
+		double [][] qBuffers = cmdp.newQBuffers();
+
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+
+			double delta = 0.;
+			for(int s = 0; s < n; s++){
+
+				double maxQ = cmdp.backup(s, v, this.operator, qBuffers);
+				delta = Math.max(Math.abs(maxQ - v[s]), delta);
+				v[s] = maxQ;
+
+			}
+
+			if(delta < this.maxDelta){
+				break; //approximated well enough; stop iterating
+			}
+
+		}
+
+		this.storeCompiledValues(cmdp, v);
+
+		DPrint.cl(this.debugCode, "Passes: " + i);
+
+		this.hasRunVI = true;
+
+	}
+	
+	
 	/**
 	 * This method will find all reachable states that will be used by the {@link #runVI()} method and will cache all the transition dynamics.
 	 * This method will not do anything if all reachable states from the input state have been discovered from previous calls to this method.
@@ -220,6 +265,7 @@ public class ValueIteration extends DynamicProgramming implements Planner {
 		
 		this.foundReachableStates = true;
 		this.hasRunVI = false;
+		this.compiledModel = null;
 		
 		return true;
 		
@@ -1,5 +1,6 @@
 package burlap.behavior.singleagent.planning.vfa.fittedvi;
 
+import burlap.behavior.functionapproximation.supervised.ChunkedSupervisedVFA;
 import burlap.behavior.functionapproximation.supervised.SupervisedVFA;
 import burlap.behavior.policy.GreedyQPolicy;
 import burlap.behavior.singleagent.MDPSolver;
@@ -7,13 +8,17 @@ import burlap.behavior.singleagent.planning.Planner;
 import burlap.behavior.singleagent.planning.stochastic.sparsesampling.SparseSampling;
 import burlap.behavior.valuefunction.*;
 import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
 import burlap.mdp.core.action.Action;
 import burlap.mdp.core.state.State;
 import burlap.mdp.singleagent.SADomain;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.parallel.ParallelUtilities;
 import burlap.statehashing.simple.SimpleHashableStateFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * A class for performing Fitted Value Iteration [1]. This is a variant of value iteration that takes a set of
@@ -42,6 +47,23 @@ import java.util.List;
  *
  *
  * <p>
+ * Computing the Bellman targets of the samples usually dominates the run time, and each target is independent of the others, so they
+ * can be computed in parallel with {@link #setParallelism(int)}. In parallel, the samples are split into blocks of
+ * {@link #BLOCK_SIZE} consecutive samples, each computed as a fork-join task with its own {@link SparseSampling} instance
+ * and its own {@link RandomFactory} (set with {@link RandomFactory#setThreadFactory(RandomFactory)}) seeded from the block index and a
+ * seed drawn once per iteration (once per chunk when training in chunks), and the model and the current value function
+ * approximation must be safe to use from multiple threads. With a parallelism of 1, the default, the targets are computed on the
+ * calling thread with the caller's random generators, as in the serial algorithm. {@link #toggleBlockSeeding(boolean)} makes the serial
+ * computation use the same seeded blocks as the parallel one, so that models that get their random generators from {@link RandomFactory}
+ * when sampling produce the same targets for a given seed regardless of the parallelism.
+ * <p>
+ * The arrays of targets and previous values are reused between iterations. For sample sets too large to hold as training instances
+ * at once, {@link #setChunkSize(int)} streams the training instances to a {@link ChunkedSupervisedVFA} trainer in chunks, so that only
+ * one chunk of instances exists at a time; the samples list itself can then be a lazily generated list whose {@link List#get(int)}
+ * method creates each state on demand. BURLAP does not include a {@link ChunkedSupervisedVFA} implementation, so chunked training
+ * requires a trainer supplied by the user.
+ *
+ * <p>
  * 1. Gordon, Geoffrey J. "Stable function approximation in dynamic programming." Proceedings of the twelfth international conference on machine learning. 1995.
  * @author James MacGlashan.
  */
@@ -108,6 +130,37 @@ public class FittedVI extends MDPSolver implements ValueFunction, QProvider, Pla
 	protected double maxDelta;
 
 
+	/**
+	 * The number of samples whose targets are computed by one task in parallel mode
+	 */
+	public static final int BLOCK_SIZE = 64;
+
+	/**
+	 * The fork-join pool used to compute targets when the parallelism is greater than 1. Lazily created on the first iteration.
+	 */
+	protected LazyForkJoinPool pool = new LazyForkJoinPool("FittedVI", 1);
+
+	/**
+	 * Whether targets are computed in seeded blocks even with a parallelism of 1
+	 */
+	protected boolean blockSeeding = false;
+
+	/**
+	 * The number of training instances passed to the trainer at a time; -1 to pass all of them at once.
+	 */
+	protected int chunkSize = -1;
+
+	/**
+	 * The Bellman targets of the samples in the last iteration, reused between iterations
+	 */
+	protected double [] targets;
+
+	/**
+	 * The values of the samples before the last iteration, reused between iterations
+	 */
+	protected double [] oldValues;
+
+
 	/**
 	 * Initializes. Note that you will need to set the state samples to use for planning with the {@link #setSamples(java.util.List)} method before
 	 * calling {@link #planFromState(State)}, {@link #runIteration()}, or {@link #runVI()}, otherwise a runtime exception
@@ -238,6 +291,65 @@ public class FittedVI extends MDPSolver implements ValueFunction, QProvider, Pla
 	}
 
 
+	/**
+	 * Returns the number of threads used to compute targets.
+	 * @return the number of threads used to compute targets.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of threads used to compute targets. With a parallelism of 1, the default, targets are computed on the calling thread.
+	 * @param parallelism the number of threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns whether targets are computed in seeded blocks even with a parallelism of 1.
+	 * @return true if targets are always computed in seeded blocks; false if they are only with a parallelism greater than 1.
+	 */
+	public boolean isBlockSeeding() {
+		return blockSeeding;
+	}
+
+
+	/**
+	 * Sets whether targets are computed in seeded blocks even with a parallelism of 1. By default a parallelism of 1 computes the targets
+	 * with the caller's random generators; enabling block seeding makes the serial targets match the parallel targets for a given seed.
+	 * @param blockSeeding if true, targets are always computed in seeded blocks; if false, only with a parallelism greater than 1.
+	 */
+	public void toggleBlockSeeding(boolean blockSeeding) {
+		this.blockSeeding = blockSeeding;
+	}
+
+
+	/**
+	 * Returns the number of training instances passed to the trainer at a time; -1 if they are all passed at once.
+	 * @return the number of training instances passed to the trainer at a time.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+
+	/**
+	 * Sets the number of training instances passed to the trainer at a time. Any value other than -1 requires the trainer to be a
+	 * {@link ChunkedSupervisedVFA}, which must be supplied by the user.
+	 * @param chunkSize the number of training instances passed to the trainer at a time; -1 to pass all of them at once with {@link SupervisedVFA#train(List)}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if(chunkSize < 1 && chunkSize != -1){
+			throw new RuntimeException("The chunk size of FittedVI must be positive or -1; was " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+
 	/**
 	 * Runs value iteration. Note that if the state samples have not been set, it will throw a runtime exception.
 	 */
@@ -262,29 +374,188 @@ public class FittedVI extends MDPSolver implements ValueFunction, QProvider, Pla
 			throw new RuntimeException("FittedVI cannot run value iteration because the state samples have not been set. Use the setSamples method or the constructor to set them.");
 		}
 
+		int n = this.samples.size();
+		if(this.targets == null || this.targets.length != n){
+			this.targets = new double[n];
+			this.oldValues = new double[n];
+		}
+
+		if(this.chunkSize == -1){
+			this.computeTargets(0, n);
+			List <SupervisedVFA.SupervisedVFAInstance> instances = this.instances(0, n);
+			this.valueFunction = this.valueFunctionTrainer.train(instances);
+		}
+		else{
+			if(!(this.valueFunctionTrainer instanceof ChunkedSupervisedVFA)){
+				throw new RuntimeException("FittedVI can only train in chunks with a ChunkedSupervisedVFA trainer.");
+			}
+			ChunkedSupervisedVFA trainer = (ChunkedSupervisedVFA)this.valueFunctionTrainer;
+			trainer.startTraining();
+			for(int start = 0; start < n; start += this.chunkSize){
+				int end = Math.min(n, start + this.chunkSize);
+				this.computeTargets(start, end);
+				trainer.trainChunk(this.instances(start, end));
+			}
+			this.valueFunction = trainer.finishTraining();
+		}
+
+		return this.maxChange(n);
+
+	}
+
+
+	/**
+	 * Computes the previous values and Bellman targets of a range of samples, in parallel if the parallelism is greater than 1.
+	 * With a parallelism of 1 and block seeding disabled, the targets are computed with the caller's random generators.
+	 * @param start the first sample index (inclusive)
+	 * @param end the last sample index (exclusive)
+	 */
+	protected void computeTargets(final int start, final int end){
+
+		if(this.getParallelism() == 1 && !this.blockSeeding){
+			this.computeTargetBlock(start, end);
+			return;
+		}
+
+		final long seed = RandomFactory.getMapped(0).nextLong();
+
+		if(this.getParallelism() == 1){
+			for(int b = start; b < end; b += BLOCK_SIZE){
+				this.computeSeededTargetBlock(seed, b, Math.min(end, b + BLOCK_SIZE));
+			}
+			return;
+		}
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(int b = start; b < end; b += BLOCK_SIZE){
+			final int bStart = b;
+			final int bEnd = Math.min(end, b + BLOCK_SIZE);
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					computeSeededTargetBlock(seed, bStart, bEnd);
+					return null;
+				}
+			});
+		}
+		this.runAll(tasks);
+
+	}
+
+
+	/**
+	 * Computes the previous values and Bellman targets of a block of samples on the calling thread, with the thread's {@link RandomFactory}
+	 * set to a factory seeded from the iteration seed and the block's first sample index while the block is computed.
+	 * @param seed the seed drawn for the iteration
+	 * @param start the first sample index of the block (inclusive)
+	 * @param end the last sample index of the block (exclusive)
+	 */
+	protected void computeSeededTargetBlock(long seed, int start, int end){
+		RandomFactory prev = RandomFactory.getThreadFactory();
+		RandomFactory.setThreadFactory(new RandomFactory(RandomFactory.mixSeed(seed + start)));
+		try{
+			this.computeTargetBlock(start, end);
+		}
+		finally{
+			if(prev != null){
+				RandomFactory.setThreadFactory(prev);
+			}
+			else{
+				RandomFactory.clearThreadFactory();
+			}
+		}
+	}
+
+
+	/**
+	 * Computes the previous values and Bellman targets of a range of samples on the calling thread.
+	 * @param start the first sample index (inclusive)
+	 * @param end the last sample index (exclusive)
+	 */
+	protected void computeTargetBlock(int start, int end){
 		SparseSampling ss = new SparseSampling(this.domain, this.gamma, this.hashingFactory, this.planningDepth, this.transitionSamples);
 		ss.setModel(this.model);
 		ss.setValueForLeafNodes(this.leafNodeInit);
 		ss.toggleDebugPrinting(false);
+		for(int i = start; i < end; i++){
+			State s = this.samples.get(i);
+			this.oldValues[i] = this.valueFunction.value(s);
+			this.targets[i] = Helper.maxQ(ss, s);
+		}
+	}
+
+
+	/**
+	 * Returns the training instances of a range of samples, using their computed targets.
+	 * @param start the first sample index (inclusive)
+	 * @param end the last sample index (exclusive)
+	 * @return the training instances
+	 */
+	protected List <SupervisedVFA.SupervisedVFAInstance> instances(int start, int end){
+		List <SupervisedVFA.SupervisedVFAInstance> instances = new ArrayList<SupervisedVFA.SupervisedVFAInstance>(end - start);
+		for(int i = start; i < end; i++){
+			instances.add(new SupervisedVFA.SupervisedVFAInstance(this.samples.get(i), this.targets[i]));
+		}
+		return instances;
+	}
+
+
+	/**
+	 * Returns the maximum change between the previous values of the samples and their values under the current value function,
+	 * computed in parallel if the parallelism is greater than 1.
+	 * @param n the number of samples
+	 * @return the maximum change in value
+	 */
+	protected double maxChange(int n){
 
-		List <SupervisedVFA.SupervisedVFAInstance> instances = new ArrayList<SupervisedVFA.SupervisedVFAInstance>(this.samples.size());
-		List <Double> oldVs = new ArrayList<Double>(this.samples.size());
-		for(State s : this.samples){
-			oldVs.add(this.valueFunction.value(s));
-			instances.add(new SupervisedVFA.SupervisedVFAInstance(s, Helper.maxQ(ss, s)));
+		if(this.getParallelism() == 1){
+			return this.maxChange(0, n);
 		}
 
-		this.valueFunction = this.valueFunctionTrainer.train(instances);
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(int b = 0; b < n; b += BLOCK_SIZE){
+			final int bStart = b;
+			final int bEnd = Math.min(n, b + BLOCK_SIZE);
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return maxChange(bStart, bEnd);
+				}
+			});
+		}
+		double maxDiff = 0.;
+		for(Object diff : this.runAll(tasks)){
+			maxDiff = Math.max(maxDiff, (Double)diff);
+		}
+		return maxDiff;
+
+	}
+
 
+	/**
+	 * Returns the maximum change between the previous values of a range of samples and their values under the current value function.
+	 * @param start the first sample index (inclusive)
+	 * @param end the last sample index (exclusive)
+	 * @return the maximum change in value
+	 */
+	protected double maxChange(int start, int end){
 		double maxDiff = 0.;
-		for(int i = 0; i < this.samples.size(); i++){
+		for(int i = start; i < end; i++){
 			double newV = this.valueFunction.value(this.samples.get(i));
-			double diff = Math.abs(newV - oldVs.get(i));
+			double diff = Math.abs(newV - this.oldValues[i]);
 			maxDiff = Math.max(maxDiff, diff);
 		}
-
 		return maxDiff;
+	}
 
+
+	/**
+	 * Runs the given tasks on the pool and waits for all of them to complete, rethrowing the first failure.
+	 * @param tasks the tasks to run
+	 * @return the results of the tasks, in order
+	 */
+	protected List<Object> runAll(List<Callable<Object>> tasks){
+		return ParallelUtilities.invokeAll(this.pool.get(), tasks, "FittedVI workers");
 	}
 
 
@@ -0,0 +1,955 @@
+package burlap.behavior.singleagent.pomdp.pointbased;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.MDPSolver;
+import burlap.behavior.singleagent.planning.Planner;
+import burlap.behavior.valuefunction.QProvider;
+import burlap.behavior.valuefunction.QValue;
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.mdp.singleagent.pomdp.PODomain;
+import burlap.mdp.singleagent.pomdp.beliefstate.ArrayBeliefState;
+import burlap.mdp.singleagent.pomdp.beliefstate.CompiledTabularBeliefUpdate;
+import burlap.mdp.singleagent.pomdp.beliefstate.DenseBeliefVector;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * A point-based value iteration POMDP solver implementing Perseus [1] and, optionally, the full point-based backups of PBVI [2].
+ * The value function is represented by a set of {@link AlphaVector}s, each a primitive double array over the
+ * {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} index of the hidden states and labeled with an action, so that the value of
+ * a belief state is the maximum dot product of its {@link DenseBeliefVector#beliefVector()} with an alpha vector.
+ * <p>
+ * When planning from an initial belief state, a set of belief points is first sampled by random walks of random actions from the initial belief,
+ * with observations sampled from the hidden state, using a {@link CompiledTabularBeliefUpdate}. Each iteration then computes a new
+ * alpha vector set with point-based backups of the belief points. With Perseus backups (the default), belief points are backed up in random order,
+ * and points whose value is already strictly improved by the new vectors are skipped, so an iteration typically requires far fewer backups than
+ * there are points. Points whose value only ties are still backed up, so an iteration that changes no value has backed up every point that was
+ * not improved, and planning does not stop before a backup could improve a point. So that backups can run in parallel, the points are backed up in batches of {@link #getBackupBatchSize()} randomly selected unimproved points
+ * on a {@link ForkJoinPool}, and the improvement of the remaining points is then checked in parallel; larger batches expose more parallelism
+ * but may perform backups that a smaller batch would have skipped. With full backups, every belief point is
+ * backed up in parallel in every iteration, as in PBVI. Random selection happens on the calling thread with {@link RandomFactory}, so results do not depend
+ * on the number of threads.
+ * <p>
+ * Rewards are the expected rewards of the domain's {@link FullModel}, and states for which the model is terminal have a value of zero.
+ * The domain's state enumerator must have enumerated the full state space and its observation function must be a
+ * {@link burlap.mdp.singleagent.pomdp.observations.DiscreteObservationFunction}. Belief states given to this solver must implement {@link DenseBeliefVector}
+ * with the same state enumerator.
+ * <p>
+ * 1. Spaan, Matthijs TJ, and Nikos Vlassis. "Perseus: Randomized point-based value iteration for POMDPs." Journal of Artificial Intelligence Research 24 (2005): 195-220.
+ * <p>
+ * 2. Pineau, Joelle, Geoff Gordon, and Sebastian Thrun. "Point-based value iteration: An anytime algorithm for POMDPs." IJCAI. Vol. 3. 2003.
+ * @author James MacGlashan
+ *
+ */
+public class Perseus extends MDPSolver implements Planner, QProvider {
+
+	/**
+	 * The compiled transition and observation model
+	 */
+	protected CompiledTabularBeliefUpdate		updater;
+
+	/**
+	 * The expected reward of each action in each state, indexed by action and state
+	 */
+	protected double [][]						rewards;
+
+	/**
+	 * Whether each state is terminal
+	 */
+	protected boolean []						terminal;
+
+	/**
+	 * The number of belief points to sample
+	 */
+	protected int								numBeliefPoints;
+
+	/**
+	 * The number of steps of a belief sampling random walk before it restarts at the initial belief
+	 */
+	protected int								samplingHorizon = 20;
+
+	/**
+	 * When the maximum change in the value of any belief point is smaller than this value, planning will terminate.
+	 */
+	protected double							maxDelta;
+
+	/**
+	 * When the number of iterations exceeds this value, planning will terminate.
+	 */
+	protected int								maxIterations;
+
+	/**
+	 * Whether every belief point is backed up in every iteration (PBVI) rather than only unimproved points (Perseus)
+	 */
+	protected boolean							fullBackups = false;
+
+	/**
+	 * The number of unimproved belief points that Perseus backs up at once
+	 */
+	protected int								backupBatchSize = 8;
+
+	/**
+	 * The fork-join pool used to run backups. Lazily created on the first iteration.
+	 */
+	protected LazyForkJoinPool					pool = new LazyForkJoinPool("Perseus", 1);
+
+	/**
+	 * The sampled belief points
+	 */
+	protected List<double []>					beliefPoints;
+
+	/**
+	 * The current alpha vector set
+	 */
+	protected List<AlphaVector>					alphaVectors;
+
+
+	/**
+	 * Initializes with a parallelism level equal to the number of available processors.
+	 * @param domain the POMDP domain
+	 * @param discount the discount factor
+	 * @param hashingFactory the hashing factory used to index observations
+	 * @param numBeliefPoints the number of belief points to sample
+	 * @param maxDelta when the maximum change in the value of any belief point is smaller than this value, planning will terminate.
+	 * @param maxIterations when the number of iterations exceeds this value, planning will terminate.
+	 */
+	public Perseus(PODomain domain, double discount, HashableStateFactory hashingFactory, int numBeliefPoints, double maxDelta, int maxIterations){
+		this(domain, discount, hashingFactory, numBeliefPoints, maxDelta, maxIterations, Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the POMDP domain
+	 * @param discount the discount factor
+	 * @param hashingFactory the hashing factory used to index observations
+	 * @param numBeliefPoints the number of belief points to sample
+	 * @param maxDelta when the maximum change in the value of any belief point is smaller than this value, planning will terminate.
+	 * @param maxIterations when the number of iterations exceeds this value, planning will terminate.
+	 * @param parallelism the number of worker threads used for backups
+	 */
+	public Perseus(PODomain domain, double discount, HashableStateFactory hashingFactory, int numBeliefPoints, double maxDelta, int maxIterations, int parallelism){
+		if(!domain.providesStateEnumerator()){
+			throw new RuntimeException("Perseus requires that the PODomain provides a StateEnumerator that has enumerated the full state space.");
+		}
+		this.solverInit(domain, discount, hashingFactory);
+		this.numBeliefPoints = numBeliefPoints;
+		this.maxDelta = maxDelta;
+		this.maxIterations = maxIterations;
+		this.setParallelism(parallelism);
+		this.debugCode = 2895034;
+	}
+
+
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+	/**
+	 * Sets the number of worker threads used for backups.
+	 * @param parallelism the number of worker threads used for backups; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+	public int getBackupBatchSize() {
+		return backupBatchSize;
+	}
+
+	/**
+	 * Sets the number of unimproved belief points that Perseus backs up at once. The default is 8.
+	 * @param backupBatchSize the number of belief points backed up at once; must be at least 1.
+	 */
+	public void setBackupBatchSize(int backupBatchSize) {
+		if(backupBatchSize < 1){
+			throw new RuntimeException("The backup batch size of Perseus must be at least 1; was " + backupBatchSize);
+		}
+		this.backupBatchSize = backupBatchSize;
+	}
+
+	public int getNumBeliefPoints() {
+		return numBeliefPoints;
+	}
+
+	public void setNumBeliefPoints(int numBeliefPoints) {
+		this.numBeliefPoints = numBeliefPoints;
+	}
+
+	public int getSamplingHorizon() {
+		return samplingHorizon;
+	}
+
+	/**
+	 * Sets the number of steps of a belief sampling random walk before it restarts at the initial belief
+	 * @param samplingHorizon the number of steps of a belief sampling random walk
+	 */
+	public void setSamplingHorizon(int samplingHorizon) {
+		this.samplingHorizon = samplingHorizon;
+	}
+
+	/**
+	 * Sets whether every belief point is backed up in every iteration, as in PBVI, rather than only points whose value has not yet been
+	 * improved, as in Perseus.
+	 * @param fullBackups true to back up every belief point in every iteration; false for Perseus backups
+	 */
+	public void toggleFullBackups(boolean fullBackups){
+		this.fullBackups = fullBackups;
+	}
+
+	/**
+	 * Returns the sampled belief points. Null until planning has started.
+	 * @return the sampled belief points
+	 */
+	public List<double[]> getBeliefPoints() {
+		return beliefPoints;
+	}
+
+	/**
+	 * Returns the current alpha vector set. Null until planning has started.
+	 * @return the current alpha vector set
+	 */
+	public List<AlphaVector> getAlphaVectors() {
+		return alphaVectors;
+	}
+
+
+	/**
+	 * Samples belief points from the given initial belief state, if they have not already been sampled, and runs point-based value iteration.
+	 * @param initialState the initial belief state, which must be a {@link DenseBeliefVector}
+	 * @return a {@link GreedyQPolicy} over this solver's belief Q-values
+	 */
+	@Override
+	public Policy planFromState(State initialState) {
+
+		if(!(initialState instanceof DenseBeliefVector)){
+			throw new RuntimeException("Perseus can only plan from DenseBeliefVector belief states; was given a " + initialState.getClass().getName());
+		}
+
+		this.compile();
+		if(this.beliefPoints == null){
+			this.sampleBeliefPoints(((DenseBeliefVector)initialState).beliefVector());
+		}
+		this.runVI();
+
+		return new GreedyQPolicy(this);
+	}
+
+
+	@Override
+	public void resetSolver() {
+		this.beliefPoints = null;
+		this.alphaVectors = null;
+	}
+
+
+	/**
+	 * Runs point-based value iteration over the sampled belief points until the maximum change in the value of a belief point
+	 * is less than maxDelta or the number of iterations exceeds maxIterations.
+	 */
+	public void runVI(){
+
+		if(this.beliefPoints == null){
+			throw new RuntimeException("Perseus has no belief points to back up; call planFromState first.");
+		}
+		this.compile();
+
+		if(this.alphaVectors == null){
+			this.alphaVectors = new ArrayList<AlphaVector>();
+			this.alphaVectors.add(this.lowerBoundVector());
+		}
+
+		int nB = this.beliefPoints.size();
+		double [] oldValues = new double[nB];
+		int [] oldBest = new int[nB];
+
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+
+			List<AlphaVector> prev = this.alphaVectors;
+			this.getPool().invoke(new BestVectorTask(prev, 0, prev.size(), oldValues, oldBest, 0, nB));
+
+			List<AlphaVector> next;
+			if(this.fullBackups){
+				next = this.fullBackup(prev);
+			}
+			else{
+				next = this.perseusBackup(prev, oldValues, oldBest);
+			}
+			this.alphaVectors = next;
+
+			double [] newValues = new double[nB];
+			int [] newBest = new int[nB];
+			this.getPool().invoke(new BestVectorTask(next, 0, next.size(), newValues, newBest, 0, nB));
+			double maxChange = 0.;
+			for(int j = 0; j < nB; j++){
+				maxChange = Math.max(maxChange, Math.abs(newValues[j] - oldValues[j]));
+			}
+
+			DPrint.cl(this.debugCode, "Finished Perseus iteration " + i + " with " + next.size() + " alpha vectors and max change: " + maxChange);
+
+			if(maxChange < this.maxDelta){
+				break;
+			}
+
+		}
+
+		DPrint.cl(this.debugCode, "Performed " + i + " Perseus iterations.");
+
+	}
+
+
+	/**
+	 * Returns the maximum value of the given belief vector under the current alpha vector set.
+	 * @param b the belief vector
+	 * @return the maximum value of the belief vector
+	 */
+	public double value(double [] b){
+		double max = Double.NEGATIVE_INFINITY;
+		for(AlphaVector alpha : this.alphaVectors){
+			max = Math.max(max, alpha.dot(b));
+		}
+		return max;
+	}
+
+
+	/**
+	 * Returns the alpha vector of the current set with the maximum value for the given belief vector, whose action is the action this
+	 * solver's value function prescribes for the belief.
+	 * @param b the belief vector
+	 * @return the alpha vector with the maximum value for the belief vector
+	 */
+	public AlphaVector bestVector(double [] b){
+		AlphaVector best = null;
+		double max = Double.NEGATIVE_INFINITY;
+		for(AlphaVector alpha : this.alphaVectors){
+			double v = alpha.dot(b);
+			if(v > max){
+				max = v;
+				best = alpha;
+			}
+		}
+		return best;
+	}
+
+
+	@Override
+	public double value(State s) {
+		return this.value(this.beliefVector(s));
+	}
+
+
+	@Override
+	public List<QValue> qValues(State s) {
+		double [] b = this.beliefVector(s);
+		List<QValue> result = new ArrayList<QValue>(this.updater.numActions());
+		for(int a = 0; a < this.updater.numActions(); a++){
+			result.add(new QValue(s, this.updater.getActions().get(a), this.qValue(b, a)));
+		}
+		return result;
+	}
+
+
+	@Override
+	public double qValue(State s, Action a) {
+		return this.qValue(this.beliefVector(s), this.updater.actionIndex(a));
+	}
+
+
+	/**
+	 * Returns the Q-value of an action in a belief computed with a one step lookahead on the current alpha vector set.
+	 * @param b the belief vector
+	 * @param a the index of the action
+	 * @return the Q-value of the action
+	 */
+	public double qValue(double [] b, int a){
+
+		this.checkPlanned();
+
+		int n = b.length;
+		double [] r = this.rewards[a];
+		double q = 0.;
+		for(int s = 0; s < n; s++){
+			q += b[s] * r[s];
+		}
+
+		double [] predicted = new double[n];
+		this.predict(b, a, predicted);
+
+		double [] projected = new double[n];
+		for(int o = 0; o < this.updater.numObservations(); o++){
+			double [] lik = this.updater.observationLikelihoods(a, o);
+			for(int s = 0; s < n; s++){
+				projected[s] = predicted[s] * lik[s];
+			}
+			//the unnormalized projection's value is the observation probability times the normalized belief's value
+			q += this.gamma * this.value(projected);
+		}
+
+		return q;
+	}
+
+
+	/**
+	 * Compiles the domain's model, if it has not already been compiled.
+	 */
+	protected void compile(){
+
+		if(this.updater != null){
+			return;
+		}
+
+		PODomain poDomain = (PODomain)this.domain;
+		CompiledTabularBeliefUpdate compiled = new CompiledTabularBeliefUpdate(poDomain, poDomain.getStateEnumerator(), this.hashingFactory);
+		FullModel fm = (FullModel)this.model;
+
+		int n = compiled.numStates();
+		double [][] r = new double[compiled.numActions()][n];
+		for(int s = 0; s < n; s++){
+			State state = poDomain.getStateEnumerator().getStateForEnumerationId(s);
+			if(fm.terminal(state)){
+				continue;
+			}
+			for(int a = 0; a < compiled.numActions(); a++){
+				for(TransitionProb tp : fm.transitions(state, compiled.getActions().get(a))){
+					r[a][s] += tp.p * tp.eo.r;
+				}
+			}
+		}
+
+		this.updater = compiled;
+		this.rewards = r;
+		this.terminal = new boolean[n];
+		for(int s = 0; s < n; s++){
+			this.terminal[s] = fm.terminal(poDomain.getStateEnumerator().getStateForEnumerationId(s));
+		}
+
+	}
+
+	/**
+	 * Samples belief points with random walks from an initial belief vector. Walks restart at the initial belief after
+	 * {@link #getSamplingHorizon()} steps, when the sampled hidden state is terminal, or when the sampled action has no outcomes in the
+	 * sampled hidden state. Duplicate beliefs are discarded.
+	 * @param initialBelief the initial belief vector
+	 */
+	protected void sampleBeliefPoints(double [] initialBelief){
+
+		Random rand = RandomFactory.getMapped(0);
+		int n = this.updater.numStates();
+		int nA = this.updater.numActions();
+		int nO = this.updater.numObservations();
+
+		Set<ArrayBeliefState> seen = new HashSet<ArrayBeliefState>();
+		this.beliefPoints = new ArrayList<double[]>(this.numBeliefPoints);
+		this.addBeliefPoint(initialBelief.clone(), seen);
+
+		double [] b = initialBelief.clone();
+		int s = this.sample(b, rand);
+		int depth = 0;
+		int maxSteps = 100 * this.numBeliefPoints;
+		for(int step = 0; step < maxSteps && this.beliefPoints.size() < this.numBeliefPoints; step++){
+
+			if(depth >= this.samplingHorizon || this.terminal[s]){
+				b = initialBelief.clone();
+				s = this.sample(b, rand);
+				depth = 0;
+			}
+
+			int a = rand.nextInt(nA);
+			int [] starts = this.updater.transitionRowStarts(a);
+			int ns = this.sampleTransition(starts[s], starts[s+1], this.updater.transitionProbabilities(a), rand);
+			if(ns == -1){
+				//the action has no outcomes in the sampled hidden state, so restart the walk
+				depth = this.samplingHorizon;
+				continue;
+			}
+			ns = this.updater.transitionNextStates(a)[ns];
+
+			double r = rand.nextDouble();
+			double sum = 0.;
+			int o = nO-1;
+			for(int i = 0; i < nO; i++){
+				sum += this.updater.observationLikelihoods(a, i)[ns];
+				if(r < sum){
+					o = i;
+					break;
+				}
+			}
+
+			double [] nb = new double[n];
+			this.updater.update(b, a, o, nb);
+			this.addBeliefPoint(nb, seen);
+			b = nb;
+			s = ns;
+			depth++;
+
+		}
+
+		DPrint.cl(this.debugCode, "Sampled " + this.beliefPoints.size() + " belief points.");
+
+	}
+
+
+	/**
+	 * Adds a belief point if it has not already been added.
+	 * @param b the belief vector
+	 * @param seen the belief points already added
+	 */
+	protected void addBeliefPoint(double [] b, Set<ArrayBeliefState> seen){
+		if(this.beliefPoints.size() < this.numBeliefPoints && seen.add(new ArrayBeliefState(null, null, b))){
+			this.beliefPoints.add(b);
+		}
+	}
+
+
+	/**
+	 * Samples a state index from a belief vector
+	 * @param b the belief vector
+	 * @param rand the random generator
+	 * @return the sampled state index
+	 */
+	protected int sample(double [] b, Random rand){
+		return this.sampleTransition(0, b.length, b, rand);
+	}
+
+
+	/**
+	 * Samples an index in a range of a probability array. If the probabilities in the range sum to less than one because of rounding,
+	 * the last index may absorb the remaining probability.
+	 * @param start the first index (inclusive) of the range
+	 * @param end the last index (exclusive) of the range
+	 * @param probs the probability array
+	 * @param rand the random generator
+	 * @return the sampled index, or -1 if the range is empty
+	 */
+	protected int sampleTransition(int start, int end, double [] probs, Random rand){
+		if(start == end){
+			return -1;
+		}
+		double r = rand.nextDouble();
+		double sum = 0.;
+		for(int i = start; i < end; i++){
+			sum += probs[i];
+			if(r < sum){
+				return i;
+			}
+		}
+		return end-1;
+	}
+
+
+	/**
+	 * Returns an alpha vector that lower bounds the value of every belief: the minimum expected reward divided by one minus the discount, or zero if
+	 * the minimum reward is positive, in non-terminal states, and zero in terminal states.
+	 * @return the lower bound alpha vector
+	 */
+	protected AlphaVector lowerBoundVector(){
+		double minR = 0.;
+		for(double [] r : this.rewards){
+			for(double v : r){
+				minR = Math.min(minR, v);
+			}
+		}
+		double [] values = new double[this.updater.numStates()];
+		for(int s = 0; s < values.length; s++){
+			values[s] = this.terminal[s] ? 0. : minR / (1. - this.gamma);
+		}
+		return new AlphaVector(values, 0);
+	}
+
+
+	/**
+	 * Computes the next alpha vector set by backing up every belief point in parallel.
+	 * @param prev the previous alpha vector set
+	 * @return the next alpha vector set
+	 */
+	protected List<AlphaVector> fullBackup(List<AlphaVector> prev){
+		int nB = this.beliefPoints.size();
+		int [] batch = new int[nB];
+		for(int i = 0; i < nB; i++){
+			batch[i] = i;
+		}
+		AlphaVector [] backups = new AlphaVector[nB];
+		this.getPool().invoke(new BackupTask(prev, batch, backups, 0, nB));
+
+		//drop vectors that are duplicates of another point's backup
+		List<AlphaVector> next = new ArrayList<AlphaVector>(nB);
+		Set<AlphaVector> unique = new HashSet<AlphaVector>(nB);
+		for(AlphaVector alpha : backups){
+			if(unique.add(alpha)){
+				next.add(alpha);
+			}
+		}
+		return next;
+	}
+
+
+	/**
+	 * Computes the next alpha vector set with Perseus' randomized backups, backing up batches of {@link #getBackupBatchSize()}
+	 * unimproved belief points in parallel.
+	 * @param prev the previous alpha vector set
+	 * @param oldValues the value of each belief point under the previous alpha vector set
+	 * @param oldBest the index of the best previous alpha vector of each belief point
+	 * @return the next alpha vector set
+	 */
+	protected List<AlphaVector> perseusBackup(List<AlphaVector> prev, double [] oldValues, int [] oldBest){
+
+		Random rand = RandomFactory.getMapped(0);
+		int nB = this.beliefPoints.size();
+
+		List<AlphaVector> next = new ArrayList<AlphaVector>();
+		Set<AlphaVector> added = Collections.newSetFromMap(new IdentityHashMap<AlphaVector, Boolean>());
+		double [] newValues = new double[nB];
+		Arrays.fill(newValues, Double.NEGATIVE_INFINITY);
+		int [] unused = new int[nB];
+		boolean [] backedUp = new boolean[nB];
+
+		int [] unimproved = new int[nB];
+		for(int i = 0; i < nB; i++){
+			unimproved[i] = i;
+		}
+		int numUnimproved = nB;
+
+		while(numUnimproved > 0){
+
+			//randomly select a batch of unimproved points by moving them to the end of the unimproved list
+			int batchSize = Math.min(this.backupBatchSize, numUnimproved);
+			int [] batch = new int[batchSize];
+			for(int k = 0; k < batchSize; k++){
+				int j = rand.nextInt(numUnimproved - k);
+				int last = numUnimproved - 1 - k;
+				int tmp = unimproved[j];
+				unimproved[j] = unimproved[last];
+				unimproved[last] = tmp;
+				batch[k] = tmp;
+			}
+
+			AlphaVector [] backups = new AlphaVector[batchSize];
+			this.getPool().invoke(new BackupTask(prev, batch, backups, 0, batchSize));
+
+			int firstNew = next.size();
+			for(int k = 0; k < batchSize; k++){
+				int bi = batch[k];
+				backedUp[bi] = true;
+				AlphaVector alpha = backups[k];
+				if(alpha.dot(this.beliefPoints.get(bi)) < oldValues[bi]){
+					alpha = prev.get(oldBest[bi]);
+				}
+				if(added.add(alpha)){
+					next.add(alpha);
+				}
+			}
+
+			//update the values of all points with the new vectors and remove points that were backed up or strictly improved; a point
+			//whose value only ties its old value may not have converged, so it is still backed up
+			this.getPool().invoke(new BestVectorTask(next, firstNew, next.size(), newValues, unused, 0, nB));
+			int kept = 0;
+			for(int k = 0; k < numUnimproved; k++){
+				int bi = unimproved[k];
+				if(!backedUp[bi] && newValues[bi] <= oldValues[bi]){
+					unimproved[kept] = bi;
+					kept++;
+				}
+			}
+			numUnimproved = kept;
+
+		}
+
+		return next;
+	}
+
+
+	/**
+	 * Computes the unnormalized distribution of next states after taking an action in a belief. Terminal states have no future value, so
+	 * the belief mass in them is not propagated.
+	 * @param b the belief vector
+	 * @param a the index of the action
+	 * @param predicted the array in which the distribution is stored; its previous contents are overwritten
+	 */
+	protected void predict(double [] b, int a, double [] predicted){
+		int [] starts = this.updater.transitionRowStarts(a);
+		int [] nextStates = this.updater.transitionNextStates(a);
+		double [] probs = this.updater.transitionProbabilities(a);
+		Arrays.fill(predicted, 0.);
+		for(int s = 0; s < b.length; s++){
+			if(b[s] == 0. || this.terminal[s]){
+				continue;
+			}
+			for(int k = starts[s]; k < starts[s+1]; k++){
+				predicted[nextStates[k]] += probs[k] * b[s];
+			}
+		}
+	}
+
+
+	/**
+	 * Performs a point-based backup of a belief vector on an alpha vector set.
+	 * @param b the belief vector
+	 * @param vectors the alpha vector set
+	 * @return the backed up alpha vector with the maximum value for the belief
+	 */
+	protected AlphaVector backup(double [] b, List<AlphaVector> vectors){
+
+		int n = b.length;
+		int nO = this.updater.numObservations();
+		double [] predicted = new double[n];
+		double [] projected = new double[n];
+
+		AlphaVector best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(int a = 0; a < this.updater.numActions(); a++){
+
+			int [] starts = this.updater.transitionRowStarts(a);
+			int [] nextStates = this.updater.transitionNextStates(a);
+			double [] probs = this.updater.transitionProbabilities(a);
+
+			this.predict(b, a, predicted);
+
+			double [] values = this.rewards[a].clone();
+			for(int o = 0; o < nO; o++){
+
+				//find the best vector for the projection of the belief through the action and observation
+				double [] lik = this.updater.observationLikelihoods(a, o);
+				for(int s = 0; s < n; s++){
+					projected[s] = predicted[s] * lik[s];
+				}
+				AlphaVector ao = null;
+				double aoValue = Double.NEGATIVE_INFINITY;
+				for(AlphaVector alpha : vectors){
+					double v = alpha.dot(projected);
+					if(v > aoValue){
+						aoValue = v;
+						ao = alpha;
+					}
+				}
+
+				//add its discounted back projection
+				for(int s = 0; s < n; s++){
+					if(this.terminal[s]){
+						continue;
+					}
+					double sum = 0.;
+					for(int k = starts[s]; k < starts[s+1]; k++){
+						int ns = nextStates[k];
+						sum += probs[k] * lik[ns] * ao.values[ns];
+					}
+					values[s] += this.gamma * sum;
+				}
+
+			}
+
+			AlphaVector candidate = new AlphaVector(values, a);
+			double v = candidate.dot(b);
+			if(v > bestValue){
+				bestValue = v;
+				best = candidate;
+			}
+
+		}
+
+		return best;
+	}
+
+
+	/**
+	 * Returns the belief vector of a belief state
+	 * @param s the belief state
+	 * @return the belief vector
+	 */
+	protected double [] beliefVector(State s){
+		if(!(s instanceof DenseBeliefVector)){
+			throw new RuntimeException("Perseus can only evaluate DenseBeliefVector belief states; was given a " + s.getClass().getName());
+		}
+		this.checkPlanned();
+		return ((DenseBeliefVector)s).beliefVector();
+	}
+
+
+	/**
+	 * Throws an exception if there is no alpha vector set to evaluate beliefs with.
+	 */
+	protected void checkPlanned(){
+		if(this.alphaVectors == null){
+			throw new RuntimeException("Perseus has no value function; call planFromState first.");
+		}
+	}
+
+
+	/**
+	 * Returns the fork-join pool to use, creating it if it does not exist yet.
+	 * @return the fork-join pool to use
+	 */
+	protected ForkJoinPool getPool(){
+		return this.pool.get();
+	}
+
+
+	/**
+	 * An alpha vector: the value of each hidden state under a conditional plan that starts with an action. The value of a belief under the
+	 * plan is the dot product of the belief vector with the alpha vector.
+	 */
+	public static class AlphaVector {
+
+		/**
+		 * The value of each hidden state, indexed by the state enumerator's identifiers
+		 */
+		public final double [] values;
+
+		/**
+		 * The index, in the compiled action list, of the first action of the plan
+		 */
+		public final int action;
+
+		/**
+		 * Initializes.
+		 * @param values the value of each hidden state
+		 * @param action the index of the first action of the plan
+		 */
+		public AlphaVector(double [] values, int action) {
+			this.values = values;
+			this.action = action;
+		}
+
+		/**
+		 * Returns the dot product of this alpha vector with a belief vector
+		 * @param b the belief vector
+		 * @return the dot product
+		 */
+		public double dot(double [] b){
+			double sum = 0.;
+			for(int i = 0; i < b.length; i++){
+				sum += b[i] * this.values[i];
+			}
+			return sum;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof AlphaVector)){
+				return false;
+			}
+			AlphaVector that = (AlphaVector)o;
+			return this.action == that.action && Arrays.equals(this.values, that.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(this.values) + this.action;
+		}
+	}
+
+
+	/**
+	 * A fork-join task that backs up a range of a batch of belief points.
+	 */
+	protected class BackupTask extends RecursiveAction {
+
+		protected List<AlphaVector> vectors;
+		protected int [] batch;
+		protected AlphaVector [] backups;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes.
+		 * @param vectors the alpha vector set to back up on
+		 * @param batch the indices of the belief points to back up
+		 * @param backups the array into which the backup of each batch entry is written
+		 * @param start the first index (inclusive) of the range of the batch for this task
+		 * @param end the last index (exclusive) of the range of the batch for this task
+		 */
+		public BackupTask(List<AlphaVector> vectors, int [] batch, AlphaVector [] backups, int start, int end) {
+			this.vectors = vectors;
+			this.batch = batch;
+			this.backups = backups;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if(end - start > 1){
+				int mid = (start + end) >>> 1;
+				invokeAll(new BackupTask(vectors, batch, backups, start, mid), new BackupTask(vectors, batch, backups, mid, end));
+				return;
+			}
+			for(int i = start; i < end; i++){
+				backups[i] = backup(beliefPoints.get(batch[i]), vectors);
+			}
+		}
+	}
+
+
+	/**
+	 * A fork-join task that updates the best value, and the index of the vector with the best value, of a range of belief points with a range of an
+	 * alpha vector list. A point's value and index are only replaced by a strictly better vector.
+	 */
+	protected class BestVectorTask extends RecursiveAction {
+
+		protected List<AlphaVector> vectors;
+		protected int vectorStart;
+		protected int vectorEnd;
+		protected double [] values;
+		protected int [] best;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes. The values and indices of the belief points are reset first if the range of vectors starts at 0.
+		 * @param vectors the alpha vector list
+		 * @param vectorStart the first index (inclusive) of the range of vectors
+		 * @param vectorEnd the last index (exclusive) of the range of vectors
+		 * @param values the best value of each belief point
+		 * @param best the index of the best vector of each belief point
+		 * @param start the first index (inclusive) of the range of belief points for this task
+		 * @param end the last index (exclusive) of the range of belief points for this task
+		 */
+		public BestVectorTask(List<AlphaVector> vectors, int vectorStart, int vectorEnd, double [] values, int [] best, int start, int end) {
+			this.vectors = vectors;
+			this.vectorStart = vectorStart;
+			this.vectorEnd = vectorEnd;
+			this.values = values;
+			this.best = best;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if(end - start > 64){
+				int mid = (start + end) >>> 1;
+				invokeAll(new BestVectorTask(vectors, vectorStart, vectorEnd, values, best, start, mid),
+						new BestVectorTask(vectors, vectorStart, vectorEnd, values, best, mid, end));
+				return;
+			}
+			for(int i = start; i < end; i++){
+				double [] b = beliefPoints.get(i);
+				if(vectorStart == 0){
+					values[i] = Double.NEGATIVE_INFINITY;
+				}
+				for(int j = vectorStart; j < vectorEnd; j++){
+					double v = vectors.get(j).dot(b);
+					if(v > values[i]){
+						values[i] = v;
+						best[i] = j;
+					}
+				}
+			}
+		}
+	}
+
+}
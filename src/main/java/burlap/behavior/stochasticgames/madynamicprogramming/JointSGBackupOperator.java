@@ -0,0 +1,27 @@
+package burlap.behavior.stochasticgames.madynamicprogramming;
+
+
+/**
+ * A {@link SGBackupOperator} that can compute the backed up values of all agents at once from a matrix of the agents' joint action
+ * Q-values, so that the solution concept of a state, such as an equilibrium that requires solving a linear program, is computed once for all agents
+ * rather than once per agent. Used by {@link burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.ParallelMAValueIteration}.
+ * <p>
+ * Joint actions are indexed lexicographically by the action index of each agent, with the last agent's action varying fastest, so that
+ * for two agents, joint action index i*numActions[1] + j is the cell of row i and column j of the bimatrix game with the first agent
+ * as the row player.
+ * @author James MacGlashan
+ *
+ */
+public interface JointSGBackupOperator extends SGBackupOperator {
+
+	/**
+	 * Computes the backed up value of every agent from the Q-values of every agent for every joint action of a state.
+	 * @param qValues qValues[i][j] is the Q-value of agent i for joint action j
+	 * @param numActions the number of actions of each agent
+	 * @param values the array into which the backed up value of each agent is written
+	 * @return the joint strategy, indexed like the joint actions, whose expected Q-value for each agent is that agent's backed up value,
+	 * or null if the backed up values are not expectations under a single joint strategy.
+	 */
+	double [] performJointBackup(double [][] qValues, int [] numActions, double [] values);
+
+}
@@ -1,6 +1,7 @@
 package burlap.behavior.stochasticgames.madynamicprogramming.backupOperators;
 
 import burlap.behavior.stochasticgames.madynamicprogramming.AgentQSourceMap;
+import burlap.behavior.stochasticgames.madynamicprogramming.JointSGBackupOperator;
 import burlap.behavior.stochasticgames.madynamicprogramming.QSourceForSingleAgent;
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
 import burlap.behavior.stochasticgames.solvers.GeneralBimatrixSolverTools;
@@ -21,7 +22,7 @@ import java.util.List;
  * @author Esha Gosh, John Meehan, Michalis Michaelidis, and James MacGlashan
  *
  */
-public class CoCoQ implements SGBackupOperator {
+public class CoCoQ implements SGBackupOperator, JointSGBackupOperator {
 
 
 	@Override
@@ -71,4 +72,44 @@ public class CoCoQ implements SGBackupOperator {
 		return cocoQ;
 
 	}
+
+
+	/**
+	 * Computes the CoCo values of both agents by solving the minmax game once from the first agent's perspective; because the
+	 * minmax game is zero-sum, the second agent's minmax value is the negation of the first's.
+	 */
+	@Override
+	public double[] performJointBackup(double[][] qValues, int[] numActions, double[] values) {
+
+		if(numActions.length != 2){
+			throw new RuntimeException("CoCoQ only defined for two agents.");
+		}
+
+		int nRows = numActions[0];
+		int nCols = numActions[1];
+		double [][] minMaxPayout = new double[nRows][nCols];
+		double maxmax = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < nRows; i++){
+			for(int j = 0; j < nCols; j++){
+				int ja = i*nCols + j;
+				double q1 = qValues[0][ja];
+				double q2 = qValues[1][ja];
+				minMaxPayout[i][j] = (q1-q2)/2.;
+				if(q1 + q2 > maxmax){
+					maxmax = q1+q2;
+				}
+			}
+		}
+
+		double [][] negated = GeneralBimatrixSolverTools.getNegatedMatrix(minMaxPayout);
+		double [] rowStrat = MinMaxSolver.getRowPlayersStrategy(minMaxPayout);
+		double [] colStrat = MinMaxSolver.getColPlayersStrategy(negated);
+
+		double minmaxQ = GeneralBimatrixSolverTools.expectedPayoffs(minMaxPayout, negated, rowStrat, colStrat)[0];
+
+		values[0] = (maxmax/2.) + minmaxQ;
+		values[1] = (maxmax/2.) - minmaxQ;
+
+		return null;
+	}
 }
@@ -1,6 +1,7 @@
 package burlap.behavior.stochasticgames.madynamicprogramming.backupOperators;
 
 import burlap.behavior.stochasticgames.madynamicprogramming.AgentQSourceMap;
+import burlap.behavior.stochasticgames.madynamicprogramming.JointSGBackupOperator;
 import burlap.behavior.stochasticgames.madynamicprogramming.QSourceForSingleAgent;
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
 import burlap.behavior.stochasticgames.solvers.CorrelatedEquilibriumSolver;
@@ -17,13 +18,17 @@ import java.util.List;
 
 /**
  * A correlated Q backup operator [1] for using in stochastic game multi-agent Q-learning or dynamic programming.
+ * <p>
+ * When used as a {@link JointSGBackupOperator}, the utilitarian, egalitarian, and republican objectives, which are symmetric in the agents,
+ * are solved once with the first agent as the row player, and each agent's value is its expected Q-value under the resulting joint strategy.
+ * The libertarian objective maximizes a different agent's payoff for each agent, so it is still solved once per agent.
  * 
  * <p>
  * 1. Greenwald, Amy, Keith Hall, and Roberto Serrano. "Correlated Q-learning." ICML. Vol. 3. 2003.
  * @author James MacGlashan
  *
  */
-public class CorrelatedQ implements SGBackupOperator {
+public class CorrelatedQ implements SGBackupOperator, JointSGBackupOperator {
 
 	/**
 	 * The correlated equilibrium objective to be solved.
@@ -81,4 +86,46 @@ public class CorrelatedQ implements SGBackupOperator {
 
 	}
 
+
+	@Override
+	public double[] performJointBackup(double[][] qValues, int[] numActions, double[] values) {
+
+		if(numActions.length != 2){
+			throw new RuntimeException("CorrelatedQ only defined for two agents.");
+		}
+
+		int nRows = numActions[0];
+		int nCols = numActions[1];
+		double [][] rowPayoff = new double[nRows][nCols];
+		double [][] colPayoff = new double[nRows][nCols];
+		for(int i = 0; i < nRows; i++){
+			for(int j = 0; j < nCols; j++){
+				int ja = i*nCols + j;
+				rowPayoff[i][j] = qValues[0][ja];
+				colPayoff[i][j] = qValues[1][ja];
+			}
+		}
+
+		if(this.objectiveType == CorrelatedEquilibriumObjective.LIBERTARIAN){
+			double [][] rowProbs = CorrelatedEquilibriumSolver.getCorrelatedEQJointStrategyLibertarianForRow(rowPayoff, colPayoff);
+			double [][] colProbs = CorrelatedEquilibriumSolver.getCorrelatedEQJointStrategyLibertarianForCol(rowPayoff, colPayoff);
+			values[0] = GeneralBimatrixSolverTools.expectedPayoffs(rowPayoff, colPayoff, rowProbs)[0];
+			values[1] = GeneralBimatrixSolverTools.expectedPayoffs(rowPayoff, colPayoff, colProbs)[1];
+			return null;
+		}
+
+		double [][] jointActionProbs = CorrelatedEquilibriumSolver.getCorrelatedEQJointStrategy(this.objectiveType, rowPayoff, colPayoff);
+		double [] strategy = new double[nRows*nCols];
+		for(int i = 0; i < nRows; i++){
+			for(int j = 0; j < nCols; j++){
+				strategy[i*nCols + j] = jointActionProbs[i][j];
+			}
+		}
+
+		values[0] = GeneralBimatrixSolverTools.dot(strategy, qValues[0]);
+		values[1] = GeneralBimatrixSolverTools.dot(strategy, qValues[1]);
+
+		return strategy;
+	}
+
 }
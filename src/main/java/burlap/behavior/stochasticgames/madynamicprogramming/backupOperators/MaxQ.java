@@ -1,6 +1,7 @@
 package burlap.behavior.stochasticgames.madynamicprogramming.backupOperators;
 
 import burlap.behavior.stochasticgames.madynamicprogramming.AgentQSourceMap;
+import burlap.behavior.stochasticgames.madynamicprogramming.JointSGBackupOperator;
 import burlap.behavior.stochasticgames.madynamicprogramming.QSourceForSingleAgent;
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
 import burlap.mdp.core.state.State;
@@ -15,7 +16,7 @@ import java.util.List;
  * @author James MacGlashan
  *
  */
-public class MaxQ implements SGBackupOperator {
+public class MaxQ implements SGBackupOperator, JointSGBackupOperator {
 
 	@Override
 	public double performBackup(State s, int forAgent, List<SGAgentType> agentDefinitions, AgentQSourceMap qSourceMap) {
@@ -34,4 +35,17 @@ public class MaxQ implements SGBackupOperator {
 		return maxQ;
 	}
 
+
+	@Override
+	public double[] performJointBackup(double[][] qValues, int[] numActions, double[] values) {
+		for(int i = 0; i < qValues.length; i++){
+			double maxQ = Double.NEGATIVE_INFINITY;
+			for(double q : qValues[i]){
+				maxQ = Math.max(q, maxQ);
+			}
+			values[i] = maxQ;
+		}
+		return null;
+	}
+
 }
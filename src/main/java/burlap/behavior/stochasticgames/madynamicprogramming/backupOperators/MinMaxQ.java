@@ -1,6 +1,7 @@
 package burlap.behavior.stochasticgames.madynamicprogramming.backupOperators;
 
 import burlap.behavior.stochasticgames.madynamicprogramming.AgentQSourceMap;
+import burlap.behavior.stochasticgames.madynamicprogramming.JointSGBackupOperator;
 import burlap.behavior.stochasticgames.madynamicprogramming.QSourceForSingleAgent;
 import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
 import burlap.behavior.stochasticgames.solvers.GeneralBimatrixSolverTools;
@@ -18,10 +19,12 @@ import java.util.List;
  * A minmax operator. This operator is useful for zero sum two player games. If there are more than two players in the game, a runtime exception will be thrown.
  * Before solving the minmax strategy, the Q-values are transformed into a minmax game. Then the resulting minmax strategy is used to compute
  * the expected "payoff" using the true Q-values of the query agent, which is then returned as the new Q-value.
+ * When used as a {@link JointSGBackupOperator}, the minmax strategies are solved once from the first agent's perspective and the
+ * expected payoff of each agent under them is returned.
  * @author James MacGlashan
  *
  */
-public class MinMaxQ implements SGBackupOperator {
+public class MinMaxQ implements SGBackupOperator, JointSGBackupOperator {
 
 	@Override
 	public double performBackup(State s, int forAgent, List<SGAgentType> agentDefinitions, AgentQSourceMap qSourceMap) {
@@ -68,4 +71,38 @@ public class MinMaxQ implements SGBackupOperator {
 		return expectedpayoffforPlayer1;
 	}
 
+
+	@Override
+	public double[] performJointBackup(double[][] qValues, int[] numActions, double[] values) {
+
+		if(numActions.length != 2){
+			throw new RuntimeException("MinMaxQ only defined for two agents.");
+		}
+
+		int nRows = numActions[0];
+		int nCols = numActions[1];
+		double [][] payout1 = new double[nRows][nCols];
+		for(int i = 0; i < nRows; i++){
+			for(int j = 0; j < nCols; j++){
+				int ja = i*nCols + j;
+				payout1[i][j] = (qValues[0][ja] - qValues[1][ja])/2.;
+			}
+		}
+
+		double [] rowStrat = MinMaxSolver.getRowPlayersStrategy(payout1);
+		double [] colStrat = MinMaxSolver.getColPlayersStrategy(GeneralBimatrixSolverTools.getNegatedMatrix(payout1));
+
+		double [] strategy = new double[nRows*nCols];
+		for(int i = 0; i < nRows; i++){
+			for(int j = 0; j < nCols; j++){
+				strategy[i*nCols + j] = rowStrat[i]*colStrat[j];
+			}
+		}
+
+		values[0] = GeneralBimatrixSolverTools.dot(strategy, qValues[0]);
+		values[1] = GeneralBimatrixSolverTools.dot(strategy, qValues[1]);
+
+		return strategy;
+	}
+
 }
@@ -0,0 +1,552 @@
+package burlap.behavior.stochasticgames.madynamicprogramming.dpplanners;
+
+import burlap.behavior.stochasticgames.madynamicprogramming.JointSGBackupOperator;
+import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
+import burlap.behavior.valuefunction.ValueFunction;
+import burlap.debugtools.DPrint;
+import burlap.mdp.core.StateTransitionProb;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.ActionUtils;
+import burlap.mdp.core.state.State;
+import burlap.mdp.stochasticgames.JointAction;
+import burlap.mdp.stochasticgames.SGDomain;
+import burlap.mdp.stochasticgames.agent.SGAgentType;
+import burlap.mdp.stochasticgames.model.FullJointModel;
+import burlap.mdp.stochasticgames.model.JointRewardFunction;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * A synchronous (Jacobi-style) parallel implementation of multi-agent value iteration for backup operators that implement
+ * {@link JointSGBackupOperator}, such as {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CorrelatedQ} and
+ * {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MinMaxQ}. Like {@link MAValueIteration}, the state space is first found by a
+ * reachability analysis. Before the first sweep, the game of each reachable state is compiled: its joint actions are enumerated once, and the
+ * transitions and joint rewards of each joint action are stored with the next states replaced by their index. Each sweep then partitions the states
+ * across the worker threads of a {@link ForkJoinPool}; each worker computes the Q-values of every agent for every joint action of its states
+ * from the previous sweep's values and solves each state's solution concept once for all agents with
+ * {@link JointSGBackupOperator#performJointBackup(double[][], int[], double[])}, rather than once per agent.
+ * <p>
+ * When an operator returns the joint strategy of its solution, the strategy is memoized with the Q-values it was solved for. In the next
+ * sweep, if no Q-value of the state has changed by more than {@link #getResolveTolerance()}, the memoized strategy is reused and the values are
+ * its expected Q-values, without solving the state's linear program again. With the default tolerance of 0, a strategy is only reused when
+ * the state's Q-values are unchanged, so the results are the same as re-solving; a small positive tolerance skips most linear programs
+ * as VI converges, at the cost of values that may differ from the exact backup by about the tolerance.
+ * <p>
+ * Operators that solve a linear program, such as {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CorrelatedQ} and
+ * {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MinMaxQ}, do not get faster with more threads: the native lp_solve
+ * library behind {@link burlap.behavior.stochasticgames.solvers.GeneralBimatrixSolverTools#solveLP(scpsolver.problems.LinearProgram)} crashes
+ * when called concurrently, even with a separate solver instance per thread, so every linear program of every worker is solved under one global
+ * lock. Only the Q-value computation and strategy reuse of each state run in parallel, and with the default tolerance of 0 the solves dominate
+ * a sweep. To speed up such operators, set a positive resolve tolerance so that fewer linear programs are solved. Operators that do not solve
+ * linear programs, such as {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CoCoQ} and
+ * {@link burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MaxQ}, run fully in parallel.
+ * <p>
+ * Because every backup in a sweep uses the previous sweep's values, more sweeps may be needed than with the asynchronous {@link MAValueIteration}.
+ * The values are only written to the agents' Q-sources when VI terminates. The joint model, joint reward function, terminal function, hashing
+ * factory, and backup operator must be safe to call from multiple threads. If the backup operator does not implement {@link JointSGBackupOperator},
+ * {@link #runVI()} falls back to the serial VI of {@link MAValueIteration}.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelMAValueIteration extends MAValueIteration {
+
+	/**
+	 * The maximum number of states a single fork-join task will back up before it is split into smaller tasks.
+	 */
+	protected int							statesPerTask = 64;
+
+	/**
+	 * The largest change in a state's Q-values for which the memoized strategy of the state is reused rather than solved again
+	 */
+	protected double						resolveTolerance = 0.;
+
+	/**
+	 * The fork-join pool used to run sweeps. Lazily created on the first sweep.
+	 */
+	protected LazyForkJoinPool				pool = new LazyForkJoinPool("ParallelMAValueIteration", 1);
+
+	/**
+	 * The reachable states, in the order of their compiled games
+	 */
+	protected HashableState []				stateOrder;
+
+	/**
+	 * The compiled game of each reachable state
+	 */
+	protected StateGame []					games;
+
+
+	/**
+	 * Initializes with a parallelism level equal to the number of available processors.
+	 * @param domain the domain in which to perform planing
+	 * @param agentDefinitions the agents involved in the planning problem
+	 * @param jointRewardFunction the joint reward function
+	 * @param terminalFunction the terminal state function
+	 * @param discount the discount
+	 * @param hashingFactory the hashing factory to use for storing states
+	 * @param vInit the state value initialization function to use.
+	 * @param backupOperator the backup operator that defines the solution concept being solved
+	 * @param maxDelta the threshold that causes VI to terminate when the max Q-value change is less than it
+	 * @param maxIterations the maximum number of iterations allowed
+	 */
+	public ParallelMAValueIteration(SGDomain domain, List<SGAgentType> agentDefinitions, JointRewardFunction jointRewardFunction, TerminalFunction terminalFunction,
+									double discount, HashableStateFactory hashingFactory, ValueFunction vInit, SGBackupOperator backupOperator, double maxDelta, int maxIterations){
+		this(domain, agentDefinitions, jointRewardFunction, terminalFunction, discount, hashingFactory, vInit, backupOperator, maxDelta, maxIterations,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param domain the domain in which to perform planing
+	 * @param agentDefinitions the agents involved in the planning problem
+	 * @param jointRewardFunction the joint reward function
+	 * @param terminalFunction the terminal state function
+	 * @param discount the discount
+	 * @param hashingFactory the hashing factory to use for storing states
+	 * @param vInit the state value initialization function to use.
+	 * @param backupOperator the backup operator that defines the solution concept being solved
+	 * @param maxDelta the threshold that causes VI to terminate when the max Q-value change is less than it
+	 * @param maxIterations the maximum number of iterations allowed
+	 * @param parallelism the number of worker threads used for each sweep
+	 */
+	public ParallelMAValueIteration(SGDomain domain, List<SGAgentType> agentDefinitions, JointRewardFunction jointRewardFunction, TerminalFunction terminalFunction,
+									double discount, HashableStateFactory hashingFactory, ValueFunction vInit, SGBackupOperator backupOperator, double maxDelta, int maxIterations,
+									int parallelism){
+		super(domain, agentDefinitions, jointRewardFunction, terminalFunction, discount, hashingFactory, vInit, backupOperator, maxDelta, maxIterations);
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the number of worker threads used for each sweep.
+	 * @return the number of worker threads used for each sweep.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of worker threads used for each sweep.
+	 * @param parallelism the number of worker threads used for each sweep; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the maximum number of states a single fork-join task will back up before it is split into smaller tasks.
+	 * @return the maximum number of states a single fork-join task will back up before it is split.
+	 */
+	public int getStatesPerTask() {
+		return statesPerTask;
+	}
+
+
+	/**
+	 * Sets the maximum number of states a single fork-join task will back up before it is split into smaller tasks. The default is 64,
+	 * which is smaller than that of {@link burlap.behavior.singleagent.planning.stochastic.valueiteration.ParallelValueIteration} because
+	 * each backup may solve a linear program.
+	 * @param statesPerTask the maximum number of states a single fork-join task will back up before it is split; must be at least 1.
+	 */
+	public void setStatesPerTask(int statesPerTask) {
+		if(statesPerTask < 1){
+			throw new RuntimeException("States per task of ParallelMAValueIteration must be at least 1; was " + statesPerTask);
+		}
+		this.statesPerTask = statesPerTask;
+	}
+
+
+	/**
+	 * Returns the largest change in a state's Q-values for which the memoized strategy of the state is reused rather than solved again.
+	 * @return the resolve tolerance
+	 */
+	public double getResolveTolerance() {
+		return resolveTolerance;
+	}
+
+
+	/**
+	 * Sets the largest change in a state's Q-values for which the memoized strategy of the state is reused rather than solved again.
+	 * The default is 0, so strategies are only reused for unchanged Q-values and every changed state solves its linear program, one at a time
+	 * across all threads. A positive tolerance, such as a small fraction of maxDelta, is what lets linear-program-based operators benefit from
+	 * this planner.
+	 * @param resolveTolerance the resolve tolerance; must be non-negative.
+	 */
+	public void setResolveTolerance(double resolveTolerance) {
+		if(!(resolveTolerance >= 0.)){
+			throw new RuntimeException("The resolve tolerance of ParallelMAValueIteration must be non-negative; was " + resolveTolerance);
+		}
+		this.resolveTolerance = resolveTolerance;
+	}
+
+
+	/**
+	 * Runs synchronous parallel VI over the set of states that have been discovered, until the max change in value is less than the threshold
+	 * stored in this object's maxDelta parameter or the number of iterations exceeds this object's maxIterations parameter. Then the values
+	 * are written to the agents' Q-sources.
+	 * <p>
+	 * If {@link #performStateReachabilityFrom(State)} has not yet been called, then the state set will be empty and a runtime exception will be thrown.
+	 */
+	@Override
+	public void runVI() {
+
+		if(!(this.backupOperator instanceof JointSGBackupOperator)){
+			super.runVI();
+			return;
+		}
+
+		if(this.states.isEmpty()){
+			throw new RuntimeException("No states to iterate over. Note that state reacability needs to be performed before runVI() can be called. Consider using planFromState(State s) method instead or using the performStateReachabilityFrom(State s) method first.");
+		}
+
+		ForkJoinPool pool = this.getPool();
+		this.planningStarted = true;
+
+		if(this.games == null || this.games.length != this.states.size()){
+			this.compileGames(pool);
+		}
+
+		int nAgents = this.agentDefinitions.size();
+		int n = this.stateOrder.length;
+		double [][] v = new double[nAgents][n];
+		for(int a = 0; a < nAgents; a++){
+			BackupBasedQSource qsource = (BackupBasedQSource)this.qSources.agentQSource(a);
+			for(int i = 0; i < n; i++){
+				v[a][i] = qsource.getValue(this.stateOrder[i]);
+			}
+		}
+		double [][] nextValues = new double[nAgents][n];
+
+		int i;
+		for(i = 0; i < this.maxIterations; i++){
+
+			double maxChange = pool.invoke(new SweepTask(v, nextValues, 0, n));
+
+			double [][] tmp = v;
+			v = nextValues;
+			nextValues = tmp;
+
+			DPrint.cl(this.debugCode, "Finished pass: " + i + " with max change: " + maxChange);
+
+			if(maxChange < this.maxDelta){
+				break;
+			}
+
+		}
+
+		for(int a = 0; a < nAgents; a++){
+			BackupBasedQSource qsource = (BackupBasedQSource)this.qSources.agentQSource(a);
+			for(int j = 0; j < n; j++){
+				qsource.setValue(this.stateOrder[j], v[a][j]);
+			}
+		}
+
+		DPrint.cl(this.debugCode, "Performed " + i + " passes.");
+
+	}
+
+
+	/**
+	 * Compiles the game of every reachable state, discarding any memoized strategies.
+	 * @param pool the pool on which to compile the games
+	 */
+	protected void compileGames(ForkJoinPool pool){
+
+		this.stateOrder = this.states.toArray(new HashableState[this.states.size()]);
+		Map<HashableState, Integer> ids = new HashMap<HashableState, Integer>(this.stateOrder.length);
+		for(int i = 0; i < this.stateOrder.length; i++){
+			ids.put(this.stateOrder[i], i);
+		}
+		this.games = new StateGame[this.stateOrder.length];
+
+		pool.invoke(new CompileTask(ids, 0, this.stateOrder.length));
+
+	}
+
+
+	/**
+	 * Compiles the game of a state.
+	 * @param sh the state
+	 * @param ids the index of each reachable state
+	 * @return the compiled game of the state
+	 */
+	protected StateGame compileGame(HashableState sh, Map<HashableState, Integer> ids){
+
+		State s = sh.s();
+		int nAgents = this.agentDefinitions.size();
+		StateGame game = new StateGame();
+		game.terminal = this.terminalFunction.isTerminal(s);
+		if(game.terminal){
+			return game;
+		}
+
+		List<List<Action>> agentActions = new ArrayList<List<Action>>(nAgents);
+		game.numActions = new int[nAgents];
+		int m = 1;
+		for(int a = 0; a < nAgents; a++){
+			List<Action> actions = ActionUtils.allApplicableActionsForTypes(this.agentDefinitions.get(a).actions, s);
+			agentActions.add(actions);
+			game.numActions[a] = actions.size();
+			m *= actions.size();
+		}
+
+		FullJointModel model = (FullJointModel)this.jointModel;
+		game.next = new int[m][];
+		game.probs = new double[m][];
+		game.rewards = new double[m][][];
+		int [] actionIndices = new int[nAgents];
+		for(int j = 0; j < m; j++){
+
+			//decode the joint action index with the last agent's action varying fastest
+			int rem = j;
+			for(int a = nAgents-1; a >= 0; a--){
+				actionIndices[a] = rem % game.numActions[a];
+				rem /= game.numActions[a];
+			}
+			JointAction ja = new JointAction();
+			for(int a = 0; a < nAgents; a++){
+				ja.setAction(a, agentActions.get(a).get(actionIndices[a]));
+			}
+
+			List<StateTransitionProb> tps = model.stateTransitions(s, ja);
+			game.next[j] = new int[tps.size()];
+			game.probs[j] = new double[tps.size()];
+			game.rewards[j] = new double[tps.size()][];
+			for(int k = 0; k < tps.size(); k++){
+				StateTransitionProb tp = tps.get(k);
+				Integer id = ids.get(this.hashingFactory.hashState(tp.s));
+				if(id == null){
+					throw new RuntimeException("ParallelMAValueIteration found a transition to a state that was not found by the state reachability analysis.");
+				}
+				game.next[j][k] = id;
+				game.probs[j][k] = tp.p;
+				game.rewards[j][k] = this.jointRewardFunction.reward(s, ja, tp.s);
+			}
+
+		}
+
+		return game;
+	}
+
+
+	/**
+	 * Computes the backed up values of every agent in a state from the previous sweep's values, reusing the state's memoized strategy if its
+	 * Q-values have not changed by more than the resolve tolerance.
+	 * @param game the compiled game of the state
+	 * @param v the previous sweep's values, indexed by agent and state
+	 * @param values the array into which the backed up value of each agent is written
+	 */
+	protected void backup(StateGame game, double [][] v, double [] values){
+
+		int nAgents = values.length;
+		if(game.terminal){
+			for(int a = 0; a < nAgents; a++){
+				values[a] = 0.;
+			}
+			return;
+		}
+
+		int m = game.next.length;
+		double [][] q = new double[nAgents][m];
+		for(int j = 0; j < m; j++){
+			int [] next = game.next[j];
+			double [] probs = game.probs[j];
+			double [][] rewards = game.rewards[j];
+			for(int k = 0; k < next.length; k++){
+				for(int a = 0; a < nAgents; a++){
+					q[a][j] += probs[k] * (rewards[k][a] + this.discount * v[a][next[k]]);
+				}
+			}
+		}
+
+		if(game.strategy != null && maxDifference(q, game.solvedQ) <= this.resolveTolerance){
+			for(int a = 0; a < nAgents; a++){
+				double sum = 0.;
+				for(int j = 0; j < m; j++){
+					sum += game.strategy[j] * q[a][j];
+				}
+				values[a] = sum;
+			}
+			return;
+		}
+
+		game.strategy = ((JointSGBackupOperator)this.backupOperator).performJointBackup(q, game.numActions, values);
+		game.solvedQ = game.strategy != null ? q : null;
+
+	}
+
+
+	/**
+	 * Returns the largest absolute difference between corresponding entries of two matrices of the same shape
+	 * @param a the first matrix
+	 * @param b the second matrix
+	 * @return the largest absolute difference
+	 */
+	protected static double maxDifference(double [][] a, double [][] b){
+		double max = 0.;
+		for(int i = 0; i < a.length; i++){
+			for(int j = 0; j < a[i].length; j++){
+				max = Math.max(max, Math.abs(a[i][j] - b[i][j]));
+			}
+		}
+		return max;
+	}
+
+
+	/**
+	 * Returns the fork-join pool to use, creating it if it does not exist yet.
+	 * @return the fork-join pool to use
+	 */
+	protected ForkJoinPool getPool(){
+		return this.pool.get();
+	}
+
+
+	/**
+	 * The compiled game of a state: the number of actions of each agent, and for each joint action, indexed with the last agent's action
+	 * varying fastest, the index, probability, and joint reward of each outcome state. Also holds the state's memoized strategy.
+	 */
+	protected static class StateGame {
+
+		/**
+		 * Whether the state is terminal, in which case the other fields are null
+		 */
+		public boolean terminal;
+
+		/**
+		 * The number of actions of each agent
+		 */
+		public int [] numActions;
+
+		/**
+		 * The index of each outcome state of each joint action
+		 */
+		public int [][] next;
+
+		/**
+		 * The probability of each outcome state of each joint action
+		 */
+		public double [][] probs;
+
+		/**
+		 * The joint reward of each outcome state of each joint action
+		 */
+		public double [][][] rewards;
+
+		/**
+		 * The Q-values, indexed by agent and joint action, for which the memoized strategy was solved
+		 */
+		public double [][] solvedQ;
+
+		/**
+		 * The memoized joint strategy, or null if there is none
+		 */
+		public double [] strategy;
+
+	}
+
+
+	/**
+	 * A fork-join task that compiles the games of a contiguous range of states.
+	 */
+	protected class CompileTask extends RecursiveAction {
+
+		protected Map<HashableState, Integer> ids;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes.
+		 * @param ids the index of each reachable state
+		 * @param start the first index (inclusive) of the range of states for this task
+		 * @param end the last index (exclusive) of the range of states for this task
+		 */
+		public CompileTask(Map<HashableState, Integer> ids, int start, int end) {
+			this.ids = ids;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+
+			if(end - start > ParallelMAValueIteration.this.statesPerTask){
+				int mid = (start + end) >>> 1;
+				invokeAll(new CompileTask(ids, start, mid), new CompileTask(ids, mid, end));
+				return;
+			}
+
+			for(int i = start; i < end; i++){
+				games[i] = compileGame(stateOrder[i], ids);
+			}
+
+		}
+	}
+
+
+	/**
+	 * A fork-join task that backs up a contiguous range of states into a buffer and returns the maximum change in any agent's value
+	 * over that range.
+	 */
+	protected class SweepTask extends RecursiveTask<Double> {
+
+		protected double [][] v;
+		protected double [][] nextValues;
+		protected int start;
+		protected int end;
+
+		/**
+		 * Initializes.
+		 * @param v the previous sweep's values, indexed by agent and state
+		 * @param nextValues the buffer to write backed up values into, indexed by agent and state
+		 * @param start the first index (inclusive) of the range of states for this task
+		 * @param end the last index (exclusive) of the range of states for this task
+		 */
+		public SweepTask(double [][] v, double [][] nextValues, int start, int end) {
+			this.v = v;
+			this.nextValues = nextValues;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Double compute() {
+
+			if(end - start > ParallelMAValueIteration.this.statesPerTask){
+				int mid = (start + end) >>> 1;
+				SweepTask left = new SweepTask(v, nextValues, start, mid);
+				SweepTask right = new SweepTask(v, nextValues, mid, end);
+				left.fork();
+				double rightDelta = right.compute();
+				return Math.max(left.join(), rightDelta);
+			}
+
+			double delta = 0.;
+			double [] values = new double[v.length];
+			for(int i = start; i < end; i++){
+				backup(games[i], v, values);
+				for(int a = 0; a < values.length; a++){
+					nextValues[a][i] = values[a];
+					delta = Math.max(Math.abs(values[a] - v[a][i]), delta);
+				}
+			}
+
+			return delta;
+		}
+	}
+
+}
@@ -1,5 +1,8 @@
 package burlap.behavior.stochasticgames.solvers;
 
+import scpsolver.lpsolver.LinearProgramSolver;
+import scpsolver.lpsolver.SolverFactory;
+import scpsolver.problems.LinearProgram;
 
 /**
  * A class holding static methods for performing common operations on bimatrix games.
@@ -7,6 +10,11 @@ package burlap.behavior.stochasticgames.solvers;
  *
  */
 public class GeneralBimatrixSolverTools {
+
+	/**
+	 * The lock on which linear program solves are serialized
+	 */
+	private static final Object LP_LOCK = new Object();
     
     private GeneralBimatrixSolverTools() {
         // do nothing
@@ -241,4 +249,22 @@ public class GeneralBimatrixSolverTools {
 		return a;
 	}
 	
+	
+	/**
+	 * Solves a linear program with the default SCPSolver solver. The native lp_solve library behind the default solver
+	 * crashes when called from multiple threads at once, even with a separate solver instance per thread, so solves are serialized on a
+	 * single global lock. This lets the bimatrix solvers be used by multi-threaded planners such as
+	 * {@link burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.ParallelMAValueIteration}, but linear program solves
+	 * never run in parallel, so work that is dominated by them does not get faster with more threads.
+	 * @param lp the linear program to solve
+	 * @return the solution of the linear program
+	 */
+	public static double [] solveLP(LinearProgram lp){
+		synchronized(LP_LOCK){
+			LinearProgramSolver solver = SolverFactory.newDefault();
+			return solver.solve(lp);
+		}
+	}
+
+	
 }
@@ -1,8 +1,6 @@
 package burlap.behavior.stochasticgames.solvers;
 
 import scpsolver.constraints.LinearBiggerThanEqualsConstraint;
-import scpsolver.lpsolver.LinearProgramSolver;
-import scpsolver.lpsolver.SolverFactory;
 import scpsolver.problems.LinearProgram;
 
 public class MinMaxSolver {
@@ -56,8 +54,7 @@ public class MinMaxSolver {
 		
 		//solve it
 		lp.setMinProblem(true);
-		LinearProgramSolver solver = SolverFactory.newDefault(); 
-		double[] sol = solver.solve(lp);
+		double[] sol = GeneralBimatrixSolverTools.solveLP(lp);
 		
 		//convert LP solution into probability vector.
 		double z = 0.;
@@ -0,0 +1,342 @@
+package burlap.datastructures;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * A thread-safe map with a bounded number of entries that evicts entries with the CLOCK (second chance) approximation of least recently used
+ * eviction. Entries are kept in a ring in insertion order and each has a reference bit that is set whenever the entry is read.
+ * When an insertion makes the map exceed its capacity, the inserting thread sweeps the ring: entries whose reference bit is set have it
+ * cleared and are moved to the back of the ring, and the first entry whose bit is clear is evicted.
+ * <p>
+ * Reads are a single {@link ConcurrentHashMap} lookup. Only one thread sweeps at a time; an inserting thread that finds another thread
+ * sweeping leaves the eviction to it, so the size may briefly exceed the capacity by the number of concurrently inserting threads.
+ * <p>
+ * Entries removed with {@link #remove(Object, Object)} are marked as removed and dropped from the ring when the clock hand reaches them.
+ * Because the hand only moves when the map is over capacity, the ring is also purged of removed entries once there are more removals since
+ * the last purge than live entries, so the ring never holds more than about twice as many entries as the map.
+ * <p>
+ * Optionally, a {@link FrequencySketch} of the keys that are looked up can be used as a TinyLFU admission filter: once the map is full,
+ * a new entry is only inserted if its key has been looked up more often recently than the key of the entry at the clock hand, which protects
+ * frequently used entries from being flushed out by keys that are used only once.
+ * @author James MacGlashan
+ *
+ * @param <K> the key type, which must be hashable
+ * @param <V> the value type
+ */
+public class ConcurrentClockCache <K, V>{
+
+	/**
+	 * The maximum number of entries
+	 */
+	protected int								capacity;
+
+	/**
+	 * The entries by key
+	 */
+	protected ConcurrentHashMap<K, Entry<K, V>>	entries;
+
+	/**
+	 * The clock ring of entries; the head is the next entry to consider for eviction
+	 */
+	protected ConcurrentLinkedQueue<Entry<K, V>>	clock = new ConcurrentLinkedQueue<Entry<K, V>>();
+
+	/**
+	 * The number of entries
+	 */
+	protected AtomicInteger						size = new AtomicInteger();
+
+	/**
+	 * The number of evicted entries since construction or the last {@link #clear()}
+	 */
+	protected AtomicLong						evictions = new AtomicLong();
+
+	/**
+	 * The number of insertions rejected by the admission filter since construction or the last {@link #clear()}
+	 */
+	protected AtomicLong						rejections = new AtomicLong();
+
+	/**
+	 * The frequency sketch used as an admission filter, or null if every insertion is admitted
+	 */
+	protected FrequencySketch					admissionSketch;
+
+	/**
+	 * The number of entries removed with {@link #remove(Object, Object)} since the ring was last purged of removed entries
+	 */
+	protected AtomicInteger						removalsSincePurge = new AtomicInteger();
+
+	/**
+	 * Held by the thread sweeping or purging the clock
+	 */
+	protected ReentrantLock						sweepLock = new ReentrantLock();
+
+
+	/**
+	 * Initializes.
+	 * @param capacity the maximum number of entries; must be at least 1
+	 */
+	public ConcurrentClockCache(int capacity){
+		if(capacity < 1){
+			throw new RuntimeException("The capacity of a ConcurrentClockCache must be at least 1; was " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new ConcurrentHashMap<K, Entry<K, V>>(Math.min(capacity, 1 << 16));
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param capacity the maximum number of entries; must be at least 1
+	 * @param frequencyAdmission if true, a {@link FrequencySketch} of looked up keys is used as a TinyLFU admission filter
+	 */
+	public ConcurrentClockCache(int capacity, boolean frequencyAdmission){
+		this(capacity);
+		if(frequencyAdmission){
+			this.admissionSketch = new FrequencySketch(capacity);
+		}
+	}
+
+
+	/**
+	 * Returns the value associated with a key and marks it as recently used, or returns null if there is no value for the key.
+	 * @param key the key
+	 * @return the associated value or null if there is none
+	 */
+	public V get(K key){
+		if(this.admissionSketch != null){
+			this.admissionSketch.increment(key);
+		}
+		Entry<K, V> e = this.entries.get(key);
+		if(e == null){
+			return null;
+		}
+		e.referenced = true;
+		return e.value;
+	}
+
+
+	/**
+	 * Associates a value with a key if the key has no value, evicting other entries if the capacity is exceeded.
+	 * If the key already has a value, it is marked as recently used and returned. If an admission filter is used, the map is full,
+	 * and the key has not been looked up more often than the key at the clock hand, the value is not inserted.
+	 * @param key the key
+	 * @param value the value to associate with the key
+	 * @return the value already associated with the key, or null if the given value was inserted or rejected
+	 */
+	public V putIfAbsent(K key, V value){
+		if(this.admissionSketch != null && this.size.get() >= this.capacity){
+			Entry<K, V> prev = this.entries.get(key);
+			if(prev != null){
+				prev.referenced = true;
+				return prev.value;
+			}
+			Entry<K, V> victim = this.hand();
+			if(victim != null && this.admissionSketch.frequency(key) <= this.admissionSketch.frequency(victim.key)){
+				this.rejections.incrementAndGet();
+				return null;
+			}
+		}
+		Entry<K, V> e = new Entry<K, V>(key, value);
+		Entry<K, V> prev = this.entries.putIfAbsent(key, e);
+		if(prev != null){
+			prev.referenced = true;
+			return prev.value;
+		}
+		this.clock.offer(e);
+		if(this.size.incrementAndGet() > this.capacity){
+			this.sweep();
+		}
+		return null;
+	}
+
+
+	/**
+	 * Removes the entry of a key if it is associated with the given value. The entry is marked as removed and dropped from the clock ring
+	 * when the clock hand reaches it or when the ring is next purged.
+	 * @param key the key
+	 * @param value the value the key must be associated with
+	 * @return true if the entry was removed; false otherwise
+	 */
+	public boolean remove(K key, V value){
+		Entry<K, V> e = this.entries.get(key);
+		if(e != null && e.value == value && this.entries.remove(key, e)){
+			e.removed = true;
+			int live = this.size.decrementAndGet();
+			if(this.removalsSincePurge.incrementAndGet() > live){
+				this.purge();
+			}
+			return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Returns the number of entries
+	 * @return the number of entries
+	 */
+	public int size(){
+		return this.size.get();
+	}
+
+
+	/**
+	 * Returns the maximum number of entries
+	 * @return the maximum number of entries
+	 */
+	public int capacity(){
+		return this.capacity;
+	}
+
+
+	/**
+	 * Returns the number of entries evicted since construction or the last {@link #clear()}
+	 * @return the number of evicted entries
+	 */
+	public long evictions(){
+		return this.evictions.get();
+	}
+
+
+	/**
+	 * Returns the number of insertions rejected by the admission filter since construction or the last {@link #clear()}
+	 * @return the number of rejected insertions
+	 */
+	public long rejections(){
+		return this.rejections.get();
+	}
+
+
+	/**
+	 * Removes all entries. This method should not be called while other threads are inserting entries.
+	 */
+	public void clear(){
+		this.sweepLock.lock();
+		try{
+			this.entries.clear();
+			this.clock.clear();
+			this.size.set(0);
+			this.evictions.set(0);
+			this.rejections.set(0);
+			this.removalsSincePurge.set(0);
+		}finally{
+			this.sweepLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Evicts entries until the size is within the capacity, unless another thread is already doing so.
+	 */
+	protected void sweep(){
+		if(!this.sweepLock.tryLock()){
+			return;
+		}
+		try{
+			while(this.size.get() > this.capacity){
+				Entry<K, V> e = this.clock.poll();
+				if(e == null){
+					//entries are added to the ring before they are counted, so this only happens if the cache was cleared
+					return;
+				}
+				if(e.removed){
+					continue;
+				}
+				if(e.referenced){
+					e.referenced = false;
+					this.clock.offer(e);
+				}
+				else if(this.entries.remove(e.key, e)){
+					this.size.decrementAndGet();
+					this.evictions.incrementAndGet();
+				}
+				//otherwise the entry was already removed, so it is simply dropped from the ring
+			}
+		}finally{
+			this.sweepLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Drops all removed entries from the clock ring, unless another thread is sweeping or purging it.
+	 */
+	protected void purge(){
+		if(!this.sweepLock.tryLock()){
+			return;
+		}
+		try{
+			this.removalsSincePurge.set(0);
+			Iterator<Entry<K, V>> it = this.clock.iterator();
+			while(it.hasNext()){
+				if(it.next().removed){
+					it.remove();
+				}
+			}
+		}finally{
+			this.sweepLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Returns the first entry of the clock ring that has not been removed, which is the next entry to consider for eviction.
+	 * Removed entries at the head of the ring are dropped, unless another thread is sweeping or purging it.
+	 * @return the entry at the clock hand, or null if the ring has no entries that have not been removed
+	 */
+	protected Entry<K, V> hand(){
+		if(this.sweepLock.tryLock()){
+			try{
+				Entry<K, V> e = this.clock.peek();
+				while(e != null && e.removed){
+					this.clock.poll();
+					e = this.clock.peek();
+				}
+				return e;
+			}finally{
+				this.sweepLock.unlock();
+			}
+		}
+		for(Entry<K, V> e : this.clock){
+			if(!e.removed){
+				return e;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * An entry of the map and the clock ring.
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 */
+	protected static class Entry <K, V>{
+
+		protected final K key;
+		protected final V value;
+
+		/**
+		 * Whether the entry has been read since the clock hand last passed it
+		 */
+		protected volatile boolean referenced;
+
+		/**
+		 * Whether the entry has been removed from the map with {@link ConcurrentClockCache#remove(Object, Object)}
+		 */
+		protected volatile boolean removed;
+
+		public Entry(K key, V value){
+			this.key = key;
+			this.value = value;
+		}
+
+	}
+
+}
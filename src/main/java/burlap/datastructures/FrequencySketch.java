@@ -0,0 +1,138 @@
+package burlap.datastructures;
+
+
+/**
+ * A count-min sketch that estimates how often keys have been accessed recently, as used by the TinyLFU cache admission policy [1].
+ * Each key increments one saturating counter in each of four rows of counters, and its estimated frequency is the minimum of its four counters.
+ * To keep the estimates recent, every counter is halved once the number of increments reaches ten times the number of counters per row.
+ * <p>
+ * Counters are updated without synchronization, so concurrent increments may occasionally be lost; the estimates are approximate anyway.
+ * <p>
+ * 1. Einziger, Gil, Roy Friedman, and Ben Manes. "TinyLFU: A highly efficient cache admission policy." ACM Transactions on Storage 13.4 (2017): 35.
+ * @author James MacGlashan
+ *
+ */
+public class FrequencySketch {
+
+	/**
+	 * The value at which counters stop increasing
+	 */
+	public static final int			MAX_COUNT = 15;
+
+	/**
+	 * The hash seeds of the rows
+	 */
+	protected static final int []	SEEDS = new int[]{0x97cb3127, 0xc3a5c85c, 0x3c6ef372, 0x9e3779b9};
+
+	/**
+	 * The counters of each row
+	 */
+	protected int [][]				counters;
+
+	/**
+	 * The mask to reduce a hash to a counter index; the number of counters per row is a power of two
+	 */
+	protected int					mask;
+
+	/**
+	 * The number of increments since the counters were last halved
+	 */
+	protected int					increments;
+
+	/**
+	 * The number of increments after which the counters are halved
+	 */
+	protected int					sampleSize;
+
+
+	/**
+	 * Initializes.
+	 * @param expectedKeys the number of keys whose frequency should be distinguishable, typically the capacity of the cache; must be at least 1
+	 */
+	public FrequencySketch(int expectedKeys){
+		if(expectedKeys < 1){
+			throw new RuntimeException("The expected number of keys of a FrequencySketch must be at least 1; was " + expectedKeys);
+		}
+		int width = Integer.highestOneBit(Math.min(expectedKeys, 1 << 24) - 1) << 1;
+		width = Math.max(width, 16);
+		this.counters = new int[SEEDS.length][width];
+		this.mask = width - 1;
+		this.sampleSize = 10 * width;
+	}
+
+
+	/**
+	 * Records an access of a key.
+	 * @param key the accessed key
+	 */
+	public void increment(Object key){
+		int h = spread(key.hashCode());
+		for(int i = 0; i < SEEDS.length; i++){
+			int [] row = this.counters[i];
+			int ind = this.index(h, i);
+			if(row[ind] < MAX_COUNT){
+				row[ind]++;
+			}
+		}
+		if(++this.increments >= this.sampleSize){
+			this.reset();
+		}
+	}
+
+
+	/**
+	 * Returns the estimated number of recent accesses of a key, which is at most {@link #MAX_COUNT}.
+	 * @param key the key
+	 * @return the estimated number of recent accesses of the key
+	 */
+	public int frequency(Object key){
+		int h = spread(key.hashCode());
+		int f = MAX_COUNT;
+		for(int i = 0; i < SEEDS.length; i++){
+			f = Math.min(f, this.counters[i][this.index(h, i)]);
+		}
+		return f;
+	}
+
+
+	/**
+	 * Halves every counter so that older accesses count less than recent ones.
+	 */
+	protected void reset(){
+		for(int [] row : this.counters){
+			for(int j = 0; j < row.length; j++){
+				row[j] >>>= 1;
+			}
+		}
+		this.increments = 0;
+	}
+
+
+	/**
+	 * Returns the index of the counter of a hash in a row.
+	 * @param h the spread hash of the key
+	 * @param row the row
+	 * @return the index of the counter in the row
+	 */
+	protected int index(int h, int row){
+		int x = (h + SEEDS[row]) * SEEDS[row];
+		x ^= x >>> 16;
+		return x & this.mask;
+	}
+
+
+	/**
+	 * Mixes the bits of a hash code so that keys with poor hash codes spread across the counters.
+	 * @param h the hash code
+	 * @return the spread hash
+	 */
+	protected static int spread(int h){
+		h ^= h >>> 17;
+		h *= 0xed5ad4bb;
+		h ^= h >>> 11;
+		h *= 0xac4c1b51;
+		h ^= h >>> 15;
+		return h;
+	}
+
+}
@@ -0,0 +1,177 @@
+package burlap.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Assigns the consecutive indices 0, 1, 2, ... to int ids in the order in which they are added, so that values associated with the ids
+ * can be stored in dense primitive arrays. The index of an id is found with an open-addressing (linear probing) hash table of primitive
+ * ints, so ids may be any int values, including negative or sparse ids such as hashed feature ids, and looking up or adding an id does
+ * not box it or allocate, except when the table grows. Ids cannot be removed individually; {@link #clear()} removes all of them.
+ * @author James MacGlashan
+ *
+ */
+public class IntIdIndex {
+
+	/**
+	 * The hash table; each slot holds one more than the index of the id stored in it, or 0 if it is empty. Its length is a power of two.
+	 */
+	protected int []			table;
+
+	/**
+	 * The id of each index
+	 */
+	protected int []			ids;
+
+	/**
+	 * The number of ids
+	 */
+	protected int				size = 0;
+
+
+	/**
+	 * Initializes with a default capacity.
+	 */
+	public IntIdIndex(){
+		this(16);
+	}
+
+
+	/**
+	 * Initializes with the given capacity, which grows as needed.
+	 * @param capacity the number of ids that can be added before the index grows
+	 */
+	public IntIdIndex(int capacity){
+		capacity = Math.max(capacity, 1);
+		this.ids = new int[capacity];
+		this.table = new int[tableLength(capacity)];
+	}
+
+
+	/**
+	 * Returns the number of ids
+	 * @return the number of ids
+	 */
+	public int size(){
+		return this.size;
+	}
+
+
+	/**
+	 * Returns the id of an index
+	 * @param index the index, in [0, {@link #size()})
+	 * @return the id of the index
+	 */
+	public int id(int index){
+		return this.ids[index];
+	}
+
+
+	/**
+	 * Returns the index of an id, or -1 if it has not been added.
+	 * @param id the id
+	 * @return the index of the id or -1
+	 */
+	public int index(int id){
+		return this.table[this.slot(id)] - 1;
+	}
+
+
+	/**
+	 * Returns the index of an id, adding the id with the next index if it has not been added.
+	 * @param id the id
+	 * @return the index of the id
+	 */
+	public int add(int id){
+		int slot = this.slot(id);
+		if(this.table[slot] != 0){
+			return this.table[slot] - 1;
+		}
+		if(this.size == this.ids.length){
+			this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+			if(this.table.length < tableLength(this.ids.length)){
+				this.rehash(tableLength(this.ids.length));
+				slot = this.slot(id);
+			}
+		}
+		this.ids[this.size] = id;
+		this.size++;
+		this.table[slot] = this.size;
+		return this.size - 1;
+	}
+
+
+	/**
+	 * Removes all ids, keeping the arrays for reuse.
+	 */
+	public void clear(){
+		Arrays.fill(this.table, 0);
+		this.size = 0;
+	}
+
+
+	/**
+	 * Returns a copy of this index.
+	 * @return a copy of this index
+	 */
+	public IntIdIndex copy(){
+		IntIdIndex c = new IntIdIndex(1);
+		c.table = this.table.clone();
+		c.ids = this.ids.clone();
+		c.size = this.size;
+		return c;
+	}
+
+
+	/**
+	 * Returns the slot of the table that holds an id, or the empty slot where it would be added
+	 * @param id the id
+	 * @return the slot
+	 */
+	protected int slot(int id){
+		int mask = this.table.length - 1;
+		int slot = mix(id) & mask;
+		while(this.table[slot] != 0 && this.ids[this.table[slot] - 1] != id){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+
+	/**
+	 * Rebuilds the table with a new length
+	 * @param length the new table length, a power of two larger than the number of ids
+	 */
+	protected void rehash(int length){
+		this.table = new int[length];
+		int mask = length - 1;
+		for(int i = 0; i < this.size; i++){
+			int slot = mix(this.ids[i]) & mask;
+			while(this.table[slot] != 0){
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = i + 1;
+		}
+	}
+
+
+	/**
+	 * Returns the table length for a number of ids, which keeps the table at most half full
+	 * @param capacity the number of ids
+	 * @return the table length
+	 */
+	protected static int tableLength(int capacity){
+		return Integer.highestOneBit(Math.max(capacity, 1)) << 2;
+	}
+
+
+	/**
+	 * Spreads the bits of an id so that consecutive ids do not form long probe runs
+	 * @param id the id
+	 * @return the mixed hash of the id
+	 */
+	protected static int mix(int id){
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,152 @@
+package burlap.datastructures;
+
+
+/**
+ * A fixed size array of non-negative priorities that supports updating a priority, computing the total of all priorities, finding the minimum
+ * positive priority, and finding the index at which a given prefix sum of priorities is reached, all in O(lg(n)) time. Sampling an index with probability
+ * proportional to its priority is therefore performed by finding the index of a uniformly random mass in [0, {@link #total()}). Unlike
+ * {@link StochasticTree}, which stores arbitrary objects in linked nodes, the tree is stored in primitive arrays indexed like a binary heap,
+ * so neither updates nor queries allocate objects, which makes it suitable for prioritized experience replay.
+ * <p>
+ * This class is not thread-safe.
+ * @author James MacGlashan
+ *
+ */
+public class SumTree {
+
+	/**
+	 * The sums of the priorities of each subtree, with the root at index 1 and the leaves at indices [leafOffset, 2*leafOffset)
+	 */
+	protected double []			sums;
+
+	/**
+	 * The minimum positive priority of each subtree, or positive infinity if it has none
+	 */
+	protected double []			mins;
+
+	/**
+	 * The index of the first leaf, which is the capacity rounded up to a power of two
+	 */
+	protected int				leafOffset;
+
+	/**
+	 * The number of priorities
+	 */
+	protected int				capacity;
+
+
+	/**
+	 * Initializes with every priority 0.
+	 * @param capacity the number of priorities; must be at least 1
+	 */
+	public SumTree(int capacity){
+		if(capacity < 1){
+			throw new RuntimeException("The capacity of a SumTree must be at least 1; was " + capacity);
+		}
+		this.capacity = capacity;
+		this.leafOffset = Integer.highestOneBit(capacity);
+		if(this.leafOffset < capacity){
+			this.leafOffset <<= 1;
+		}
+		this.sums = new double[2 * this.leafOffset];
+		this.mins = new double[2 * this.leafOffset];
+		this.clear();
+	}
+
+
+	/**
+	 * Returns the number of priorities
+	 * @return the number of priorities
+	 */
+	public int capacity(){
+		return this.capacity;
+	}
+
+
+	/**
+	 * Sets the priority of an index.
+	 * @param i the index
+	 * @param priority the non-negative priority
+	 */
+	public void set(int i, double priority){
+		if(i < 0 || i >= this.capacity){
+			throw new RuntimeException("SumTree index " + i + " is out of bounds for capacity " + this.capacity);
+		}
+		if(!(priority >= 0.)){
+			throw new RuntimeException("SumTree priorities must be non-negative; was " + priority);
+		}
+		int node = i + this.leafOffset;
+		this.sums[node] = priority;
+		this.mins[node] = priority > 0. ? priority : Double.POSITIVE_INFINITY;
+		node >>>= 1;
+		while(node > 0){
+			int left = node << 1;
+			this.sums[node] = this.sums[left] + this.sums[left + 1];
+			this.mins[node] = Math.min(this.mins[left], this.mins[left + 1]);
+			node >>>= 1;
+		}
+	}
+
+
+	/**
+	 * Returns the priority of an index
+	 * @param i the index
+	 * @return the priority of the index
+	 */
+	public double get(int i){
+		return this.sums[i + this.leafOffset];
+	}
+
+
+	/**
+	 * Returns the sum of all priorities
+	 * @return the sum of all priorities
+	 */
+	public double total(){
+		return this.sums[1];
+	}
+
+
+	/**
+	 * Returns the minimum positive priority, or positive infinity if every priority is 0
+	 * @return the minimum positive priority
+	 */
+	public double minPositive(){
+		return this.mins[1];
+	}
+
+
+	/**
+	 * Returns the index at which the prefix sum of priorities first exceeds the given mass, which is the index that a uniformly random mass
+	 * in [0, {@link #total()}) selects with probability proportional to its priority. Masses outside that range select the first or last index
+	 * with a positive priority. Indices with a priority of 0 are never returned unless every priority is 0.
+	 * @param mass the mass
+	 * @return the index selected by the mass
+	 */
+	public int find(double mass){
+		int node = 1;
+		while(node < this.leafOffset){
+			int left = node << 1;
+			if(mass < this.sums[left] || this.sums[left + 1] <= 0.){
+				node = left;
+			}
+			else{
+				mass -= this.sums[left];
+				node = left + 1;
+			}
+		}
+		return node - this.leafOffset;
+	}
+
+
+	/**
+	 * Sets every priority to 0.
+	 */
+	public void clear(){
+		for(int i = 0; i < this.sums.length; i++){
+			this.sums[i] = 0.;
+			this.mins[i] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+}
@@ -22,6 +22,11 @@ import java.util.*;
 public class RandomFactory {
 
 	private static RandomFactory factory = new RandomFactory();
+
+	/**
+	 * The factory that the static methods use in place of the global factory for the calling thread, if one has been set.
+	 */
+	private static final ThreadLocal<RandomFactory> threadFactory = new ThreadLocal<RandomFactory>();
 	
 	/**
 	 * A default random number generator
@@ -37,6 +42,11 @@ public class RandomFactory {
 	 * The set of random number generators that have been constructed for different String codes
 	 */
 	Map <String, Random> stringMapped;
+
+	/**
+	 * The seed from which the seeds of generators that are created without an explicit seed are derived; null if they are unseeded.
+	 */
+	Long baseSeed;
 	
 	
 	/**
@@ -67,7 +77,7 @@ public class RandomFactory {
 	 * @return the default random number generator.
 	 */
 	public static Random getDefault(){
-		return factory.ingetDefault();
+		return current().ingetDefault();
 	}
 	
 	/**
@@ -76,7 +86,7 @@ public class RandomFactory {
 	 * @return the default random number generator
 	 */
 	public static Random seedDefault(long seed){
-		return factory.inseedDefault(seed);
+		return current().inseedDefault(seed);
 	}
 	
 	
@@ -86,7 +96,7 @@ public class RandomFactory {
 	 * @return the default random generator
 	 */
 	public static Random getOrSeedDefault(long seed){
-		return factory.ingetOrSeedDefault(seed);
+		return current().ingetOrSeedDefault(seed);
 	}
 	
 	/**
@@ -95,7 +105,7 @@ public class RandomFactory {
 	 * @return the random generator
 	 */
 	public static Random getMapped(int id){
-		return factory.ingetMapped(id);
+		return current().ingetMapped(id);
 	}
 	
 	
@@ -106,7 +116,7 @@ public class RandomFactory {
 	 * @return the random generator
 	 */
 	public static Random seedMapped(int id, long seed){
-		return factory.inseedMapped(id, seed);
+		return current().inseedMapped(id, seed);
 	}
 	
 	
@@ -117,7 +127,7 @@ public class RandomFactory {
 	 * @return the random generator
 	 */
 	public static Random getOrSeedMapped(int id, long seed){
-		return factory.ingetOrSeedMapped(id, seed);
+		return current().ingetOrSeedMapped(id, seed);
 	}
 	
 	
@@ -128,7 +138,7 @@ public class RandomFactory {
 	 * @return the random generator
 	 */
 	public static Random getMapped(String id){
-		return factory.ingetMapped(id);
+		return current().ingetMapped(id);
 	}
 	
 	
@@ -139,7 +149,7 @@ public class RandomFactory {
 	 * @return the random generator
 	 */
 	public static Random seedMapped(String id, long seed){
-		return factory.inseedMapped(id, seed);
+		return current().inseedMapped(id, seed);
 	}
 	
 	
@@ -150,7 +160,7 @@ public class RandomFactory {
 	 * @return the random generator
 	 */
 	public static Random getOrSeedMapped(String id, long seed){
-		return factory.ingetOrSeedMapped(id, seed);
+		return current().ingetOrSeedMapped(id, seed);
 	}
 	
 	
@@ -163,6 +173,48 @@ public class RandomFactory {
 	
 	
 	
+	/**
+	 * Sets a {@link RandomFactory} that the static methods of this class will use for the calling thread in place of the
+	 * global factory, until {@link #clearThreadFactory()} is called from the same thread. This lets independent computations that run
+	 * in parallel (such as experiment trials) each have their own random generators, which keeps their random sequences
+	 * reproducible regardless of how the threads are scheduled.
+	 * @param threadRandomFactory the {@link RandomFactory} to use for the calling thread
+	 */
+	public static void setThreadFactory(RandomFactory threadRandomFactory){
+		threadFactory.set(threadRandomFactory);
+	}
+
+
+	/**
+	 * Returns the {@link RandomFactory} set for the calling thread with {@link #setThreadFactory(RandomFactory)}, or null if none is set.
+	 * @return the {@link RandomFactory} of the calling thread or null if none is set.
+	 */
+	public static RandomFactory getThreadFactory(){
+		return threadFactory.get();
+	}
+
+
+	/**
+	 * Removes the {@link RandomFactory} set for the calling thread so that the static methods use the global factory again.
+	 */
+	public static void clearThreadFactory(){
+		threadFactory.remove();
+	}
+
+
+	/**
+	 * Returns the factory the static methods should use for the calling thread.
+	 * @return the thread's {@link RandomFactory} if one is set; the global factory otherwise.
+	 */
+	private static RandomFactory current(){
+		RandomFactory f = threadFactory.get();
+		if(f != null){
+			return f;
+		}
+		return factory;
+	}
+
+
 	/**
 	 * Initializes the map structures
 	 */
@@ -171,6 +223,44 @@ public class RandomFactory {
 		intMapped = new HashMap<Integer, Random>();
 		stringMapped = new HashMap<String, Random>();
 	}
+
+
+	/**
+	 * Initializes the map structures so that every generator this factory creates without an explicit seed is seeded
+	 * with a seed derived from the given base seed and the generator's id. Two factories with the same base seed therefore produce
+	 * the same random sequences for the same ids.
+	 * @param baseSeed the seed from which the seeds of the generators are derived
+	 */
+	public RandomFactory(long baseSeed){
+		this();
+		this.baseSeed = baseSeed;
+	}
+
+
+	/**
+	 * Creates a new random generator for a generator without an explicit seed. If this factory has a base seed, the generator is
+	 * seeded with a seed derived from it and the given id code; otherwise it is unseeded.
+	 * @param idCode a code for the id of the generator
+	 * @return a new random generator
+	 */
+	protected Random newUnseededRandom(long idCode){
+		if(this.baseSeed == null){
+			return new Random();
+		}
+		return new Random(mixSeed(this.baseSeed + 0x9E3779B97F4A7C15L * (idCode + 1)));
+	}
+
+
+	/**
+	 * Scrambles a seed value with the SplitMix64 finalizer so that nearby inputs produce unrelated seeds.
+	 * @param z the value to scramble
+	 * @return the scrambled value
+	 */
+	public static long mixSeed(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
 	
 	
 	/**
@@ -179,7 +269,7 @@ public class RandomFactory {
 	 */
 	public Random ingetDefault(){
 		if(defaultRandom_ == null){
-			defaultRandom_ = new Random();
+			defaultRandom_ = this.newUnseededRandom(-1);
 		}
 		return defaultRandom_;
 	}
@@ -221,7 +311,7 @@ public class RandomFactory {
 			return r;
 		}
 		else{
-			r = new Random();
+			r = this.newUnseededRandom(id);
 			intMapped.put(id, r);
 		}
 		return r;
@@ -272,7 +362,7 @@ public class RandomFactory {
 			return r;
 		}
 		else{
-			r = new Random();
+			r = this.newUnseededRandom(((long)id.hashCode()) << 32);
 			stringMapped.put(id, r);
 		}
 		return r;
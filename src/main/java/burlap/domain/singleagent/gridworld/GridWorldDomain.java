@@ -17,6 +17,8 @@ import burlap.mdp.core.oo.propositional.PropositionalFunction;
 import burlap.mdp.core.oo.state.OOState;
 import burlap.mdp.core.oo.state.OOVariableKey;
 import burlap.mdp.core.oo.state.ObjectInstance;
+import burlap.mdp.core.oo.state.packed.PackedOOState;
+import burlap.mdp.core.oo.state.packed.PackedOOStateLayout;
 import burlap.mdp.core.state.State;
 import burlap.mdp.core.state.vardomain.VariableDomain;
 import burlap.mdp.singleagent.SADomain;
@@ -25,6 +27,7 @@ import burlap.mdp.singleagent.common.UniformCostRF;
 import burlap.mdp.singleagent.model.FactoredModel;
 import burlap.mdp.singleagent.model.RewardFunction;
 import burlap.mdp.singleagent.model.statemodel.FullStateModel;
+import burlap.mdp.singleagent.model.statemodel.PackedOOStateModel;
 import burlap.mdp.singleagent.oo.OOSADomain;
 import burlap.shell.EnvironmentShell;
 import burlap.shell.visual.VisualExplorer;
@@ -569,6 +572,65 @@ public class GridWorldDomain implements DomainGenerator {
 	}
 
 
+	/**
+	 * Returns the x position of the agent in a grid world state. The state may be a {@link GridWorldState}, a
+	 * {@link PackedOOState} of a grid world state, or any other {@link OOState} with an agent object.
+	 * @param s the grid world state
+	 * @return the x position of the agent
+	 */
+	public static int agentX(State s){
+		if(s instanceof GridWorldState){
+			return ((GridWorldState)s).agent.x;
+		}
+		return agentVariable(s, VAR_X);
+	}
+
+
+	/**
+	 * Returns the y position of the agent in a grid world state. The state may be a {@link GridWorldState}, a
+	 * {@link PackedOOState} of a grid world state, or any other {@link OOState} with an agent object.
+	 * @param s the grid world state
+	 * @return the y position of the agent
+	 */
+	public static int agentY(State s){
+		if(s instanceof GridWorldState){
+			return ((GridWorldState)s).agent.y;
+		}
+		return agentVariable(s, VAR_Y);
+	}
+
+
+	/**
+	 * Returns an int variable of the agent of an {@link OOState}, reading it from the packed array if the state is a {@link PackedOOState}.
+	 * @param s the {@link OOState}
+	 * @param variableKey the variable of the agent
+	 * @return the value of the variable
+	 */
+	protected static int agentVariable(State s, String variableKey){
+		if(s instanceof PackedOOState){
+			PackedOOState ps = (PackedOOState)s;
+			return (int)ps.getPackedValues()[packedAgentIndex(ps, variableKey)];
+		}
+		return ((Number)((OOState)s).objectsOfClass(CLASS_AGENT).get(0).get(variableKey)).intValue();
+	}
+
+
+	/**
+	 * Returns the index in the packed array of a {@link PackedOOState} of a variable of the agent.
+	 * @param s the {@link PackedOOState}
+	 * @param variableKey the variable of the agent
+	 * @return the index of the variable in the packed array
+	 */
+	protected static int packedAgentIndex(PackedOOState s, String variableKey){
+		PackedOOStateLayout layout = s.getLayout();
+		int [] agents = layout.indicesOfClass(CLASS_AGENT);
+		if(agents.length == 0){
+			throw new RuntimeException("Cannot find the agent of the packed state because it has no " + CLASS_AGENT + " object");
+		}
+		return layout.offset(agents[0]) + layout.schema(agents[0]).requireIndex(variableKey);
+	}
+
+
 	/**
 	 * Returns the change in x and y position for a given direction number.
 	 * @param i the direction number (0,1,2,3 indicates north,south,east,west, respectively)
@@ -603,7 +665,7 @@ public class GridWorldDomain implements DomainGenerator {
 	}
 
 
-	public static class GridWorldModel implements FullStateModel{
+	public static class GridWorldModel implements FullStateModel, PackedOOStateModel{
 
 
 		/**
@@ -699,6 +761,10 @@ public class GridWorldDomain implements DomainGenerator {
 		 */
 		protected State move(State s, int xd, int yd){
 
+			if(s instanceof PackedOOState){
+				return this.movePacked((PackedOOState)s, xd, yd);
+			}
+
 			GridWorldState gws = (GridWorldState)s;
 
 			int ax = gws.agent.x;
@@ -708,9 +774,7 @@ public class GridWorldDomain implements DomainGenerator {
 			int ny = ay+yd;
 
 			//hit wall, so do not change position
-			if(nx < 0 || nx >= map.length || ny < 0 || ny >= map[0].length || map[nx][ny] == 1 ||
-					(xd > 0 && (map[ax][ay] == 3 || map[ax][ay] == 4)) || (xd < 0 && (map[nx][ny] == 3 || map[nx][ny] == 4)) ||
-					(yd > 0 && (map[ax][ay] == 2 || map[ax][ay] == 4)) || (yd < 0 && (map[nx][ny] == 2 || map[nx][ny] == 4)) ){
+			if(this.blocked(ax, ay, xd, yd)){
 				nx = ax;
 				ny = ay;
 			}
@@ -723,6 +787,48 @@ public class GridWorldDomain implements DomainGenerator {
 		}
 
 
+		/**
+		 * Attempts to move the agent of a {@link PackedOOState} into the given position by writing its packed array, taking into account walls
+		 * @param s the current state
+		 * @param xd the attempted new X position of the agent
+		 * @param yd the attempted new Y position of the agent
+		 * @return input state s, after modification
+		 */
+		protected State movePacked(PackedOOState s, int xd, int yd){
+
+			double [] values = s.getPackedValues();
+			int xi = packedAgentIndex(s, VAR_X);
+			int yi = packedAgentIndex(s, VAR_Y);
+
+			int ax = (int)values[xi];
+			int ay = (int)values[yi];
+
+			if(!this.blocked(ax, ay, xd, yd)){
+				values[xi] = ax+xd;
+				values[yi] = ay+yd;
+			}
+
+			return s;
+		}
+
+
+		/**
+		 * Returns whether a wall or the edge of the map keeps the agent from moving from the given position in the given direction.
+		 * @param ax the x position of the agent
+		 * @param ay the y position of the agent
+		 * @param xd the change in x position
+		 * @param yd the change in y position
+		 * @return true if the agent cannot move; false otherwise
+		 */
+		protected boolean blocked(int ax, int ay, int xd, int yd){
+			int nx = ax+xd;
+			int ny = ay+yd;
+			return nx < 0 || nx >= map.length || ny < 0 || ny >= map[0].length || map[nx][ny] == 1 ||
+					(xd > 0 && (map[ax][ay] == 3 || map[ax][ay] == 4)) || (xd < 0 && (map[nx][ny] == 3 || map[nx][ny] == 4)) ||
+					(yd > 0 && (map[ax][ay] == 2 || map[ax][ay] == 4)) || (yd < 0 && (map[nx][ny] == 2 || map[nx][ny] == 4));
+		}
+
+
 		protected int actionInd(String name){
 			if(name.equals(ACTION_NORTH)){
 				return 0;
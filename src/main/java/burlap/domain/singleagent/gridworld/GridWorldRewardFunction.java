@@ -1,6 +1,5 @@
 package burlap.domain.singleagent.gridworld;
 
-import burlap.domain.singleagent.gridworld.state.GridWorldState;
 import burlap.mdp.core.action.Action;
 import burlap.mdp.core.state.State;
 import burlap.mdp.singleagent.model.RewardFunction;
@@ -98,8 +97,8 @@ public class GridWorldRewardFunction implements RewardFunction {
 	@Override
 	public double reward(State s, Action a, State sprime) {
 
-		int x = ((GridWorldState)sprime).agent.x;
-		int y = ((GridWorldState)sprime).agent.y;
+		int x = GridWorldDomain.agentX(sprime);
+		int y = GridWorldDomain.agentY(sprime);
 		
 		if(x >= this.width || x < 0 || y >= this.height || y < 0){
 			throw new RuntimeException("GridWorld reward matrix is only defined for a " + this.width + "x" + 
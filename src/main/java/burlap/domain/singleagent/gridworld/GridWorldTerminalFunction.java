@@ -1,6 +1,5 @@
 package burlap.domain.singleagent.gridworld;
 
-import burlap.domain.singleagent.gridworld.state.GridWorldState;
 import burlap.mdp.core.TerminalFunction;
 import burlap.mdp.core.state.State;
 
@@ -88,8 +87,8 @@ public class GridWorldTerminalFunction implements TerminalFunction {
 	
 	@Override
 	public boolean isTerminal(State s) {
-		int x = ((GridWorldState)s).agent.x;
-		int y = ((GridWorldState)s).agent.y;
+		int x = GridWorldDomain.agentX(s);
+		int y = GridWorldDomain.agentY(s);
 		return this.terminalPositions.contains(new IntPair(x, y));
 	}
 	
@@ -26,7 +26,6 @@ import java.util.*;
  */
 public class GridGameStandardMechanics implements FullJointModel {
 
-	Random 						rand;
 	Domain						domain;
 	double						pMoveThroughSWall;
 	
@@ -36,7 +35,6 @@ public class GridGameStandardMechanics implements FullJointModel {
 	 * @param d the domain object
 	 */
 	public GridGameStandardMechanics(Domain d){
-		rand = RandomFactory.getMapped(0);
 		domain = d;
 		pMoveThroughSWall = 0.5;
 	}
@@ -48,7 +46,6 @@ public class GridGameStandardMechanics implements FullJointModel {
 	 * @param semiWallPassThroughProb the probability that an agent will pass through a semi-wall.
 	 */
 	public GridGameStandardMechanics(Domain d, double semiWallPassThroughProb){
-		rand = RandomFactory.getMapped(0);
 		domain = d;
 		pMoveThroughSWall = semiWallPassThroughProb;
 	}
@@ -413,7 +410,7 @@ public class GridGameStandardMechanics implements FullJointModel {
 				continue; //already resolved winner
 			}
 			List <Integer> competitors = collissionSets.get(agentId);
-			int winner = competitors.get(rand.nextInt(competitors.size()));
+			int winner = competitors.get(RandomFactory.getMapped(0).nextInt(competitors.size()));
 			for(Integer a2 : competitors){
 				winners.put(a2, winner);
 			}
@@ -589,7 +586,7 @@ public class GridGameStandardMechanics implements FullJointModel {
 					return true;
 				}
 				else if(wt == 1){ //stochastic wall
-					double roll = rand.nextDouble();
+					double roll = RandomFactory.getMapped(0).nextDouble();
 					if(roll > pMoveThroughSWall){
 						return true;
 					}
@@ -0,0 +1,242 @@
+package burlap.mdp.core.oo.state.packed;
+
+import burlap.mdp.core.oo.state.MutableOOState;
+import burlap.mdp.core.oo.state.OOState;
+import burlap.mdp.core.oo.state.OOStateUtilities;
+import burlap.mdp.core.oo.state.OOVariableKey;
+import burlap.mdp.core.oo.state.ObjectInstance;
+import burlap.mdp.core.oo.state.exceptions.UnknownObjectException;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+import burlap.mdp.core.state.annotations.DeepCopyState;
+import burlap.statehashing.HashableState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link MutableOOState} that stores the variable values of all of its objects in a single double array, laid out
+ * by a {@link PackedOOStateLayout} that is derived from the object classes of the state and shared between copies.
+ * Copying a state is a single array clone, and {@link #hashCode()} and {@link #equals(Object)} operate directly on
+ * the layout and packed array. The {@link ObjectInstance}s returned by this state are {@link PackedObjectInstance}
+ * views of the packed array, so setting their values modifies this state.
+ * <p>
+ * Because this class implements {@link OOState}, it works unchanged with the existing {@link burlap.statehashing.HashableStateFactory}
+ * implementations, such as the object identifier independent {@link burlap.statehashing.simple.SimpleHashableStateFactory}.
+ * It also implements {@link HashableState} with object identifier dependent hashing and equality over the packed array,
+ * so if identifier dependence is acceptable, it is recommended that you use the {@link burlap.statehashing.ReflectiveHashableStateFactory}
+ * to avoid boxing each value when hashing. Use {@link PackedOOStateCodec} to pack states of an existing domain and unpack them
+ * back into the domain's own state representation, and {@link burlap.mdp.singleagent.model.PackedOOModel} to use packed states with an existing model.
+ * @author James MacGlashan.
+ */
+@DeepCopyState
+public class PackedOOState implements MutableOOState, HashableState {
+
+	/**
+	 * The layout of the packed array
+	 */
+	protected PackedOOStateLayout layout;
+
+	/**
+	 * The packed variable values of all objects
+	 */
+	protected double [] values;
+
+
+	/**
+	 * Initializes with a layout and packed array. The array is not copied.
+	 * @param layout the layout of the packed array
+	 * @param values the packed array
+	 */
+	public PackedOOState(PackedOOStateLayout layout, double[] values) {
+		if(values.length != layout.size()){
+			throw new RuntimeException("Cannot create PackedOOState because the packed array has length " + values.length + " but the layout requires length " + layout.size());
+		}
+		this.layout = layout;
+		this.values = values;
+	}
+
+	/**
+	 * Packs an {@link OOState}, deriving the layout from its objects.
+	 * @param src the source {@link OOState}
+	 */
+	public PackedOOState(OOState src){
+		this.layout = PackedOOStateLayout.layoutFor(src, null);
+		this.values = new double[this.layout.size()];
+		for(ObjectInstance o : src.objects()){
+			int i = this.layout.indexOf(o.name());
+			this.layout.schema(i).write(o, this.values, this.layout.offset(i));
+		}
+	}
+
+	public PackedOOStateLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Returns the packed array backing this state. Changes to the array change this state.
+	 * @return the packed array backing this state
+	 */
+	public double [] getPackedValues() {
+		return values;
+	}
+
+	@Override
+	public List<Object> variableKeys() {
+		List<Object> keys = new ArrayList<Object>(this.values.length);
+		for(int i = 0; i < this.layout.numObjects(); i++){
+			String name = this.layout.objectName(i);
+			for(Object key : this.layout.schema(i).variableKeys()){
+				keys.add(new OOVariableKey(name, key));
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public Object get(Object variableKey) {
+		OOVariableKey key = OOStateUtilities.generateKey(variableKey);
+		int ob = this.requireObject(key.obName);
+		PackedObjectClassSchema schema = this.layout.schema(ob);
+		int i = schema.requireIndex(key.obVarKey);
+		return schema.decode(i, this.values[this.layout.offset(ob)+i]);
+	}
+
+	@Override
+	public MutableState set(Object variableKey, Object value) {
+		OOVariableKey key = OOStateUtilities.generateKey(variableKey);
+		int ob = this.requireObject(key.obName);
+		PackedObjectClassSchema schema = this.layout.schema(ob);
+		int i = schema.requireIndex(key.obVarKey);
+		this.values[this.layout.offset(ob)+i] = schema.encode(i, value);
+		return this;
+	}
+
+	@Override
+	public PackedOOState copy() {
+		return new PackedOOState(this.layout, this.values.clone());
+	}
+
+	@Override
+	public MutableOOState addObject(ObjectInstance o) {
+		PackedObjectClassSchema schema = this.layout.classSchema(o.className());
+		if(schema == null || !schema.matches(o)){
+			schema = new PackedObjectClassSchema(o);
+		}
+		this.relayout(this.layout.withObject(o.name(), schema), null, null);
+		int i = this.layout.indexOf(o.name());
+		schema.write(o, this.values, this.layout.offset(i));
+		return this;
+	}
+
+	@Override
+	public MutableOOState removeObject(String oname) {
+		if(this.layout.indexOf(oname) != -1){
+			this.relayout(this.layout.withoutObject(oname), null, null);
+		}
+		return this;
+	}
+
+	@Override
+	public MutableOOState renameObject(String objectName, String newName) {
+		if(this.layout.indexOf(objectName) != -1){
+			this.relayout(this.layout.renamed(objectName, newName), objectName, newName);
+		}
+		return this;
+	}
+
+	@Override
+	public int numObjects() {
+		return this.layout.numObjects();
+	}
+
+	@Override
+	public ObjectInstance object(String oname) {
+		int i = this.layout.indexOf(oname);
+		if(i == -1){
+			return null;
+		}
+		return this.view(i);
+	}
+
+	@Override
+	public List<ObjectInstance> objects() {
+		List<ObjectInstance> objects = new ArrayList<ObjectInstance>(this.layout.numObjects());
+		for(int i = 0; i < this.layout.numObjects(); i++){
+			objects.add(this.view(i));
+		}
+		return objects;
+	}
+
+	@Override
+	public List<ObjectInstance> objectsOfClass(String oclass) {
+		int [] inds = this.layout.indicesOfClass(oclass);
+		List<ObjectInstance> objects = new ArrayList<ObjectInstance>(inds.length);
+		for(int i : inds){
+			objects.add(this.view(i));
+		}
+		return objects;
+	}
+
+	@Override
+	public State s() {
+		return this;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31*this.layout.hashCode() + Arrays.hashCode(this.values);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof PackedOOState)){
+			return false;
+		}
+		PackedOOState o = (PackedOOState)obj;
+		return this.layout.equals(o.layout) && Arrays.equals(this.values, o.values);
+	}
+
+	@Override
+	public String toString() {
+		return OOStateUtilities.ooStateToString(this);
+	}
+
+
+	protected PackedObjectInstance view(int i){
+		return new PackedObjectInstance(this.layout.objectName(i), this.layout.schema(i), this.values, this.layout.offset(i));
+	}
+
+	protected int requireObject(String oname){
+		int i = this.layout.indexOf(oname);
+		if(i == -1){
+			throw new UnknownObjectException(oname);
+		}
+		return i;
+	}
+
+	/**
+	 * Moves this state's values into a new array with the given layout, copying the slice of each object that
+	 * is in both layouts.
+	 * @param nlayout the new layout
+	 * @param renamedFrom the old name of a renamed object; null if no object was renamed
+	 * @param renamedTo the new name of a renamed object; null if no object was renamed
+	 */
+	protected void relayout(PackedOOStateLayout nlayout, String renamedFrom, String renamedTo){
+		double [] nvalues = new double[nlayout.size()];
+		for(int i = 0; i < nlayout.numObjects(); i++){
+			String name = nlayout.objectName(i);
+			int oi = this.layout.indexOf(name.equals(renamedTo) ? renamedFrom : name);
+			if(oi != -1 && this.layout.schema(oi).equals(nlayout.schema(i))){
+				System.arraycopy(this.values, this.layout.offset(oi), nvalues, nlayout.offset(i), nlayout.schema(i).size());
+			}
+		}
+		this.layout = nlayout;
+		this.values = nvalues;
+	}
+
+}
@@ -0,0 +1,123 @@
+package burlap.mdp.core.oo.state.packed;
+
+import burlap.mdp.core.oo.state.MutableOOState;
+import burlap.mdp.core.oo.state.OOState;
+import burlap.mdp.core.oo.state.OOVariableKey;
+import burlap.mdp.core.oo.state.ObjectInstance;
+import burlap.mdp.core.state.State;
+
+import java.util.List;
+
+/**
+ * Converts the states of an existing OO-MDP domain to {@link PackedOOState}s and back. Packing reuses the layout
+ * of the most recently packed state when the objects of the next state have the same names and classes, so that
+ * packing the states of a domain whose objects do not change only writes their values into a new array.
+ * Unpacking copies a template state of the domain's own state representation and sets the variables whose values
+ * differ from the template with {@link MutableOOState#set(Object, Object)}; objects that are not in the template are added
+ * from the prototype object of their class schema, and template objects that are not in the packed state are removed.
+ * The template state must therefore implement {@link MutableOOState} and accept {@link OOVariableKey} variable keys,
+ * as the states of the existing OO-MDP domains do.
+ * <p>
+ * Codecs may be used by multiple threads at once.
+ * @author James MacGlashan.
+ */
+public class PackedOOStateCodec {
+
+	/**
+	 * The template state that is copied when unpacking
+	 */
+	protected MutableOOState template;
+
+	/**
+	 * The layout of the most recently packed state
+	 */
+	protected volatile PackedOOStateLayout layout;
+
+
+	/**
+	 * Initializes.
+	 * @param template a state of the domain, which is copied and used as the template for unpacking.
+	 */
+	public PackedOOStateCodec(MutableOOState template) {
+		this.template = (MutableOOState)template.copy();
+		this.layout = PackedOOStateLayout.layoutFor(template, null);
+	}
+
+	public MutableOOState getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Packs a state. If the state is already a {@link PackedOOState}, it is returned.
+	 * @param s the {@link OOState} to pack
+	 * @return the {@link PackedOOState}
+	 */
+	public PackedOOState pack(State s){
+		if(s instanceof PackedOOState){
+			return (PackedOOState)s;
+		}
+		if(!(s instanceof OOState)){
+			throw new RuntimeException("Cannot pack state because it is a " + s.getClass().getName() + " rather than an OOState");
+		}
+		OOState os = (OOState)s;
+		PackedOOStateLayout l = this.layout;
+		if(!l.fits(os)){
+			l = PackedOOStateLayout.layoutFor(os, l);
+			this.layout = l;
+		}
+		double [] values = new double[l.size()];
+		for(ObjectInstance o : os.objects()){
+			int i = l.indexOf(o.name());
+			l.schema(i).write(o, values, l.offset(i));
+		}
+		return new PackedOOState(l, values);
+	}
+
+	/**
+	 * Unpacks a state into the template's state representation. If the state is not a {@link PackedOOState}, it is returned.
+	 * @param s the {@link PackedOOState} to unpack
+	 * @return the unpacked state
+	 */
+	public State unpack(State s){
+		if(!(s instanceof PackedOOState)){
+			return s;
+		}
+		PackedOOState ps = (PackedOOState)s;
+		PackedOOStateLayout l = ps.getLayout();
+		double [] values = ps.getPackedValues();
+
+		MutableOOState u = (MutableOOState)this.template.copy();
+		if(!l.fits(u)){
+			for(ObjectInstance o : u.objects()){
+				if(l.indexOf(o.name()) == -1){
+					u.removeObject(o.name());
+				}
+			}
+		}
+
+		for(int i = 0; i < l.numObjects(); i++){
+			String name = l.objectName(i);
+			PackedObjectClassSchema schema = l.schema(i);
+			ObjectInstance o = u.object(name);
+			if(o != null && !o.className().equals(schema.className())){
+				u.removeObject(name);
+				o = null;
+			}
+			if(o == null){
+				o = schema.getPrototype().copyWithName(name);
+				u.addObject(o);
+			}
+			List<Object> keys = schema.variableKeys();
+			int offset = l.offset(i);
+			for(int j = 0; j < keys.size(); j++){
+				Object v = schema.decode(j, values[offset+j]);
+				if(!v.equals(o.get(keys.get(j)))){
+					u.set(new OOVariableKey(name, keys.get(j)), v);
+				}
+			}
+		}
+
+		return u;
+	}
+
+}
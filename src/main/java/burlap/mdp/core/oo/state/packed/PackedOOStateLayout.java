@@ -0,0 +1,316 @@
+package burlap.mdp.core.oo.state.packed;
+
+import burlap.mdp.core.oo.state.OOState;
+import burlap.mdp.core.oo.state.ObjectInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The layout of a {@link PackedOOState}: the name and {@link PackedObjectClassSchema} of each object in the state,
+ * and the offset of each object's slice in the packed array. Objects are laid out in order of their names so that
+ * two states with the same set of objects have equal layouts regardless of the order in which their source
+ * states listed the objects. Layouts are immutable; adding, removing, or renaming an object of a {@link PackedOOState}
+ * produces a new layout, and states that are copied from each other share the same layout instance.
+ * @author James MacGlashan.
+ */
+public class PackedOOStateLayout {
+
+	/**
+	 * The names of the objects, sorted
+	 */
+	protected String [] objectNames;
+
+	/**
+	 * The schema of each object
+	 */
+	protected PackedObjectClassSchema [] schemas;
+
+	/**
+	 * The offset of each object's slice in the packed array
+	 */
+	protected int [] offsets;
+
+	/**
+	 * The length of the packed array
+	 */
+	protected int size;
+
+	/**
+	 * The index of each object by name
+	 */
+	protected Map<String, Integer> objectIndex;
+
+	/**
+	 * The indices of the objects of each class, in class order of first appearance
+	 */
+	protected Map<String, int[]> classIndices;
+
+	/**
+	 * The schema of each object class in this layout
+	 */
+	protected Map<String, PackedObjectClassSchema> classSchemas;
+
+	/**
+	 * Cached hash code
+	 */
+	protected int hashCode;
+
+
+	/**
+	 * Creates a layout for the given object names and schemas, which need not be sorted.
+	 * @param objectNames the object names
+	 * @param schemas the schema of each object
+	 */
+	public PackedOOStateLayout(List<String> objectNames, List<PackedObjectClassSchema> schemas){
+
+		if(objectNames.size() != schemas.size()){
+			throw new RuntimeException("Cannot create PackedOOStateLayout because the number of object names (" + objectNames.size() + ") does not match the number of schemas (" + schemas.size() + ")");
+		}
+
+		final String [] names = objectNames.toArray(new String[objectNames.size()]);
+		Integer [] order = new Integer[names.length];
+		for(int i = 0; i < order.length; i++){
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return names[o1].compareTo(names[o2]);
+			}
+		});
+
+		this.objectNames = new String[names.length];
+		this.schemas = new PackedObjectClassSchema[names.length];
+		this.offsets = new int[names.length];
+		this.objectIndex = new HashMap<String, Integer>(names.length*2);
+		this.classSchemas = new HashMap<String, PackedObjectClassSchema>();
+		Map<String, List<Integer>> byClass = new LinkedHashMap<String, List<Integer>>();
+
+		int offset = 0;
+		for(int i = 0; i < order.length; i++){
+			String name = names[order[i]];
+			PackedObjectClassSchema schema = schemas.get(order[i]);
+			if(this.objectIndex.put(name, i) != null){
+				throw new RuntimeException("Cannot create PackedOOStateLayout because the object name " + name + " appears more than once");
+			}
+			PackedObjectClassSchema classSchema = this.classSchemas.get(schema.className());
+			if(classSchema == null){
+				this.classSchemas.put(schema.className(), schema);
+			}
+			else if(!classSchema.equals(schema)){
+				throw new RuntimeException("Cannot create PackedOOStateLayout because objects of class " + schema.className() + " have different variables");
+			}
+			else{
+				schema = classSchema;
+			}
+
+			this.objectNames[i] = name;
+			this.schemas[i] = schema;
+			this.offsets[i] = offset;
+			offset += schema.size();
+
+			List<Integer> classList = byClass.get(schema.className());
+			if(classList == null){
+				classList = new ArrayList<Integer>();
+				byClass.put(schema.className(), classList);
+			}
+			classList.add(i);
+		}
+		this.size = offset;
+
+		this.classIndices = new HashMap<String, int[]>(byClass.size()*2);
+		for(Map.Entry<String, List<Integer>> e : byClass.entrySet()){
+			int [] inds = new int[e.getValue().size()];
+			for(int i = 0; i < inds.length; i++){
+				inds[i] = e.getValue().get(i);
+			}
+			this.classIndices.put(e.getKey(), inds);
+		}
+
+		this.hashCode = 31*Arrays.hashCode(this.objectNames) + Arrays.hashCode(this.schemas);
+	}
+
+
+	/**
+	 * Derives the layout of an {@link OOState}. If a schema for an object class is provided in the previous layout,
+	 * it is reused; otherwise it is derived from the first object of that class.
+	 * @param s the source {@link OOState}
+	 * @param previous a previous layout whose class schemas should be reused; may be null
+	 * @return the layout of the state
+	 */
+	public static PackedOOStateLayout layoutFor(OOState s, PackedOOStateLayout previous){
+		List<ObjectInstance> objects = s.objects();
+		List<String> names = new ArrayList<String>(objects.size());
+		List<PackedObjectClassSchema> schemas = new ArrayList<PackedObjectClassSchema>(objects.size());
+		Map<String, PackedObjectClassSchema> known = new HashMap<String, PackedObjectClassSchema>();
+		if(previous != null){
+			known.putAll(previous.classSchemas);
+		}
+		for(ObjectInstance o : objects){
+			PackedObjectClassSchema schema = known.get(o.className());
+			if(schema == null || !schema.matches(o)){
+				schema = new PackedObjectClassSchema(o);
+				known.put(o.className(), schema);
+			}
+			names.add(o.name());
+			schemas.add(schema);
+		}
+		return new PackedOOStateLayout(names, schemas);
+	}
+
+
+	/**
+	 * Returns whether the objects of an {@link OOState} have the same names and classes as the objects of this layout,
+	 * in which case the state can be packed with this layout.
+	 * @param s the source {@link OOState}
+	 * @return true if the state can be packed with this layout; false otherwise.
+	 */
+	public boolean fits(OOState s){
+		if(s.numObjects() != this.objectNames.length){
+			return false;
+		}
+		for(ObjectInstance o : s.objects()){
+			Integer ind = this.objectIndex.get(o.name());
+			if(ind == null || !this.schemas[ind].className().equals(o.className())){
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns a new layout with an object added, or with its schema replaced if an object with that name already exists.
+	 * @param name the name of the object
+	 * @param schema the schema of the object
+	 * @return the new layout
+	 */
+	public PackedOOStateLayout withObject(String name, PackedObjectClassSchema schema){
+		List<String> names = new ArrayList<String>(this.objectNames.length+1);
+		List<PackedObjectClassSchema> nschemas = new ArrayList<PackedObjectClassSchema>(this.objectNames.length+1);
+		for(int i = 0; i < this.objectNames.length; i++){
+			if(!this.objectNames[i].equals(name)){
+				names.add(this.objectNames[i]);
+				nschemas.add(this.schemas[i]);
+			}
+		}
+		names.add(name);
+		nschemas.add(schema);
+		return new PackedOOStateLayout(names, nschemas);
+	}
+
+
+	/**
+	 * Returns a new layout with an object removed.
+	 * @param name the name of the object to remove
+	 * @return the new layout
+	 */
+	public PackedOOStateLayout withoutObject(String name){
+		return this.renamed(name, null);
+	}
+
+
+	/**
+	 * Returns a new layout in which an object has been renamed.
+	 * @param name the name of the object
+	 * @param newName the new name of the object; if null, the object is removed
+	 * @return the new layout
+	 */
+	public PackedOOStateLayout renamed(String name, String newName){
+		List<String> names = new ArrayList<String>(this.objectNames.length);
+		List<PackedObjectClassSchema> nschemas = new ArrayList<PackedObjectClassSchema>(this.objectNames.length);
+		for(int i = 0; i < this.objectNames.length; i++){
+			if(!this.objectNames[i].equals(name)){
+				names.add(this.objectNames[i]);
+				nschemas.add(this.schemas[i]);
+			}
+			else if(newName != null){
+				names.add(newName);
+				nschemas.add(this.schemas[i]);
+			}
+		}
+		return new PackedOOStateLayout(names, nschemas);
+	}
+
+
+	public int numObjects(){
+		return this.objectNames.length;
+	}
+
+	/**
+	 * Returns the length of the packed array of states with this layout.
+	 * @return the length of the packed array
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	public String objectName(int i){
+		return this.objectNames[i];
+	}
+
+	public PackedObjectClassSchema schema(int i){
+		return this.schemas[i];
+	}
+
+	public int offset(int i){
+		return this.offsets[i];
+	}
+
+	/**
+	 * Returns the index of the object with the given name, or -1 if there is no such object.
+	 * @param name the name of the object
+	 * @return the index of the object, or -1 if there is no such object.
+	 */
+	public int indexOf(String name){
+		Integer ind = this.objectIndex.get(name);
+		return ind == null ? -1 : ind;
+	}
+
+	/**
+	 * Returns the indices of the objects of the given class.
+	 * @param className the name of the object class
+	 * @return the indices of the objects of the class, which is empty if there are no objects of the class.
+	 */
+	public int [] indicesOfClass(String className){
+		int [] inds = this.classIndices.get(className);
+		return inds == null ? new int[0] : inds;
+	}
+
+	/**
+	 * Returns the schema of an object class in this layout, or null if there are no objects of the class.
+	 * @param className the name of the object class
+	 * @return the schema of the class
+	 */
+	public PackedObjectClassSchema classSchema(String className){
+		return this.classSchemas.get(className);
+	}
+
+	public List<String> objectNames(){
+		return Collections.unmodifiableList(Arrays.asList(this.objectNames));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof PackedOOStateLayout)){
+			return false;
+		}
+		PackedOOStateLayout o = (PackedOOStateLayout)obj;
+		return this.hashCode == o.hashCode && Arrays.equals(this.objectNames, o.objectNames) && Arrays.equals(this.schemas, o.schemas);
+	}
+}
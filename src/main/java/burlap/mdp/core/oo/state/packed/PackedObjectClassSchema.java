@@ -0,0 +1,236 @@
+package burlap.mdp.core.oo.state.packed;
+
+import burlap.mdp.core.oo.state.ObjectInstance;
+import burlap.mdp.core.state.StateUtilities;
+import burlap.mdp.core.state.UnknownKeyException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The layout of a single OO-MDP object class inside a {@link PackedOOState}. A schema is derived from a prototype
+ * {@link ObjectInstance} of the class and records the object's variable keys, in the order returned by
+ * {@link ObjectInstance#variableKeys()}, along with the primitive type of each variable's value, so that an object
+ * of the class can be stored as a contiguous slice of a packed double array and boxed back into the same value types
+ * when it is read. Supported value types are {@link Integer}, {@link Long}, {@link Float}, {@link Double}, and {@link Boolean};
+ * integer and long values are stored exactly as long as their magnitude is at most 2^53.
+ * <p>
+ * Schemas are immutable and are shared by every {@link PackedOOState} that uses them.
+ * @author James MacGlashan.
+ */
+public class PackedObjectClassSchema {
+
+	public static final int TYPE_INT = 0;
+	public static final int TYPE_LONG = 1;
+	public static final int TYPE_FLOAT = 2;
+	public static final int TYPE_DOUBLE = 3;
+	public static final int TYPE_BOOLEAN = 4;
+
+
+	/**
+	 * The name of the OO-MDP object class
+	 */
+	protected String className;
+
+	/**
+	 * The variable keys of the object class, in packed order
+	 */
+	protected List<Object> variableKeys;
+
+	/**
+	 * The type of each variable, one of the TYPE_ constants
+	 */
+	protected int [] types;
+
+	/**
+	 * Index of each variable key, also indexed by the string form of the key
+	 */
+	protected Map<Object, Integer> keyIndex;
+
+	/**
+	 * A copy of the object from which this schema was derived, used to create new source objects of this class when unpacking
+	 */
+	protected ObjectInstance prototype;
+
+
+	/**
+	 * Derives the schema of an object class from an instance of the class.
+	 * @param prototype an {@link ObjectInstance} of the class
+	 */
+	public PackedObjectClassSchema(ObjectInstance prototype){
+		this.className = prototype.className();
+		this.prototype = (ObjectInstance)prototype.copy();
+		List<Object> keys = prototype.variableKeys();
+		this.variableKeys = Collections.unmodifiableList(new ArrayList<Object>(keys));
+		this.types = new int[keys.size()];
+		this.keyIndex = new HashMap<Object, Integer>(keys.size()*4);
+		for(int i = 0; i < keys.size(); i++){
+			Object key = keys.get(i);
+			this.types[i] = typeOf(prototype.get(key), className, key);
+			this.keyIndex.put(key, i);
+			if(!this.keyIndex.containsKey(key.toString())){
+				this.keyIndex.put(key.toString(), i);
+			}
+		}
+	}
+
+	public String className() {
+		return className;
+	}
+
+	/**
+	 * Returns the number of variables, and therefore the number of packed array entries, of an object of this class.
+	 * @return the number of variables of an object of this class
+	 */
+	public int size() {
+		return types.length;
+	}
+
+	public List<Object> variableKeys() {
+		return variableKeys;
+	}
+
+	public int type(int i){
+		return types[i];
+	}
+
+	public ObjectInstance getPrototype() {
+		return prototype;
+	}
+
+	/**
+	 * Returns the index of a variable in this schema, or -1 if this schema has no such variable.
+	 * @param variableKey the variable key, or its string form
+	 * @return the index of the variable, or -1 if there is no such variable.
+	 */
+	public int indexOf(Object variableKey){
+		Integer ind = this.keyIndex.get(variableKey);
+		if(ind == null){
+			ind = this.keyIndex.get(variableKey.toString());
+			if(ind == null){
+				return -1;
+			}
+		}
+		return ind;
+	}
+
+	/**
+	 * Returns the index of a variable in this schema, throwing an {@link UnknownKeyException} if there is no such variable.
+	 * @param variableKey the variable key, or its string form
+	 * @return the index of the variable
+	 */
+	public int requireIndex(Object variableKey){
+		int ind = this.indexOf(variableKey);
+		if(ind == -1){
+			throw new UnknownKeyException(variableKey);
+		}
+		return ind;
+	}
+
+	/**
+	 * Returns whether the object has exactly the variable keys of this schema, in the same order, and is of the same class.
+	 * @param o the object to test
+	 * @return true if the object can be packed with this schema; false otherwise.
+	 */
+	public boolean matches(ObjectInstance o){
+		return this.className.equals(o.className()) && this.variableKeys.equals(o.variableKeys());
+	}
+
+	/**
+	 * Writes the variable values of an object into a packed array.
+	 * @param o the object to write; it must match this schema
+	 * @param values the packed array
+	 * @param offset the offset in the packed array of the object's first variable
+	 */
+	public void write(ObjectInstance o, double [] values, int offset){
+		for(int i = 0; i < this.types.length; i++){
+			values[offset+i] = this.encode(i, o.get(this.variableKeys.get(i)));
+		}
+	}
+
+	/**
+	 * Converts a variable value into its packed double form.
+	 * @param i the index of the variable
+	 * @param value the value, which may be a {@link Number}, {@link Boolean}, or {@link String} representation of either
+	 * @return the packed form of the value
+	 */
+	public double encode(int i, Object value){
+		if(this.types[i] == TYPE_BOOLEAN){
+			return StateUtilities.stringOrBoolean(value) ? 1. : 0.;
+		}
+		Number n = StateUtilities.stringOrNumber(value);
+		switch(this.types[i]){
+			case TYPE_INT:
+				return n.intValue();
+			case TYPE_LONG:
+				return n.longValue();
+			case TYPE_FLOAT:
+				return n.floatValue();
+			default:
+				return n.doubleValue();
+		}
+	}
+
+	/**
+	 * Boxes a packed value back into the type of the variable.
+	 * @param i the index of the variable
+	 * @param v the packed value
+	 * @return the boxed value
+	 */
+	public Object decode(int i, double v){
+		switch(this.types[i]){
+			case TYPE_INT:
+				return (int)v;
+			case TYPE_LONG:
+				return (long)v;
+			case TYPE_FLOAT:
+				return (float)v;
+			case TYPE_BOOLEAN:
+				return v != 0.;
+			default:
+				return v;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return this.className.hashCode() + 31*this.variableKeys.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof PackedObjectClassSchema)){
+			return false;
+		}
+		PackedObjectClassSchema o = (PackedObjectClassSchema)obj;
+		return this.className.equals(o.className) && this.variableKeys.equals(o.variableKeys) && Arrays.equals(this.types, o.types);
+	}
+
+	protected static int typeOf(Object value, String className, Object key){
+		if(value instanceof Integer || value instanceof Short || value instanceof Byte){
+			return TYPE_INT;
+		}
+		else if(value instanceof Long){
+			return TYPE_LONG;
+		}
+		else if(value instanceof Float){
+			return TYPE_FLOAT;
+		}
+		else if(value instanceof Double){
+			return TYPE_DOUBLE;
+		}
+		else if(value instanceof Boolean){
+			return TYPE_BOOLEAN;
+		}
+		throw new RuntimeException("Cannot pack variable " + key + " of object class " + className + " because its value is a "
+				+ (value == null ? "null" : value.getClass().getName()) + " rather than a primitive number or boolean.");
+	}
+
+}
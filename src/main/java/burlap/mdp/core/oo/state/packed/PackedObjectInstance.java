@@ -0,0 +1,111 @@
+package burlap.mdp.core.oo.state.packed;
+
+import burlap.mdp.core.oo.state.OOStateUtilities;
+import burlap.mdp.core.oo.state.ObjectInstance;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link ObjectInstance} that reads and writes its variable values directly in a slice of a packed double array.
+ * The objects returned by a {@link PackedOOState} are views of the state's array, so setting a value on them
+ * sets the value in the state. A view is only valid until the state's set of objects changes (an object is added,
+ * removed, or renamed), since doing so reallocates the state's array. {@link #copy()} and {@link #copyWithName(String)}
+ * return detached objects that own a copy of their slice.
+ * @author James MacGlashan.
+ */
+public class PackedObjectInstance implements ObjectInstance, MutableState {
+
+	/**
+	 * The name of the object
+	 */
+	protected String name;
+
+	/**
+	 * The schema of the object's class
+	 */
+	protected PackedObjectClassSchema schema;
+
+	/**
+	 * The packed array holding the object's values
+	 */
+	protected double [] values;
+
+	/**
+	 * The offset of the object's first variable in the packed array
+	 */
+	protected int offset;
+
+
+	/**
+	 * Initializes.
+	 * @param name the name of the object
+	 * @param schema the schema of the object's class
+	 * @param values the packed array holding the object's values
+	 * @param offset the offset of the object's first variable in the packed array
+	 */
+	public PackedObjectInstance(String name, PackedObjectClassSchema schema, double[] values, int offset) {
+		this.name = name;
+		this.schema = schema;
+		this.values = values;
+		this.offset = offset;
+	}
+
+	public PackedObjectClassSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Returns the packed value of the i'th variable of this object.
+	 * @param i the index of the variable in the object's schema
+	 * @return the packed value of the variable
+	 */
+	public double packedValue(int i){
+		return this.values[this.offset+i];
+	}
+
+	@Override
+	public String className() {
+		return this.schema.className();
+	}
+
+	@Override
+	public String name() {
+		return this.name;
+	}
+
+	@Override
+	public ObjectInstance copyWithName(String objectName) {
+		return new PackedObjectInstance(objectName, this.schema, Arrays.copyOfRange(this.values, this.offset, this.offset+this.schema.size()), 0);
+	}
+
+	@Override
+	public MutableState set(Object variableKey, Object value) {
+		int i = this.schema.requireIndex(variableKey);
+		this.values[this.offset+i] = this.schema.encode(i, value);
+		return this;
+	}
+
+	@Override
+	public List<Object> variableKeys() {
+		return this.schema.variableKeys();
+	}
+
+	@Override
+	public Object get(Object variableKey) {
+		int i = this.schema.requireIndex(variableKey);
+		return this.schema.decode(i, this.values[this.offset+i]);
+	}
+
+	@Override
+	public State copy() {
+		return this.copyWithName(this.name);
+	}
+
+	@Override
+	public String toString() {
+		return OOStateUtilities.objectInstanceToString(this);
+	}
+}
@@ -0,0 +1,19 @@
+package burlap.mdp.singleagent.environment;
+
+
+/**
+ * A factory interface for generating independent {@link Environment} instances. This is used when something needs its own
+ * copy of an {@link Environment}, such as the trials of a {@link burlap.behavior.singleagent.auxiliary.performance.LearningAlgorithmExperimenter}
+ * that are run in parallel.
+ * @author James MacGlashan
+ *
+ */
+public interface EnvironmentFactory {
+
+	/**
+	 * Generates a new {@link Environment} that shares no mutable state with previously generated {@link Environment}s and returns it.
+	 * @return a new {@link Environment}
+	 */
+	Environment generateEnvironment();
+
+}
@@ -0,0 +1,301 @@
+package burlap.mdp.singleagent.environment;
+
+import burlap.mdp.auxiliary.StateGenerator;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.model.SampleModel;
+import burlap.parallel.LazyForkJoinPool;
+import burlap.parallel.ParallelUtilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * A batch of independent {@link Environment}s that are stepped together, for collecting experience from many episodes at once.
+ * {@link #executeActions(List)} takes one action per environment and returns one {@link EnvironmentOutcome} per environment. After each step,
+ * every environment that reached a terminal state, or that has run for the maximum number of steps per episode, is reset with
+ * {@link Environment#resetEnvironment()}, so the next batch of observations always comes from active episodes. The returned outcomes still
+ * describe the transitions that ended the episodes, and {@link #wasReset(int)} reports which environments were reset after the last step.
+ * <p>
+ * Environments are stepped one after another by default. For expensive models, {@link #setParallelism(int)} steps them concurrently on a
+ * fork-join pool, with each worker stepping a contiguous block of environments, including any resets. Different environments are then
+ * stepped and reset by different threads at the same time, so the environments must share no mutable state: a model they share must allow
+ * concurrent calls to {@link SampleModel#sample(burlap.mdp.core.state.State, burlap.mdp.core.action.Action)} and
+ * {@link SampleModel#terminal(burlap.mdp.core.state.State)}, and a shared {@link StateGenerator} must allow concurrent calls to
+ * {@link StateGenerator#generateState()}. A model that keeps caches in unsynchronized maps, such as a
+ * {@link burlap.behavior.singleagent.options.model.BFSMarkovOptionModel}, does not. Because outcomes are sampled concurrently, runs with a
+ * parallelism greater than 1 are not reproducible from a seed.
+ * @author James MacGlashan
+ *
+ */
+public class VectorizedEnvironment {
+
+	/**
+	 * The environments
+	 */
+	protected Environment []								envs;
+
+	/**
+	 * The number of steps taken in each environment's current episode
+	 */
+	protected int []										episodeSteps;
+
+	/**
+	 * Whether each environment was reset after the last step
+	 */
+	protected boolean []									reset;
+
+	/**
+	 * The maximum number of steps of an episode before its environment is reset; -1 for no limit
+	 */
+	protected int											maxEpisodeSteps = -1;
+
+	/**
+	 * The number of completed (terminated or truncated) episodes
+	 */
+	protected int											numCompletedEpisodes = 0;
+
+	/**
+	 * The fork-join pool used to step the environments when the parallelism is greater than 1. Lazily created on the first step.
+	 */
+	protected LazyForkJoinPool								pool = new LazyForkJoinPool("VectorizedEnvironment", 1);
+
+
+	/**
+	 * Initializes with k {@link SimulatedEnvironment}s that share the given model and each draw their initial states from the given state generator.
+	 * @param model the model of the environments
+	 * @param stateGenerator the generator of the initial states of every episode
+	 * @param k the number of environments
+	 */
+	public VectorizedEnvironment(SampleModel model, StateGenerator stateGenerator, int k){
+		this(k);
+		for(int i = 0; i < k; i++){
+			this.envs[i] = new SimulatedEnvironment(model, stateGenerator);
+		}
+	}
+
+
+	/**
+	 * Initializes with k environments generated by the given factory.
+	 * @param factory the factory that generates the environments
+	 * @param k the number of environments
+	 */
+	public VectorizedEnvironment(EnvironmentFactory factory, int k){
+		this(k);
+		for(int i = 0; i < k; i++){
+			this.envs[i] = factory.generateEnvironment();
+		}
+	}
+
+
+	/**
+	 * Initializes with the given environments, which must be distinct objects.
+	 * @param envs the environments
+	 */
+	public VectorizedEnvironment(List<? extends Environment> envs){
+		this(envs.size());
+		for(int i = 0; i < envs.size(); i++){
+			this.envs[i] = envs.get(i);
+		}
+	}
+
+
+	protected VectorizedEnvironment(int k){
+		if(k < 1){
+			throw new RuntimeException("A VectorizedEnvironment needs at least 1 environment; was " + k);
+		}
+		this.envs = new Environment[k];
+		this.episodeSteps = new int[k];
+		this.reset = new boolean[k];
+	}
+
+
+	/**
+	 * Returns the number of environments
+	 * @return the number of environments
+	 */
+	public int size(){
+		return this.envs.length;
+	}
+
+
+	/**
+	 * Returns the environment at an index
+	 * @param i the index of the environment
+	 * @return the environment
+	 */
+	public Environment getEnvironment(int i){
+		return this.envs[i];
+	}
+
+
+	/**
+	 * Returns the number of worker threads used to step the environments.
+	 * @return the number of worker threads used to step the environments.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+
+	/**
+	 * Sets the number of worker threads used to step the environments. With a parallelism of 1, the default, environments are stepped on the calling thread.
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		this.pool.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the maximum number of steps of an episode before its environment is reset; -1 for no limit.
+	 * @return the maximum number of steps of an episode
+	 */
+	public int getMaxEpisodeSteps() {
+		return maxEpisodeSteps;
+	}
+
+
+	/**
+	 * Sets the maximum number of steps of an episode before its environment is reset, even if it has not reached a terminal state.
+	 * @param maxEpisodeSteps the maximum number of steps of an episode; -1 for no limit.
+	 */
+	public void setMaxEpisodeSteps(int maxEpisodeSteps) {
+		this.maxEpisodeSteps = maxEpisodeSteps;
+	}
+
+
+	/**
+	 * Returns the number of episodes that have ended in a terminal state or by reaching the maximum number of steps.
+	 * @return the number of completed episodes
+	 */
+	public int getNumCompletedEpisodes(){
+		return this.numCompletedEpisodes;
+	}
+
+
+	/**
+	 * Returns the current observation of each environment.
+	 * @return the current observations, indexed like the environments
+	 */
+	public List<State> currentObservations(){
+		List<State> obs = new ArrayList<State>(this.envs.length);
+		for(Environment env : this.envs){
+			obs.add(env.currentObservation());
+		}
+		return obs;
+	}
+
+
+	/**
+	 * Returns whether the environment at an index was reset after the last call to {@link #executeActions(List)}, because its episode ended.
+	 * @param i the index of the environment
+	 * @return true if the environment was reset after the last step; false otherwise.
+	 */
+	public boolean wasReset(int i){
+		return this.reset[i];
+	}
+
+
+	/**
+	 * Returns the number of steps taken in the current episode of the environment at an index.
+	 * @param i the index of the environment
+	 * @return the number of steps of the current episode
+	 */
+	public int episodeSteps(int i){
+		return this.episodeSteps[i];
+	}
+
+
+	/**
+	 * Resets every environment and starts new episodes.
+	 */
+	public void resetAll(){
+		for(int i = 0; i < this.envs.length; i++){
+			this.envs[i].resetEnvironment();
+			this.episodeSteps[i] = 0;
+			this.reset[i] = false;
+		}
+	}
+
+
+	/**
+	 * Executes one action in each environment, and then resets the environments whose episodes ended.
+	 * @param actions the action to execute in each environment, indexed like the environments
+	 * @return the outcome of each environment's action, indexed like the environments
+	 */
+	public List<EnvironmentOutcome> executeActions(final List<Action> actions){
+
+		if(actions.size() != this.envs.length){
+			throw new RuntimeException("VectorizedEnvironment requires one action for each of its " + this.envs.length + " environments; received " + actions.size());
+		}
+
+		final EnvironmentOutcome [] outcomes = new EnvironmentOutcome[this.envs.length];
+		int nBlocks = Math.min(this.getParallelism(), this.envs.length);
+
+		if(nBlocks == 1){
+			this.step(actions, outcomes, 0, this.envs.length);
+		}
+		else{
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(nBlocks);
+			for(int b = 0; b < nBlocks; b++){
+				final int start = (int)((long)this.envs.length * b / nBlocks);
+				final int end = (int)((long)this.envs.length * (b + 1) / nBlocks);
+				tasks.add(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						step(actions, outcomes, start, end);
+						return null;
+					}
+				});
+			}
+			this.runAll(tasks);
+		}
+
+		for(int i = 0; i < this.envs.length; i++){
+			if(this.reset[i]){
+				this.numCompletedEpisodes++;
+			}
+		}
+
+		return Arrays.asList(outcomes);
+	}
+
+
+	/**
+	 * Steps a contiguous block of environments, resetting those whose episodes ended.
+	 * @param actions the actions of all environments
+	 * @param outcomes the array in which the outcomes of all environments are stored
+	 * @param start the first index (inclusive) of the block
+	 * @param end the last index (exclusive) of the block
+	 */
+	protected void step(List<Action> actions, EnvironmentOutcome [] outcomes, int start, int end){
+		for(int i = start; i < end; i++){
+			Environment env = this.envs[i];
+			EnvironmentOutcome eo = env.executeAction(actions.get(i));
+			outcomes[i] = eo;
+			this.episodeSteps[i]++;
+			if(eo.terminated || env.isInTerminalState() || (this.maxEpisodeSteps != -1 && this.episodeSteps[i] >= this.maxEpisodeSteps)){
+				env.resetEnvironment();
+				this.episodeSteps[i] = 0;
+				this.reset[i] = true;
+			}
+			else{
+				this.reset[i] = false;
+			}
+		}
+	}
+
+
+	/**
+	 * Runs the given tasks on the pool and waits for all of them to complete, rethrowing the first failure.
+	 * @param tasks the tasks to run
+	 */
+	protected void runAll(List<Callable<Object>> tasks){
+		ParallelUtilities.invokeAll(this.pool.get(), tasks, "VectorizedEnvironment workers");
+	}
+
+}
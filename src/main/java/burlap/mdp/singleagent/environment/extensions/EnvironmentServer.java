@@ -59,7 +59,7 @@ public class EnvironmentServer implements EnvironmentServerInterface, Environmen
 	 */
 	public static EnvironmentServer constructor(Environment delegate, EnvironmentObserver...observers){
 		if(delegate instanceof StateSettableEnvironment){
-			return new StateSettableEnvironmentServer((StateSettableEnvironment)delegate);
+			return new StateSettableEnvironmentServer((StateSettableEnvironment)delegate, observers);
 		}
 		return new EnvironmentServer(delegate, observers);
 	}
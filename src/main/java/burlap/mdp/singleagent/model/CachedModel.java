@@ -0,0 +1,349 @@
+package burlap.mdp.singleagent.model;
+
+import burlap.datastructures.ConcurrentClockCache;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link FullModel} that wraps another model and memoizes its transition distributions and terminal state tests, so that planners that
+ * enumerate the transitions of the same state-action pairs many times, such as dynamic programming sweeps and greedy policies, only compute them once.
+ * Transitions are cached by the {@link HashableState} of the source state (produced by the given {@link HashableStateFactory}) and the {@link Action},
+ * and terminal tests by the {@link HashableState}. Both caches are bounded, thread-safe {@link ConcurrentClockCache}s that evict with the CLOCK
+ * approximation of least recently used eviction ({@link EvictionPolicy#LRU}), optionally with a TinyLFU frequency admission filter
+ * ({@link EvictionPolicy#TINY_LFU}). In soft reference mode, cached transition lists are held by {@link SoftReference}s so that the garbage
+ * collector may reclaim them under memory pressure, in which case they are recomputed on their next use.
+ * <p>
+ * {@link #sample(State, Action)} samples from the cached transition distribution when the wrapped model is a {@link FullModel}, and
+ * otherwise delegates to the wrapped model without caching. Because cached {@link TransitionProb} objects and their outcome states are
+ * shared by every caller, they must not be modified; the returned lists are unmodifiable.
+ * <p>
+ * To have every planner of a domain benefit, wrap the domain's model before the planners are created, for instance with
+ * {@link #cacheModel(SADomain, HashableStateFactory, int)}. Hit, miss, and eviction counts are available for tuning the capacity.
+ * @author James MacGlashan
+ *
+ */
+public class CachedModel implements FullModel {
+
+	/**
+	 * The eviction policies of the caches.
+	 */
+	public enum EvictionPolicy{
+		/**
+		 * The CLOCK approximation of least recently used eviction
+		 */
+		LRU,
+
+		/**
+		 * CLOCK eviction with a TinyLFU admission filter, which only caches a new entry over the entry at the clock hand if it has been used more often recently
+		 */
+		TINY_LFU
+	}
+
+
+	/**
+	 * The wrapped model
+	 */
+	protected SampleModel								model;
+
+	/**
+	 * The state hashing factory used to key the caches
+	 */
+	protected HashableStateFactory						hashingFactory;
+
+	/**
+	 * The cached transition distributions, held directly or by {@link SoftReference}s in soft reference mode
+	 */
+	protected ConcurrentClockCache<TransitionKey, Object>	transitionCache;
+
+	/**
+	 * The cached terminal state tests
+	 */
+	protected ConcurrentClockCache<HashableState, Boolean>	terminalCache;
+
+	/**
+	 * Whether cached transition lists are held by {@link SoftReference}s
+	 */
+	protected boolean									useSoftReferences;
+
+	protected AtomicLong								hits = new AtomicLong();
+	protected AtomicLong								misses = new AtomicLong();
+	protected AtomicLong								terminalHits = new AtomicLong();
+	protected AtomicLong								terminalMisses = new AtomicLong();
+
+	/**
+	 * The number of transition lists reclaimed by the garbage collector in soft reference mode
+	 */
+	protected AtomicLong								reclaimed = new AtomicLong();
+
+
+	/**
+	 * Initializes with {@link EvictionPolicy#LRU} eviction and strongly held transitions.
+	 * @param model the model to wrap
+	 * @param hashingFactory the state hashing factory used to key the caches
+	 * @param capacity the maximum number of state-action pairs whose transitions are cached, which is also the maximum number of cached terminal tests
+	 */
+	public CachedModel(SampleModel model, HashableStateFactory hashingFactory, int capacity){
+		this(model, hashingFactory, capacity, EvictionPolicy.LRU, false);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param model the model to wrap
+	 * @param hashingFactory the state hashing factory used to key the caches
+	 * @param capacity the maximum number of state-action pairs whose transitions are cached, which is also the maximum number of cached terminal tests
+	 * @param evictionPolicy the eviction policy of the caches
+	 * @param useSoftReferences if true, cached transition lists are held by {@link SoftReference}s
+	 */
+	public CachedModel(SampleModel model, HashableStateFactory hashingFactory, int capacity, EvictionPolicy evictionPolicy, boolean useSoftReferences){
+		if(model instanceof CachedModel){
+			throw new RuntimeException("Cannot wrap a CachedModel in another CachedModel.");
+		}
+		this.model = model;
+		this.hashingFactory = hashingFactory;
+		this.useSoftReferences = useSoftReferences;
+		boolean admission = evictionPolicy == EvictionPolicy.TINY_LFU;
+		this.transitionCache = new ConcurrentClockCache<TransitionKey, Object>(capacity, admission);
+		this.terminalCache = new ConcurrentClockCache<HashableState, Boolean>(capacity, admission);
+	}
+
+
+	/**
+	 * Replaces the model of a domain with a {@link CachedModel} that wraps it, using {@link EvictionPolicy#LRU} eviction. Planners created
+	 * for the domain afterwards will use the cached model.
+	 * @param domain the domain whose model is cached
+	 * @param hashingFactory the state hashing factory used to key the caches
+	 * @param capacity the maximum number of state-action pairs whose transitions are cached
+	 * @return the cached model that was set on the domain
+	 */
+	public static CachedModel cacheModel(SADomain domain, HashableStateFactory hashingFactory, int capacity){
+		CachedModel cached = new CachedModel(domain.getModel(), hashingFactory, capacity);
+		domain.setModel(cached);
+		return cached;
+	}
+
+
+	/**
+	 * Returns the wrapped model
+	 * @return the wrapped model
+	 */
+	public SampleModel getModel() {
+		return model;
+	}
+
+
+	@Override
+	public List<TransitionProb> transitions(State s, Action a) {
+
+		if(!(this.model instanceof FullModel)){
+			throw new RuntimeException("Cannot get transitions because the model wrapped by the CachedModel is only a SampleModel");
+		}
+
+		TransitionKey key = new TransitionKey(this.hashingFactory.hashState(s), a);
+		Object cached = this.transitionCache.get(key);
+		if(cached != null){
+			List<TransitionProb> tps = this.unwrap(cached);
+			if(tps != null){
+				this.hits.incrementAndGet();
+				return tps;
+			}
+			//reclaimed by the garbage collector
+			this.reclaimed.incrementAndGet();
+			this.transitionCache.remove(key, cached);
+		}
+
+		this.misses.incrementAndGet();
+		List<TransitionProb> tps = Collections.unmodifiableList(((FullModel)this.model).transitions(s, a));
+		key = new TransitionKey(key.sh, a.copy());
+		Object prev = this.transitionCache.putIfAbsent(key, this.useSoftReferences ? new SoftReference<List<TransitionProb>>(tps) : tps);
+		if(prev != null){
+			List<TransitionProb> prevTps = this.unwrap(prev);
+			if(prevTps != null){
+				return prevTps;
+			}
+		}
+		return tps;
+
+	}
+
+
+	@Override
+	public EnvironmentOutcome sample(State s, Action a) {
+		if(!(this.model instanceof FullModel)){
+			return this.model.sample(s, a);
+		}
+		EnvironmentOutcome eo = FullModel.Helper.sampleByEnumeration(this, s, a);
+		return new EnvironmentOutcome(s, a, eo.op, eo.r, eo.terminated);
+	}
+
+
+	@Override
+	public boolean terminal(State s) {
+		HashableState sh = this.hashingFactory.hashState(s);
+		Boolean cached = this.terminalCache.get(sh);
+		if(cached != null){
+			this.terminalHits.incrementAndGet();
+			return cached;
+		}
+		this.terminalMisses.incrementAndGet();
+		boolean terminal = this.model.terminal(s);
+		this.terminalCache.putIfAbsent(sh, terminal);
+		return terminal;
+	}
+
+
+	/**
+	 * Returns the number of transition requests answered from the cache
+	 * @return the number of transition cache hits
+	 */
+	public long getHits(){
+		return this.hits.get();
+	}
+
+
+	/**
+	 * Returns the number of transition requests that were computed by the wrapped model, including those whose cached transitions were reclaimed by the garbage collector
+	 * @return the number of transition cache misses
+	 */
+	public long getMisses(){
+		return this.misses.get();
+	}
+
+
+	/**
+	 * Returns the fraction of transition requests answered from the cache, or 0 if there have been none
+	 * @return the transition cache hit rate
+	 */
+	public double getHitRate(){
+		long h = this.hits.get();
+		long total = h + this.misses.get();
+		return total == 0 ? 0. : (double)h / total;
+	}
+
+
+	/**
+	 * Returns the number of state-action pairs whose transitions were evicted from the cache
+	 * @return the number of evicted transition lists
+	 */
+	public long getEvictions(){
+		return this.transitionCache.evictions();
+	}
+
+
+	/**
+	 * Returns the number of computed transition lists that the TinyLFU admission filter did not cache
+	 * @return the number of rejected transition lists
+	 */
+	public long getRejections(){
+		return this.transitionCache.rejections();
+	}
+
+
+	/**
+	 * Returns the number of cached transition lists that were reclaimed by the garbage collector in soft reference mode
+	 * @return the number of reclaimed transition lists
+	 */
+	public long getReclaimed(){
+		return this.reclaimed.get();
+	}
+
+
+	/**
+	 * Returns the number of terminal state tests answered from the cache
+	 * @return the number of terminal cache hits
+	 */
+	public long getTerminalHits(){
+		return this.terminalHits.get();
+	}
+
+
+	/**
+	 * Returns the number of terminal state tests computed by the wrapped model
+	 * @return the number of terminal cache misses
+	 */
+	public long getTerminalMisses(){
+		return this.terminalMisses.get();
+	}
+
+
+	/**
+	 * Returns the number of state-action pairs whose transitions are cached
+	 * @return the number of cached transition lists
+	 */
+	public int size(){
+		return this.transitionCache.size();
+	}
+
+
+	/**
+	 * Removes all cached transitions and terminal tests and resets the counters. This should be called if the wrapped model changes,
+	 * and should not be called while other threads are using the model.
+	 */
+	public void clear(){
+		this.transitionCache.clear();
+		this.terminalCache.clear();
+		this.hits.set(0);
+		this.misses.set(0);
+		this.terminalHits.set(0);
+		this.terminalMisses.set(0);
+		this.reclaimed.set(0);
+	}
+
+
+	/**
+	 * Returns the transition list of a cache value, or null if it was held by a cleared {@link SoftReference}.
+	 * @param cached the cache value
+	 * @return the transition list or null
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<TransitionProb> unwrap(Object cached){
+		if(cached instanceof SoftReference){
+			return ((SoftReference<List<TransitionProb>>)cached).get();
+		}
+		return (List<TransitionProb>)cached;
+	}
+
+
+	/**
+	 * The key of a cached transition distribution: a hashed state and an action.
+	 */
+	protected static class TransitionKey{
+
+		protected final HashableState sh;
+		protected final Action a;
+		protected final int hash;
+
+		public TransitionKey(HashableState sh, Action a) {
+			this.sh = sh;
+			this.a = a;
+			this.hash = 31 * sh.hashCode() + a.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof TransitionKey)){
+				return false;
+			}
+			TransitionKey that = (TransitionKey)o;
+			return this.hash == that.hash && this.a.equals(that.a) && this.sh.equals(that.sh);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package burlap.mdp.singleagent.model;
+
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.oo.state.MutableOOState;
+import burlap.mdp.core.oo.state.packed.PackedOOState;
+import burlap.mdp.core.oo.state.packed.PackedOOStateCodec;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.SADomain;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.model.statemodel.PackedOOStateModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link FullModel} that lets an existing OO-MDP model operate on {@link PackedOOState}s, so planners that copy, hash, and compare
+ * states only ever work with packed states.
+ * <p>
+ * If the wrapped model is a {@link FactoredModel} whose state model is a {@link PackedOOStateModel}, such as the grid world model,
+ * packed input states are passed to it directly, and it computes outcomes by copying and modifying their packed arrays.
+ * Otherwise, input states are unpacked into the domain's own state representation with a {@link PackedOOStateCodec}, the wrapped
+ * model is queried, and the outcome states are packed. Unpacking and packing allocate more per query than the unwrapped model does, so
+ * that path only pays off when copying, hashing and comparing the planner's states costs more than querying the model.
+ * Input states that are not {@link PackedOOState}s are passed to the wrapped model unchanged, but their outcomes are still packed.
+ * <p>
+ * To have every planner of a domain use packed states, wrap the domain's model before the planners are created, for instance with
+ * {@link #packModel(SADomain, MutableOOState)}, and plan from a packed initial state, such as the one returned by {@link PackedOOStateCodec#pack(State)}.
+ * @author James MacGlashan
+ */
+public class PackedOOModel implements FullModel {
+
+	/**
+	 * The wrapped model
+	 */
+	protected SampleModel model;
+
+	/**
+	 * The codec used to pack and unpack states
+	 */
+	protected PackedOOStateCodec codec;
+
+	/**
+	 * Whether the wrapped model operates on packed states directly
+	 */
+	protected boolean direct;
+
+
+	/**
+	 * Initializes.
+	 * @param model the model to wrap
+	 * @param codec the codec used to pack and unpack states
+	 */
+	public PackedOOModel(SampleModel model, PackedOOStateCodec codec) {
+		this.model = model;
+		this.codec = codec;
+		this.direct = model instanceof FactoredModel && ((FactoredModel)model).getStateModel() instanceof PackedOOStateModel;
+	}
+
+
+	/**
+	 * Replaces the model of a domain with a {@link PackedOOModel} that wraps it. Planners created for the domain afterwards will use the packed model.
+	 * @param domain the domain whose model is wrapped
+	 * @param template a state of the domain used as the template for unpacking states
+	 * @return the packed model that was set on the domain
+	 */
+	public static PackedOOModel packModel(SADomain domain, MutableOOState template){
+		PackedOOModel packed = new PackedOOModel(domain.getModel(), new PackedOOStateCodec(template));
+		domain.setModel(packed);
+		return packed;
+	}
+
+
+	/**
+	 * Returns the wrapped model
+	 * @return the wrapped model
+	 */
+	public SampleModel getModel() {
+		return model;
+	}
+
+	public PackedOOStateCodec getCodec() {
+		return codec;
+	}
+
+
+	/**
+	 * Returns whether packed states are passed to the wrapped model directly, without unpacking them. This is true if the wrapped model
+	 * is a {@link FactoredModel} whose state model is a {@link PackedOOStateModel}.
+	 * @return true if packed states are passed to the wrapped model directly; false if they are unpacked
+	 */
+	public boolean operatesOnPackedStates() {
+		return direct;
+	}
+
+
+	@Override
+	public List<TransitionProb> transitions(State s, Action a) {
+		if(!(this.model instanceof FullModel)){
+			throw new RuntimeException("Cannot get transitions because the model wrapped by the PackedOOModel is only a SampleModel");
+		}
+		if(this.direct && s instanceof PackedOOState){
+			return ((FullModel)this.model).transitions(s, a);
+		}
+		List<TransitionProb> tps = ((FullModel)this.model).transitions(this.codec.unpack(s), a);
+		List<TransitionProb> packed = new ArrayList<TransitionProb>(tps.size());
+		for(TransitionProb tp : tps){
+			packed.add(new TransitionProb(tp.p, this.packOutcome(s, tp.eo)));
+		}
+		return packed;
+	}
+
+
+	@Override
+	public EnvironmentOutcome sample(State s, Action a) {
+		if(this.direct && s instanceof PackedOOState){
+			return this.model.sample(s, a);
+		}
+		return this.packOutcome(s, this.model.sample(this.codec.unpack(s), a));
+	}
+
+
+	@Override
+	public boolean terminal(State s) {
+		if(this.direct){
+			return this.model.terminal(s);
+		}
+		return this.model.terminal(this.codec.unpack(s));
+	}
+
+
+	protected EnvironmentOutcome packOutcome(State s, EnvironmentOutcome eo){
+		return new EnvironmentOutcome(s, eo.a, this.codec.pack(eo.op), eo.r, eo.terminated);
+	}
+
+}
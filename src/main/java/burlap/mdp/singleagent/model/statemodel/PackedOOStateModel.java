@@ -0,0 +1,14 @@
+package burlap.mdp.singleagent.model.statemodel;
+
+/**
+ * A marker for {@link SampleStateModel}s that can operate directly on {@link burlap.mdp.core.oo.state.packed.PackedOOState}s:
+ * given a packed state, they copy and modify its packed array and return packed states, without converting it to the domain's own
+ * state representation. A {@link burlap.mdp.singleagent.model.PackedOOModel} that wraps a {@link burlap.mdp.singleagent.model.FactoredModel}
+ * with such a state model passes packed states to it as they are, so the reward function and terminal function of the
+ * {@link burlap.mdp.singleagent.model.FactoredModel} must also accept packed states, for instance by only accessing them through the
+ * {@link burlap.mdp.core.oo.state.OOState} interface.
+ * @author James MacGlashan
+ */
+public interface PackedOOStateModel extends SampleStateModel {
+
+}
@@ -0,0 +1,363 @@
+package burlap.mdp.singleagent.pomdp.beliefstate;
+
+import burlap.behavior.singleagent.auxiliary.StateEnumerator;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.pomdp.PODomain;
+import burlap.statehashing.HashableState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A tabular belief state that stores the probability mass of each MDP state in a dense double array indexed by
+ * the state's {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} identifier. Unlike {@link TabularBeliefState}, which stores
+ * the non-zero entries in a {@link java.util.Map}, reading and writing beliefs does not box values, and the belief
+ * vector can be updated in place by a {@link CompiledTabularBeliefUpdate} without allocating. The dimension of the vector is fixed
+ * to the number of states enumerated by the state enumerator when this object is created, so the enumerator should have already
+ * enumerated the full state space.
+ * <p>
+ * If using a BeliefMDP solver with an {@link ArrayBeliefState},
+ * it is recommended that you use the {@link burlap.statehashing.ReflectiveHashableStateFactory}, since {@link ArrayBeliefState}
+ * implements {@link HashableState}.
+ * @author James MacGlashan.
+ */
+public class ArrayBeliefState implements BeliefState, EnumerableBeliefState, DenseBeliefVector, MutableState, HashableState{
+
+	/**
+	 * A state enumerator for determining the index of MDP states in the belief vector.
+	 */
+	protected StateEnumerator stateEnumerator;
+
+	/**
+	 * The dense belief vector
+	 */
+	protected double [] beliefs;
+
+	/**
+	 * The POMDP domain with which this belief state is associated.
+	 */
+	protected PODomain domain;
+
+
+	/**
+	 * Constructs a new {@link ArrayBeliefState} from a source
+	 * {@link ArrayBeliefState}. Changes to the new state or source
+	 * state will not affect the other.
+	 * @param srcBeliefState the source {@link ArrayBeliefState} to copy.
+	 */
+	public ArrayBeliefState(ArrayBeliefState srcBeliefState){
+		this.domain = srcBeliefState.domain;
+		this.stateEnumerator = srcBeliefState.stateEnumerator;
+		this.beliefs = srcBeliefState.beliefs.clone();
+	}
+
+
+	/**
+	 * Constructs a new {@link ArrayBeliefState} with zero mass for every state, using the domain's state enumerator.
+	 * @param domain the {@link burlap.mdp.singleagent.pomdp.PODomain} domain to which the belief state is associated.
+	 */
+	public ArrayBeliefState(PODomain domain){
+		if(!domain.providesStateEnumerator()){
+			throw new RuntimeException("ArrayBeliefState(PODomain domain) constructor requires that " +
+					"the PODomain provides a StateEnumerator, but it does not. Alternatively consider using the " +
+					"ArrayBeliefState(PODomain domain, StateEnumerator stateEnumerator) constructor.");
+		}
+		this.domain = domain;
+		this.stateEnumerator = domain.getStateEnumerator();
+		this.beliefs = new double[this.stateEnumerator.numStatesEnumerated()];
+	}
+
+
+	/**
+	 * Constructs a new {@link ArrayBeliefState} with zero mass for every state.
+	 * @param domain the {@link burlap.mdp.singleagent.pomdp.PODomain} domain to which the belief state is associated.
+	 * @param stateEnumerator a {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} to index the states in the belief vector.
+	 */
+	public ArrayBeliefState(PODomain domain, StateEnumerator stateEnumerator){
+		this.domain = domain;
+		this.stateEnumerator = stateEnumerator;
+		this.beliefs = new double[stateEnumerator.numStatesEnumerated()];
+	}
+
+
+	/**
+	 * Constructs a new {@link ArrayBeliefState} backed by the given belief vector. The vector is not copied.
+	 * @param domain the {@link burlap.mdp.singleagent.pomdp.PODomain} domain to which the belief state is associated.
+	 * @param stateEnumerator a {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} to index the states in the belief vector.
+	 * @param beliefs the belief vector
+	 */
+	public ArrayBeliefState(PODomain domain, StateEnumerator stateEnumerator, double [] beliefs){
+		this.domain = domain;
+		this.stateEnumerator = stateEnumerator;
+		this.beliefs = beliefs;
+	}
+
+
+	/**
+	 * Constructs a new {@link ArrayBeliefState} with the same beliefs as a {@link TabularBeliefState}.
+	 * @param src the source {@link TabularBeliefState}
+	 */
+	public ArrayBeliefState(TabularBeliefState src){
+		this(src.getDomain(), src.getStateEnumerator(), src.beliefVector());
+	}
+
+	public StateEnumerator getStateEnumerator() {
+		return stateEnumerator;
+	}
+
+	public PODomain getDomain() {
+		return domain;
+	}
+
+	public void setDomain(PODomain domain) {
+		this.domain = domain;
+	}
+
+	/**
+	 * Returns the array backing this belief state. Changes to the array change this belief state.
+	 * @return the array backing this belief state
+	 */
+	public double [] getBeliefArray() {
+		return beliefs;
+	}
+
+	@Override
+	public double belief(State s) {
+		return this.belief(this.stateEnumerator.getEnumeratedID(s));
+	}
+
+	/**
+	 * Returns the value of the belief vector for the provided index.
+	 * @param stateId the index (state identification number) of the belief vector to return.
+	 * @return the value of the belief vector for the provided index.
+	 */
+	public double belief(int stateId){
+		if(stateId >= this.beliefs.length){
+			return 0.;
+		}
+		return this.beliefs[stateId];
+	}
+
+	@Override
+	public State sample() {
+		double sumProb = 0.;
+		double r = RandomFactory.getMapped(0).nextDouble();
+		for(int i = 0; i < this.beliefs.length; i++){
+			sumProb += this.beliefs[i];
+			if(r < sumProb){
+				return this.stateEnumerator.getStateForEnumerationId(i);
+			}
+		}
+
+		throw new RuntimeException("Error; could not sample from belief state because the beliefs did not sum to 1; they summed to: " + sumProb);
+	}
+
+	@Override
+	public List<StateBelief> nonZeroBeliefs() {
+		List<StateBelief> result = new LinkedList<StateBelief>();
+		for(int i = 0; i < this.beliefs.length; i++){
+			if(this.beliefs[i] != 0.){
+				result.add(new StateBelief(this.stateForId(i), this.beliefs[i]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the dimension of the belief vector.
+	 * @return the dimension of the belief vector.
+	 */
+	public int numStates(){
+		return this.beliefs.length;
+	}
+
+	/**
+	 * Returns the corresponding MDP state for the provided unique identifier.
+	 * @param id the MDP state identifier
+	 * @return the corresponding MDP state, defined by a {@link State}, for the provided unique identifier.
+	 */
+	public State stateForId(int id){
+		return this.stateEnumerator.getStateForEnumerationId(id);
+	}
+
+	/**
+	 * Sets the probability mass (belief) associated with the underlying MDP state. Note that using this method
+	 * will not ensure that the total probability mass across this belief state sums to 1.
+	 * @param s the underlying MDP state defined as a {@link State}
+	 * @param b the probability mass to assigned to the underlying MDP state.
+	 */
+	public void setBelief(State s, double b){
+		this.setBelief(this.stateEnumerator.getEnumeratedID(s), b);
+	}
+
+	/**
+	 * Sets the probability mass (belief) associated with the underlying MDP state. Note that using this method
+	 * will not ensure that the total probability mass across this belief state sums to 1.
+	 * @param stateId the unique numeric identifier of the underlying MDP state defined.
+	 * @param b the probability mass to assigned to the underlying MDP state.
+	 */
+	public void setBelief(int stateId, double b){
+		if(stateId < 0 || stateId >= this.beliefs.length){
+			throw new RuntimeException("Error; cannot set belief value for state id " + stateId + "; belief vector is of dimension " + this.beliefs.length);
+		}
+		this.beliefs[stateId] = b;
+	}
+
+	@Override
+	public double[] beliefVector() {
+		return this.beliefs.clone();
+	}
+
+	@Override
+	public void setBeliefVector(double[] b) {
+		if(b.length != this.beliefs.length){
+			throw new RuntimeException("Error; cannot set belief state with provided vector because dimensionality does not match." +
+					"Provided vector of dimension " + b.length + " need dimension " + this.beliefs.length);
+		}
+		System.arraycopy(b, 0, this.beliefs, 0, b.length);
+	}
+
+	/**
+	 * Returns the set of underlying MDP states this belief vector spans.
+	 * @return the set of underlying MDP states this belief vector spans.
+	 */
+	public List<State> getStateSpace(){
+		List<State> states = new ArrayList<State>(this.beliefs.length);
+		for(int i = 0; i < this.beliefs.length; i++){
+			states.add(this.stateForId(i));
+		}
+		return states;
+	}
+
+	/**
+	 * Sets this belief state to have zero probability mass for all underlying MDP states.
+	 */
+	public void zeroOutBeliefVector(){
+		Arrays.fill(this.beliefs, 0.);
+	}
+
+	/**
+	 * Initializes this belief state to a uniform distribution
+	 */
+	public void initializeBeliefsUniformly(){
+		Arrays.fill(this.beliefs, 1. / this.beliefs.length);
+	}
+
+	@Override
+	public MutableState set(Object variableKey, Object value) {
+
+		if(!(value instanceof Double)){
+			throw new RuntimeException("Cannot set belief state value, because the value is a " + value.getClass().getName() + " not a Double");
+		}
+
+		Double val = (Double)value;
+
+		if(variableKey instanceof Integer){
+			this.setBelief((Integer)variableKey, val);
+		}
+		else if(variableKey instanceof State){
+			this.setBelief((State)variableKey, val);
+		}
+		else if(variableKey instanceof String){
+			int key;
+			try{
+				key = Integer.parseInt((String)variableKey);
+			}catch(NumberFormatException e){
+				throw new RuntimeException("Could not set belief for ArrayBeliefState because the key is a String, but does not parse into an int; it is " + variableKey);
+			}
+			this.setBelief(key, val);
+		}
+		else{
+			throw new RuntimeException("Cannot set belief for ArrayBeliefState because the key is a " + variableKey.getClass().getName() + " rather than a, Integer, State, or String representation of an int");
+		}
+
+		return this;
+	}
+
+	@Override
+	public List<Object> variableKeys() {
+		List<Object> keys = new ArrayList<Object>(this.beliefs.length);
+		for(int i = 0; i < this.beliefs.length; i++){
+			keys.add(i);
+		}
+		return keys;
+	}
+
+	@Override
+	public Object get(Object variableKey) {
+
+		if(variableKey instanceof Integer){
+			return this.belief((Integer)variableKey);
+		}
+		else if(variableKey instanceof State){
+			return this.belief((State)variableKey);
+		}
+		else if(variableKey instanceof String){
+			try{
+				return this.belief(Integer.parseInt((String)variableKey));
+			}catch(NumberFormatException e){
+				throw new RuntimeException("Could not return belief for ArrayBeliefState because the key is a String, but does not parse into an int; it is " + variableKey);
+			}
+		}
+
+		throw new RuntimeException("Could not return belief value for key, because it is a " + variableKey.getClass().getName() + " rather than an Integer, State, or String representation of an integer");
+	}
+
+	@Override
+	public State copy() {
+		return new ArrayBeliefState(this);
+	}
+
+	@Override
+	public State s() {
+		return this;
+	}
+
+	/**
+	 * Hashes the set of states with non-zero mass, so that belief states that are equal within the tolerance of {@link #equals(Object)}
+	 * have the same hash code unless a state's mass is within the tolerance of zero.
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		int h = 1;
+		for(int i = 0; i < this.beliefs.length; i++){
+			if(this.beliefs[i] != 0.){
+				h = 31*h + i;
+			}
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+
+		if(obj == this){
+			return true;
+		}
+
+		if(!(obj instanceof ArrayBeliefState)){
+			return false;
+		}
+
+		double [] ob = ((ArrayBeliefState)obj).beliefs;
+		if(ob.length != this.beliefs.length){
+			return false;
+		}
+		for(int i = 0; i < ob.length; i++){
+			if(Math.abs(ob[i] - this.beliefs[i]) > 1e-10){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(this.beliefs);
+	}
+}
@@ -0,0 +1,427 @@
+package burlap.mdp.singleagent.pomdp.beliefstate;
+
+import burlap.behavior.singleagent.auxiliary.StateEnumerator;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.ActionUtils;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.mdp.singleagent.pomdp.PODomain;
+import burlap.mdp.singleagent.pomdp.observations.DiscreteObservationFunction;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link BeliefUpdate} that performs the same exact Bayesian update as {@link TabularBeliefUpdate} with the POMDP's
+ * transition and observation functions compiled into arrays. When constructed, it enumerates the actions applicable in any state and
+ * the observations of the domain's {@link DiscreteObservationFunction}, and stores, for each action, a sparse
+ * transition matrix in compressed row form and, for each action and observation, the vector of the observation's likelihood in every state.
+ * A belief update is then a sparse matrix-vector product followed by an element-wise product with a likelihood vector,
+ * with no state enumeration lookups, model queries, or allocation when performed with {@link #update(double[], int, int, double[])} or
+ * {@link #updateInPlace(ArrayBeliefState, int, int)}.
+ * <p>
+ * The domain's {@link burlap.behavior.singleagent.auxiliary.StateEnumerator} must have enumerated the full state space before
+ * this object is constructed, the model must be a {@link FullModel}, and the observation function must be a {@link DiscreteObservationFunction}.
+ * The model is only queried for the actions applicable in each state; a state has no successors under an action that is not applicable in it,
+ * so updating a belief with weight on such states with that action drops their weight. Compiling does not add states to the state enumerator.
+ * The compiled model is not updated if the domain changes. Observations are indexed by their hashed states, so different observation
+ * objects that are equal under the {@link HashableStateFactory} are treated as the same observation.
+ * <p>
+ * This class reuses a scratch vector for in-place updates, so a single instance should not perform in-place updates from multiple threads.
+ * An in-place update swaps the belief state's array with the scratch vector, so see {@link #updateInPlace(ArrayBeliefState, int, int)} before
+ * holding on to the array of a belief state that is updated in place.
+ * @author James MacGlashan.
+ */
+public class CompiledTabularBeliefUpdate implements BeliefUpdate{
+
+	protected PODomain domain;
+	protected StateEnumerator stateEnumerator;
+	protected HashableStateFactory hashingFactory;
+
+	/**
+	 * The number of MDP states
+	 */
+	protected int numStates;
+
+	/**
+	 * The actions, in index order
+	 */
+	protected List<Action> actions;
+
+	/**
+	 * The index of each action
+	 */
+	protected Map<Action, Integer> actionIds;
+
+	/**
+	 * The observations, in index order
+	 */
+	protected List<State> observations;
+
+	/**
+	 * The index of each hashed observation
+	 */
+	protected Map<HashableState, Integer> observationIds;
+
+	/**
+	 * For each action, the offset of each state's outgoing transitions in {@link #nextStates} and {@link #transitionProbs}, with
+	 * a final entry for the total number of transitions
+	 */
+	protected int [][] rowStarts;
+
+	/**
+	 * For each action, the index of the next state of each transition
+	 */
+	protected int [][] nextStates;
+
+	/**
+	 * For each action, the probability of each transition
+	 */
+	protected double [][] transitionProbs;
+
+	/**
+	 * For each action and observation, the likelihood of the observation in each state after the action
+	 */
+	protected double [][][] likelihoods;
+
+	/**
+	 * The scratch vector used by {@link #updateInPlace(ArrayBeliefState, int, int)}
+	 */
+	protected double [] scratch;
+
+
+	/**
+	 * Initializes and compiles the domain using the domain's state enumerator and a {@link SimpleHashableStateFactory} for
+	 * indexing observations.
+	 * @param domain the POMDP domain
+	 */
+	public CompiledTabularBeliefUpdate(PODomain domain) {
+		this(domain, domain.getStateEnumerator(), new SimpleHashableStateFactory());
+	}
+
+
+	/**
+	 * Initializes and compiles the domain.
+	 * @param domain the POMDP domain
+	 * @param stateEnumerator the state enumerator that has enumerated the full state space
+	 * @param hashingFactory the hashing factory used to index observations
+	 */
+	public CompiledTabularBeliefUpdate(PODomain domain, StateEnumerator stateEnumerator, HashableStateFactory hashingFactory) {
+		this.domain = domain;
+		this.stateEnumerator = stateEnumerator;
+		this.hashingFactory = hashingFactory;
+		this.compile();
+	}
+
+
+	public PODomain getDomain() {
+		return domain;
+	}
+
+	public StateEnumerator getStateEnumerator() {
+		return stateEnumerator;
+	}
+
+	/**
+	 * Returns the number of MDP states in the compiled belief vectors
+	 * @return the number of MDP states
+	 */
+	public int numStates() {
+		return numStates;
+	}
+
+	/**
+	 * Returns the compiled actions, in index order
+	 * @return the compiled actions
+	 */
+	public List<Action> getActions() {
+		return actions;
+	}
+
+	/**
+	 * Returns the compiled observations, in index order
+	 * @return the compiled observations
+	 */
+	public List<State> getObservations() {
+		return observations;
+	}
+
+	/**
+	 * Returns the number of compiled actions
+	 * @return the number of compiled actions
+	 */
+	public int numActions() {
+		return actions.size();
+	}
+
+	/**
+	 * Returns the number of compiled observations
+	 * @return the number of compiled observations
+	 */
+	public int numObservations() {
+		return observations.size();
+	}
+
+	/**
+	 * Returns the offset of each state's outgoing transitions for an action in the arrays returned by {@link #transitionNextStates(int)}
+	 * and {@link #transitionProbabilities(int)}, with a final entry for the total number of transitions. The array should not be modified.
+	 * @param action the index of the action
+	 * @return the transition offset of each state
+	 */
+	public int [] transitionRowStarts(int action) {
+		return rowStarts[action];
+	}
+
+	/**
+	 * Returns the index of the next state of each transition of an action. The array should not be modified.
+	 * @param action the index of the action
+	 * @return the index of the next state of each transition
+	 */
+	public int [] transitionNextStates(int action) {
+		return nextStates[action];
+	}
+
+	/**
+	 * Returns the probability of each transition of an action. The array should not be modified.
+	 * @param action the index of the action
+	 * @return the probability of each transition
+	 */
+	public double [] transitionProbabilities(int action) {
+		return transitionProbs[action];
+	}
+
+	/**
+	 * Returns the likelihood of an observation in each state after an action. The array should not be modified.
+	 * @param action the index of the action
+	 * @param observation the index of the observation
+	 * @return the likelihood of the observation in each state
+	 */
+	public double [] observationLikelihoods(int action, int observation) {
+		return likelihoods[action][observation];
+	}
+
+	/**
+	 * Returns the index of an action
+	 * @param a the action
+	 * @return the index of the action
+	 */
+	public int actionIndex(Action a){
+		Integer id = this.actionIds.get(a);
+		if(id == null){
+			throw new RuntimeException("CompiledTabularBeliefUpdate cannot update with action " + a + " because it is not applicable in any enumerated state.");
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the index of an observation
+	 * @param observation the observation
+	 * @return the index of the observation
+	 */
+	public int observationIndex(State observation){
+		Integer id = this.observationIds.get(this.hashingFactory.hashState(observation));
+		if(id == null){
+			throw new RuntimeException("CompiledTabularBeliefUpdate cannot update with observation " + observation + " because it is not returned by the observation function's allObservations method.");
+		}
+		return id;
+	}
+
+
+	/**
+	 * Compiles the transition matrix of each action and the likelihood vector of each action and observation.
+	 */
+	protected void compile(){
+
+		if(!(this.domain.getModel() instanceof FullModel)){
+			throw new RuntimeException("CompiledTabularBeliefUpdate requires the domain model to be a FullModel.");
+		}
+		if(!(this.domain.getObservationFunction() instanceof DiscreteObservationFunction)){
+			throw new RuntimeException("CompiledTabularBeliefUpdate requires the domain observation function to be a DiscreteObservationFunction.");
+		}
+		FullModel model = (FullModel)this.domain.getModel();
+		DiscreteObservationFunction of = (DiscreteObservationFunction)this.domain.getObservationFunction();
+
+		int n = this.stateEnumerator.numStatesEnumerated();
+		this.numStates = n;
+		State [] states = new State[n];
+		for(int i = 0; i < n; i++){
+			states[i] = this.stateEnumerator.getStateForEnumerationId(i);
+		}
+
+		this.actions = new ArrayList<Action>();
+		this.actionIds = new HashMap<Action, Integer>();
+		List<Set<Action>> applicable = new ArrayList<Set<Action>>(n);
+		for(State s : states){
+			Set<Action> sActions = new HashSet<Action>(ActionUtils.allApplicableActionsForTypes(this.domain.getActionTypes(), s));
+			applicable.add(sActions);
+			for(Action a : sActions){
+				if(!this.actionIds.containsKey(a)){
+					this.actionIds.put(a, this.actions.size());
+					this.actions.add(a);
+				}
+			}
+		}
+
+		this.observations = new ArrayList<State>(of.allObservations());
+		this.observationIds = new HashMap<HashableState, Integer>(this.observations.size());
+		for(int i = 0; i < this.observations.size(); i++){
+			this.observationIds.put(this.hashingFactory.hashState(this.observations.get(i)), i);
+		}
+
+		int nA = this.actions.size();
+		int nO = this.observations.size();
+		this.rowStarts = new int[nA][];
+		this.nextStates = new int[nA][];
+		this.transitionProbs = new double[nA][];
+		this.likelihoods = new double[nA][nO][n];
+		for(int a = 0; a < nA; a++){
+
+			Action action = this.actions.get(a);
+			int [] starts = new int[n+1];
+			List<List<TransitionProb>> rows = new ArrayList<List<TransitionProb>>(n);
+			for(int i = 0; i < n; i++){
+				List<TransitionProb> tps = applicable.get(i).contains(action) ? model.transitions(states[i], action) : Collections.<TransitionProb>emptyList();
+				rows.add(tps);
+				starts[i+1] = starts[i] + tps.size();
+			}
+
+			int [] next = new int[starts[n]];
+			double [] probs = new double[starts[n]];
+			for(int i = 0; i < n; i++){
+				int k = starts[i];
+				for(TransitionProb tp : rows.get(i)){
+					int nsid = this.stateEnumerator.findEnumeratedID(tp.eo.op);
+					if(nsid == -1 || nsid >= n){
+						throw new RuntimeException("CompiledTabularBeliefUpdate found a transition to a state that was not enumerated when it was constructed; the state enumerator must enumerate the full state space first.");
+					}
+					next[k] = nsid;
+					probs[k] = tp.p;
+					k++;
+				}
+			}
+			this.rowStarts[a] = starts;
+			this.nextStates[a] = next;
+			this.transitionProbs[a] = probs;
+
+			for(int o = 0; o < nO; o++){
+				State observation = this.observations.get(o);
+				double [] lik = this.likelihoods[a][o];
+				for(int i = 0; i < n; i++){
+					lik[i] = of.probability(observation, states[i], action);
+				}
+			}
+
+		}
+
+		this.scratch = new double[n];
+
+	}
+
+
+	@Override
+	public BeliefState update(BeliefState belief, State observation, Action a) {
+
+		if(!(belief instanceof DenseBeliefVector)){
+			throw new RuntimeException("CompiledTabularBeliefUpdate requires a DenseBeliefVector belief state, but was given a " + belief.getClass().getName());
+		}
+
+		double [] b = ((DenseBeliefVector)belief).beliefVector();
+		double [] nb = new double[this.numStates];
+		this.update(b, this.actionIndex(a), this.observationIndex(observation), nb);
+
+		if(belief instanceof TabularBeliefState){
+			TabularBeliefState nbs = new TabularBeliefState(this.domain, this.stateEnumerator);
+			for(int i = 0; i < nb.length; i++){
+				if(nb[i] > 0){
+					nbs.setBelief(i, nb[i]);
+				}
+			}
+			return nbs;
+		}
+
+		return new ArrayBeliefState(this.domain, this.stateEnumerator, nb);
+	}
+
+
+	/**
+	 * Updates an {@link ArrayBeliefState} in place without allocating. The updated beliefs are written to this object's scratch vector,
+	 * which then becomes the belief state's array, and the belief state's previous array becomes the scratch vector. An array previously
+	 * returned by {@link ArrayBeliefState#getBeliefArray()} for the belief state therefore
+	 * no longer backs it after this call, and is overwritten by the next in-place update performed by this object; copy the array
+	 * before the update if its values are needed afterwards.
+	 * @param belief the belief state to update
+	 * @param action the index of the action taken
+	 * @param observation the index of the observation received
+	 * @return the probability of the observation given the belief and action
+	 */
+	public double updateInPlace(ArrayBeliefState belief, int action, int observation){
+		double [] prev = belief.beliefs;
+		double norm = this.update(prev, action, observation, this.scratch);
+		belief.beliefs = this.scratch;
+		this.scratch = prev;
+		return norm;
+	}
+
+
+	/**
+	 * Computes the updated belief vector for an action and observation.
+	 * @param b the belief vector before the action
+	 * @param action the index of the action taken
+	 * @param observation the index of the observation received
+	 * @param nb the array into which the updated belief vector is written; must not be the same array as b
+	 * @return the probability of the observation given the belief and action, which normalized the updated belief vector
+	 */
+	public double update(double [] b, int action, int observation, double [] nb){
+
+		if(b.length != this.numStates || nb.length != this.numStates){
+			throw new RuntimeException("CompiledTabularBeliefUpdate belief vectors must have dimension " + this.numStates);
+		}
+
+		int [] starts = this.rowStarts[action];
+		int [] next = this.nextStates[action];
+		double [] probs = this.transitionProbs[action];
+		double [] lik = this.likelihoods[action][observation];
+
+		//predict
+		for(int i = 0; i < nb.length; i++){
+			nb[i] = 0.;
+		}
+		for(int i = 0; i < b.length; i++){
+			double bi = b[i];
+			if(bi == 0.){
+				continue;
+			}
+			for(int k = starts[i]; k < starts[i+1]; k++){
+				nb[next[k]] += probs[k] * bi;
+			}
+		}
+
+		//correct
+		double norm = 0.;
+		for(int i = 0; i < nb.length; i++){
+			nb[i] *= lik[i];
+			norm += nb[i];
+		}
+
+		if(norm == 0){
+			throw new RuntimeException("Cannot get updated belief state, because probabilities summed to 0");
+		}
+
+		double inv = 1. / norm;
+		for(int i = 0; i < nb.length; i++){
+			nb[i] *= inv;
+		}
+
+		return norm;
+	}
+
+}
@@ -14,7 +14,8 @@ import java.util.Map;
 
 /**
  * A {@link BeliefUpdate} that operates on {@link TabularBeliefState} instances. Computation is exhaustive and
- * performs the exact Bayesian update.
+ * performs the exact Bayesian update. For domains with a fully enumerated state space and discrete observations that
+ * perform many updates, {@link CompiledTabularBeliefUpdate} performs the same update with a precompiled model.
  * @author James MacGlashan.
  */
 public class TabularBeliefUpdate implements BeliefUpdate{
@@ -0,0 +1,242 @@
+package burlap.mdp.stochasticgames.tournament;
+
+import burlap.datastructures.HashedAggregator;
+import burlap.debugtools.RandomFactory;
+import burlap.mdp.stochasticgames.agent.AgentFactory;
+import burlap.mdp.stochasticgames.world.WorldGenerator;
+import burlap.parallel.ParallelUtilities;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+
+/**
+ * A {@link Tournament} that plays its matches concurrently on a fixed number of threads. Each match is played in its own {@link burlap.mdp.stochasticgames.world.World},
+ * created by the {@link WorldGenerator} on the thread that plays the match, by agents that are generated for that match, so matches
+ * do not share any mutable state as long as the {@link AgentFactory}s generate independent agents and the worlds of the
+ * {@link WorldGenerator} only share thread-safe objects (such as the domain and reward function of a
+ * {@link burlap.mdp.stochasticgames.tournament.common.ConstantWorldGenerator}).
+ * <p>
+ * Matches are drawn from the {@link MatchSelector} and shuffled on the calling thread, and at most a bounded number of matches
+ * ({@link #getMaxPendingMatches()}) are queued or running at once, so a selector for thousands of matches is consumed lazily. Each match is
+ * played with its own {@link RandomFactory} (set with {@link RandomFactory#setThreadFactory(RandomFactory)}) seeded from the match's index and
+ * a seed drawn once per tournament from the calling thread's generator. Matches are played with {@link #playMatch(List)}, as in
+ * {@link Tournament}, and their results are added to the cumulative rewards in match order by the calling thread.
+ * Therefore, if every random generator used by the agents and the world is obtained from {@link RandomFactory} on the thread that uses it, the results of a
+ * tournament depend only on the seed of the calling thread's generator and not on the number of threads or how they are scheduled.
+ * @author James MacGlashan
+ *
+ */
+public class ConcurrentTournament extends Tournament {
+
+	/**
+	 * The number of threads that play matches
+	 */
+	protected int										parallelism;
+
+	/**
+	 * The maximum number of matches that are queued or running at once
+	 */
+	protected int										maxPendingMatches;
+
+	/**
+	 * The cumulative reward of each agent index. Results are only recorded by the thread that runs the tournament, so it is not synchronized.
+	 */
+	protected HashedAggregator<Integer>					rewardAggregator = new HashedAggregator<Integer>();
+
+
+	/**
+	 * Initializes the ConcurrentTournament
+	 * @param maxStages the maximum number of stages to be played in any single game of the tournament.
+	 * @param numGames the number of games that will be played for each agent matching
+	 * @param selector a match selector that dictates which agents will play who and in which games
+	 * @param worldGenerator a world generator to create new worlds for each match
+	 * @param parallelism the number of threads that play matches
+	 */
+	public ConcurrentTournament(int maxStages, int numGames, MatchSelector selector, WorldGenerator worldGenerator, int parallelism){
+		super(maxStages, numGames, selector, worldGenerator);
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Initializes the ConcurrentTournament
+	 * @param agents the list of agents that will participate in the tournament
+	 * @param maxStages the maximum number of stages to be played in any single game of the tournament.
+	 * @param numGames the number of games that will be played for each agent matching
+	 * @param selector a match selector that dictates which agents will play who and in which games
+	 * @param worldGenerator a world generator to create new worlds for each match
+	 * @param parallelism the number of threads that play matches
+	 */
+	public ConcurrentTournament(List<AgentFactory> agents, int maxStages, int numGames, MatchSelector selector, WorldGenerator worldGenerator, int parallelism){
+		super(agents, maxStages, numGames, selector, worldGenerator);
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the number of threads that play matches
+	 * @return the number of threads that play matches
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+
+	/**
+	 * Sets the number of threads that play matches, and sets the maximum number of pending matches to four times that number.
+	 * @param parallelism the number of threads; must be at least 1.
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1){
+			throw new RuntimeException("Parallelism of ConcurrentTournament must be at least 1; was " + parallelism);
+		}
+		this.parallelism = parallelism;
+		this.maxPendingMatches = 4 * parallelism;
+	}
+
+
+	/**
+	 * Returns the maximum number of matches that are queued or running at once
+	 * @return the maximum number of pending matches
+	 */
+	public int getMaxPendingMatches() {
+		return maxPendingMatches;
+	}
+
+
+	/**
+	 * Sets the maximum number of matches that are queued or running at once. Larger values keep threads busy when match lengths vary,
+	 * at the cost of holding more unrecorded results.
+	 * @param maxPendingMatches the maximum number of pending matches; must be at least 1.
+	 */
+	public void setMaxPendingMatches(int maxPendingMatches) {
+		if(maxPendingMatches < 1){
+			throw new RuntimeException("The maximum number of pending matches must be at least 1; was " + maxPendingMatches);
+		}
+		this.maxPendingMatches = maxPendingMatches;
+	}
+
+
+	/**
+	 * Returns the aggregator of the cumulative reward of each agent index. It is updated by the thread that runs the tournament and is not
+	 * thread-safe, so it should only be read by that thread or after {@link #runTournament()} returns.
+	 * @return the aggregator of the cumulative reward of each agent index
+	 */
+	public HashedAggregator<Integer> getRewardAggregator() {
+		return rewardAggregator;
+	}
+
+
+	@Override
+	protected void recordMatch(Map<Integer, Double> results) {
+		super.recordMatch(results);
+		for(Map.Entry<Integer, Double> e : results.entrySet()){
+			this.rewardAggregator.add(e.getKey(), e.getValue());
+		}
+	}
+
+
+	@Override
+	public void resetTournamentReward() {
+		super.resetTournamentReward();
+		this.rewardAggregator.clear();
+	}
+
+
+	/**
+	 * Runs the tournament, playing matches concurrently, and returns once every match has been played and recorded.
+	 */
+	@Override
+	public void runTournament() {
+
+		selector.resetMatchSelections();
+
+		final long seed = RandomFactory.getMapped(0).nextLong();
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+		Deque<Future<Map<Integer, Double>>> pending = new ArrayDeque<Future<Map<Integer, Double>>>(this.maxPendingMatches);
+
+		try{
+			long matchIndex = 0;
+			boolean matchesRemain = true;
+			while(true){
+
+				//keep the pending queue full
+				while(matchesRemain && pending.size() < this.maxPendingMatches){
+					List<MatchEntry> match = selector.getNextMatch();
+					if(match == null){
+						matchesRemain = false;
+						break;
+					}
+					Collections.shuffle(match, RandomFactory.getMapped(0));
+					pending.add(executor.submit(new MatchTask(match, RandomFactory.mixSeed(seed + matchIndex))));
+					matchIndex++;
+				}
+
+				if(pending.isEmpty()){
+					break;
+				}
+
+				//record the oldest match
+				this.recordMatch(this.await(pending.poll()));
+
+			}
+		}
+		finally{
+			for(Future<Map<Integer, Double>> f : pending){
+				f.cancel(true);
+			}
+			executor.shutdownNow();
+		}
+
+	}
+
+
+	/**
+	 * Waits for a match to finish and returns its results, rethrowing any failure of the match.
+	 * @param f the future of the match
+	 * @return the results of the match
+	 */
+	protected Map<Integer, Double> await(Future<Map<Integer, Double>> f){
+		return ParallelUtilities.await(f, "tournament matches");
+	}
+
+
+	/**
+	 * A task that plays one match with its own {@link RandomFactory}.
+	 */
+	protected class MatchTask implements Callable<Map<Integer, Double>> {
+
+		/**
+		 * The match to play
+		 */
+		protected List<MatchEntry> match;
+
+		/**
+		 * The base seed of the match's {@link RandomFactory}
+		 */
+		protected long seed;
+
+		/**
+		 * Initializes.
+		 * @param match the match to play
+		 * @param seed the base seed of the match's {@link RandomFactory}
+		 */
+		public MatchTask(List<MatchEntry> match, long seed) {
+			this.match = match;
+			this.seed = seed;
+		}
+
+		@Override
+		public Map<Integer, Double> call() throws Exception {
+			RandomFactory.setThreadFactory(new RandomFactory(this.seed));
+			try{
+				return playMatch(this.match);
+			}
+			finally{
+				RandomFactory.clearThreadFactory();
+			}
+		}
+	}
+
+}
@@ -131,6 +131,24 @@ public class Tournament {
 	}
 	
 	
+	/**
+	 * Returns the debug code used for printing the entrants of each match with {@link DPrint}.
+	 * @return the debug code used with {@link DPrint}.
+	 */
+	public int getDebugId(){
+		return debugId;
+	}
+	
+	
+	/**
+	 * Sets the debug code used for printing the entrants of each match with {@link DPrint}.
+	 * @param debugId the debug code to use with {@link DPrint}.
+	 */
+	public void setDebugId(int debugId){
+		this.debugId = debugId;
+	}
+	
+	
 	/**
 	 * Returns the number of agents who are playing in this tournament
 	 * @return the number of agents who are playing in this tournament
@@ -180,37 +198,60 @@ public class Tournament {
 		List<MatchEntry> match;
 		while((match = selector.getNextMatch()) != null){
 			
-			World w = worldGenerator.generateWorld();
-			
 			//shuffle entrants
 			Collections.shuffle(match, RandomFactory.getMapped(0));
 			
-			Map<String, Integer> agentNameToId = new HashMap<String, Integer>();
-			
-			//have the matched agents join the world
-			for(MatchEntry me : match){
-				SGAgent a = agents.get(me.agentId).generateAgent("agent" + me.agentId, me.agentType);
-				w.join(a);
-				agentNameToId.put(a.agentName(), me.agentId);
-				DPrint.c(debugId, me.agentId + " ");
-			}
-			DPrint.cl(debugId, "");
-			
-			//run the game
-			for(int i = 0; i < this.numGames; i++){
-				w.runGame(maxStages);
-			}
-			
-			//record results
-			for(Entry<String, Integer> an : agentNameToId.entrySet()){
-				int aId = an.getValue();
-				double gameCumR = w.getCumulativeRewardForAgent(an.getKey());
-				double tournCumR = tournamentCumulatedReward.get(aId);
-				tournamentCumulatedReward.set(aId, gameCumR+tournCumR);
-			}
+			this.recordMatch(this.playMatch(match));
 			
 		}
 		
 	}
+	
+	
+	/**
+	 * Plays a match on the calling thread in a new world created by the world generator and returns the cumulative reward of each agent index in the match.
+	 * @param match the match to play, with its entrants in the order in which they join the world
+	 * @return a map from the agent index of each entrant to its cumulative reward in the match
+	 */
+	protected Map<Integer, Double> playMatch(List<MatchEntry> match){
+		
+		World w = worldGenerator.generateWorld();
+		
+		Map<String, Integer> agentNameToId = new LinkedHashMap<String, Integer>();
+		
+		//have the matched agents join the world
+		StringBuilder buf = new StringBuilder();
+		for(MatchEntry me : match){
+			SGAgent a = agents.get(me.agentId).generateAgent("agent" + me.agentId, me.agentType);
+			w.join(a);
+			agentNameToId.put(a.agentName(), me.agentId);
+			buf.append(me.agentId).append(" ");
+		}
+		DPrint.cl(debugId, buf.toString());
+		
+		//run the game
+		for(int i = 0; i < this.numGames; i++){
+			w.runGame(maxStages);
+		}
+		
+		Map<Integer, Double> results = new LinkedHashMap<Integer, Double>();
+		for(Entry<String, Integer> an : agentNameToId.entrySet()){
+			results.put(an.getValue(), w.getCumulativeRewardForAgent(an.getKey()));
+		}
+		
+		return results;
+	}
+	
+	
+	/**
+	 * Adds the results of a match to the cumulative tournament reward of each of its entrants.
+	 * @param results a map from the agent index of each entrant to its cumulative reward in the match
+	 */
+	protected void recordMatch(Map<Integer, Double> results){
+		for(Entry<Integer, Double> e : results.entrySet()){
+			int aId = e.getKey();
+			tournamentCumulatedReward.set(aId, tournamentCumulatedReward.get(aId) + e.getValue());
+		}
+	}
 
 }
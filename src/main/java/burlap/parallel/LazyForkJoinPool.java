@@ -0,0 +1,92 @@
+package burlap.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Holds the parallelism setting of a parallel algorithm and the {@link ForkJoinPool} that runs its work. The pool is created the first
+ * time it is requested, so algorithms that are configured but never run do not start threads, and it is shut down and recreated lazily
+ * when the parallelism changes. The pool's worker threads are daemon threads, so an algorithm that is never closed does not prevent the
+ * JVM from exiting, but {@link #shutdown()} may be called to release them early.
+ * <p>
+ * This class is thread-safe.
+ * @author James MacGlashan
+ *
+ */
+public class LazyForkJoinPool {
+
+	/**
+	 * The name of the algorithm that owns this pool, used in error messages
+	 */
+	protected String					owner;
+
+	/**
+	 * The number of worker threads
+	 */
+	protected int						parallelism;
+
+	/**
+	 * The pool, or null if it has not been created since the last change of parallelism or shutdown
+	 */
+	protected ForkJoinPool				pool;
+
+
+	/**
+	 * Initializes.
+	 * @param owner the name of the algorithm that owns this pool, used in error messages
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public LazyForkJoinPool(String owner, int parallelism){
+		this.owner = owner;
+		this.setParallelism(parallelism);
+	}
+
+
+	/**
+	 * Returns the number of worker threads.
+	 * @return the number of worker threads
+	 */
+	public synchronized int getParallelism() {
+		return parallelism;
+	}
+
+
+	/**
+	 * Sets the number of worker threads. If a pool with a different number of threads exists, it is shut down, and a new one is created
+	 * on the next call to {@link #get()}.
+	 * @param parallelism the number of worker threads; must be at least 1.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		if(parallelism < 1){
+			throw new RuntimeException("Parallelism of " + this.owner + " must be at least 1; was " + parallelism);
+		}
+		if(this.pool != null && this.pool.getParallelism() != parallelism){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Returns the pool, creating it if necessary.
+	 * @return the {@link ForkJoinPool}
+	 */
+	public synchronized ForkJoinPool get(){
+		if(this.pool == null){
+			this.pool = new ForkJoinPool(this.parallelism);
+		}
+		return this.pool;
+	}
+
+
+	/**
+	 * Shuts down the pool, if it has been created. Tasks that are already running complete, and a new pool is created on the next call to {@link #get()}.
+	 */
+	public synchronized void shutdown(){
+		if(this.pool != null){
+			this.pool.shutdown();
+			this.pool = null;
+		}
+	}
+
+}
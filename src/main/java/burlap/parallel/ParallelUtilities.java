@@ -0,0 +1,74 @@
+package burlap.parallel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Static methods for waiting on the results of tasks run by an {@link ExecutorService}, such as a {@link java.util.concurrent.ForkJoinPool}.
+ * Failures of a task are rethrown on the waiting thread: a {@link RuntimeException} or {@link Error} thrown by the task is rethrown as is, and
+ * checked exceptions are wrapped in a {@link RuntimeException}. If the waiting thread is interrupted, its interrupt status is restored and a
+ * {@link RuntimeException} is thrown.
+ * @author James MacGlashan
+ *
+ */
+public class ParallelUtilities {
+
+	private ParallelUtilities(){
+
+	}
+
+
+	/**
+	 * Waits for a task to finish and returns its result.
+	 * @param f the future of the task
+	 * @param description a description of the tasks being waited for, used in the message of the exception thrown if interrupted, e.g. "ParallelRTDP workers"
+	 * @param <T> the result type of the task
+	 * @return the result of the task
+	 */
+	public static <T> T await(Future<T> f, String description){
+		try {
+			return f.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for " + description + ".", e);
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			if(e.getCause() instanceof Error){
+				throw (Error)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+
+	/**
+	 * Runs all tasks on an executor, waits for all of them to finish, and returns their results in the order of the tasks.
+	 * @param executor the executor on which to run the tasks
+	 * @param tasks the tasks to run
+	 * @param description a description of the tasks, used in the message of the exception thrown if interrupted, e.g. "ParallelRTDP workers"
+	 * @param <T> the result type of the tasks
+	 * @return the results of the tasks
+	 */
+	public static <T> List<T> invokeAll(ExecutorService executor, Collection<? extends Callable<T>> tasks, String description){
+		List<Future<T>> futures;
+		try {
+			futures = executor.invokeAll(tasks);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for " + description + ".", e);
+		}
+		List<T> results = new ArrayList<T>(futures.size());
+		for(Future<T> f : futures){
+			results.add(await(f, description));
+		}
+		return results;
+	}
+
+}
@@ -0,0 +1,86 @@
+package burlap.parallel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets threads block until another thread reports progress, such as a worker that waits for a counter shared with other threads to
+ * change instead of spinning on it. A waiting thread reads the {@link #version()} of the signal, checks whether it can proceed, and if not,
+ * calls {@link #awaitChange(long)} with the version it read, which returns once {@link #signalAll()} has been called since that version was read.
+ * Because the version is read before the check, progress reported between the check and the wait is not missed.
+ * <p>
+ * {@link #signalAll()} only acquires a lock when a thread is waiting, so threads that report progress frequently pay for little more than
+ * an atomic increment while no thread waits.
+ * @author James MacGlashan
+ *
+ */
+public class ProgressSignal {
+
+	/**
+	 * The number of times progress has been signaled
+	 */
+	protected AtomicLong			version = new AtomicLong();
+
+	/**
+	 * The number of waiting threads; only modified while holding the lock
+	 */
+	protected volatile int			waiters = 0;
+
+	/**
+	 * The lock of the condition on which threads wait
+	 */
+	protected ReentrantLock			lock = new ReentrantLock();
+
+	/**
+	 * The condition on which threads wait for progress
+	 */
+	protected Condition				progressed = lock.newCondition();
+
+
+	/**
+	 * Returns the number of times progress has been signaled, to be passed to {@link #awaitChange(long)}
+	 * @return the number of times progress has been signaled
+	 */
+	public long version(){
+		return this.version.get();
+	}
+
+
+	/**
+	 * Reports progress, waking all threads waiting in {@link #awaitChange(long)}.
+	 */
+	public void signalAll(){
+		this.version.incrementAndGet();
+		if(this.waiters > 0){
+			this.lock.lock();
+			try {
+				this.progressed.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+
+	/**
+	 * Blocks until progress has been signaled since the given version was read, or the calling thread is interrupted, in which case
+	 * its interrupt status is set when this method returns.
+	 * @param version a version previously returned by {@link #version()}
+	 */
+	public void awaitChange(long version){
+		this.lock.lock();
+		try {
+			this.waiters++;
+			while(this.version.get() == version){
+				this.progressed.await();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.waiters--;
+			this.lock.unlock();
+		}
+	}
+
+}
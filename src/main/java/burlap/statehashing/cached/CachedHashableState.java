@@ -0,0 +1,110 @@
+package burlap.statehashing.cached;
+
+import burlap.mdp.core.state.State;
+import burlap.statehashing.HashableState;
+
+/**
+ * A {@link HashableState} that wraps the {@link HashableState} of another {@link burlap.statehashing.HashableStateFactory}
+ * and stores its hash code when it is created so that it is never recomputed. Equality checks first compare the stored hash codes,
+ * so that unequal states are usually rejected without deferring to the wrapped {@link HashableState}'s (possibly expensive)
+ * equality check. If the instance was interned by a {@link CachedHashableStateFactory}, equality with another instance interned by
+ * the same factory is a reference comparison.
+ * <p>
+ * Because the hash code is stored, the underlying {@link State} must not be modified after this object has been created.
+ * @author James MacGlashan.
+ */
+public class CachedHashableState implements HashableState {
+
+	/**
+	 * The wrapped {@link HashableState} that defines the hash code and equality.
+	 */
+	protected final HashableState hs;
+
+	/**
+	 * The stored hash code of the wrapped {@link HashableState}.
+	 */
+	protected final int hashCode;
+
+	/**
+	 * The canonical table in which this instance is interned, or null if it is not interned.
+	 */
+	protected final Object canonicalTable;
+
+
+	/**
+	 * Initializes, computing and storing the hash code of the given {@link HashableState}. The instance is not interned.
+	 * @param hs the {@link HashableState} to wrap
+	 */
+	public CachedHashableState(HashableState hs) {
+		this(hs, hs.hashCode(), null);
+	}
+
+
+	/**
+	 * Initializes with an already computed hash code.
+	 * @param hs the {@link HashableState} to wrap
+	 * @param hashCode the hash code of hs
+	 * @param canonicalTable the canonical table in which this instance is interned, or null if it is not interned.
+	 */
+	protected CachedHashableState(HashableState hs, int hashCode, Object canonicalTable) {
+		this.hs = hs;
+		this.hashCode = hashCode;
+		this.canonicalTable = canonicalTable;
+	}
+
+
+	/**
+	 * Returns the wrapped {@link HashableState}
+	 * @return the wrapped {@link HashableState}
+	 */
+	public HashableState wrapped(){
+		return this.hs;
+	}
+
+
+	/**
+	 * Returns whether this instance is the canonical (interned) instance of its state.
+	 * @return true if this instance is interned; false otherwise.
+	 */
+	public boolean isInterned(){
+		return this.canonicalTable != null;
+	}
+
+
+	@Override
+	public State s() {
+		return this.hs.s();
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(obj == this){
+			return true;
+		}
+		if(obj instanceof CachedHashableState){
+			CachedHashableState o = (CachedHashableState)obj;
+			if(this.hashCode != o.hashCode){
+				return false;
+			}
+			if(this.canonicalTable != null && this.canonicalTable == o.canonicalTable){
+				//both are the canonical instance of their state, so they would have been the same reference if they were equal
+				return false;
+			}
+			return this.hs.equals(o.hs);
+		}
+		if(!(obj instanceof HashableState)){
+			return false;
+		}
+		return this.hs.equals(obj);
+	}
+
+	@Override
+	public String toString() {
+		return this.hs.toString();
+	}
+}
@@ -0,0 +1,206 @@
+package burlap.statehashing.cached;
+
+import burlap.mdp.core.state.State;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link HashableStateFactory} that wraps another {@link HashableStateFactory} and produces {@link CachedHashableState}
+ * instances, which compute the hash code of the wrapped factory's {@link HashableState} once and store it. This avoids
+ * recomputing hash codes, which for {@link burlap.mdp.core.oo.state.OOState}s requires iterating over every object's variables,
+ * each time a state is used as a key in a hash map lookup.
+ * <p>
+ * This factory can optionally intern states: if interning is enabled, a thread-safe canonical table of previously hashed states
+ * is kept and {@link #hashState(State)} returns the same {@link CachedHashableState} instance for all equal states. Equality
+ * checks between interned states are then reference comparisons. The canonical table only weakly references its instances, so
+ * a state is dropped from the table once the client code no longer references it. Interning costs a table lookup (and a full equality
+ * check when the state was seen before) on every {@link #hashState(State)} call, so it pays off when hashed states are repeatedly
+ * compared against stored states, as in tabular planning and learning algorithms.
+ * <p>
+ * The hashed states must not be modified after they are hashed.
+ * @author James MacGlashan.
+ */
+public class CachedHashableStateFactory implements HashableStateFactory {
+
+	/**
+	 * The factory whose {@link HashableState} objects define the hash code and equality
+	 */
+	protected HashableStateFactory delegate;
+
+	/**
+	 * Whether equal states are interned to the same {@link CachedHashableState} instance
+	 */
+	protected boolean intern;
+
+	/**
+	 * The canonical table of interned states. Null if interning is disabled.
+	 */
+	protected ConcurrentHashMap<InternKey, CanonicalReference> canonicalTable;
+
+	/**
+	 * The queue to which references of garbage collected interned states are enqueued so they can be removed from the canonical table.
+	 */
+	protected ReferenceQueue<CachedHashableState> collectedQueue;
+
+
+	/**
+	 * Initializes to cache the hash codes of a default {@link SimpleHashableStateFactory} without interning.
+	 */
+	public CachedHashableStateFactory(){
+		this(new SimpleHashableStateFactory(), false);
+	}
+
+
+	/**
+	 * Initializes.
+	 * @param delegate the factory whose {@link HashableState} objects define the hash code and equality
+	 * @param intern if true, then equal states are interned to the same {@link CachedHashableState} instance; if false, they are not.
+	 */
+	public CachedHashableStateFactory(HashableStateFactory delegate, boolean intern){
+		this.delegate = delegate;
+		this.intern = intern;
+		if(intern){
+			this.canonicalTable = new ConcurrentHashMap<InternKey, CanonicalReference>();
+			this.collectedQueue = new ReferenceQueue<CachedHashableState>();
+		}
+	}
+
+
+	/**
+	 * Returns the factory whose {@link HashableState} objects define the hash code and equality
+	 * @return the wrapped {@link HashableStateFactory}
+	 */
+	public HashableStateFactory getDelegate() {
+		return delegate;
+	}
+
+
+	/**
+	 * Returns whether equal states are interned to the same {@link CachedHashableState} instance
+	 * @return true if states are interned; false otherwise.
+	 */
+	public boolean isInterning() {
+		return intern;
+	}
+
+
+	/**
+	 * Returns the number of states currently in the canonical table, which may include states that have been garbage collected
+	 * since the last call to {@link #hashState(State)}. Returns 0 if interning is disabled.
+	 * @return the number of states in the canonical table
+	 */
+	public int numInterned(){
+		if(!this.intern){
+			return 0;
+		}
+		return this.canonicalTable.size();
+	}
+
+
+	@Override
+	public HashableState hashState(State s) {
+
+		HashableState hs = this.delegate.hashState(s);
+		if(hs instanceof CachedHashableState){
+			return hs;
+		}
+
+		int hashCode = hs.hashCode();
+		if(!this.intern){
+			return new CachedHashableState(hs, hashCode, null);
+		}
+
+		this.expungeCollected();
+
+		InternKey key = new InternKey(hs, hashCode);
+		while(true){
+
+			CanonicalReference ref = this.canonicalTable.get(key);
+			if(ref != null){
+				CachedHashableState canonical = ref.get();
+				if(canonical != null){
+					return canonical;
+				}
+				//the canonical instance was collected but its reference has not been expunged yet
+				this.canonicalTable.remove(ref.key, ref);
+			}
+			else{
+				CachedHashableState chs = new CachedHashableState(hs, hashCode, this.canonicalTable);
+				if(this.canonicalTable.putIfAbsent(key, new CanonicalReference(chs, key, this.collectedQueue)) == null){
+					return chs;
+				}
+			}
+
+			//either a stale entry was removed or another thread interned this state first; try again
+
+		}
+
+	}
+
+
+	/**
+	 * Removes the entries of interned states that have been garbage collected from the canonical table.
+	 */
+	protected void expungeCollected(){
+		Reference<? extends CachedHashableState> collected;
+		while((collected = this.collectedQueue.poll()) != null){
+			CanonicalReference ref = (CanonicalReference)collected;
+			this.canonicalTable.remove(ref.key, ref);
+		}
+	}
+
+
+	/**
+	 * The key of the canonical table: a {@link HashableState} with its precomputed hash code. Keys are held separately from the
+	 * interned {@link CachedHashableState} so that the table does not prevent the interned instance from being garbage collected.
+	 */
+	protected static class InternKey {
+
+		protected final HashableState hs;
+		protected final int hashCode;
+
+		public InternKey(HashableState hs, int hashCode) {
+			this.hs = hs;
+			this.hashCode = hashCode;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this){
+				return true;
+			}
+			if(!(obj instanceof InternKey)){
+				return false;
+			}
+			InternKey o = (InternKey)obj;
+			return this.hashCode == o.hashCode && this.hs.equals(o.hs);
+		}
+	}
+
+
+	/**
+	 * A weak reference to an interned {@link CachedHashableState} that remembers its key in the canonical table so that
+	 * its entry can be removed once the interned state is collected.
+	 */
+	protected static class CanonicalReference extends WeakReference<CachedHashableState> {
+
+		protected final InternKey key;
+
+		public CanonicalReference(CachedHashableState referent, InternKey key, ReferenceQueue<CachedHashableState> queue) {
+			super(referent, queue);
+			this.key = key;
+		}
+	}
+
+}
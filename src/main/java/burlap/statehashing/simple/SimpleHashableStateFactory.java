@@ -18,6 +18,9 @@ import burlap.statehashing.HashableStateFactory;
  * (the names of objects don't affect the state identity). However, you may disable identifier independence
  * by using the constructor {@link #SimpleHashableStateFactory(boolean)}. If your domain is relational, it may be
  * important to be identifier *dependent* (that is, set the parameter in the constructor to false).
+ * <p>
+ * The {@link burlap.statehashing.HashableState} objects of this class recompute their hash code each time it is requested. To compute
+ * it only once (and optionally intern equal states), wrap this factory in a {@link burlap.statehashing.cached.CachedHashableStateFactory}.
  * @author James MacGlashan.
  */
 public class SimpleHashableStateFactory implements HashableStateFactory {
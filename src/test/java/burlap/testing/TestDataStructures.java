@@ -0,0 +1,57 @@
+package burlap.testing;
+
+import burlap.datastructures.ConcurrentClockCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDataStructures {
+
+	@Test
+	public void testClockCacheRemoval() {
+		RingInspectingClockCache cache = new RingInspectingClockCache(100);
+		for(int round = 0; round < 50; round++) {
+			for(int i = 0; i < 10; i++) {
+				Assert.assertNull(cache.putIfAbsent(round*10 + i, i));
+			}
+			for(int i = 0; i < 10; i++) {
+				Assert.assertTrue(cache.remove(round*10 + i, i));
+				Assert.assertFalse(cache.remove(round*10 + i, i));
+			}
+			//the cache never reaches capacity, so removed entries must be dropped without the clock hand moving
+			Assert.assertEquals(0, cache.size());
+			Assert.assertTrue(cache.ringSize() <= 1);
+		}
+
+		for(int i = 0; i < 50; i++) {
+			cache.putIfAbsent(i, i);
+		}
+		for(int i = 0; i < 50; i += 2) {
+			cache.remove(i, i);
+		}
+		Assert.assertEquals(25, cache.size());
+		Assert.assertTrue(cache.ringSize() <= 2*cache.size() + 1);
+		Assert.assertEquals(0, cache.evictions());
+
+		//entries removed below capacity are not counted as evictions, and the hand skips them once the cache is full
+		for(int i = 50; i < 150; i++) {
+			cache.putIfAbsent(i, i);
+		}
+		Assert.assertEquals(100, cache.size());
+		Assert.assertEquals(25, cache.evictions());
+		Assert.assertTrue(cache.ringSize() <= 2*cache.size() + 1);
+	}
+
+	/**
+	 * A {@link ConcurrentClockCache} that exposes the length of its clock ring.
+	 */
+	protected static class RingInspectingClockCache extends ConcurrentClockCache<Integer, Integer> {
+
+		public RingInspectingClockCache(int capacity) {
+			super(capacity);
+		}
+
+		public int ringSize() {
+			return this.clock.size();
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package burlap.testing;
+
+import burlap.behavior.functionapproximation.dense.DenseCrossProductFeatures;
+import burlap.behavior.functionapproximation.dense.DenseStateActionLinearVFA;
+import burlap.behavior.functionapproximation.dense.DenseStateFeatures;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.singleagent.Episode;
+import burlap.behavior.singleagent.learning.experiencereplay.CompactExperienceMemory;
+import burlap.behavior.singleagent.learning.experiencereplay.ConcurrentFixedSizeMemory;
+import burlap.behavior.singleagent.learning.experiencereplay.PrioritizedReplayMemory;
+import burlap.behavior.singleagent.learning.tdmethods.vfa.GradientDescentQLearning;
+import burlap.datastructures.SumTree;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.auxiliary.common.SinglePFTF;
+import burlap.mdp.auxiliary.stateconditiontest.StateConditionTest;
+import burlap.mdp.auxiliary.stateconditiontest.TFGoalCondition;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.SimpleAction;
+import burlap.mdp.core.oo.propositional.PropositionalFunction;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.environment.Environment;
+import burlap.mdp.singleagent.environment.EnvironmentFactory;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.environment.SimulatedEnvironment;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static burlap.behavior.policy.PolicyUtils.rollout;
+import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
+
+public class TestExperienceReplay {
+	public static final double delta = 0.000001;
+	GridWorldDomain gw;
+	OOSADomain domain;
+	StateConditionTest goalCondition;
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setRf(new UniformCostRF());
+		TerminalFunction tf = new SinglePFTF(PropositionalFunction.findPF(gw.generatePfs(), PF_AT_LOCATION));
+		this.gw.setTf(tf);
+		this.domain = this.gw.generateDomain();
+		this.goalCondition = new TFGoalCondition(tf);
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testActorLearner() {
+		final GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		GradientDescentQLearning agent = this.cellQLearning();
+		ConcurrentFixedSizeMemory memory = new ConcurrentFixedSizeMemory(10000);
+		agent.setExperienceReplay(memory, 8);
+		agent.useStaleTarget(50);
+		agent.setActorEpsilon(0.2);
+		agent.setUpdateRateLimit(1., 1000);
+
+		EnvironmentFactory envFactory = new EnvironmentFactory() {
+			@Override
+			public Environment generateEnvironment() {
+				return new SimulatedEnvironment(domain, initialState);
+			}
+		};
+		double stepsPerSecond = agent.runActorLearner(envFactory, 4, 50000, 200);
+
+		Assert.assertTrue(stepsPerSecond > 0.);
+		Assert.assertEquals(10000, memory.size());
+		Assert.assertEquals(50000, memory.numAdded());
+
+		Policy p = new GreedyQPolicy(agent);
+		Episode analysis = rollout(p, initialState, domain.getModel(), 100);
+		this.evaluateEpisode(analysis, true);
+	}
+
+	@Test
+	public void testPrioritizedReplay() {
+		SumTree tree = new SumTree(5);
+		double [] priorities = new double[]{1., 0., 3., 2., 4.};
+		for(int i = 0; i < priorities.length; i++) {
+			tree.set(i, priorities[i]);
+		}
+		Assert.assertEquals(10., tree.total(), delta);
+		Assert.assertEquals(1., tree.minPositive(), delta);
+		Assert.assertEquals(0, tree.find(0.5));
+		Assert.assertEquals(2, tree.find(1.));
+		Assert.assertEquals(3, tree.find(4.5));
+		Assert.assertEquals(4, tree.find(9.99));
+		Assert.assertEquals(4, tree.find(10.));
+
+		RandomFactory.getMapped(0).setSeed(3);
+		PrioritizedReplayMemory memory = new PrioritizedReplayMemory(4, 1., 1.);
+		GridWorldState s = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		for(int i = 0; i < 6; i++) {
+			memory.addExperience(new EnvironmentOutcome(s, new SimpleAction(GridWorldDomain.ACTION_NORTH), s, i, false));
+		}
+		Assert.assertEquals(4, memory.size());
+
+		PrioritizedReplayMemory.Minibatch batch = new PrioritizedReplayMemory.Minibatch(4);
+		for(int k = 0; k < 20; k++) {
+			Assert.assertEquals(4, memory.sample(batch, 4));
+			for(int i = 0; i < 4; i++) {
+				batch.errors[i] = batch.get(i).r == 5. ? 6. : 1.;
+			}
+			memory.updatePriorities(batch);
+		}
+
+		int [] counts = new int[6];
+		for(int i = 0; i < 1000; i++) {
+			memory.sample(batch, 4);
+			for(int j = 0; j < batch.size(); j++) {
+				int r = (int)batch.get(j).r;
+				counts[r]++;
+				Assert.assertEquals(r == 5 ? 1. / 6. : 1., batch.weights[j], 1e-5);
+			}
+		}
+		Assert.assertEquals(0, counts[0] + counts[1]);
+		Assert.assertTrue(counts[5] > 4 * counts[2]);
+
+		GradientDescentQLearning agent = this.cellQLearning();
+		agent.setExperienceReplay(new PrioritizedReplayMemory(10000), 8);
+		agent.useStaleTarget(50);
+		RandomFactory.getMapped(0).setSeed(5);
+		for(int i = 0; i < 300; i++) {
+			agent.runLearningEpisode(new SimulatedEnvironment(this.domain, s), 200);
+		}
+		Episode analysis = rollout(new GreedyQPolicy(agent), s, this.domain.getModel(), 100);
+		this.evaluateEpisode(analysis, true);
+	}
+
+	@Test
+	public void testCompactExperienceMemory() {
+		List<Action> actions = this.gridActions();
+		GridWorldState s = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		for(boolean offHeap : new boolean[]{false, true}) {
+			CompactExperienceMemory memory = new CompactExperienceMemory(8, new AgentPositionFeatures(), 2, actions, offHeap);
+			Assert.assertEquals(28, memory.bytesPerExperience());
+			Assert.assertEquals(8 * 28, memory.allocatedBytes());
+			Assert.assertEquals(offHeap, memory.isOffHeap());
+			for(int i = 0; i < 10; i++) {
+				GridWorldState o = new GridWorldState(new GridAgent(i, 10 - i), new GridLocation(10, 10, 0, "loc0"));
+				GridWorldState op = new GridWorldState(new GridAgent(i + 1, 10 - i), new GridLocation(10, 10, 0, "loc0"));
+				memory.addExperience(new EnvironmentOutcome(o, actions.get(i % 4), op, -i - 0.5, i % 3 == 0));
+			}
+			Assert.assertEquals(8, memory.size());
+
+			RandomFactory.getMapped(0).setSeed(1);
+			List<EnvironmentOutcome> samples = memory.sampleExperiences(6);
+			Assert.assertEquals(6, samples.size());
+			for(EnvironmentOutcome eo : samples) {
+				int i = (int)(-eo.r);
+				Assert.assertTrue(i >= 2 && i < 10);
+				Assert.assertEquals(-i - 0.5, eo.r, delta);
+				Assert.assertEquals(actions.get(i % 4), eo.a);
+				Assert.assertEquals(i % 3 == 0, eo.terminated);
+				Assert.assertArrayEquals(new double[]{i, 10 - i}, ((CompactExperienceMemory.StateView)eo.o).features(), delta);
+				Assert.assertArrayEquals(new double[]{i + 1, 10 - i}, memory.viewFeatures().features(eo.op), delta);
+				Assert.assertEquals((double)i, eo.o.get(0));
+			}
+			Assert.assertArrayEquals(new double[]{0, 0}, memory.viewFeatures().features(s), delta);
+
+			memory.resetMemory();
+			Assert.assertEquals(0, memory.sampleExperiences(4).size());
+		}
+
+		CompactExperienceMemory memory = new CompactExperienceMemory(10000, new AgentPositionFeatures(), 2, actions);
+		GradientDescentQLearning agent = this.cellQLearning(memory.viewFeatures());
+		agent.setExperienceReplay(memory, 8);
+		agent.useStaleTarget(50);
+		RandomFactory.getMapped(0).setSeed(5);
+		for(int i = 0; i < 300; i++) {
+			agent.runLearningEpisode(new SimulatedEnvironment(this.domain, s), 200);
+		}
+		Episode analysis = rollout(new GreedyQPolicy(agent), s, this.domain.getModel(), 100);
+		this.evaluateEpisode(analysis, true);
+	}
+
+	/**
+	 * The x and y position of the grid world agent
+	 */
+	protected static class AgentPositionFeatures implements DenseStateFeatures {
+
+		@Override
+		public double[] features(State s) {
+			GridAgent agent = ((GridWorldState)s).agent;
+			return new double[]{agent.x, agent.y};
+		}
+
+		@Override
+		public DenseStateFeatures copy() {
+			return this;
+		}
+	}
+
+	/**
+	 * Returns the four grid world movement actions
+	 */
+	protected List<Action> gridActions() {
+		List<Action> actions = new ArrayList<Action>();
+		for(String name : new String[]{GridWorldDomain.ACTION_NORTH, GridWorldDomain.ACTION_SOUTH, GridWorldDomain.ACTION_EAST, GridWorldDomain.ACTION_WEST}) {
+			actions.add(new SimpleAction(name));
+		}
+		return actions;
+	}
+
+	/**
+	 * Creates gradient descent Q-learning for the grid world with one feature per cell and action, which is equivalent to a table.
+	 */
+	protected GradientDescentQLearning cellQLearning() {
+		return this.cellQLearning(new AgentPositionFeatures());
+	}
+
+	/**
+	 * Creates gradient descent Q-learning for the grid world with one feature per cell and action, computed from position features.
+	 */
+	protected GradientDescentQLearning cellQLearning(final DenseStateFeatures positionFeatures) {
+		DenseStateFeatures cellFeatures = new DenseStateFeatures() {
+			@Override
+			public double[] features(State s) {
+				double [] pos = positionFeatures.features(s);
+				double [] f = new double[121];
+				f[(int)pos[0] * 11 + (int)pos[1]] = 1.;
+				return f;
+			}
+
+			@Override
+			public DenseStateFeatures copy() {
+				return this;
+			}
+		};
+		Map<Action, Integer> actionOffset = new HashMap<Action, Integer>();
+		List<Action> actions = this.gridActions();
+		for(int i = 0; i < actions.size(); i++) {
+			actionOffset.put(actions.get(i), i);
+		}
+		return new GradientDescentQLearning(this.domain, 0.99,
+				new DenseStateActionLinearVFA(new DenseCrossProductFeatures(cellFeatures, 4, actionOffset), 0.), 0.5);
+	}
+
+	/**
+	 * Asserts that an episode is a shortest path from the corner of the grid world to the goal
+	 */
+	public void evaluateEpisode(Episode analysis, Boolean expectOptimal) {
+		if (expectOptimal) {
+			Assert.assertEquals(this.gw.getHeight() + this.gw.getWidth() - 1, analysis.stateSequence.size());
+			Assert.assertEquals(-analysis.actionSequence.size(), analysis.discountedReturn(1.0), delta);
+		}
+		Assert.assertEquals(true, domain.getModel().terminal(analysis.stateSequence.get(analysis.stateSequence.size()-1)));
+		Assert.assertEquals(true, this.goalCondition.satisfies(analysis.stateSequence.get(analysis.stateSequence.size()-1)));
+	}
+}
@@ -0,0 +1,187 @@
+package burlap.testing;
+
+import burlap.behavior.singleagent.auxiliary.performance.LearningAlgorithmExperimenter;
+import burlap.behavior.policy.GreedyDeterministicQPolicy;
+import burlap.behavior.singleagent.learning.LearningAgent;
+import burlap.behavior.singleagent.learning.LearningAgentFactory;
+import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.behavior.singleagent.learning.tdmethods.SarsaLam;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.auxiliary.common.SinglePFTF;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.oo.propositional.PropositionalFunction;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.environment.Environment;
+import burlap.mdp.singleagent.environment.EnvironmentFactory;
+import burlap.mdp.singleagent.environment.SimulatedEnvironment;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
+
+public class TestExperimenter {
+	GridWorldDomain gw;
+	OOSADomain domain;
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setRf(new UniformCostRF());
+		TerminalFunction tf = new SinglePFTF(PropositionalFunction.findPF(gw.generatePfs(), PF_AT_LOCATION));
+		this.gw.setTf(tf);
+		this.domain = this.gw.generateDomain();
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testParallelExperimenter() throws IOException {
+		final GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		this.gw.setProbSucceedTransitionDynamics(0.8);
+		EnvironmentFactory envFactory = new EnvironmentFactory() {
+			@Override
+			public Environment generateEnvironment() {
+				return new SimulatedEnvironment(gw.generateDomain(), initialState);
+			}
+		};
+		LearningAgentFactory qFactory = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "Q-Learning";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				return new QLearning(domain, 0.99, hashingFactory, 0., 1.);
+			}
+		};
+		LearningAgentFactory sarsaFactory = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "SARSA";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				return new SarsaLam(domain, 0.99, hashingFactory, 0., 0.5, 0.9);
+			}
+		};
+
+		File dir = Files.createTempDirectory("burlapExperiment").toFile();
+		try {
+			String [] csvs = new String[4];
+			for(int threads = 1; threads <= 4; threads += 3) {
+				LearningAlgorithmExperimenter exp = new LearningAlgorithmExperimenter(envFactory, 6, 10, qFactory, sarsaFactory);
+				exp.toggleVisualPlots(false);
+				exp.setTrialSeed(42);
+				exp.setNumTrialThreads(threads);
+				exp.startExperiment();
+				int offset = threads == 1 ? 0 : 2;
+				this.writeAndRead(exp, new File(dir, "threads" + threads), csvs, offset);
+			}
+
+			Assert.assertTrue(csvs[0].split("\n").length > 6 * 2 * 10);
+			Assert.assertEquals(csvs[0], csvs[2]);
+			Assert.assertEquals(csvs[1], csvs[3]);
+		} finally {
+			deleteDirectory(dir);
+		}
+	}
+
+	@Test
+	public void testParallelExperimenterMatchesSerialCSV() throws IOException {
+		//deterministic dynamics and greedy deterministic learning policies, so that the trials of the serial experimenter,
+		//which share one environment and random stream, behave exactly like isolated trials
+		final GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		EnvironmentFactory envFactory = new EnvironmentFactory() {
+			@Override
+			public Environment generateEnvironment() {
+				return new SimulatedEnvironment(gw.generateDomain(), initialState);
+			}
+		};
+		//added in an order that differs from the hash order of the names, so the csv agent order is checked too
+		LearningAgentFactory sarsaFactory = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "SARSA";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				SarsaLam agent = new SarsaLam(domain, 0.99, hashingFactory, 0., 0.5, 0.9);
+				agent.setLearningPolicy(new GreedyDeterministicQPolicy(agent));
+				return agent;
+			}
+		};
+		LearningAgentFactory qFactory = new LearningAgentFactory() {
+			@Override
+			public String getAgentName() {
+				return "Q-Learning";
+			}
+
+			@Override
+			public LearningAgent generateAgent() {
+				QLearning agent = new QLearning(domain, 0.99, hashingFactory, 0., 1.);
+				agent.setLearningPolicy(new GreedyDeterministicQPolicy(agent));
+				return agent;
+			}
+		};
+
+		File dir = Files.createTempDirectory("burlapExperiment").toFile();
+		try {
+			String [] csvs = new String[4];
+
+			LearningAlgorithmExperimenter parallel = new LearningAlgorithmExperimenter(envFactory, 3, 5, sarsaFactory, qFactory);
+			parallel.toggleVisualPlots(false);
+			parallel.setNumTrialThreads(4);
+			parallel.startExperiment();
+			this.writeAndRead(parallel, new File(dir, "parallel"), csvs, 2);
+
+			Assert.assertTrue(csvs[2].split("\n").length > 3 * 2 * 5);
+			Assert.assertTrue(csvs[2].split("\n")[1].startsWith("SARSA,"));
+
+			//the serial experimenter collects its data with a PerformancePlotter, which is a window
+			Assume.assumeFalse(GraphicsEnvironment.isHeadless());
+
+			LearningAlgorithmExperimenter serial = new LearningAlgorithmExperimenter(envFactory.generateEnvironment(), 3, 5, sarsaFactory, qFactory);
+			serial.toggleVisualPlots(false);
+			serial.startExperiment();
+			this.writeAndRead(serial, new File(dir, "serial"), csvs, 0);
+
+			Assert.assertEquals(csvs[0], csvs[2]);
+			Assert.assertEquals(csvs[1], csvs[3]);
+		} finally {
+			deleteDirectory(dir);
+		}
+	}
+
+	protected void writeAndRead(LearningAlgorithmExperimenter exp, File base, String [] csvs, int offset) throws IOException {
+		exp.writeStepAndEpisodeDataToCSV(base.getPath());
+		csvs[offset] = new String(Files.readAllBytes(new File(base.getPath() + "Steps.csv").toPath()), Charset.forName("UTF-8"));
+		csvs[offset+1] = new String(Files.readAllBytes(new File(base.getPath() + "Episodes.csv").toPath()), Charset.forName("UTF-8"));
+	}
+
+	protected static void deleteDirectory(File dir) {
+		File [] files = dir.listFiles();
+		if(files != null) {
+			for(File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,157 @@
+package burlap.testing;
+
+import burlap.behavior.functionapproximation.supervised.ChunkedSupervisedVFA;
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.Episode;
+import burlap.behavior.singleagent.auxiliary.StateReachability;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
+import burlap.behavior.singleagent.planning.vfa.fittedvi.FittedVI;
+import burlap.behavior.valuefunction.ValueFunction;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.auxiliary.common.SinglePFTF;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.oo.propositional.PropositionalFunction;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static burlap.behavior.policy.PolicyUtils.rollout;
+import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
+
+public class TestFittedVI {
+	TestPlanning planningTest;
+
+	@Before
+	public void setup() {
+		this.planningTest = new TestPlanning();
+		this.planningTest.setup();
+	}
+
+	@Test
+	public void testParallelFittedVI() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+
+		ValueIteration vi = new ValueIteration(this.planningTest.domain, 0.99, this.planningTest.hashingFactory, 1e-8, 1000);
+		vi.planFromState(initialState);
+		List<State> samples = StateReachability.getReachableStates(initialState, this.planningTest.domain, this.planningTest.hashingFactory);
+
+		for(int i = 0; i < 3; i++) {
+			FittedVI fvi = new FittedVI(this.planningTest.domain, 0.99, new TableVFATrainer(this.planningTest.hashingFactory), samples, -1, 1e-8, 1000);
+			fvi.setParallelism(i == 0 ? 1 : 4);
+			fvi.setChunkSize(i == 2 ? 50 : -1);
+			Policy p = fvi.planFromState(initialState);
+			for(State s : samples) {
+				if(!this.planningTest.domain.getModel().terminal(s)) {
+					Assert.assertEquals(vi.value(s), fvi.value(s), 1e-6);
+				}
+			}
+			Episode analysis = rollout(p, initialState, this.planningTest.domain.getModel());
+			this.planningTest.evaluateEpisode(analysis, true);
+		}
+	}
+
+	@Test
+	public void testFittedVISampledTargetsIndependentOfParallelism() {
+		GridWorldDomain sgw = new GridWorldDomain(11, 11);
+		sgw.setMapToFourRooms();
+		sgw.setRf(new UniformCostRF());
+		sgw.setTf(new SinglePFTF(PropositionalFunction.findPF(sgw.generatePfs(), PF_AT_LOCATION)));
+		sgw.setProbSucceedTransitionDynamics(0.8);
+		OOSADomain sDomain = sgw.generateDomain();
+		//sample outcomes with the calling thread's random generator, as models that support reproducible parallel sampling do
+		final FullModel gridModel = (FullModel)sDomain.getModel();
+		sDomain.setModel(new FullModel() {
+			@Override
+			public List<TransitionProb> transitions(State s, Action a) {
+				return gridModel.transitions(s, a);
+			}
+
+			@Override
+			public EnvironmentOutcome sample(State s, Action a) {
+				return FullModel.Helper.sampleByEnumeration(this, s, a);
+			}
+
+			@Override
+			public boolean terminal(State s) {
+				return gridModel.terminal(s);
+			}
+		});
+
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		List<State> samples = StateReachability.getReachableStates(initialState, sDomain, this.planningTest.hashingFactory);
+
+		double [][] values = new double[2][samples.size()];
+		for(int i = 0; i < 2; i++) {
+			RandomFactory.seedMapped(0, 943);
+			FittedVI fvi = new FittedVI(sDomain, 0.99, new TableVFATrainer(this.planningTest.hashingFactory), samples, 3, 1e-8, 5);
+			fvi.setParallelism(i == 0 ? 1 : 4);
+			//the serial computation only uses the seeded blocks of the parallel one when asked to
+			fvi.toggleBlockSeeding(true);
+			fvi.runVI();
+			for(int j = 0; j < samples.size(); j++) {
+				values[i][j] = fvi.value(samples.get(j));
+			}
+		}
+		Assert.assertArrayEquals(values[0], values[1], 0.);
+	}
+
+	/**
+	 * A {@link ChunkedSupervisedVFA} that stores the target value of each training state in a table.
+	 */
+	protected static class TableVFATrainer implements ChunkedSupervisedVFA {
+
+		HashableStateFactory hashingFactory;
+		Map<HashableState, Double> table;
+
+		public TableVFATrainer(HashableStateFactory hashingFactory) {
+			this.hashingFactory = hashingFactory;
+		}
+
+		@Override
+		public ValueFunction train(List<SupervisedVFAInstance> trainingData) {
+			this.startTraining();
+			this.trainChunk(trainingData);
+			return this.finishTraining();
+		}
+
+		@Override
+		public void startTraining() {
+			this.table = new HashMap<HashableState, Double>();
+		}
+
+		@Override
+		public void trainChunk(List<SupervisedVFAInstance> chunk) {
+			for(SupervisedVFAInstance inst : chunk) {
+				this.table.put(this.hashingFactory.hashState(inst.s), inst.v);
+			}
+		}
+
+		@Override
+		public ValueFunction finishTraining() {
+			final Map<HashableState, Double> values = this.table;
+			return new ValueFunction() {
+				@Override
+				public double value(State s) {
+					Double v = values.get(hashingFactory.hashState(s));
+					return v != null ? v : 0.;
+				}
+			};
+		}
+	}
+}
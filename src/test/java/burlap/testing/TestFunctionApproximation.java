@@ -0,0 +1,268 @@
+package burlap.testing;
+
+import burlap.behavior.functionapproximation.FunctionGradient;
+import burlap.behavior.functionapproximation.dense.DenseStateFeatures;
+import burlap.behavior.functionapproximation.sparse.LinearVFA;
+import burlap.behavior.functionapproximation.sparse.SparseStateFeatures;
+import burlap.behavior.functionapproximation.sparse.StateFeature;
+import burlap.behavior.functionapproximation.sparse.tilecoding.TileCodingFeatures;
+import burlap.behavior.functionapproximation.sparse.tilecoding.TilingArrangement;
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.singleagent.Episode;
+import burlap.behavior.singleagent.learning.tdmethods.vfa.GradientDescentSarsaLam;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.auxiliary.common.SinglePFTF;
+import burlap.mdp.auxiliary.stateconditiontest.StateConditionTest;
+import burlap.mdp.auxiliary.stateconditiontest.TFGoalCondition;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.SimpleAction;
+import burlap.mdp.core.oo.propositional.PropositionalFunction;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.environment.SimulatedEnvironment;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static burlap.behavior.policy.PolicyUtils.rollout;
+import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
+
+public class TestFunctionApproximation {
+	public static final double delta = 0.000001;
+	GridWorldDomain gw;
+	OOSADomain domain;
+	StateConditionTest goalCondition;
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setRf(new UniformCostRF());
+		TerminalFunction tf = new SinglePFTF(PropositionalFunction.findPF(gw.generatePfs(), PF_AT_LOCATION));
+		this.gw.setTf(tf);
+		this.domain = this.gw.generateDomain();
+		this.goalCondition = new TFGoalCondition(tf);
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testSparseLinearSarsaLam() {
+		GradientDescentSarsaLam.SparseEligibilityTraces traces = new GradientDescentSarsaLam.SparseEligibilityTraces();
+		for(int i = 0; i < 40; i += 2) {
+			traces.add(i, i);
+		}
+		traces.setEligibility(38, 0.5);
+		traces.remove(0);
+		Assert.assertEquals(19, traces.size());
+		Assert.assertEquals(38, traces.parameterId(0));
+		Assert.assertFalse(traces.contains(0));
+		Assert.assertTrue(traces.contains(38));
+		Assert.assertEquals(0.5, traces.eligibility(38), delta);
+		Assert.assertEquals(38., traces.initialWeight(38), delta);
+		traces.clear();
+		Assert.assertEquals(0, traces.size());
+		Assert.assertFalse(traces.contains(38));
+
+		SparseStateFeatures cellFeatures = new SparseStateFeatures() {
+			@Override
+			public List<StateFeature> features(State s) {
+				GridAgent agent = ((GridWorldState)s).agent;
+				List<StateFeature> features = new ArrayList<StateFeature>(1);
+				features.add(new StateFeature(agent.x * 11 + agent.y, 1.));
+				return features;
+			}
+
+			@Override
+			public SparseStateFeatures copy() {
+				return this;
+			}
+
+			@Override
+			public int numFeatures() {
+				return 121;
+			}
+		};
+
+		GridWorldState s = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		for(boolean replacing : new boolean[]{false, true}) {
+			LinearVFA vfa = new LinearVFA(cellFeatures, 0.);
+			vfa.toggleGradientBufferReuse(true);
+			GradientDescentSarsaLam agent = new GradientDescentSarsaLam(this.domain, 0.99, vfa, 0.5, 0.8);
+			agent.setUseReplaceTraces(replacing);
+			RandomFactory.getMapped(0).setSeed(7);
+			for(int i = 0; i < 300; i++) {
+				agent.runLearningEpisode(new SimulatedEnvironment(this.domain, s), 200);
+			}
+			Assert.assertTrue(vfa.numParameters() <= 121 * 4);
+			Episode analysis = rollout(new GreedyQPolicy(agent), s, this.domain.getModel(), 100);
+			this.evaluateEpisode(analysis, true);
+		}
+	}
+
+	@Test
+	public void testLinearVFASparseIds() {
+		SparseStateFeatures hashedFeatures = new SparseStateFeatures() {
+			@Override
+			public List<StateFeature> features(State s) {
+				GridAgent agent = ((GridWorldState)s).agent;
+				List<StateFeature> features = new ArrayList<StateFeature>(2);
+				features.add(new StateFeature((agent.x * 11 + agent.y) * 0x9E3779B1, 1.));
+				features.add(new StateFeature(-1 - agent.x, 0.5));
+				return features;
+			}
+
+			@Override
+			public SparseStateFeatures copy() {
+				return this;
+			}
+
+			@Override
+			public int numFeatures() {
+				return 132;
+			}
+		};
+
+		LinearVFA vfa = new LinearVFA(hashedFeatures, 0.25);
+		vfa.setParameter(Integer.MAX_VALUE, 2.);
+		vfa.setParameter(Integer.MIN_VALUE, -2.);
+		Assert.assertEquals(2, vfa.numParameters());
+		Assert.assertEquals(2., vfa.getParameter(Integer.MAX_VALUE), delta);
+		Assert.assertEquals(-2., vfa.getParameter(Integer.MIN_VALUE), delta);
+		for(int x = 0; x <= 10; x++) {
+			for(int y = 0; y <= 10; y++) {
+				GridWorldState s = new GridWorldState(new GridAgent(x, y), new GridLocation(10, 10, 0, "loc0"));
+				Assert.assertEquals(0.25 * 1.5, vfa.evaluate(s), delta);
+				Assert.assertEquals(2, vfa.gradient(s).numNonZeroPDs());
+				Assert.assertEquals(0.5, vfa.gradient(s).getPartialDerivative(-1 - x), delta);
+			}
+		}
+		Assert.assertEquals(2 + 121 + 11, vfa.numParameters());
+
+		LinearVFA copy = vfa.copy();
+		vfa.setParameter(-1, 3.);
+		Assert.assertEquals(3., vfa.getParameter(-1), delta);
+		Assert.assertEquals(0.25, copy.getParameter(-1), delta);
+		Assert.assertEquals(2., copy.getParameter(Integer.MAX_VALUE), delta);
+		Assert.assertEquals(vfa.numParameters(), copy.numParameters());
+
+		vfa.resetParameters();
+		Assert.assertEquals(0, vfa.numParameters());
+		Assert.assertEquals(0.25, vfa.getParameter(Integer.MAX_VALUE), delta);
+
+		GradientDescentSarsaLam.SparseEligibilityTraces traces = new GradientDescentSarsaLam.SparseEligibilityTraces();
+		for(int i = 0; i < 100; i++) {
+			traces.add(i * 0x9E3779B1, i);
+		}
+		traces.remove(0x9E3779B1);
+		Assert.assertEquals(99, traces.size());
+		Assert.assertFalse(traces.contains(0x9E3779B1));
+		Assert.assertEquals(99., traces.initialWeight(99 * 0x9E3779B1), delta);
+		traces.add(0x9E3779B1, 7.);
+		Assert.assertTrue(traces.contains(0x9E3779B1));
+		Assert.assertEquals(7., traces.initialWeight(0x9E3779B1), delta);
+	}
+
+	@Test
+	public void testHashedTileCoding() {
+		TileCodingFeatures tiles = new TileCodingFeatures(new AgentPositionFeatures(), 64);
+		tiles.addTilingsForAllDimensionsWithWidths(new double[]{2., 2.}, 4, TilingArrangement.UNIFORM);
+		tiles.toggleCollisionCounting(true);
+		Assert.assertEquals(64, tiles.numFeatures());
+		Assert.assertEquals(4, tiles.numTilings());
+
+		int [] indices = new int[4];
+		int [] again = new int[4];
+		for(int x = 0; x <= 10; x++) {
+			for(int y = 0; y <= 10; y++) {
+				double [] input = new double[]{x, y};
+				Assert.assertEquals(4, tiles.activeTiles(input, indices));
+				for(int f : indices) {
+					Assert.assertTrue(f >= 0 && f < 64);
+				}
+				tiles.activeTiles(input, again);
+				Assert.assertArrayEquals(indices, again);
+				List<StateFeature> features = tiles.features(new GridWorldState(new GridAgent(x, y), new GridLocation(10, 10, 0, "loc0")));
+				for(int i = 0; i < 4; i++) {
+					Assert.assertEquals(indices[i], features.get(i).id);
+				}
+			}
+		}
+		//4 * 7 * 7 distinct tiles were visited, so some must share one of the 64 ids
+		Assert.assertTrue(tiles.numCollisions() > 0);
+		Assert.assertTrue(tiles.numOccupiedFeatures() <= 64);
+		Assert.assertEquals(tiles.numCollisions(), tiles.copy().numCollisions());
+
+		TileCodingFeatures cells = new TileCodingFeatures(new AgentPositionFeatures(), 4096);
+		cells.addTilingsForAllDimensionsWithWidths(new double[]{1., 1.}, 2, TilingArrangement.UNIFORM);
+		GradientDescentSarsaLam agent = new GradientDescentSarsaLam(this.domain, 0.99, cells.generateVFA(0.), 0.25, 0.8);
+		GridWorldState s = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		RandomFactory.getMapped(0).setSeed(7);
+		for(int i = 0; i < 300; i++) {
+			agent.runLearningEpisode(new SimulatedEnvironment(this.domain, s), 200);
+		}
+		Episode analysis = rollout(new GreedyQPolicy(agent), s, this.domain.getModel(), 100);
+		this.evaluateEpisode(analysis, true);
+	}
+
+	@Test
+	public void testCollidingHashedTiles() {
+		//with a single hashed feature id, the tiles of all tilings collide
+		TileCodingFeatures tiles = new TileCodingFeatures(new AgentPositionFeatures(), 1);
+		tiles.addTilingsForAllDimensionsWithWidths(new double[]{2., 2.}, 4, TilingArrangement.UNIFORM);
+		LinearVFA vfa = tiles.generateVFA(0.);
+		GridWorldState s = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		Action north = new SimpleAction(GridWorldDomain.ACTION_NORTH);
+		FunctionGradient gradient = vfa.gradient(s, north);
+		Assert.assertEquals(1, gradient.numNonZeroPDs());
+		Assert.assertEquals(4., gradient.getNonZeroPartialDerivatives().iterator().next().value, delta);
+
+		for(boolean reuseGradient : new boolean[]{false, true}) {
+			vfa = tiles.generateVFA(0.);
+			vfa.toggleGradientBufferReuse(reuseGradient);
+			GradientDescentSarsaLam agent = new GradientDescentSarsaLam(this.domain, 0.99, vfa, 0.1, 0.8);
+			Episode e = agent.runLearningEpisode(new SimulatedEnvironment(this.domain, s), 1);
+			//the td error of -1 updates the shared weight once for each of the 4 tiles, so the value moves by 4 * 4 * 0.1
+			Assert.assertEquals(-1.6, vfa.evaluate(s, e.action(0)), delta);
+		}
+	}
+
+	/**
+	 * The x and y position of the grid world agent
+	 */
+	protected static class AgentPositionFeatures implements DenseStateFeatures {
+
+		@Override
+		public double[] features(State s) {
+			GridAgent agent = ((GridWorldState)s).agent;
+			return new double[]{agent.x, agent.y};
+		}
+
+		@Override
+		public DenseStateFeatures copy() {
+			return this;
+		}
+	}
+
+	/**
+	 * Asserts that an episode is a shortest path from the corner of the grid world to the goal
+	 */
+	public void evaluateEpisode(Episode analysis, Boolean expectOptimal) {
+		if (expectOptimal) {
+			Assert.assertEquals(this.gw.getHeight() + this.gw.getWidth() - 1, analysis.stateSequence.size());
+			Assert.assertEquals(-analysis.actionSequence.size(), analysis.discountedReturn(1.0), delta);
+		}
+		Assert.assertEquals(true, domain.getModel().terminal(analysis.stateSequence.get(analysis.stateSequence.size()-1)));
+		Assert.assertEquals(true, this.goalCondition.satisfies(analysis.stateSequence.get(analysis.stateSequence.size()-1)));
+	}
+}
@@ -1,22 +1,37 @@
 package burlap.testing;
 
+import burlap.behavior.policy.PolicyUtils;
+import burlap.behavior.policy.RandomPolicy;
+import burlap.behavior.singleagent.Episode;
+import burlap.behavior.singleagent.episodestore.BinaryEpisodeFormat;
+import burlap.behavior.singleagent.episodestore.BinaryEpisodeReader;
+import burlap.behavior.singleagent.episodestore.BinaryEpisodeWriter;
 import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.GridWorldTerminalFunction;
 import burlap.domain.singleagent.gridworld.state.GridAgent;
 import burlap.domain.singleagent.gridworld.state.GridLocation;
 import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.auxiliary.common.ConstantStateGenerator;
 import burlap.mdp.core.action.Action;
 import burlap.mdp.core.Domain;
 import burlap.mdp.core.oo.propositional.GroundedProp;
 import burlap.mdp.core.oo.propositional.PropositionalFunction;
 import burlap.mdp.core.oo.state.OOState;
 import burlap.mdp.core.state.State;
+import burlap.mdp.core.state.StateUtilities;
 import burlap.mdp.core.action.ActionType;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.environment.VectorizedEnvironment;
 import burlap.mdp.singleagent.oo.OOSADomain;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 
 public class TestGridWorld {
@@ -105,6 +120,92 @@ public class TestGridWorld {
 		this.assertPFs(s, new boolean[] {true, true, false, true, false});
 	}
 	
+	@Test
+	public void testVectorizedEnvironment() {
+		this.gw.setTf(new GridWorldTerminalFunction(10, 10));
+		OOSADomain terminatingDomain = this.gw.generateDomain();
+		State s = new GridWorldState(new GridAgent(9, 10), new GridLocation(10, 10, "location0"));
+		Action east = this.domain.getAction(GridWorldDomain.ACTION_EAST).associatedAction(null);
+		Action west = this.domain.getAction(GridWorldDomain.ACTION_WEST).associatedAction(null);
+		for(int parallelism : new int[]{1, 3}) {
+			VectorizedEnvironment venv = new VectorizedEnvironment(terminatingDomain.getModel(), new ConstantStateGenerator(s), 8);
+			venv.setParallelism(parallelism);
+			venv.setMaxEpisodeSteps(3);
+			List<Action> actions = new ArrayList<Action>();
+			for(int i = 0; i < venv.size(); i++) {
+				actions.add(i % 2 == 0 ? east : west);
+			}
+			for(int t = 0; t < 3; t++) {
+				List<EnvironmentOutcome> outcomes = venv.executeActions(actions);
+				for(int i = 0; i < venv.size(); i++) {
+					//east reaches the goal in one step; west never does, so its episodes are truncated after 3 steps
+					Assert.assertEquals(i % 2 == 0, outcomes.get(i).terminated);
+					Assert.assertEquals(i % 2 == 0 || t == 2, venv.wasReset(i));
+				}
+				List<State> obs = venv.currentObservations();
+				for(int i = 0; i < venv.size(); i++) {
+					Assert.assertEquals(venv.wasReset(i) ? 9 : 8 - t, ((GridWorldState)obs.get(i)).agent.x);
+				}
+			}
+			Assert.assertEquals(4 * 3 + 4, venv.getNumCompletedEpisodes());
+		}
+	}
+
+	@Test
+	public void testBinaryEpisodes() throws IOException {
+		List<Episode> episodes = new ArrayList<Episode>();
+		for(int i = 0; i < 5; i++){
+			episodes.add(PolicyUtils.rollout(new RandomPolicy(domain), this.generateState(), domain.getModel(), 10 + 7*i));
+		}
+		File dir = Files.createTempDirectory("burlapEpisodes").toFile();
+		try {
+			String path = new File(dir, "episodes" + BinaryEpisodeFormat.EXTENSION).getPath();
+			BinaryEpisodeWriter.writeEpisodes(episodes, path);
+			this.assertSameEpisodes(episodes, BinaryEpisodeReader.readEpisodes(path));
+
+			String yamlDir = new File(dir, "yaml").getPath();
+			Assert.assertEquals(episodes.size(), BinaryEpisodeFormat.convertBinaryToYAML(path, yamlDir, "ep"));
+			this.assertSameEpisodes(episodes, Episode.readEpisodes(yamlDir));
+
+			String path2 = new File(dir, "converted" + BinaryEpisodeFormat.EXTENSION).getPath();
+			Assert.assertEquals(episodes.size(), BinaryEpisodeFormat.convertYAMLToBinary(yamlDir, path2));
+			this.assertSameEpisodes(episodes, BinaryEpisodeReader.readEpisodes(path2));
+		} finally {
+			deleteDirectory(dir);
+		}
+	}
+
+	protected static void deleteDirectory(File dir) {
+		File [] files = dir.listFiles();
+		if(files != null) {
+			for(File f : files) {
+				if(f.isDirectory()) {
+					deleteDirectory(f);
+				}
+				else {
+					f.delete();
+				}
+			}
+		}
+		dir.delete();
+	}
+
+	public void assertSameEpisodes(List<Episode> expected, List<Episode> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++){
+			Episode e = expected.get(i);
+			Episode a = actual.get(i);
+			Assert.assertEquals(e.numTimeSteps(), a.numTimeSteps());
+			Assert.assertEquals(e.actionString(), a.actionString());
+			for(int t = 0; t < e.numTimeSteps(); t++){
+				Assert.assertEquals(StateUtilities.stateToString(e.state(t)), StateUtilities.stateToString(a.state(t)));
+				if(t > 0){
+					Assert.assertEquals(e.reward(t), a.reward(t), 0.);
+				}
+			}
+		}
+	}
+
 	@After
 	public void teardown() {
 		this.domain = null;
@@ -13,8 +13,10 @@ import burlap.mdp.singleagent.model.FullModel;
 import burlap.mdp.singleagent.model.TransitionProb;
 import burlap.statehashing.HashableState;
 import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.cached.CachedHashableStateFactory;
 import burlap.statehashing.simple.SimpleHashableStateFactory;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -80,6 +82,29 @@ public class TestHashing {
 
 
 	
+	@Test
+	public void testCachedHashFactory() {
+		SADomain domain = (SADomain)this.gridWorldTest.getDomain();
+		State startState = this.gridWorldTest.generateState();
+		HashableStateFactory factory = new CachedHashableStateFactory(new SimpleHashableStateFactory(), true);
+		Set<HashableState> hashedStates = this.getReachableHashedStates(startState, domain, factory);
+		assert(hashedStates.size() == 104);
+
+		for (HashableState state : hashedStates) {
+			State renamed = this.renameObjects((GridWorldState)state.s().copy());
+			HashableState renamedHashed = factory.hashState(renamed);
+			Assert.assertSame(state, renamedHashed);
+		}
+
+		HashableStateFactory simple = new SimpleHashableStateFactory();
+		for (HashableState state : hashedStates) {
+			HashableState simpleHashed = simple.hashState(state.s().copy());
+			Assert.assertEquals(simpleHashed.hashCode(), state.hashCode());
+			Assert.assertTrue(state.equals(simpleHashed));
+			Assert.assertTrue(simpleHashed.equals(state));
+		}
+	}
+
 	@Test
 	public void testSimpleHashFactoryLargeState() {
 		HashableStateFactory factory = new SimpleHashableStateFactory();
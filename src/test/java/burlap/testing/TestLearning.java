@@ -0,0 +1,198 @@
+package burlap.testing;
+
+import burlap.behavior.functionapproximation.dense.DenseCrossProductFeatures;
+import burlap.behavior.functionapproximation.dense.DenseStateFeatures;
+import burlap.behavior.singleagent.learning.lspi.LSPI;
+import burlap.behavior.singleagent.learning.lspi.SARSCollector;
+import burlap.behavior.singleagent.learning.lspi.SARSData;
+import burlap.behavior.singleagent.learning.tdmethods.QLearning;
+import burlap.behavior.singleagent.learning.tdmethods.QLearningStateNode;
+import burlap.behavior.singleagent.learning.tdmethods.SarsaLam;
+import burlap.behavior.singleagent.learning.tdmethods.qtable.FlatQTable;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.behavior.valuefunction.QValue;
+import burlap.mdp.auxiliary.common.ConstantStateGenerator;
+import burlap.mdp.auxiliary.common.SinglePFTF;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.SimpleAction;
+import burlap.mdp.core.oo.propositional.PropositionalFunction;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
+
+public class TestLearning {
+	GridWorldDomain gw;
+	OOSADomain domain;
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setRf(new UniformCostRF());
+		TerminalFunction tf = new SinglePFTF(PropositionalFunction.findPF(gw.generatePfs(), PF_AT_LOCATION));
+		this.gw.setTf(tf);
+		this.domain = this.gw.generateDomain();
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testQTables() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+
+		QLearning[] defaultTables = new QLearning[]{
+				new QLearning(this.domain, 0.99, this.hashingFactory, 0., 1.),
+				new SarsaLam(this.domain, 0.99, this.hashingFactory, 0., 0.5, 0.9)};
+		QLearning[] flatTables = new QLearning[]{
+				new QLearning(this.domain, 0.99, this.hashingFactory, 0., 1.),
+				new SarsaLam(this.domain, 0.99, this.hashingFactory, 0., 0.5, 0.9)};
+
+		for(int i = 0; i < defaultTables.length; i++) {
+			flatTables[i].setQTable(new FlatQTable(16, 4));
+			defaultTables[i].initializeForPlanning(50);
+			flatTables[i].initializeForPlanning(50);
+
+			RandomFactory.getMapped(0).setSeed(123);
+			defaultTables[i].planFromState(initialState);
+			RandomFactory.getMapped(0).setSeed(123);
+			flatTables[i].planFromState(initialState);
+
+			Assert.assertEquals(defaultTables[i].getQTable().numStates(), flatTables[i].getQTable().numStates());
+			for(int row = 0; row < defaultTables[i].getQTable().numStates(); row++) {
+				State s = defaultTables[i].getQTable().state(row).s();
+				for(QValue q : defaultTables[i].qValues(s)) {
+					Assert.assertEquals(q.q, flatTables[i].qValue(s, q.a), 0.);
+				}
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedQFunctionView() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		for(boolean flat : new boolean[]{false, true}) {
+			LegacyQLearning agent = new LegacyQLearning(this.domain, this.hashingFactory);
+			if(flat) {
+				agent.setQTable(new FlatQTable(16, 4));
+			}
+			agent.initializeForPlanning(20);
+			agent.planFromState(initialState);
+
+			Assert.assertEquals(agent.getQTable().numStates(), agent.legacyTable().size());
+			for(HashableState sh : agent.legacyTable().keySet()) {
+				QLearningStateNode node = agent.legacyNode(sh);
+				Assert.assertEquals(agent.qValues(sh.s()).size(), node.qEntry.size());
+				for(QValue q : node.qEntry) {
+					Assert.assertEquals(agent.qValue(sh.s(), q.a), q.q, 0.);
+					Assert.assertEquals(q.q, agent.legacyQ(sh, q.a).q, 0.);
+				}
+			}
+
+			//writes through the view reach the table
+			HashableState sh = this.hashingFactory.hashState(initialState);
+			QLearningStateNode node = agent.legacyNode(sh);
+			for(QValue q : node.qEntry) {
+				q.q = 7.;
+			}
+			agent.legacyTable().put(sh, node);
+			Assert.assertEquals(7., agent.value(initialState), 0.);
+		}
+	}
+
+	@Test
+	public void testFlatQTableActionIndex() {
+		GridWorldState s = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		List<Action> actions = new ArrayList<Action>(this.domain.getAction(GridWorldDomain.ACTION_NORTH).allApplicableActions(s));
+		actions.addAll(this.domain.getAction(GridWorldDomain.ACTION_EAST).allApplicableActions(s));
+		FlatQTable table = new FlatQTable();
+		int row = table.addState(this.hashingFactory.hashState(s), actions, new double[]{1., 2.});
+
+		//actions returned by the table are found by reference, and equal actions by equality
+		for(int i = 0; i < 2; i++) {
+			Assert.assertEquals(i, table.actionIndex(row, table.action(row, i)));
+			Assert.assertEquals(i, table.actionIndex(row, table.qValues(row).get(i).a));
+			Assert.assertEquals(i, table.actionIndex(row, new SimpleAction(actions.get(i).actionName())));
+		}
+		Assert.assertEquals(-1, table.actionIndex(row, new SimpleAction(GridWorldDomain.ACTION_SOUTH)));
+	}
+
+	/**
+	 * A subclass that uses the deprecated Q-function members of {@link QLearning}.
+	 */
+	@SuppressWarnings("deprecation")
+	protected static class LegacyQLearning extends QLearning {
+
+		public LegacyQLearning(OOSADomain domain, HashableStateFactory hashingFactory) {
+			super(domain, 0.99, hashingFactory, 0., 1.);
+		}
+
+		public Map<HashableState, QLearningStateNode> legacyTable() {
+			return this.qFunction;
+		}
+
+		public QLearningStateNode legacyNode(HashableState sh) {
+			return this.getStateNode(sh);
+		}
+
+		public QValue legacyQ(HashableState sh, Action a) {
+			return this.getQ(sh, a);
+		}
+	}
+
+	@Test
+	public void testLSTDQ() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		DenseStateFeatures stateFeatures = new DenseStateFeatures() {
+			@Override
+			public double[] features(State s) {
+				GridAgent agent = ((GridWorldState)s).agent;
+				double x = agent.x / 10.;
+				double y = agent.y / 10.;
+				return new double[]{1., x, y, x*x, y*y, x*y};
+			}
+
+			@Override
+			public DenseStateFeatures copy() {
+				return this;
+			}
+		};
+
+		RandomFactory.getMapped(0).setSeed(7);
+		SARSData data = new SARSCollector.UniformRandomSARSCollector(this.domain)
+				.collectNInstances(new ConstantStateGenerator(initialState), this.domain.getModel(), 5000, 100, null);
+
+		double [][] weights = new double[3][];
+		for(int i = 0; i < 3; i++) {
+			LSPI lspi = new LSPI(this.domain, 0.95, new DenseCrossProductFeatures(stateFeatures, 4), data);
+			lspi.toggleBatchLSTDQ(i > 0);
+			lspi.setLSTDQParallelism(i == 2 ? 4 : 1);
+			RandomFactory.getMapped(0).setSeed(11);
+			weights[i] = lspi.LSTDQ().getMatrix().getData();
+		}
+
+		for(int i = 1; i < 3; i++) {
+			Assert.assertEquals(weights[0].length, weights[i].length);
+			for(int j = 0; j < weights[0].length; j++) {
+				Assert.assertEquals(weights[0][j], weights[i][j], 1e-6 * Math.max(1., Math.abs(weights[0][j])));
+			}
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package burlap.testing;
+
+import burlap.behavior.policy.GreedyQPolicy;
+import burlap.behavior.singleagent.auxiliary.ScalableStateEnumerator;
+import burlap.behavior.singleagent.auxiliary.StateEnumerator;
+import burlap.behavior.singleagent.pomdp.pointbased.Perseus;
+import burlap.debugtools.RandomFactory;
+import burlap.domain.singleagent.pomdp.tiger.TigerDomain;
+import burlap.domain.singleagent.pomdp.tiger.TigerObservation;
+import burlap.domain.singleagent.pomdp.tiger.TigerObservations;
+import burlap.domain.singleagent.pomdp.tiger.TigerState;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.SimpleAction;
+import burlap.mdp.core.action.UniversalActionType;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.environment.EnvironmentOutcome;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.TransitionProb;
+import burlap.mdp.singleagent.pomdp.PODomain;
+import burlap.mdp.singleagent.pomdp.beliefstate.ArrayBeliefState;
+import burlap.mdp.singleagent.pomdp.beliefstate.BeliefState;
+import burlap.mdp.singleagent.pomdp.beliefstate.CompiledTabularBeliefUpdate;
+import burlap.mdp.singleagent.pomdp.beliefstate.TabularBeliefState;
+import burlap.mdp.singleagent.pomdp.beliefstate.TabularBeliefUpdate;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TestPOMDP {
+	@Test
+	public void testCompiledTabularBeliefUpdate() {
+		PODomain domain = (PODomain)new TigerDomain(true, 0.85).generateDomain();
+		TabularBeliefUpdate exact = new TabularBeliefUpdate(domain);
+		CompiledTabularBeliefUpdate compiled = new CompiledTabularBeliefUpdate(domain);
+		Assert.assertEquals(2, compiled.numStates());
+
+		String [] actions = new String[]{TigerDomain.ACTION_LISTEN, TigerDomain.ACTION_LISTEN, TigerDomain.ACTION_DO_NOTHING, TigerDomain.ACTION_LISTEN, TigerDomain.ACTION_LEFT, TigerDomain.ACTION_LISTEN};
+		String [] observations = new String[]{TigerDomain.HEAR_LEFT, TigerDomain.HEAR_LEFT, TigerDomain.HEAR_NOTHING, TigerDomain.HEAR_RIGHT, TigerDomain.DOOR_RESET, TigerDomain.HEAR_RIGHT};
+
+		BeliefState tabular = TigerDomain.getInitialBeliefState(domain);
+		ArrayBeliefState dense = new ArrayBeliefState((TabularBeliefState)tabular);
+		for(int t = 0; t < actions.length; t++) {
+			Action a = new SimpleAction(actions[t]);
+			State o = new TigerObservation(observations[t]);
+			BeliefState expected = exact.update(tabular, o, a);
+			BeliefState viaCompiled = compiled.update(tabular, o, a);
+			Assert.assertTrue(viaCompiled instanceof TabularBeliefState);
+			compiled.updateInPlace(dense, compiled.actionIndex(a), compiled.observationIndex(o));
+			Assert.assertArrayEquals(((TabularBeliefState)expected).beliefVector(), ((TabularBeliefState)viaCompiled).beliefVector(), 1e-12);
+			Assert.assertArrayEquals(((TabularBeliefState)expected).beliefVector(), dense.beliefVector(), 1e-12);
+			tabular = expected;
+		}
+		//after the door reset and hearing the tiger on the right once
+		Assert.assertEquals(0.85, dense.belief(new TigerState(TigerDomain.VAL_RIGHT)), 1e-12);
+	}
+
+	@Test
+	public void testCompiledTabularBeliefUpdateScalableEnumerator() {
+		PODomain domain = (PODomain)new TigerDomain(true, 0.85).generateDomain();
+		ScalableStateEnumerator senum = new ScalableStateEnumerator(domain, new SimpleHashableStateFactory());
+		senum.findReachableStatesAndEnumerate(new TigerState(TigerDomain.VAL_LEFT));
+		Assert.assertEquals(2, senum.numStatesEnumerated());
+		domain.setStateEnumerator(senum);
+
+		TabularBeliefUpdate exact = new TabularBeliefUpdate(domain);
+		CompiledTabularBeliefUpdate compiled = new CompiledTabularBeliefUpdate(domain);
+		Assert.assertEquals(2, compiled.numStates());
+		Assert.assertEquals(2, senum.numStatesEnumerated());
+
+		BeliefState tabular = TigerDomain.getInitialBeliefState(domain);
+		for(String obs : new String[]{TigerDomain.HEAR_LEFT, TigerDomain.HEAR_LEFT, TigerDomain.HEAR_RIGHT}) {
+			Action a = new SimpleAction(TigerDomain.ACTION_LISTEN);
+			State o = new TigerObservation(obs);
+			BeliefState expected = exact.update(tabular, o, a);
+			Assert.assertArrayEquals(((TabularBeliefState)expected).beliefVector(), ((TabularBeliefState)compiled.update(tabular, o, a)).beliefVector(), 1e-12);
+			tabular = expected;
+		}
+		Assert.assertEquals(0.85, ((TabularBeliefState)tabular).belief(new TigerState(TigerDomain.VAL_LEFT)), 1e-12);
+	}
+
+	@Test
+	public void testPerseus() {
+		PODomain domain = (PODomain)new TigerDomain(false, 0.85).generateDomain();
+		ArrayBeliefState uniform = new ArrayBeliefState(TigerDomain.getInitialBeliefState(domain));
+
+		double [] values = new double[3];
+		Perseus [] planners = new Perseus[3];
+		for(int t = 0; t < 3; t++) {
+			planners[t] = new Perseus(domain, 0.95, new SimpleHashableStateFactory(), 200, 1e-4, 1000, t == 0 ? 1 : 3);
+			planners[t].toggleDebugPrinting(false);
+			planners[t].toggleFullBackups(t == 2);
+			RandomFactory.getMapped(0).setSeed(5);
+			planners[t].planFromState(uniform);
+			values[t] = planners[t].value(uniform);
+		}
+		//the optimal value of the tiger problem from the uniform belief is about 19.37
+		Assert.assertEquals(19.37, values[0], 0.05);
+		//randomized backups do not depend on the number of threads
+		Assert.assertEquals(values[0], values[1], 0.);
+		Assert.assertEquals(values[0], values[2], 0.05);
+
+		Perseus perseus = planners[0];
+		Assert.assertEquals(TigerDomain.ACTION_LISTEN, new GreedyQPolicy(perseus).action(uniform).actionName());
+
+		//after hearing the tiger on the left twice, open the right door
+		CompiledTabularBeliefUpdate updater = new CompiledTabularBeliefUpdate(domain);
+		ArrayBeliefState b = (ArrayBeliefState)uniform.copy();
+		for(int i = 0; i < 2; i++) {
+			updater.updateInPlace(b, updater.actionIndex(new SimpleAction(TigerDomain.ACTION_LISTEN)), updater.observationIndex(new TigerObservation(TigerDomain.HEAR_LEFT)));
+		}
+		Assert.assertEquals(TigerDomain.ACTION_RIGHT, new GreedyQPolicy(perseus).action(b).actionName());
+		Assert.assertEquals(perseus.value(b), perseus.value(b.getBeliefArray()), 0.);
+
+		//opening a door from the uniform belief: -45 expected reward, then the door resets to the uniform belief
+		int listen = updater.actionIndex(new SimpleAction(TigerDomain.ACTION_LISTEN));
+		int left = updater.actionIndex(new SimpleAction(TigerDomain.ACTION_LEFT));
+		int right = updater.actionIndex(new SimpleAction(TigerDomain.ACTION_RIGHT));
+		Assert.assertEquals(-45. + 0.95 * 19.37, perseus.qValue(uniform.getBeliefArray(), left), 0.1);
+		Assert.assertEquals(-45. + 0.95 * 19.37, perseus.qValue(uniform.getBeliefArray(), right), 0.1);
+		Assert.assertEquals(19.37, perseus.qValue(uniform.getBeliefArray(), listen), 0.05);
+		//after hearing the tiger on the left twice, the tiger is on the left with probability 0.85^2 / (0.85^2 + 0.15^2)
+		double pLeft = 0.85 * 0.85 / (0.85 * 0.85 + 0.15 * 0.15);
+		Assert.assertEquals(pLeft * 10. - (1. - pLeft) * 100. + 0.95 * 19.37, perseus.qValue(b.getBeliefArray(), right), 0.1);
+	}
+
+	@Test
+	public void testPerseusTerminalStates() {
+		PODomain domain = new PODomain();
+		domain.addActionType(new UniversalActionType(TigerDomain.ACTION_LEFT))
+				.addActionType(new UniversalActionType(TigerDomain.ACTION_RIGHT))
+				.addActionType(new UniversalActionType(TigerDomain.ACTION_LISTEN));
+		domain.setObservationFunction(new TigerObservations(0.85, false));
+		domain.setModel(new EpisodicTigerModel());
+		StateEnumerator senum = new StateEnumerator(domain, new SimpleHashableStateFactory());
+		senum.getEnumeratedID(new TigerState(TigerDomain.VAL_LEFT));
+		senum.getEnumeratedID(new TigerState(TigerDomain.VAL_RIGHT));
+		senum.getEnumeratedID(EpisodicTigerModel.doneState());
+		domain.setStateEnumerator(senum);
+
+		Perseus perseus = new Perseus(domain, 0.95, new SimpleHashableStateFactory(), 200, 1e-6, 1000, 2);
+		perseus.toggleDebugPrinting(false);
+		RandomFactory.getMapped(0).setSeed(5);
+		ArrayBeliefState uniform = new ArrayBeliefState(domain, senum, new double[]{0.5, 0.5, 0.});
+		perseus.planFromState(uniform);
+
+		//exact value iteration over the beliefs reachable by listening gives 3.770
+		Assert.assertEquals(3.770, perseus.value(uniform), 1e-3);
+
+		CompiledTabularBeliefUpdate updater = new CompiledTabularBeliefUpdate(domain);
+		int right = updater.actionIndex(new SimpleAction(TigerDomain.ACTION_RIGHT));
+		//the model leaves the terminal state, but a terminal state has no future value, for Q-values and for backups alike
+		double [] done = new double[]{0., 0., 1.};
+		Assert.assertEquals(0., perseus.value(done), 0.);
+		for(int a = 0; a < updater.numActions(); a++) {
+			Assert.assertEquals(0., perseus.qValue(done, a), 0.);
+		}
+		double [] tigerLeft = new double[]{1., 0., 0.};
+		Assert.assertEquals(10., perseus.qValue(tigerLeft, right), 1e-12);
+		Assert.assertEquals(10., perseus.value(tigerLeft), 0.05);
+		double [] halfDone = new double[]{0.5, 0., 0.5};
+		Assert.assertEquals(5., perseus.qValue(halfDone, right), 1e-12);
+	}
+
+	/**
+	 * A tiger problem in which opening a door ends the episode in a terminal state. The terminal state's transitions lead back to the
+	 * tiger states, which planners must ignore.
+	 */
+	protected static class EpisodicTigerModel implements FullModel {
+
+		public static final String DONE = "done";
+
+		public static TigerState doneState() {
+			//TigerState only accepts tiger positions in its constructor
+			TigerState s = new TigerState();
+			s.door = DONE;
+			return s;
+		}
+
+		@Override
+		public List<TransitionProb> transitions(State s, Action a) {
+			String door = ((TigerState)s).door;
+			if(door.equals(DONE)) {
+				return Arrays.asList(
+						new TransitionProb(0.5, new EnvironmentOutcome(s, a, new TigerState(TigerDomain.VAL_LEFT), 0., false)),
+						new TransitionProb(0.5, new EnvironmentOutcome(s, a, new TigerState(TigerDomain.VAL_RIGHT), 0., false)));
+			}
+			if(a.actionName().equals(TigerDomain.ACTION_LISTEN)) {
+				return Arrays.asList(new TransitionProb(1., new EnvironmentOutcome(s, a, s, -1., false)));
+			}
+			boolean correct = a.actionName().equals(TigerDomain.ACTION_LEFT) ? door.equals(TigerDomain.VAL_RIGHT) : door.equals(TigerDomain.VAL_LEFT);
+			return Arrays.asList(new TransitionProb(1., new EnvironmentOutcome(s, a, doneState(), correct ? 10. : -100., true)));
+		}
+
+		@Override
+		public EnvironmentOutcome sample(State s, Action a) {
+			return FullModel.Helper.sampleByEnumeration(this, s, a);
+		}
+
+		@Override
+		public boolean terminal(State s) {
+			return ((TigerState)s).door.equals(DONE);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package burlap.testing;
+
+import burlap.behavior.policy.Policy;
+import burlap.behavior.singleagent.Episode;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.auxiliary.common.SinglePFTF;
+import burlap.mdp.auxiliary.stateconditiontest.StateConditionTest;
+import burlap.mdp.auxiliary.stateconditiontest.TFGoalCondition;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.action.Action;
+import burlap.mdp.core.action.SimpleAction;
+import burlap.mdp.core.oo.propositional.PropositionalFunction;
+import burlap.mdp.core.oo.state.packed.PackedOOState;
+import burlap.mdp.core.oo.state.packed.PackedOOStateCodec;
+import burlap.mdp.core.state.MutableState;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.model.DelegatedModel;
+import burlap.mdp.singleagent.model.FullModel;
+import burlap.mdp.singleagent.model.PackedOOModel;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.HashableStateFactory;
+import burlap.statehashing.ReflectiveHashableStateFactory;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static burlap.behavior.policy.PolicyUtils.rollout;
+import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
+
+public class TestPackedOOState {
+	GridWorldDomain gw;
+	OOSADomain domain;
+	StateConditionTest goalCondition;
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.gw = new GridWorldDomain(11, 11);
+		this.gw.setMapToFourRooms();
+		this.gw.setRf(new UniformCostRF());
+		TerminalFunction tf = new SinglePFTF(PropositionalFunction.findPF(gw.generatePfs(), PF_AT_LOCATION));
+		this.gw.setTf(tf);
+		this.domain = this.gw.generateDomain();
+		this.goalCondition = new TFGoalCondition(tf);
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testPackedOOState() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		PackedOOStateCodec codec = new PackedOOStateCodec(initialState);
+		PackedOOState packed = codec.pack(initialState);
+
+		//existing hashing factories treat packed and source states the same
+		Assert.assertEquals(this.hashingFactory.hashState(initialState), this.hashingFactory.hashState(packed));
+		Assert.assertEquals(this.hashingFactory.hashState(initialState).hashCode(), this.hashingFactory.hashState(packed).hashCode());
+
+		//copies are independent, and object views write through to their state
+		PackedOOState copy = packed.copy();
+		Assert.assertEquals(packed, copy);
+		Assert.assertEquals(packed.hashCode(), copy.hashCode());
+		((MutableState)copy.objectsOfClass(GridWorldDomain.CLASS_AGENT).get(0)).set(GridWorldDomain.VAR_X, 3);
+		Assert.assertEquals(0, packed.get("agent:x"));
+		Assert.assertEquals(3, copy.get("agent:x"));
+		Assert.assertNotEquals(packed, copy);
+		Assert.assertEquals(3, ((GridWorldState)codec.unpack(copy)).agent.x);
+		Assert.assertEquals(0, ((GridWorldState)codec.getTemplate()).agent.x);
+
+		copy.addObject(new GridLocation(1, 2, 1, "loc1"));
+		copy.renameObject("loc1", "goal");
+		Assert.assertEquals(3, copy.numObjects());
+		Assert.assertEquals(2, copy.object("goal").get(GridWorldDomain.VAR_Y));
+		Assert.assertEquals(3, copy.get("agent:x"));
+		GridWorldState unpacked = (GridWorldState)codec.unpack(copy);
+		Assert.assertEquals(2, unpacked.locations.size());
+		Assert.assertEquals(1, ((GridLocation)unpacked.object("goal")).type);
+		copy.removeObject("goal");
+		copy.set("agent:x", 0);
+		Assert.assertEquals(packed, copy);
+
+		//plan with the existing model through packed states
+		ValueIteration vi = new ValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000);
+		vi.planFromState(initialState);
+
+		OOSADomain packedDomain = this.gw.generateDomain();
+		PackedOOModel.packModel(packedDomain, initialState);
+		for(HashableStateFactory factory : new HashableStateFactory[]{this.hashingFactory, new ReflectiveHashableStateFactory()}) {
+			ValueIteration pvi = new ValueIteration(packedDomain, 0.99, factory, 1e-8, 1000);
+			Policy p = pvi.planFromState(packed);
+			Assert.assertEquals(vi.getAllStates().size(), pvi.getAllStates().size());
+			for(State s : pvi.getAllStates()) {
+				Assert.assertTrue(s instanceof PackedOOState);
+				Assert.assertEquals(vi.value(codec.unpack(s)), pvi.value(s), 1e-6);
+			}
+
+			Episode analysis = rollout(p, packed, packedDomain.getModel());
+			Assert.assertEquals(this.gw.getHeight() + this.gw.getWidth() - 1, analysis.stateSequence.size());
+			Assert.assertTrue(this.goalCondition.satisfies(codec.unpack(analysis.stateSequence.get(analysis.stateSequence.size()-1))));
+		}
+	}
+
+	@Test
+	public void testPackedModelAllocations() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		OOSADomain packedDomain = this.gw.generateDomain();
+		PackedOOModel direct = PackedOOModel.packModel(packedDomain, initialState);
+		PackedOOModel viaCodec = new PackedOOModel(new DelegatedModel(this.domain.getModel()), direct.getCodec());
+		Assert.assertTrue(direct.operatesOnPackedStates());
+		Assert.assertFalse(viaCodec.operatesOnPackedStates());
+
+		//the grid world model operates on packed arrays directly, so it allocates less per query than unpacking and packing
+		PackedOOState packed = direct.getCodec().pack(initialState);
+		Action north = new SimpleAction(GridWorldDomain.ACTION_NORTH);
+		Assert.assertEquals(viaCodec.transitions(packed, north).get(0).eo.op, direct.transitions(packed, north).get(0).eo.op);
+		Assert.assertTrue(transitionAllocatedBytes(direct, packed, north) < transitionAllocatedBytes(viaCodec, packed, north));
+
+		//planning with packed states and their own hashing allocates less than planning with the domain's states
+		Assert.assertTrue(planAllocatedBytes(packedDomain, packed, new ReflectiveHashableStateFactory())
+				< planAllocatedBytes(this.domain, initialState, this.hashingFactory));
+	}
+
+	/**
+	 * Returns the bytes the current thread allocates to plan with value iteration, after planning once to warm up.
+	 */
+	protected static long planAllocatedBytes(OOSADomain domain, State s, HashableStateFactory factory) {
+		new ValueIteration(domain, 0.99, factory, 1e-8, 1000).planFromState(s);
+		long start = allocatedBytes();
+		new ValueIteration(domain, 0.99, factory, 1e-8, 1000).planFromState(s);
+		return allocatedBytes() - start;
+	}
+
+	/**
+	 * Returns the bytes the current thread allocates to query the transitions of a state, averaged over many queries after a warm up.
+	 */
+	protected static long transitionAllocatedBytes(FullModel model, State s, Action a) {
+		for(int i = 0; i < 10000; i++) {
+			model.transitions(s, a);
+		}
+		long start = allocatedBytes();
+		for(int i = 0; i < 10000; i++) {
+			model.transitions(s, a);
+		}
+		return (allocatedBytes() - start) / 10000;
+	}
+
+	protected static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -3,16 +3,28 @@ package burlap.testing;
 import burlap.behavior.policy.Policy;
 import burlap.behavior.policy.PolicyUtils;
 import burlap.behavior.singleagent.Episode;
+import burlap.behavior.singleagent.planning.Planner;
 import burlap.behavior.singleagent.planning.deterministic.DeterministicPlanner;
 import burlap.behavior.singleagent.planning.deterministic.SDPlannerPolicy;
 import burlap.behavior.singleagent.planning.deterministic.informed.Heuristic;
 import burlap.behavior.singleagent.planning.deterministic.informed.astar.AStar;
 import burlap.behavior.singleagent.planning.deterministic.uninformed.bfs.BFS;
 import burlap.behavior.singleagent.planning.deterministic.uninformed.dfs.DFS;
+import burlap.behavior.singleagent.planning.stochastic.DynamicProgramming;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.ParallelUCT;
+import burlap.behavior.singleagent.planning.stochastic.montecarlo.uct.UCTActionNode;
+import burlap.behavior.singleagent.planning.stochastic.policyiteration.PolicyIteration;
+import burlap.behavior.singleagent.planning.stochastic.rtdp.ParallelRTDP;
+import burlap.behavior.singleagent.planning.stochastic.sparsesampling.ParallelSparseSampling;
+import burlap.behavior.singleagent.planning.stochastic.sparsesampling.SparseSampling;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ParallelValueIteration;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.PrioritizedSweeping;
+import burlap.behavior.singleagent.planning.stochastic.valueiteration.ValueIteration;
 import burlap.domain.singleagent.gridworld.GridWorldDomain;
 import burlap.domain.singleagent.gridworld.state.GridAgent;
 import burlap.domain.singleagent.gridworld.state.GridLocation;
 import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.behavior.valuefunction.QValue;
 import burlap.mdp.auxiliary.common.SinglePFTF;
 import burlap.mdp.auxiliary.stateconditiontest.StateConditionTest;
 import burlap.mdp.auxiliary.stateconditiontest.TFGoalCondition;
@@ -20,6 +32,7 @@ import burlap.mdp.core.TerminalFunction;
 import burlap.mdp.core.oo.propositional.PropositionalFunction;
 import burlap.mdp.core.state.State;
 import burlap.mdp.singleagent.common.UniformCostRF;
+import burlap.mdp.singleagent.model.CachedModel;
 import burlap.mdp.singleagent.oo.OOSADomain;
 import burlap.statehashing.simple.SimpleHashableStateFactory;
 import org.junit.After;
@@ -27,6 +40,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+
 import static burlap.behavior.policy.PolicyUtils.rollout;
 import static burlap.domain.singleagent.gridworld.GridWorldDomain.PF_AT_LOCATION;
 
@@ -108,6 +123,60 @@ public class TestPlanning {
 		this.evaluateEpisode(analysis, true);
 	}
 	
+	@Test
+	public void testParallelVI() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+
+		ValueIteration vi = new ValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000);
+		vi.planFromState(initialState);
+
+		ParallelValueIteration pvi = new ParallelValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000, 4);
+		pvi.setStatesPerTask(8);
+		Policy p = pvi.planFromState(initialState);
+
+		for(State s : vi.getAllStates()){
+			Assert.assertEquals(vi.value(s), pvi.value(s), 1e-6);
+		}
+
+		Episode analysis = rollout(p, initialState, domain.getModel());
+		this.evaluateEpisode(analysis, true);
+	}
+	
+	@Test
+	public void testCompiledDP() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+
+		ValueIteration vi = new ValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000);
+		vi.planFromState(initialState);
+
+		ValueIteration cvi = new ValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000);
+		cvi.toggleCompiledModel(true);
+		ParallelValueIteration cpvi = new ParallelValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000, 4);
+		cpvi.toggleCompiledModel(true);
+		cpvi.setStatesPerTask(8);
+		PolicyIteration cpi = new PolicyIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000, 100);
+		cpi.toggleCompiledModel(true);
+		PrioritizedSweeping cps = new PrioritizedSweeping(this.domain, 0.99, this.hashingFactory, 1e-8, -1);
+		cps.toggleCompiledModel(true);
+
+		for(DynamicProgramming dp : new DynamicProgramming[]{cvi, cpvi, cpi}) {
+			Policy p = ((Planner)dp).planFromState(initialState);
+			for(State s : vi.getAllStates()) {
+				Assert.assertEquals(vi.value(s), dp.value(s), 1e-6);
+			}
+			Episode analysis = rollout(p, initialState, domain.getModel());
+			this.evaluateEpisode(analysis, true);
+		}
+
+		PrioritizedSweeping ps = new PrioritizedSweeping(this.domain, 0.99, this.hashingFactory, 1e-8, -1);
+		ps.planFromState(initialState);
+		cps.planFromState(initialState);
+		for(State s : ps.getAllStates()) {
+			Assert.assertEquals(ps.value(s), cps.value(s), 1e-6);
+		}
+	}
+	
+	
 	public void evaluateEpisode(Episode analysis) {
 		this.evaluateEpisode(analysis, false);
 	}
@@ -128,4 +197,127 @@ public class TestPlanning {
 	public void teardown() {
 		
 	}
+
+	@Test
+	public void testParallelUCT() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		for(ParallelUCT.ParallelMode mode : ParallelUCT.ParallelMode.values()) {
+			ParallelUCT uct = new ParallelUCT(this.domain, 0.99, this.hashingFactory, 20, 1000, 2, 4);
+			uct.setParallelMode(mode);
+			uct.planFromState(initialState);
+			int visits = 0;
+			for(UCTActionNode an : uct.getRoot().actionNodes) {
+				visits += an.n;
+			}
+			Assert.assertEquals(1000, visits);
+			Assert.assertEquals(1000, uct.getRoot().n);
+
+			ParallelUCT timed = new ParallelUCT(this.domain, 0.99, this.hashingFactory, 20, -1, 2, 4);
+			timed.setParallelMode(mode);
+			timed.setPlanningTimeBudget(50);
+			long start = System.currentTimeMillis();
+			timed.planFromState(initialState);
+			Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+			Assert.assertTrue(timed.getRoot().n > 0);
+			Assert.assertTrue(timed.value(initialState) > -20.);
+		}
+	}
+
+	@Test
+	public void testParallelSparseSampling() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		SparseSampling ss = new SparseSampling(this.domain, 0.99, this.hashingFactory, 6, -1);
+		List<QValue> expected = ss.qValues(initialState);
+		for(int capacity : new int[]{32, 100000}) {
+			ParallelSparseSampling pss = new ParallelSparseSampling(this.domain, 0.99, this.hashingFactory, 6, -1, capacity, 4);
+			List<QValue> actual = pss.qValues(initialState);
+			Assert.assertEquals(expected.size(), actual.size());
+			for(int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals(expected.get(i).a, actual.get(i).a);
+				Assert.assertEquals(expected.get(i).q, actual.get(i).q, delta);
+			}
+			Assert.assertTrue(pss.getNumberOfStateNodesCreated() <= capacity + 1 + pss.getParallelism());
+			Assert.assertEquals(capacity == 32, pss.getNumberOfEvictedNodes() > 0);
+		}
+
+		ParallelSparseSampling sampled = new ParallelSparseSampling(this.domain, 0.99, this.hashingFactory, 5, 3, 1000, 4);
+		double v = sampled.value(initialState);
+		Assert.assertTrue(v <= 0. && v >= -5.);
+	}
+
+	@Test
+	public void testParallelSparseSamplingForkHeights() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		for(int h = 0; h <= 3; h++) {
+			List<QValue> expected = new SparseSampling(this.domain, 0.99, this.hashingFactory, h, -1).qValues(initialState);
+			for(int forkHeight = 1; forkHeight <= h + 1; forkHeight++) {
+				ParallelSparseSampling pss = new ParallelSparseSampling(this.domain, 0.99, this.hashingFactory, h, -1, 1000, 2);
+				pss.setForkHeight(forkHeight);
+				List<QValue> actual = pss.qValues(initialState);
+				Assert.assertEquals(expected.size(), actual.size());
+				for(int i = 0; i < expected.size(); i++) {
+					Assert.assertEquals(expected.get(i).q, actual.get(i).q, delta);
+				}
+			}
+		}
+
+		ParallelSparseSampling pss = new ParallelSparseSampling(this.domain, 0.99, this.hashingFactory, 2, -1, 1000, 2);
+		for(int forkHeight : new int[]{0, -1}) {
+			try {
+				pss.setForkHeight(forkHeight);
+				Assert.fail("Fork height " + forkHeight + " was accepted");
+			} catch(RuntimeException e) {
+				//expected
+			}
+		}
+		Assert.assertEquals(2, pss.getForkHeight());
+	}
+
+	@Test
+	public void testParallelRTDP() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		ValueIteration vi = new ValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000);
+		vi.planFromState(initialState);
+
+		ParallelRTDP rtdp = new ParallelRTDP(this.domain, 0.99, this.hashingFactory, 0., 100000, 1e-6, 200, 4);
+		Policy p = rtdp.planFromState(initialState);
+		Assert.assertTrue(rtdp.isSolved(initialState));
+		Assert.assertTrue(rtdp.getNumberOfRolloutsPerformed() < 100000);
+		Assert.assertEquals(vi.value(initialState), rtdp.value(initialState), 1e-4);
+
+		Episode analysis = rollout(p, initialState, domain.getModel());
+		this.evaluateEpisode(analysis, true);
+	}
+
+	@Test
+	public void testCachedModel() {
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		ValueIteration vi = new ValueIteration(this.domain, 0.99, this.hashingFactory, 1e-8, 1000);
+		vi.planFromState(initialState);
+
+		for(CachedModel.EvictionPolicy policy : CachedModel.EvictionPolicy.values()) {
+			for(int capacity : new int[]{64, 100000}) {
+				OOSADomain cachedDomain = this.gw.generateDomain();
+				CachedModel model = new CachedModel(cachedDomain.getModel(), this.hashingFactory, capacity, policy, capacity == 64);
+				cachedDomain.setModel(model);
+				ValueIteration cvi = new ValueIteration(cachedDomain, 0.99, this.hashingFactory, 1e-8, 1000);
+				Policy p = cvi.planFromState(initialState);
+				for(State s : vi.getAllStates()) {
+					Assert.assertEquals(vi.value(s), cvi.value(s), delta);
+				}
+				Assert.assertTrue(model.getHits() > 0);
+				Assert.assertTrue(model.size() <= capacity + 1);
+				if(capacity == 64) {
+					Assert.assertTrue(model.getEvictions() + model.getRejections() > 0);
+				}
+				else {
+					Assert.assertEquals(0, model.getEvictions());
+					Assert.assertEquals(model.size(), model.getMisses());
+				}
+
+				Episode analysis = rollout(p, initialState, cachedDomain.getModel());
+				this.evaluateEpisode(analysis, true);
+			}
+		}
+	}
 }
@@ -0,0 +1,77 @@
+package burlap.testing;
+
+import burlap.behavior.singleagent.auxiliary.ScalableStateEnumerator;
+import burlap.behavior.singleagent.auxiliary.StateReachability;
+import burlap.domain.singleagent.gridworld.GridWorldDomain;
+import burlap.domain.singleagent.gridworld.state.GridAgent;
+import burlap.domain.singleagent.gridworld.state.GridLocation;
+import burlap.domain.singleagent.gridworld.state.GridWorldState;
+import burlap.mdp.core.state.State;
+import burlap.mdp.singleagent.oo.OOSADomain;
+import burlap.statehashing.HashableState;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+
+public class TestStateEnumeration {
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testScalableStateEnumerator() throws IOException {
+		//a large enough open grid that spilled states are written to disk
+		OOSADomain openDomain = new GridWorldDomain(60, 60).generateDomain();
+		GridWorldState initialState = new GridWorldState(new GridAgent(0, 0), new GridLocation(10, 10, 0, "loc0"));
+		Set<HashableState> reachable = StateReachability.getReachableHashedStates(initialState, openDomain, this.hashingFactory);
+		Assert.assertEquals(3600, reachable.size());
+
+		File spillDir = Files.createTempDirectory("burlap-enum").toFile();
+		ScalableStateEnumerator [] enumerators = new ScalableStateEnumerator[4];
+		for(int t = 0; t < enumerators.length; t++) {
+			enumerators[t] = new ScalableStateEnumerator(openDomain, this.hashingFactory, t == 0 ? 1 : 3);
+			enumerators[t].setChunkSize(37);
+			if(t == 2) {
+				enumerators[t].togglePackedEncoding(true);
+			}
+			else if(t == 3) {
+				enumerators[t].spillToDisk(spillDir);
+			}
+			enumerators[t].findReachableStatesAndEnumerate(initialState);
+			Assert.assertEquals(reachable.size(), enumerators[t].numStatesEnumerated());
+		}
+
+		for(int i = 0; i < reachable.size(); i++) {
+			HashableState expected = this.hashingFactory.hashState(enumerators[0].getStateForEnumerationId(i));
+			Assert.assertTrue(reachable.contains(expected));
+			for(ScalableStateEnumerator senum : enumerators) {
+				//ids do not depend on the number of threads or the state storage
+				State s = senum.getStateForEnumerationId(i);
+				Assert.assertEquals(expected, this.hashingFactory.hashState(s));
+				Assert.assertEquals(i, senum.getEnumeratedID(s));
+				Assert.assertEquals(i, senum.findEnumeratedID(s));
+			}
+		}
+
+		//a state outside the grid was never reached, and looking it up does not enumerate it
+		GridWorldState unreachable = new GridWorldState(new GridAgent(60, 60), new GridLocation(10, 10, 0, "loc0"));
+		for(ScalableStateEnumerator senum : enumerators) {
+			Assert.assertEquals(-1, senum.findEnumeratedID(unreachable));
+			Assert.assertEquals(reachable.size(), senum.numStatesEnumerated());
+		}
+
+		for(ScalableStateEnumerator senum : enumerators) {
+			senum.close();
+		}
+		Assert.assertTrue(spillDir.delete());
+	}
+}
@@ -0,0 +1,131 @@
+package burlap.testing;
+
+import burlap.debugtools.DPrint;
+import burlap.debugtools.RandomFactory;
+import burlap.behavior.stochasticgames.agents.RandomSGAgent;
+import burlap.behavior.stochasticgames.madynamicprogramming.MADynamicProgramming;
+import burlap.behavior.stochasticgames.madynamicprogramming.SGBackupOperator;
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.CorrelatedQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MaxQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.backupOperators.MinMaxQ;
+import burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.MAValueIteration;
+import burlap.behavior.stochasticgames.madynamicprogramming.dpplanners.ParallelMAValueIteration;
+import burlap.behavior.stochasticgames.solvers.CorrelatedEquilibriumSolver;
+import burlap.behavior.valuefunction.ConstantValueFunction;
+import burlap.domain.stochasticgames.gridgame.GridGame;
+import burlap.domain.stochasticgames.normalform.NFGameState;
+import burlap.domain.stochasticgames.normalform.SingleStageNormalFormGame;
+import burlap.mdp.auxiliary.common.NullTermination;
+import burlap.mdp.core.TerminalFunction;
+import burlap.mdp.core.state.State;
+import burlap.mdp.stochasticgames.JointAction;
+import burlap.mdp.stochasticgames.SGDomain;
+import burlap.mdp.stochasticgames.agent.AgentFactory;
+import burlap.mdp.stochasticgames.agent.SGAgent;
+import burlap.mdp.stochasticgames.agent.SGAgentType;
+import burlap.mdp.stochasticgames.model.JointRewardFunction;
+import burlap.mdp.stochasticgames.oo.OOSGDomain;
+import burlap.mdp.stochasticgames.tournament.ConcurrentTournament;
+import burlap.mdp.stochasticgames.tournament.common.AllPairWiseSameTypeMS;
+import burlap.mdp.stochasticgames.tournament.common.ConstantWorldGenerator;
+import burlap.statehashing.simple.SimpleHashableStateFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestStochasticGames {
+	public static final double delta = 0.000001;
+	SimpleHashableStateFactory hashingFactory;
+
+	@Before
+	public void setup() {
+		this.hashingFactory = new SimpleHashableStateFactory();
+	}
+
+	@Test
+	public void testConcurrentTournament() {
+		SingleStageNormalFormGame game = SingleStageNormalFormGame.getPrisonersDilemma();
+		SGDomain sgDomain = (SGDomain)game.generateDomain();
+		SGAgentType type = game.generateAgentType(0);
+		AgentFactory randomAgents = new AgentFactory() {
+			@Override
+			public SGAgent generateAgent(String agentName, SGAgentType type) {
+				return new RandomSGAgent().setAgentDetails(agentName, type);
+			}
+		};
+
+		ConstantWorldGenerator worlds = new ConstantWorldGenerator(sgDomain, game.getJointRewardFunction(), new NullTermination(), new NFGameState(2));
+		int worldDebugId = worlds.generateWorld().getDebugId();
+
+		double [][] results = new double[2][];
+		int [] parallelism = new int[]{1, 3};
+		for(int t = 0; t < 2; t++) {
+			ConcurrentTournament tournament = new ConcurrentTournament(10, 5, new AllPairWiseSameTypeMS(type, 5), worlds, parallelism[t]);
+			tournament.setMaxPendingMatches(2);
+			for(int i = 0; i < 5; i++) {
+				tournament.addAgent(randomAgents);
+			}
+			DPrint.toggleCode(tournament.getDebugId(), false);
+			DPrint.toggleCode(worldDebugId, false);
+			RandomFactory.getMapped(0).setSeed(11);
+			tournament.runTournament();
+			DPrint.toggleCode(tournament.getDebugId(), true);
+			DPrint.toggleCode(worldDebugId, true);
+			results[t] = new double[5];
+			for(int i = 0; i < 5; i++) {
+				results[t][i] = tournament.getCumulativeRewardFor(i);
+				Assert.assertEquals(results[t][i], tournament.getRewardAggregator().v(i), delta);
+				//4 matches of 5 games of 10 stages with rewards in [0, 5]
+				Assert.assertTrue(results[t][i] > 0. && results[t][i] <= 4 * 5 * 10 * 5.);
+			}
+		}
+		Assert.assertArrayEquals(results[0], results[1], 0.);
+	}
+
+	@Test
+	public void testParallelMAValueIteration() {
+		GridGame gg = new GridGame();
+		OOSGDomain sgDomain = gg.generateDomain();
+		List<SGAgentType> types = new ArrayList<SGAgentType>();
+		types.add(GridGame.getStandardGridGameAgentType(sgDomain));
+		types.add(GridGame.getStandardGridGameAgentType(sgDomain));
+		JointRewardFunction rf = new GridGame.GGJointRewardFunction(sgDomain);
+		TerminalFunction tf = new GridGame.GGTerminalFunction(sgDomain);
+		State s = GridGame.getCorrdinationGameInitialState();
+
+		//MaxQ values are unique, so synchronous parallel VI converges to the same values as serial VI
+		MAValueIteration serial = new MAValueIteration(sgDomain, types, rf, tf, 0.9, hashingFactory, new ConstantValueFunction(0.), new MaxQ(), 1e-6, 200);
+		serial.planFromState(s);
+		ParallelMAValueIteration parallel = new ParallelMAValueIteration(sgDomain, types, rf, tf, 0.9, hashingFactory, new ConstantValueFunction(0.), new MaxQ(), 1e-6, 200, 2);
+		parallel.setStatesPerTask(8);
+		parallel.planFromState(s);
+		this.assertSameJointQValues(serial, parallel, s, types, 1e-4);
+
+		//equilibrium LPs of this general-sum game have many solutions, so only check that the result does not depend on the number of threads
+		SGBackupOperator [] operators = new SGBackupOperator[]{new MinMaxQ(), new CorrelatedQ(CorrelatedEquilibriumSolver.CorrelatedEquilibriumObjective.UTILITARIAN)};
+		for(SGBackupOperator op : operators) {
+			ParallelMAValueIteration [] planners = new ParallelMAValueIteration[2];
+			for(int t = 0; t < 2; t++) {
+				planners[t] = new ParallelMAValueIteration(sgDomain, types, rf, tf, 0.9, hashingFactory, new ConstantValueFunction(0.), op, 1e-6, 200, t + 1);
+				planners[t].setStatesPerTask(8);
+				planners[t].planFromState(s);
+			}
+			this.assertSameJointQValues(planners[0], planners[1], s, types, 0.);
+		}
+	}
+
+	/**
+	 * Asserts that two planners have the same Q-values for every joint action and agent in a state
+	 */
+	protected void assertSameJointQValues(MADynamicProgramming expected, MADynamicProgramming actual, State s, List<SGAgentType> types, double tolerance) {
+		for(JointAction ja : JointAction.getAllJointActionsFromTypes(s, types)) {
+			for(int i = 0; i < types.size(); i++) {
+				Assert.assertEquals(expected.getQSources().agentQSource(i).getQValueFor(s, ja).q,
+						actual.getQSources().agentQSource(i).getQValueFor(s, ja).q, tolerance);
+			}
+		}
+	}
+}
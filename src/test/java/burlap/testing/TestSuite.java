@@ -8,7 +8,17 @@ import org.junit.runners.Suite;
 	TestGridWorld.class,
 	TestPlanning.class,
 	TestBlockDude.class,
-	TestHashing.class
+	TestHashing.class,
+	TestLearning.class,
+	TestExperienceReplay.class,
+	TestFunctionApproximation.class,
+	TestExperimenter.class,
+	TestStochasticGames.class,
+	TestPOMDP.class,
+	TestPackedOOState.class,
+	TestDataStructures.class,
+	TestStateEnumeration.class,
+	TestFittedVI.class
 })
 public class TestSuite {
 